@@ -8,6 +8,20 @@ public class MyBot
         gameDefinitions.put("botName",                  "v10");     // Name of the bot that will appear on screen
 
         gameDefinitions.put("testArgument",             0);         // Argument to quickly test new features
+        gameDefinitions.put("logLevel",                 "Debug");   // Error, Info, Debug or Trace, anything more verbose is skipped
+        gameDefinitions.put("trace",                    false);     // Record every turn in a binary trace file, see ReplayTrace
+        gameDefinitions.put("metrics",                  false);     // Time and count every phase, summary with p50/p99 written at game end
+        gameDefinitions.put("warmUpTime",               10000.0);   // Milliseconds of synthetic games played before sending the name, to get the JIT going
+        gameDefinitions.put("turnBudget",               1800.0);    // Milliseconds a turn may use before searches stop, out of the 2000 allowed
+        gameDefinitions.put("combatBudget",             100.0);     // Milliseconds for creating the combat operations, within the turn budget
+        gameDefinitions.put("navigationBudget",         1200.0);    // Milliseconds for navigation corrections and the combat searches it runs, within the turn budget
+        gameDefinitions.put("combatSearchBudget",       800.0);     // Milliseconds for all the combat searches of a turn, within the navigation budget
+        gameDefinitions.put("planetRouting",            false);     // Ships head for the first waypoint around the planets in the way of far targets
+        gameDefinitions.put("jointNavigation",          false);     // All thrust moves adjusted together with reciprocal velocity obstacles before conflicts are resolved
+        gameDefinitions.put("trajectoryReservation",    false);     // Navigation and combat scores avoid the trajectories my ships already committed to this turn
+        gameDefinitions.put("futureThreads",            1);         // Threads searching each combat future, more than 1 splits the first events over a pool
+        gameDefinitions.put("engagementZones",          false);     // Combat operations split into zones that cannot meet this turn, the combats of the zones searched in parallel
+        gameDefinitions.put("monteCarloCombat",         false);     // Combats with too many lines for alpha-beta searched by Monte Carlo tree search instead
 
         gameDefinitions.put("maxPriority",              100.0);     // Higher bound of priorities (except special ones)
         gameDefinitions.put("distanceDiscountExponent", 2.5);       // Power exponent to discount by distance
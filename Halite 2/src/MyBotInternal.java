@@ -1,52 +1,53 @@
 import core.*;
-import core.CombatManager.CombatManager;
 
-import core.NavigationManager.NavigationManager;
+import hlt.DebugLog;
 import hlt.GameMap;
+import hlt.InputTokenizer;
+import hlt.Metrics;
+import hlt.Move;
 import hlt.Networking;
+import java.util.ArrayList;
 import java.util.Map;
 
 public class MyBotInternal
 {
     public static void main(final Map<String,Object> gameDefinitions, int... args)
     {
-        CombatManager combatManager         = new CombatManager();
-        BehaviourManager behaviourManager   = new BehaviourManager(gameDefinitions);
-        ObjectiveManager objectiveManager   = new ObjectiveManager();
-        FleetManager fleetManager           = new FleetManager();
-        NavigationManager navigationManager = new NavigationManager();
-        DistanceManager distanceManager     = new DistanceManager();
-
-        GameState gameState = new GameState(
-            combatManager,
-            behaviourManager,
-            objectiveManager,
-            fleetManager,
-            navigationManager,
-            distanceManager
-        );
+        final TurnPipeline pipeline = new TurnPipeline(gameDefinitions);
+        final GameState gameState   = pipeline.getGameState();
+        final Timer timer           = pipeline.getTimer();
+
+        DebugLog.setLevel(DebugLog.Level.valueOf((String) gameDefinitions.getOrDefault("logLevel", "Info")));
 
         final Networking networking = new Networking();
-        final GameMap gameMap       = networking.initialize((String) gameDefinitions.get("botName"));
+        final GameMap gameMap       = networking.initialize((String) gameDefinitions.get("botName"),
+            initialMap -> WarmUp.run(initialMap, gameDefinitions, (double) gameDefinitions.getOrDefault("warmUpTime", 0.0)));
+        gameMap.setReuseEntities(true);
+
+        TraceWriter traceWriter = null;
+        if ((Boolean) gameDefinitions.getOrDefault("trace", false))
+            traceWriter = TraceWriter.create(String.format("%d - %s.trace", gameMap.getMyPlayerId(), gameDefinitions.get("botName")), gameMap);
+
+        if ((Boolean) gameDefinitions.getOrDefault("metrics", false))
+            Metrics.enable(String.format("%d - %s", gameMap.getMyPlayerId(), gameDefinitions.get("botName")));
 
         while(true)
         {
-            gameMap.updateMap(Networking.readLineIntoMetadata());
-            gameState.updateGameState(gameMap);
+            final InputTokenizer line = Networking.readLineIntoTokenizer();
+            timer.startTurn();
 
-            distanceManager.computeDistanceMatrices(gameState);
-            objectiveManager.getObjectives(gameState);
-            fleetManager.assignShips(gameState);
+            Metrics.startPhase(Metrics.Phase.Parse);
+            gameMap.updateMap(line);
 
-            combatManager.createCombatOperations(gameState);
+            final ArrayList<Move> moves = pipeline.playTurn(gameMap);
 
-            if (gameState.getBehaviourManager().getTestArgument() == 2)
-                navigationManager.generateMoves2(gameState);
-            else
-                navigationManager.generateMoves(gameState);
+            Metrics.startPhase(Metrics.Phase.Send);
+            if (traceWriter != null)
+                traceWriter.writeTurn(gameState, moves);
 
-            gameState.saveGameState(gameMap);
-            Networking.sendMoves(navigationManager.getMoves());
+            pipeline.endTurn(gameMap);
+            Networking.sendMoves(moves);
+            Metrics.endTurn(gameMap.getAllShips().size());
         }
     }
 }
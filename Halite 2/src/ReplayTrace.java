@@ -0,0 +1,78 @@
+import core.*;
+import hlt.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+// Replays a game recorded with the "trace" game definition: java ReplayTrace "0 - v10.trace" [turn]
+// Turns are replayed from the start so the managers are in the same state as in game when the
+// requested turn runs, which makes it easy to put that turn alone under a profiler.
+public class ReplayTrace
+{
+    public static void main(final String[] args) throws IOException
+    {
+        final TraceReader traceReader = new TraceReader(args[0]);
+        final int lastTurn = (args.length > 1)? Integer.parseInt(args[1]) : traceReader.getNumberOfTurns() - 1;
+
+        // Loading speed once warmed up
+        final GameMap loadedMap = traceReader.readGameMap(0);
+        long start = 0;
+        for (int pass = 0; pass < 20; ++pass)
+        {
+            start = System.nanoTime();
+            for (int i = 0; i < traceReader.getNumberOfTurns(); ++i)
+                traceReader.readGameMap(i, loadedMap);
+        }
+        System.out.println("Turns: " + traceReader.getNumberOfTurns() + ", map loading (us per turn): "
+                + String.format("%.1f", (System.nanoTime() - start) / 1000.0 / traceReader.getNumberOfTurns()));
+
+        // Without a started turn on its timer the pipeline runs without deadlines
+        final TurnPipeline pipeline = new TurnPipeline(MyBot.gameDefinitions());
+
+        final GameMap gameMap = traceReader.readGameMap(0);
+        gameMap.setReuseEntities(true);
+
+        int identicalTurns = 0;
+        for (int i = 0; i <= lastTurn; ++i)
+        {
+            start = System.nanoTime();
+
+            traceReader.readGameMap(i, gameMap);
+            final ArrayList<Move> moves = pipeline.playTurn(gameMap);
+            pipeline.endTurn(gameMap);
+
+            final double turnMillis = (System.nanoTime() - start) / 1e6;
+            final ArrayList<String> recordedMoves = traceReader.readTurn(i).getMoves();
+            final ArrayList<String> replayedMoves = new ArrayList<>();
+            for (final Move move: moves)
+                replayedMoves.add(moveString(move));
+
+            if (replayedMoves.equals(recordedMoves))
+                identicalTurns++;
+
+            if (i == lastTurn)
+            {
+                System.out.println("Turn " + i + " replayed in (ms): " + String.format("%.2f", turnMillis));
+                System.out.println("  recorded: " + recordedMoves);
+                System.out.println("  replayed: " + replayedMoves);
+            }
+        }
+
+        System.out.println("Turns with identical moves: " + identicalTurns + "/" + (lastTurn + 1));
+    }
+
+    private static String moveString(final Move move)
+    {
+        switch (move.getType())
+        {
+            case Undock:
+                return "u " + move.getShip().getId();
+            case Dock:
+                return "d " + move.getShip().getId() + " " + ((DockMove) move).getDestinationId();
+            case Thrust:
+                return "t " + move.getShip().getId() + " " + ((ThrustMove) move).getThrust() + " " + ((ThrustMove) move).getAngle();
+            default:
+                return "n " + move.getShip().getId();
+        }
+    }
+}
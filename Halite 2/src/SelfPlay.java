@@ -0,0 +1,91 @@
+import engine.GameEngine;
+import engine.MapGenerator;
+import engine.Match;
+import hlt.DebugLog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Plays games in process with the engine package: java SelfPlay <games> <seed> MyBot MyBotRush [MyBot MyBotNoRush]
+// Two or four bots, games are spread over all the cores and seats rotate so no bot keeps the same start.
+public class SelfPlay
+{
+    public static void main(final String[] args) throws Exception
+    {
+        final int games = Integer.parseInt(args[0]);
+        final long seed = Long.parseLong(args[1]);
+        final List<String> bots = new ArrayList<>();
+        for (int i = 2; i < args.length; ++i)
+            bots.add(args[i]);
+
+        DebugLog.setLevel(DebugLog.Level.Error);
+
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final ArrayList<Future<Match.Result>> results = new ArrayList<>();
+        final long start = System.nanoTime();
+
+        for (int game = 0; game < games; ++game)
+        {
+            final int firstSeat = game % bots.size();
+            final long gameSeed = seed + game;
+            results.add(executor.submit(() -> {
+                final List<Map<String,Object>> gameDefinitions = new ArrayList<>();
+                for (int seat = 0; seat < bots.size(); ++seat)
+                    gameDefinitions.add(gameDefinitions(bots.get((firstSeat + seat) % bots.size())));
+
+                final GameEngine engine = MapGenerator.generate(bots.size(), gameSeed);
+                return new Match(engine, gameDefinitions).play();
+            }));
+        }
+
+        final int[] wins = new int[bots.size()];
+        int turns = 0;
+        int crashes = 0;
+        for (int game = 0; game < games; ++game)
+        {
+            final Match.Result result = results.get(game).get();
+            wins[(result.getWinner() + game) % bots.size()]++;
+            turns += result.getTurns();
+
+            for (final String crash: result.getCrashes())
+            {
+                if (crash != null)
+                {
+                    crashes++;
+                    System.out.println("Game " + game + " crash: " + crash);
+                }
+            }
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        for (int i = 0; i < bots.size(); ++i)
+            System.out.println(bots.get(i) + " (seat " + i + "): " + wins[i] + " wins");
+        System.out.println(games + " games, " + turns + " turns, " + crashes + " crashes in " + String.format("%.1f", seconds) + "s on " + threads
+                + " threads (" + String.format("%.0f", games * 3600 / seconds) + " games per hour)");
+    }
+
+    private static HashMap<String,Object> gameDefinitions(final String bot)
+    {
+        switch (bot)
+        {
+            case "MyBot":
+                return MyBot.gameDefinitions();
+            case "MyBotRush":
+                return MyBotRush.gameDefinitions();
+            case "MyBotNoRush":
+                return MyBotNoRush.gameDefinitions();
+            default:
+                throw new IllegalStateException("Unknown bot " + bot);
+        }
+    }
+}
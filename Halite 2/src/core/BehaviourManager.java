@@ -9,6 +9,12 @@ import static hlt.Constants.DOCK_RADIUS;
 public class BehaviourManager
 {
     private final int testArgument;
+    private final boolean planetRouting;
+    private final boolean jointNavigation;
+    private final boolean trajectoryReservation;
+    private final int futureThreads;
+    private final boolean engagementZones;
+    private final boolean monteCarloCombat;
     private final double maxPriority;
     private final double distanceDiscountExponent;
 
@@ -50,11 +56,23 @@ public class BehaviourManager
     private final double fleePriority;
 
     public int getTestArgument() { return testArgument; }
+    public boolean isPlanetRouting() { return planetRouting; }
+    public boolean isJointNavigation() { return jointNavigation; }
+    public boolean isTrajectoryReservation() { return trajectoryReservation; }
+    public int getFutureThreads() { return futureThreads; }
+    public boolean isEngagementZones() { return engagementZones; }
+    public boolean isMonteCarloCombat() { return monteCarloCombat; }
     public int getNumberOfAssassinationObjectives() { return numberOfAssassinationObjectives; }
 
     public BehaviourManager(final Map<String,Object> gameDefinitions)
     {
         this.testArgument = (int) gameDefinitions.get("testArgument");
+        this.planetRouting = (boolean) gameDefinitions.getOrDefault("planetRouting", false);
+        this.jointNavigation = (boolean) gameDefinitions.getOrDefault("jointNavigation", false);
+        this.trajectoryReservation = (boolean) gameDefinitions.getOrDefault("trajectoryReservation", false);
+        this.futureThreads = (int) gameDefinitions.getOrDefault("futureThreads", 1);
+        this.engagementZones = (boolean) gameDefinitions.getOrDefault("engagementZones", false);
+        this.monteCarloCombat = (boolean) gameDefinitions.getOrDefault("monteCarloCombat", false);
 
         this.maxPriority = (double) gameDefinitions.get("maxPriority");
         this.distanceDiscountExponent = (double) gameDefinitions.get("distanceDiscountExponent");
@@ -5,23 +5,33 @@ import core.NavigationManager.CombatOperationMoves;
 import hlt.*;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static core.GameState.applyMoveToShip;
 import static core.NavigationManager.NavigationManager.attackCombatOperationMoves;
 import static core.Objective.OrderType.*;
+import static hlt.DebugLog.Level.Debug;
 
 public class CombatManager
 {
+    // Score of moves meeting a trajectory my ships already committed to, below any balance
+    private static final double CROSSING_MOVE_SCORE = -Double.MAX_VALUE;
+
     private ArrayList<CombatOperation> combatOperations;
     private int combatOperationId;
 
     private ArrayList<Objective> filledObjectives;
 
+    // Moves of the combats searched ahead of their operation, by the fleets and ships they were searched for
+    private HashMap<List<Object>, CombatOperationMoves> resolvedCombats;
+
     public CombatManager()
     {
         this.combatOperations = new ArrayList<>();
         this.combatOperationId = 0;
         this.filledObjectives = new ArrayList<>();
+        this.resolvedCombats = new HashMap<>();
     }
 
     public void createCombatOperations(final GameState gameState)
@@ -62,6 +72,8 @@ public class CombatManager
         logCombatOperations();
     }
 
+    public ArrayList<CombatOperation> getCombatOperations() { return combatOperations; }
+
     public ArrayList<CombatOperation> getSortedCombatOperations()
     {
         ArrayList<CombatOperation> sortedCombatOperations = new ArrayList<>();
@@ -92,6 +104,111 @@ public class CombatManager
     }
 
     public CombatOperationMoves resolveCombat(final GameState gameState, final ArrayList<Fleet> myFleetsNearby, final ArrayList<Ship> myShipsNearby, final Entity target)
+    {
+        CombatOperationMoves resolvedMoves = this.resolvedCombats.remove(combatKey(myFleetsNearby, myShipsNearby));
+        if (resolvedMoves != null)
+            return resolvedMoves;
+
+        Future future = prepareCombat(gameState, myFleetsNearby, myShipsNearby, target);
+        if (future == null)
+            return attackCombatOperationMoves(gameState, myFleetsNearby, myShipsNearby, target);
+
+        gameState.getTimer().startCombatSearch();
+        CombatOperationMoves futureMoves = future.generateFutureMoves(gameState);
+        gameState.getTimer().endCombatSearch();
+
+        return futureMoves;
+    }
+
+    // Searches the combats of several engagement zones at once, one per thread of the pool, and keeps their moves
+    // until the operations ask resolveCombat for them. The groups of a zone are one combat: a single future of all
+    // their fleets and ships against all the enemies near them, each group then gets its own moves out of it.
+    // Effects are navigated here on the turn thread, so the searches only read them.
+    public void resolveCombatsAhead(
+            final GameState gameState,
+            final ArrayList<ArrayList<Fleet>> fleetGroups,
+            final ArrayList<ArrayList<Ship>> shipGroups,
+            final ArrayList<Entity> targets,
+            final ArrayList<Integer> groupZones
+    )
+    {
+        LinkedHashMap<Integer, ArrayList<Integer>> groupsByZone = new LinkedHashMap<>();
+        for (int i = 0; i < fleetGroups.size(); ++i)
+            groupsByZone.computeIfAbsent(groupZones.get(i), zone -> new ArrayList<>()).add(i);
+
+        ArrayList<Future> futures = new ArrayList<>();
+        ArrayList<ArrayList<Integer>> futureGroups = new ArrayList<>();
+        for (final ArrayList<Integer> groups: groupsByZone.values())
+        {
+            ArrayList<Fleet> zoneFleets = new ArrayList<>();
+            ArrayList<Ship> zoneShips = new ArrayList<>();
+            for (final int group: groups)
+            {
+                zoneFleets.addAll(fleetGroups.get(group));
+                zoneShips.addAll(shipGroups.get(group));
+            }
+
+            // The target only names the combat, the future does not search towards it
+            Future future = prepareCombat(gameState, zoneFleets, zoneShips, targets.get(groups.get(0)));
+            if (future == null)
+                continue;
+
+            future.computeEffects(gameState);
+            futures.add(future);
+            futureGroups.add(groups);
+        }
+
+        gameState.getTimer().startCombatSearch();
+        final int threads = gameState.getBehaviourManager().getFutureThreads();
+        if ((threads > 1) && (futures.size() > 1))
+        {
+            ForkJoinPool pool = Future.getPool(threads);
+            ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (final Future future: futures)
+                tasks.add(pool.submit(() -> future.search(gameState, 1)));
+            for (final ForkJoinTask<?> task: tasks)
+                task.join();
+        }
+        else
+        {
+            for (final Future future: futures)
+                future.search(gameState, threads);
+        }
+        gameState.getTimer().endCombatSearch();
+
+        for (int i = 0; i < futures.size(); ++i)
+        {
+            Metrics.add(Metrics.Counter.FutureNodes, futures.get(i).getNumberOfNodes());
+
+            CombatOperationMoves zoneMoves = futures.get(i).getFutureMoves(gameState);
+            for (final int group: futureGroups.get(i))
+                this.resolvedCombats.put(combatKey(fleetGroups.get(group), shipGroups.get(group)), groupMoves(zoneMoves, fleetGroups.get(group), shipGroups.get(group)));
+        }
+    }
+
+    private static CombatOperationMoves groupMoves(final CombatOperationMoves zoneMoves, final ArrayList<Fleet> myFleets, final ArrayList<Ship> myShips)
+    {
+        CombatOperationMoves moves = new CombatOperationMoves();
+        for (final Fleet fleet: myFleets)
+            moves.getFleetMoves().put(fleet, zoneMoves.getFleetMoves().get(fleet));
+        for (final Ship ship: myShips)
+            moves.getShipMoves().put(ship, zoneMoves.getShipMoves().get(ship));
+
+        return moves;
+    }
+
+    public void clearResolvedCombats()
+    {
+        this.resolvedCombats.clear();
+    }
+
+    private static List<Object> combatKey(final ArrayList<Fleet> myFleetsNearby, final ArrayList<Ship> myShipsNearby)
+    {
+        return Arrays.asList(new ArrayList<>(myFleetsNearby), new ArrayList<>(myShipsNearby));
+    }
+
+    // Future of the combat, or null when no enemy nearby can fight back
+    private Future prepareCombat(final GameState gameState, final ArrayList<Fleet> myFleetsNearby, final ArrayList<Ship> myShipsNearby, final Entity target)
     {
         ArrayList<Ship> enemyShips = new ArrayList<>();
         ArrayList<Ship> alliedShips = new ArrayList<>();
@@ -103,20 +220,19 @@ public class CombatManager
 
         for (final Ship myShip: allMyShips)
         {
-            for(final Ship enemyShip: gameState.getEnemyShips())
-                if ((enemyShip.getDistanceTo(myShip) <= 14.0) && !(enemyShips.contains(enemyShip)))
+            for(final Ship enemyShip: gameState.getDistanceManager().getEnemiesWithin(myShip, 14.0))
+                if (!enemyShips.contains(enemyShip))
                     enemyShips.add(enemyShip);
 
-            for(final Ship allyShip: gameState.getMyShipsNextTurn())
-                if ((allyShip.getDistanceTo(myShip) <= 7.5) && !(allMyShips.contains(allyShip)))
+            for(final Ship allyShip: gameState.getMyShipsNextTurnWithin(myShip, 7.5))
+                if (!(allMyShips.contains(allyShip)))
                     alliedShips.add(allyShip);
         }
 
         if (noUndockedEnemies(enemyShips))
-            return attackCombatOperationMoves(gameState, myFleetsNearby, myShipsNearby, target);
+            return null;
 
-        Future future = new Future(myFleetsNearby, myShipsNearby, allMyShips, alliedShips, enemyShips, target);
-        return future.generateFutureMoves(gameState);
+        return new Future(myFleetsNearby, myShipsNearby, allMyShips, alliedShips, enemyShips, target);
     }
 
     private boolean noUndockedEnemies(final ArrayList<Ship> enemyShips)
@@ -291,24 +407,24 @@ public class CombatManager
 
     private void logCombatOperations()
     {
+        if (!DebugLog.isEnabled(Debug))
+            return;
+
         for (final CombatOperation combatOperation: this.combatOperations)
-            DebugLog.addLog(combatOperation.toString());
-        DebugLog.addLog("");
+            DebugLog.addLog(Debug, combatOperation.toString());
+        DebugLog.addLog(Debug, "");
     }
 
     public static double scoreShipMove(final Ship sourceShip, final Ship targetShip, final ThrustMove move, final GameState gameState)
     {
+        if (gameState.getBehaviourManager().isTrajectoryReservation() && !gameState.isMoveFree(sourceShip, move))
+            return CROSSING_MOVE_SCORE;
+
         Ship newSourceShipPosition = applyMoveToShip(sourceShip, move);
 
-        ArrayList<Ship> closeEnemyShips = new ArrayList<>();
-        for(final Ship ship: gameState.getEnemyShips())
-            if (ship.getDistanceTo(newSourceShipPosition) <= 7.5)
-                closeEnemyShips.add(ship);
+        ArrayList<Ship> closeEnemyShips = gameState.getDistanceManager().getEnemiesWithin(newSourceShipPosition, 7.5);
 
-        ArrayList<Ship> closeAllyShips = new ArrayList<>();
-        for(final Ship ship: gameState.getMyShipsNextTurn())
-            if (ship.getDistanceTo(newSourceShipPosition) <= 7.5)
-                closeAllyShips.add(ship);
+        ArrayList<Ship> closeAllyShips = gameState.getMyShipsNextTurnWithin(newSourceShipPosition, 7.5);
 
         if (closeEnemyShips.isEmpty())
             return 1.0;
@@ -321,21 +437,18 @@ public class CombatManager
 
     public static double scoreFleetMove(final Fleet fleet, final Ship targetShip, final ArrayList<Move> moves, final GameState gameState)
     {
+        if (gameState.getBehaviourManager().isTrajectoryReservation() && !gameState.areMovesFree(fleet.getShips(), moves))
+            return CROSSING_MOVE_SCORE;
+
         ArrayList<Ship> newShipsPositions = new ArrayList<>();
         for (int i = 0; i < fleet.getShips().size(); ++i)
             newShipsPositions.add(applyMoveToShip(fleet.getShips().get(i), moves.get(i)));
 
         Fleet newFleetPosition = new Fleet(newShipsPositions, fleet.getObjectives(), fleet.getId());
 
-        ArrayList<Ship> closeEnemyShips = new ArrayList<>();
-        for(final Ship ship: gameState.getEnemyShips())
-            if (ship.getDistanceTo(newFleetPosition.getCentroid()) <= 7.0 + fleet.getRadius() + 0.1)
-                closeEnemyShips.add(ship);
+        ArrayList<Ship> closeEnemyShips = gameState.getDistanceManager().getEnemiesWithin(newFleetPosition.getCentroid(), 7.0 + fleet.getRadius() + 0.1);
 
-        ArrayList<Ship> closeAllyShips = new ArrayList<>();
-        for(final Ship ship: gameState.getMyShipsNextTurn())
-            if (ship.getDistanceTo(newFleetPosition.getCentroid()) <= 7.0 + fleet.getRadius() + 0.1)
-                closeAllyShips.add(ship);
+        ArrayList<Ship> closeAllyShips = gameState.getMyShipsNextTurnWithin(newFleetPosition.getCentroid(), 7.0 + fleet.getRadius() + 0.1);
 
         if (closeEnemyShips.isEmpty())
             return 1.0;
@@ -363,15 +476,18 @@ public class CombatManager
             if (moves.getShipMoves().containsKey(ship))
                 myShipsNextTurn.add(applyMoveToShip(ship, moves.getShipMoves().get(ship)));
 
+        if (gameState.getBehaviourManager().isTrajectoryReservation() && !areCombatOperationMovesFree(myFleets, myShips, moves, gameState))
+            return CROSSING_MOVE_SCORE;
+
         ArrayList<Ship> closeAllyShips = new ArrayList<>();
         for (final Ship myShip: myShipsNextTurn)
         {
-            for(final Ship enemyShip: gameState.getEnemyShips())
-                if ((enemyShip.getDistanceTo(myShip) <= 14.0) && !(enemyShips.contains(enemyShip)))
+            for(final Ship enemyShip: gameState.getDistanceManager().getEnemiesWithin(myShip, 14.0))
+                if (!enemyShips.contains(enemyShip))
                     enemyShips.add(enemyShip);
 
-            for(final Ship allyShip: gameState.getMyShipsNextTurn())
-                if ((allyShip.getDistanceTo(myShip) <= 7.5) && !(myShipsNextTurn.contains(allyShip)))
+            for(final Ship allyShip: gameState.getMyShipsNextTurnWithin(myShip, 7.5))
+                if (!(myShipsNextTurn.contains(allyShip)))
                     closeAllyShips.add(allyShip);
         }
 
@@ -382,4 +498,30 @@ public class CombatManager
 
         return combatBalance(myShipsNextTurn, enemyShips);
     }
+
+    private static boolean areCombatOperationMovesFree(final ArrayList<Fleet> myFleets, final ArrayList<Ship> myShips, final CombatOperationMoves moves, final GameState gameState)
+    {
+        ArrayList<Ship> movingShips = new ArrayList<>();
+        ArrayList<Move> shipMoves = new ArrayList<>();
+
+        for (final Fleet fleet: myFleets)
+        {
+            if (moves.getFleetMoves().containsKey(fleet))
+            {
+                movingShips.addAll(fleet.getShips());
+                shipMoves.addAll(moves.getFleetMoves().get(fleet));
+            }
+        }
+
+        for (final Ship ship: myShips)
+        {
+            if (moves.getShipMoves().containsKey(ship))
+            {
+                movingShips.add(ship);
+                shipMoves.add(moves.getShipMoves().get(ship));
+            }
+        }
+
+        return gameState.areMovesFree(movingShips, shipMoves);
+    }
 }
@@ -40,6 +40,7 @@ public class CombatOperation
         this.id = 0;
     }
 
+    public int getId() { return id; }
     public Objective getObjective() { return objective; }
     public ArrayList<Ship> getMyActiveShips() { return myActiveShips; }
     public ArrayList<Fleet> getMyActiveFleets() { return myActiveFleets; }
@@ -0,0 +1,182 @@
+package core.CombatManager;
+
+import core.Fleet;
+import core.GameState;
+import hlt.Ship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static hlt.Constants.MAX_SPEED;
+import static hlt.Constants.SHIP_RADIUS;
+import static hlt.Constants.WEAPON_RADIUS;
+
+// Splits the combat operations of a turn into engagement zones that cannot affect each other this turn.
+// Two operations are in the same zone when a ship of one can end the turn within weapon range of a ship of the
+// other, or when they engage a same enemy ship, which resolveCombat looks for within ENGAGEMENT_DISTANCE.
+// - Ships close enough: the ships are sorted on x, and each is only compared to the next ones within reach on x.
+// - Zones: union-find over the operations, by rank with path halving.
+// Zones come in the order of their first operation, and keep the operations in the order they were given, so the
+// partition of a turn does not depend on anything but the operations.
+public class EngagementPartitioner
+{
+    private static final double INTERACTION_DISTANCE = 2 * MAX_SPEED + 2 * SHIP_RADIUS + WEAPON_RADIUS;
+    private static final double ENGAGEMENT_DISTANCE = 14.0;
+
+    private int[] parents;
+    private int[] ranks;
+
+    // Ships of all operations, with the operation each belongs to
+    private int numberOfShips;
+    private Ship[] ships;
+    private double[] xs;
+    private double[] ys;
+    private int[] operations;
+    private Integer[] order;
+
+    public EngagementPartitioner()
+    {
+        this.parents = new int[0];
+        this.ranks = new int[0];
+        this.ships = new Ship[0];
+        this.xs = new double[0];
+        this.ys = new double[0];
+        this.operations = new int[0];
+        this.order = new Integer[0];
+    }
+
+    public ArrayList<ArrayList<CombatOperation>> partition(final GameState gameState, final ArrayList<CombatOperation> combatOperations)
+    {
+        final int numberOfOperations = combatOperations.size();
+        if (parents.length < numberOfOperations)
+        {
+            this.parents = new int[numberOfOperations];
+            this.ranks = new int[numberOfOperations];
+        }
+        for (int operation = 0; operation < numberOfOperations; ++operation)
+        {
+            parents[operation] = operation;
+            ranks[operation] = 0;
+        }
+
+        collectShips(combatOperations);
+        unionShipsWithinReach();
+        unionSharedEnemies(gameState);
+
+        final ArrayList<ArrayList<CombatOperation>> zones = new ArrayList<>();
+        final HashMap<Integer, ArrayList<CombatOperation>> zonesByRoot = new HashMap<>();
+        for (int operation = 0; operation < numberOfOperations; ++operation)
+        {
+            final int root = find(operation);
+            ArrayList<CombatOperation> zone = zonesByRoot.get(root);
+            if (zone == null)
+            {
+                zone = new ArrayList<>();
+                zonesByRoot.put(root, zone);
+                zones.add(zone);
+            }
+            zone.add(combatOperations.get(operation));
+        }
+
+        return zones;
+    }
+
+    private void collectShips(final ArrayList<CombatOperation> combatOperations)
+    {
+        numberOfShips = 0;
+        for (int operation = 0; operation < combatOperations.size(); ++operation)
+        {
+            for (final Fleet fleet: combatOperations.get(operation).getMyActiveFleets())
+                for (final Ship ship: fleet.getShips())
+                    addShip(ship, operation);
+
+            for (final Ship ship: combatOperations.get(operation).getMyActiveShips())
+                addShip(ship, operation);
+        }
+    }
+
+    private void addShip(final Ship ship, final int operation)
+    {
+        if (numberOfShips == xs.length)
+        {
+            final int capacity = Math.max(64, numberOfShips * 2);
+            ships = Arrays.copyOf(ships, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            operations = Arrays.copyOf(operations, capacity);
+            order = Arrays.copyOf(order, capacity);
+        }
+
+        ships[numberOfShips] = ship;
+        xs[numberOfShips] = ship.getXPos();
+        ys[numberOfShips] = ship.getYPos();
+        operations[numberOfShips] = operation;
+        order[numberOfShips] = numberOfShips;
+        numberOfShips++;
+    }
+
+    private void unionShipsWithinReach()
+    {
+        Arrays.sort(order, 0, numberOfShips, (first, second) -> Double.compare(xs[first], xs[second]));
+
+        for (int i = 0; i < numberOfShips; ++i)
+        {
+            final int ship = order[i];
+            for (int j = i + 1; (j < numberOfShips) && (xs[order[j]] - xs[ship] <= INTERACTION_DISTANCE); ++j)
+            {
+                final int otherShip = order[j];
+                if (operations[ship] == operations[otherShip])
+                    continue;
+
+                final double dx = xs[otherShip] - xs[ship];
+                final double dy = ys[otherShip] - ys[ship];
+                if (dx * dx + dy * dy <= INTERACTION_DISTANCE * INTERACTION_DISTANCE)
+                    union(operations[ship], operations[otherShip]);
+            }
+        }
+    }
+
+    private void unionSharedEnemies(final GameState gameState)
+    {
+        final HashMap<Integer, Integer> operationByEnemyId = new HashMap<>();
+        for (int i = 0; i < numberOfShips; ++i)
+        {
+            for (final Ship enemyShip: gameState.getDistanceManager().getEnemiesWithin(ships[i], ENGAGEMENT_DISTANCE))
+            {
+                final Integer operation = operationByEnemyId.putIfAbsent(enemyShip.getId(), operations[i]);
+                if (operation != null)
+                    union(operation, operations[i]);
+            }
+        }
+    }
+
+    private int find(int operation)
+    {
+        while (parents[operation] != operation)
+        {
+            parents[operation] = parents[parents[operation]];
+            operation = parents[operation];
+        }
+
+        return operation;
+    }
+
+    private void union(final int first, final int second)
+    {
+        final int firstRoot = find(first);
+        final int secondRoot = find(second);
+        if (firstRoot == secondRoot)
+            return;
+
+        if (ranks[firstRoot] < ranks[secondRoot])
+            parents[firstRoot] = secondRoot;
+        else if (ranks[firstRoot] > ranks[secondRoot])
+            parents[secondRoot] = firstRoot;
+        else
+        {
+            parents[secondRoot] = firstRoot;
+            ranks[firstRoot]++;
+        }
+    }
+}
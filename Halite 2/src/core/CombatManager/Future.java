@@ -7,13 +7,23 @@ import core.NavigationManager.NavigationManager;
 import hlt.*;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static core.CombatManager.EventType.RETREAT;
+import static core.CombatManager.TranspositionTable.Bound.*;
 import static core.GameState.applyMoveToShip;
 import static core.NavigationManager.NavigationManager.retreatDirection;
 
 public class Future
 {
+    private static final long DEPTH_KEYS_SEED = 965;
+
+    // Lines of events above which a combat is searched by Monte Carlo rather than alpha-beta, when allowed
+    private static final long MONTE_CARLO_LINES = 1 << 14;
+
     final private int maxDepth;
 
     private ArrayList<Fleet> myFleets;
@@ -31,12 +41,53 @@ public class Future
     private ArrayList<Ship> allMyShipsActive;
     private Fleet enemyShipsFleet;
 
-    private Node<Event> futurePossibilities;
+    // The events open at a depth do not depend on the line above, and neither do the moves navigated for them
+    // within the turn: both are built once, and a line is searched by moving the ships of a state and back.
+    private ArrayList<ArrayList<Event>> events;
+    private ArrayList<ArrayList<Effect>> effects;
 
-    public Future(final ArrayList<Fleet> myFleets, final ArrayList<Ship> myShips, final ArrayList<Ship> allMyShips, final ArrayList<Ship> alliedShips, final ArrayList<Ship> enemyShips, final Entity target)
+    // Number of lines of events down to the enemy's turn
+    private long numberOfLines;
+    private long monteCarloNodes;
+
+    // Line of the deepest iteration completed, as event indices
+    private int[] bestLine;
+    private int bestLineLength;
+
+    // Iterative deepening: each iteration searches one depth further than the last, and the one running when the
+    // combat deadline comes is dropped
+    private int depthLimit;
+    private volatile boolean isAborted;
+
+    // Nodes already searched, keyed on the ship positions and the depth, shared by all searchers
+    private TranspositionTable transpositionTable;
+    private long[] depthKeys;
+
+    // The turn thread searches with the first searcher, the threads of a parallel search take the idle ones
+    private Searcher searcher;
+    private ConcurrentLinkedQueue<Searcher> idleSearchers;
+    private ArrayList<Searcher> searchers;
+    private static ForkJoinPool pool;
+
+    // Ships an event moves, where to, and the moves behind it
+    private static class Effect
     {
-        this.futurePossibilities = new Node<>(null, null, new LinkedList<>(), new ArrayList<>(), true, 0, 0);
+        private final int[] ships;
+        private final double[] xs;
+        private final double[] ys;
+        private final ArrayList<Move> moves;
 
+        private Effect(final int[] ships, final double[] xs, final double[] ys, final ArrayList<Move> moves)
+        {
+            this.ships = ships;
+            this.xs = xs;
+            this.ys = ys;
+            this.moves = moves;
+        }
+    }
+
+    public Future(final ArrayList<Fleet> myFleets, final ArrayList<Ship> myShips, final ArrayList<Ship> allMyShips, final ArrayList<Ship> alliedShips, final ArrayList<Ship> enemyShips, final Entity target)
+    {
         this.myFleets = myFleets;
         this.myShips = myShips;
 
@@ -70,162 +121,596 @@ public class Future
         this.maxDepth = this.myEntities.size() + 1;
 
         this.enemyShipsFleet = new Fleet(this.enemyShipsActive, new ArrayList<>(), -965);
+
+        this.events = new ArrayList<>();
+        this.effects = new ArrayList<>();
+        for (int depth = 0; depth < this.maxDepth; ++depth)
+        {
+            ArrayList<Event> depthEvents = getChildren(depth);
+            this.events.add(depthEvents);
+            this.effects.add(new ArrayList<>(Collections.nCopies(depthEvents.size(), (Effect) null)));
+        }
+
+        this.bestLine = new int[this.maxDepth + 1];
+        this.bestLineLength = 0;
+
+        this.numberOfLines = 1;
+        this.depthKeys = new long[this.maxDepth + 1];
+        Random random = new Random(DEPTH_KEYS_SEED);
+        for (int depth = 0; depth < this.maxDepth; ++depth)
+        {
+            this.numberOfLines = Math.min(this.numberOfLines * Math.max(1, this.events.get(depth).size()), Integer.MAX_VALUE);
+            this.depthKeys[depth] = random.nextLong();
+        }
+        this.transpositionTable = new TranspositionTable(this.numberOfLines);
+
+        this.searchers = new ArrayList<>();
+        this.idleSearchers = new ConcurrentLinkedQueue<>();
+        this.searcher = new Searcher();
     }
 
     public CombatOperationMoves generateFutureMoves(final GameState gameState)
     {
-        final Node<Event> chosenFuture = alphaBetaPruning(gameState, this.futurePossibilities, -Double.MAX_VALUE, Double.MAX_VALUE);
-        //final Node<Event> chosenFuture = miniMax(gameState, this.futurePossibilities);
+        final int threads = gameState.getBehaviourManager().getFutureThreads();
+        if (threads > 1)
+            computeEffects(gameState);
+
+        search(gameState, threads);
+        Metrics.add(Metrics.Counter.FutureNodes, getNumberOfNodes());
+        return getFutureMoves(gameState);
+    }
+
+    // With all effects computed beforehand, a search only reads the game state for the timer, and can run on
+    // any thread while the turn thread navigates other ships
+    public void search(final GameState gameState, final int threads)
+    {
+        if (gameState.getBehaviourManager().isMonteCarloCombat() && (this.numberOfLines > MONTE_CARLO_LINES))
+        {
+            searchMonteCarlo(gameState);
+            return;
+        }
+
+        for (this.depthLimit = 1; this.depthLimit <= this.maxDepth; ++this.depthLimit)
+        {
+            this.isAborted = false;
+            this.transpositionTable.nextGeneration();
+            if ((threads > 1) && (this.depthLimit > 1))
+                searchRootInParallel(gameState, threads);
+            else
+                this.searcher.alphaBetaPruning(gameState, 0, -Double.MAX_VALUE, Double.MAX_VALUE);
+
+            if (!this.isAborted)
+                this.searcher.extendLine(gameState);
+            if (this.isAborted)
+                break;
+
+            System.arraycopy(this.searcher.lines[0], 0, this.bestLine, 0, this.searcher.lineLengths[0]);
+            this.bestLineLength = this.searcher.lineLengths[0];
+        }
+
+        this.searcher.completeBestLine(gameState);
+    }
+
+    public CombatOperationMoves getFutureMoves(final GameState gameState)
+    {
+        return generateMovesForFleet(gameState, this.bestLine, this.bestLineLength);
+    }
+
+    public long getNumberOfNodes()
+    {
+        long nodes = this.monteCarloNodes;
+        for (final Searcher searcher: this.searchers)
+            nodes += searcher.nodes;
 
-        return generateMovesForFleet(gameState, chosenFuture.getParents());
+        return nodes;
     }
 
-    private Node miniMax(final GameState gameState, final Node parentNode)
+    // Too many lines to search them all: the playouts give the events of my entities they visited most, and
+    // the entities they did not reach play as beyond the horizon of an iterative deepening cut short
+    private void searchMonteCarlo(final GameState gameState)
     {
-        ArrayList<Node<Event>> childrenNodes = getChildren(gameState, parentNode);
+        MonteCarloSearch monteCarloSearch = new MonteCarloSearch(new MonteCarloTree(gameState));
+        this.bestLineLength = monteCarloSearch.search(gameState.getTimer(), this.bestLine);
+        this.monteCarloNodes = monteCarloSearch.getNumberOfNodes();
+        this.searcher.completeBestLine(gameState);
+    }
+
+    // The events of this future as Monte Carlo search plays them, their effects navigated on the game state of the turn
+    private class MonteCarloTree implements MonteCarloSearch.Tree
+    {
+        private final GameState gameState;
 
-        if (childrenNodes.isEmpty())
+        private MonteCarloTree(final GameState gameState)
         {
-            parentNode.setScore(computeScore(gameState, parentNode));
-            return parentNode;
+            this.gameState = gameState;
         }
 
-        Node childNode;
-        Node bestNode = null;
-        if (parentNode.isMaxPlayer())
+        public int getMaxDepth() { return maxDepth; }
+        public int getNumberOfMyEntities() { return myEntities.size(); }
+        public int getNumberOfEvents(final int depth) { return events.get(depth).size(); }
+        public EventType getEventType(final int depth, final int child) { return events.get(depth).get(child).getEventType(); }
+        public boolean isMaxPlayer(final int depth) { return Future.this.isMaxPlayer(depth); }
+        public FutureState newState() { return Future.this.newState(); }
+
+        public void applyEvent(final FutureState state, final int depth, final int child)
         {
-            double bestScore = -Double.MAX_VALUE;
-            for (final Node node: childrenNodes)
+            applyEffect(this.gameState, state, depth, child);
+        }
+    }
+
+    private FutureState newState()
+    {
+        return new FutureState(myShipsInOrder(), enemyShipsInOrder());
+    }
+
+    private void applyEffect(final GameState gameState, final FutureState state, final int depth, final int child)
+    {
+        final Effect effect = effect(gameState, depth, child);
+        for (int i = 0; i < effect.ships.length; ++i)
+            state.moveShip(effect.ships[i], effect.xs[i], effect.ys[i]);
+    }
+
+    // The root plays first, then each of my entities, then the enemy
+    private boolean isMaxPlayer(final int depth)
+    {
+        return (depth == 0) || (depth < this.myEntities.size());
+    }
+
+    // Young brothers wait at the root: the first event is searched on the turn thread, which gives a bound to
+    // search the others with, in parallel. A searcher finishing raises the bound, and the searchers still running
+    // read it before each event below the root, so they prune with it too.
+    // Whatever order they finish in, the event played is the first one in generation order among those with
+    // the best score, as in the sequential search, and so is the line below it once extended: a completed
+    // iteration gives the same moves on any number of threads.
+    private void searchRootInParallel(final GameState gameState, final int threads)
+    {
+        final TranspositionTable.Entry entry = new TranspositionTable.Entry();
+        final long rootKey = this.searcher.state.getHash() ^ this.depthKeys[0];
+        final int hashChild = this.transpositionTable.probe(rootKey, entry)? entry.getBestChild() : -1;
+        final int[] order = this.searcher.orderChildren(0, hashChild).clone();
+
+        final RootResult eldest = this.searcher.searchRootChild(gameState, order[0], null);
+        if (this.isAborted)
+            return;
+
+        final AtomicReference<RootResult> best = new AtomicReference<>(eldest);
+        final ForkJoinPool pool = getPool(threads);
+        final ArrayList<ForkJoinTask<RootResult>> tasks = new ArrayList<>();
+        for (int i = 1; i < order.length; ++i)
+        {
+            final int child = order[i];
+            tasks.add(pool.submit(() -> {
+                Searcher searcher = this.idleSearchers.poll();
+                if (searcher == null)
+                    searcher = new Searcher();
+
+                final RootResult result = searcher.searchRootChild(gameState, child, best);
+                best.accumulateAndGet(result, (current, candidate) -> candidate.isBetterThan(current)? candidate : current);
+
+                this.idleSearchers.add(searcher);
+                return result;
+            }));
+        }
+
+        RootResult bestResult = eldest;
+        for (final ForkJoinTask<RootResult> task: tasks)
+        {
+            final RootResult result = task.join();
+            if (result.isBetterThan(bestResult))
+                bestResult = result;
+        }
+        if (this.isAborted)
+            return;
+
+        System.arraycopy(bestResult.line, 0, this.searcher.lines[0], 0, bestResult.line.length);
+        this.searcher.lineLengths[0] = bestResult.line.length;
+        this.transpositionTable.store(rootKey, this.depthLimit, bestResult.score, EXACT, bestResult.child);
+    }
+
+    static synchronized ForkJoinPool getPool(final int threads)
+    {
+        if ((pool == null) || (pool.getParallelism() != threads))
+        {
+            if (pool != null)
+                pool.shutdown();
+            pool = new ForkJoinPool(threads);
+        }
+
+        return pool;
+    }
+
+    // Score of a first event and the line it starts
+    private static class RootResult
+    {
+        private final int child;
+        private final double score;
+        private final int[] line;
+
+        private RootResult(final int child, final double score, final int[] line)
+        {
+            this.child = child;
+            this.score = score;
+            this.line = line;
+        }
+
+        private boolean isBetterThan(final RootResult other)
+        {
+            return (score > other.score) || ((score == other.score) && (child < other.child));
+        }
+    }
+
+    // A parallel search only reads the effects, so they are all computed on the turn thread beforehand
+    public void computeEffects(final GameState gameState)
+    {
+        for (int depth = 0; depth < this.maxDepth; ++depth)
+            for (int child = 0; child < this.events.get(depth).size(); ++child)
+                effect(gameState, depth, child);
+    }
+
+    private Effect effect(final GameState gameState, final int depth, final int child)
+    {
+        Effect effect = this.effects.get(depth).get(child);
+        if (effect == null)
+        {
+            effect = computeEffect(gameState, this.events.get(depth).get(child));
+            this.effects.get(depth).set(child, effect);
+        }
+
+        return effect;
+    }
+
+    // What a thread needs to search: its own state to move ships on, the lines found below each depth and
+    // what orders the events, the best one found before aside. The events of a depth searched first are the one
+    // the table holds, then the last two that cut off at that depth, then the ones that cut off the most work.
+    private class Searcher
+    {
+        private final FutureState state;
+        private final int[][] lines;
+        private final int[] lineLengths;
+        private final int[][] killers;
+        private final int[][] history;
+        private final int[][] orders;
+        private final TranspositionTable.Entry entry;
+        private long nodes;
+
+        // First event searched below, and the best one of a parallel search, null when there is none
+        private int rootChild;
+        private AtomicReference<RootResult> rootBest;
+
+        private Searcher()
+        {
+            this.state = newState();
+            this.lines = new int[maxDepth + 1][maxDepth + 1];
+            this.lineLengths = new int[maxDepth + 1];
+            this.killers = new int[maxDepth][2];
+            this.history = new int[maxDepth][];
+            this.orders = new int[maxDepth][];
+            this.entry = new TranspositionTable.Entry();
+            this.nodes = 0;
+
+            for (int depth = 0; depth < maxDepth; ++depth)
+            {
+                this.killers[depth][0] = -1;
+                this.killers[depth][1] = -1;
+                this.history[depth] = new int[events.get(depth).size()];
+                this.orders[depth] = new int[events.get(depth).size()];
+            }
+
+            synchronized (searchers)
+            {
+                searchers.add(this);
+            }
+        }
+
+        // Fail-soft alpha-beta down to the depth limit, where the ships not moved yet stay where they are.
+        // The first iteration always completes, so there always is a line to play.
+        // Scores take few values, and among events scoring the same the first one in the order they were generated
+        // is played, whatever order they are searched in: an event before the best one so far is searched with the
+        // bound widened by an ulp, so that a score equal to the best comes back exact and wins.
+        private double alphaBetaPruning(final GameState gameState, final int depth, double alpha, double beta)
+        {
+            this.nodes++;
+            this.lineLengths[depth] = 0;
+
+            if (depth == depthLimit)
+                return this.state.combatBalance();
+
+            if ((depthLimit > 1) && (isAborted || gameState.getTimer().shouldStopSearch()))
+            {
+                isAborted = true;
+                return 0.0;
+            }
+
+            final long key = this.state.getHash() ^ depthKeys[depth];
+            final int remainingDepth = depthLimit - depth;
+
+            int hashChild = -1;
+            if (transpositionTable.probe(key, this.entry))
+            {
+                hashChild = this.entry.getBestChild();
+                final double score = this.entry.getScore();
+                final TranspositionTable.Bound bound = this.entry.getBound();
+                if ((this.entry.getRemainingDepth() >= remainingDepth)
+                        && ((bound == EXACT) || ((bound == LOWER) && (score >= beta)) || ((bound == UPPER) && (score <= alpha))))
+                {
+                    this.lines[depth][0] = hashChild;
+                    this.lineLengths[depth] = 1;
+                    return score;
+                }
+            }
+
+            final boolean isMaxPlayer = isMaxPlayer(depth);
+            double alphaAtStart = alpha;
+            final double betaAtStart = beta;
+            double bestScore = 0.0;
+            int bestChild = -1;
+
+            for (final int child: orderChildren(depth, hashChild))
             {
-                childNode = miniMax(gameState, node);
-                double score = childNode.getScore();
-                if (score > bestScore)
+                // Scores at or below the best first event so far are bounds from now on
+                if ((depth == 1) && (this.rootBest != null))
+                {
+                    alpha = Math.max(alpha, rootAlpha());
+                    alphaAtStart = Math.max(alphaAtStart, alpha);
+                    if (alpha >= beta)
+                        break;
+                }
+
+                final boolean isTieWon = (bestChild != -1) && (child < bestChild);
+                final double childAlpha = (isMaxPlayer && isTieWon && (alpha == bestScore))? Math.nextDown(alpha) : alpha;
+                final double childBeta = (!isMaxPlayer && isTieWon && (beta == bestScore))? Math.nextUp(beta) : beta;
+
+                final int mark = this.state.mark();
+                applyEffect(gameState, depth, child);
+                final double score = alphaBetaPruning(gameState, depth + 1, childAlpha, childBeta);
+                this.state.undo(mark);
+
+                if (isAborted)
+                    return 0.0;
+
+                if ((bestChild == -1) || (isMaxPlayer? (score > bestScore) : (score < bestScore)) || (isTieWon && (score == bestScore)))
                 {
                     bestScore = score;
-                    bestNode = childNode;
-                    node.setScore(bestScore);
+                    bestChild = child;
+                    this.lines[depth][0] = child;
+                    System.arraycopy(this.lines[depth + 1], 0, this.lines[depth], 1, this.lineLengths[depth + 1]);
+                    this.lineLengths[depth] = this.lineLengths[depth + 1] + 1;
+                }
+
+                if (isMaxPlayer)
+                    alpha = Math.max(alpha, score);
+                else
+                    beta = Math.min(beta, score);
+
+                if (alpha >= beta)
+                {
+                    addCutoff(depth, child, remainingDepth);
+                    break;
                 }
             }
 
-            parentNode.setScore(bestScore);
-            return bestNode;
+            final TranspositionTable.Bound bound = (bestScore <= alphaAtStart)? UPPER : (bestScore >= betaAtStart)? LOWER : EXACT;
+            transpositionTable.store(key, remainingDepth, bestScore, bound, bestChild);
+            return bestScore;
         }
-        else
+
+        private RootResult searchRootChild(final GameState gameState, final int child, final AtomicReference<RootResult> best)
         {
-            double bestScore = Double.MAX_VALUE;
-            for (final Node node: childrenNodes)
+            this.rootChild = child;
+            this.rootBest = best;
+            final double alpha = (best == null)? -Double.MAX_VALUE : rootAlpha();
+
+            final int mark = this.state.mark();
+            applyEffect(gameState, 0, child);
+            final double score = alphaBetaPruning(gameState, 1, alpha, Double.MAX_VALUE);
+            this.state.undo(mark);
+            this.rootBest = null;
+
+            final int[] line = new int[this.lineLengths[1] + 1];
+            line[0] = child;
+            System.arraycopy(this.lines[1], 0, line, 1, this.lineLengths[1]);
+            return new RootResult(child, score, line);
+        }
+
+        // Widened by an ulp below a best first event generated after the one searched, which wins on equal scores
+        private double rootAlpha()
+        {
+            final RootResult best = this.rootBest.get();
+            return (this.rootChild < best.child)? Math.nextDown(best.score) : best.score;
+        }
+
+        private int[] orderChildren(final int depth, final int hashChild)
+        {
+            final int[] order = this.orders[depth];
+            for (int child = 0; child < order.length; ++child)
             {
-                childNode = miniMax(gameState, node);
-                double score = childNode.getScore();
-                if (score < bestScore)
+                int position = child;
+                while ((position > 0) && isSearchedBefore(depth, hashChild, child, order[position - 1]))
                 {
-                    bestScore = score;
-                    bestNode = childNode;
-                    node.setScore(bestScore);
+                    order[position] = order[position - 1];
+                    position--;
                 }
+                order[position] = child;
             }
 
-            parentNode.setScore(bestScore);
-            return bestNode;
+            return order;
         }
-    }
 
-    private Node alphaBetaPruning(final GameState gameState, final Node parentNode, double alpha, double beta)
-    {
-        ArrayList<Node<Event>> childrenNodes = getChildren(gameState, parentNode);
+        private boolean isSearchedBefore(final int depth, final int hashChild, final int child, final int otherChild)
+        {
+            final int rank = orderingRank(depth, hashChild, child);
+            final int otherRank = orderingRank(depth, hashChild, otherChild);
+            if (rank != otherRank)
+                return rank < otherRank;
+
+            return this.history[depth][child] > this.history[depth][otherChild];
+        }
+
+        private int orderingRank(final int depth, final int hashChild, final int child)
+        {
+            if (child == hashChild)
+                return 0;
+            else if (child == this.killers[depth][0])
+                return 1;
+            else if (child == this.killers[depth][1])
+                return 2;
+            else
+                return 3;
+        }
 
-        if (childrenNodes.isEmpty())
+        private void addCutoff(final int depth, final int child, final int remainingDepth)
         {
-            parentNode.setScore(computeScore(gameState, parentNode));
-            return parentNode;
+            if (this.killers[depth][0] != child)
+            {
+                this.killers[depth][1] = this.killers[depth][0];
+                this.killers[depth][0] = child;
+            }
+            this.history[depth][child] += remainingDepth * remainingDepth;
         }
 
-        Node childNode;
-        Node bestNode = childrenNodes.get(0);
-        if (parentNode.isMaxPlayer())
+        // A node the table answered for ends the line early. The line goes on to the depth limit by searching
+        // again from where it ends, the table answering straight away for what was searched already, so that
+        // the line does not depend on what the table happened to hold.
+        private void extendLine(final GameState gameState)
         {
-            for (final Node node: childrenNodes)
+            final int mark = this.state.mark();
+            for (int depth = 0; depth < this.lineLengths[0]; ++depth)
+                applyEffect(gameState, depth, this.lines[0][depth]);
+
+            while ((this.lineLengths[0] < depthLimit) && !isAborted)
             {
-                childNode = alphaBetaPruning(gameState, node, alpha, beta);
-                double score = childNode.getScore();
-                if (score > alpha)
+                final int depth = this.lineLengths[0];
+                alphaBetaPruning(gameState, depth, -Double.MAX_VALUE, Double.MAX_VALUE);
+                for (int i = 0; i < this.lineLengths[depth]; ++i)
                 {
-                    alpha = score;
-                    node.setScore(alpha);
-                    bestNode = childNode;
+                    applyEffect(gameState, depth + i, this.lines[depth][i]);
+                    this.lines[0][this.lineLengths[0]++] = this.lines[depth][i];
                 }
-                if (beta < alpha)
-                    break;
             }
 
-            parentNode.setScore(alpha);
-            return bestNode;
+            this.state.undo(mark);
         }
-        else
+
+        // My entities below the deepest iteration completed play the event scoring best right after it
+        private void completeBestLine(final GameState gameState)
         {
-            for (final Node node: childrenNodes)
+            final int mark = this.state.mark();
+            for (int depth = 0; depth < bestLineLength; ++depth)
+                applyEffect(gameState, depth, bestLine[depth]);
+
+            for (int depth = bestLineLength; depth < myEntities.size(); ++depth)
             {
-                childNode = alphaBetaPruning(gameState, node, alpha, beta);
-                double score = childNode.getScore();
-                if (score < beta)
+                int bestChild = -1;
+                double bestScore = 0.0;
+                for (int child = 0; child < events.get(depth).size(); ++child)
                 {
-                    beta = score;
-                    node.setScore(beta);
-                    bestNode = childNode;
+                    final int childMark = this.state.mark();
+                    applyEffect(gameState, depth, child);
+                    final double score = this.state.combatBalance();
+                    this.state.undo(childMark);
+
+                    if ((bestChild == -1) || (score > bestScore))
+                    {
+                        bestScore = score;
+                        bestChild = child;
+                    }
                 }
-                if (beta < alpha)
-                    break;
+
+                applyEffect(gameState, depth, bestChild);
+                bestLine[bestLineLength++] = bestChild;
             }
 
-            parentNode.setScore(beta);
-            return bestNode;
+            this.state.undo(mark);
+        }
+
+        private void applyEffect(final GameState gameState, final int depth, final int child)
+        {
+            Future.this.applyEffect(gameState, this.state, depth, child);
         }
     }
 
-    private ArrayList<Node<Event>> getChildren(final GameState gameState, final Node<Event> parentNode)
+    private Effect computeEffect(final GameState gameState, final Event event)
     {
-        Entity sourceEntity;
-        if (parentNode.getDepth() < this.myEntities.size())
+        final Entity sourceEntity = event.getSourceEntity();
+        final ArrayList<Move> newMoves = generateMoves(gameState, event.getEventType(), sourceEntity, event.getTargetEntity());
+
+        final ArrayList<Ship> movedShips;
+        if (sourceEntity instanceof Ship)
+            movedShips = new ArrayList<>(Arrays.asList((Ship) sourceEntity));
+        else if (sourceEntity instanceof Fleet)
+            movedShips = ((Fleet) sourceEntity).getShips();
+        else
+            throw new IllegalStateException("Future computeEffect.");
+
+        final boolean isMine = (sourceEntity != this.enemyShipsFleet);
+        final int[] ships = new int[movedShips.size()];
+        final double[] xs = new double[movedShips.size()];
+        final double[] ys = new double[movedShips.size()];
+        for (int i = 0; i < movedShips.size(); i++)
         {
-            sourceEntity = this.myEntities.get(parentNode.getDepth());
-            boolean isMaxPlayer = (parentNode.getDepth() != this.myEntities.size() - 1);
+            final Ship ship = movedShips.get(i);
+            final Ship newShip = applyMoveToShip(ship, newMoves.get(i));
+            ships[i] = indexOfShip(ship, isMine);
+            xs[i] = newShip.getXPos();
+            ys[i] = newShip.getYPos();
+        }
+
+        return new Effect(ships, xs, ys, newMoves);
+    }
+
+    // First ship of its side equal to this one, as the lists of ships next turn were searched
+    private int indexOfShip(final Ship ship, final boolean isMine)
+    {
+        final FutureState state = this.searcher.state;
+        final int first = isMine? 0 : state.getNumberOfMyShips();
+        final int last = isMine? state.getNumberOfMyShips() : state.getNumberOfShips();
+        for (int i = first; i < last; ++i)
+            if (state.getShip(i).equals(ship))
+                return i;
+
+        throw new IllegalStateException("Future indexOfShip.");
+    }
 
-            getChildrenForTargetShip(parentNode, this.enemyShipsActive, sourceEntity, isMaxPlayer);
-            getChildrenForTargetShip(parentNode, this.enemyShipsDocked, sourceEntity, isMaxPlayer);
-            getChildrenForTargetShip(parentNode, this.alliedShipsDocked, sourceEntity, isMaxPlayer);
-            getChildrenForGroup2(parentNode, this.myEntities, sourceEntity, isMaxPlayer);
-            getChildrenForRetreatShip(parentNode, sourceEntity, isMaxPlayer);
+    private ArrayList<Event> getChildren(final int depth)
+    {
+        ArrayList<Event> children = new ArrayList<>();
 
-            return parentNode.getChildren();
+        Entity sourceEntity;
+        if (depth < this.myEntities.size())
+        {
+            sourceEntity = this.myEntities.get(depth);
+
+            getChildrenForTargetShip(children, this.enemyShipsActive, sourceEntity);
+            getChildrenForTargetShip(children, this.enemyShipsDocked, sourceEntity);
+            getChildrenForTargetShip(children, this.alliedShipsDocked, sourceEntity);
+            getChildrenForGroup2(children, this.myEntities, sourceEntity);
+            getChildrenForRetreatShip(children, sourceEntity);
         }
-        else if (parentNode.getDepth() < this.maxDepth)
+        else if (depth < this.maxDepth)
         {
             sourceEntity = this.enemyShipsFleet;
-//            sourceEntity = this.enemyShipsActive.get(parentNode.getDepth() - this.myEntities.size());
-
-            getChildrenForTargetShip(parentNode, this.allMyShipsActive, sourceEntity, false);
-            getChildrenForTargetShip(parentNode, this.alliedShipsDocked, sourceEntity, false);
-            getChildrenForTargetShip(parentNode, this.enemyShipsDocked, sourceEntity, false);
-            getChildrenForGroup(parentNode, this.enemyShipsActive, sourceEntity, false);
-            getChildrenForRetreatShip(parentNode, sourceEntity, false);
+//            sourceEntity = this.enemyShipsActive.get(depth - this.myEntities.size());
 
-            return parentNode.getChildren();
+            getChildrenForTargetShip(children, this.allMyShipsActive, sourceEntity);
+            getChildrenForTargetShip(children, this.alliedShipsDocked, sourceEntity);
+            getChildrenForTargetShip(children, this.enemyShipsDocked, sourceEntity);
+            getChildrenForGroup(children, this.enemyShipsActive, sourceEntity);
+            getChildrenForRetreatShip(children, sourceEntity);
         }
-        else
-            return new ArrayList<>();
+
+        return children;
     }
 
-    private void getChildrenForTargetShip(final Node<Event> parentNode, final ArrayList<Ship> targetShips, final Entity sourceEntity, final Boolean isMaxPlayer)
+    private void getChildrenForTargetShip(final ArrayList<Event> children, final ArrayList<Ship> targetShips, final Entity sourceEntity)
     {
         for(final Ship targetShip: targetShips)
         {
             EventType eventType = generateEventTypeForShip(sourceEntity, targetShip);
-            Event event = new Event(eventType, sourceEntity, targetShip);
-            parentNode.addNodeToChildren(event, isMaxPlayer, parentNode.getDepth() + 1, 0);
+            children.add(new Event(eventType, sourceEntity, targetShip));
         }
     }
 
-    private void getChildrenForGroup(final Node<Event> parentNode, final ArrayList<Ship> myActiveShips, final Entity sourceEntity, final Boolean isMaxPlayer)
+    private void getChildrenForGroup(final ArrayList<Event> children, final ArrayList<Ship> myActiveShips, final Entity sourceEntity)
     {
         for(final Ship targetShip: myActiveShips)
         {
@@ -240,12 +725,11 @@ public class Future
                     continue;
             }
 
-            Event event = new Event(EventType.GROUP, sourceEntity, targetShip);
-            parentNode.addNodeToChildren(event, isMaxPlayer, parentNode.getDepth() + 1, 0);
+            children.add(new Event(EventType.GROUP, sourceEntity, targetShip));
         }
     }
 
-    private void getChildrenForGroup2(final Node<Event> parentNode, final ArrayList<Entity> myActiveShips, final Entity sourceEntity, final Boolean isMaxPlayer)
+    private void getChildrenForGroup2(final ArrayList<Event> children, final ArrayList<Entity> myActiveShips, final Entity sourceEntity)
     {
         for(final Entity targetEntity: myActiveShips)
         {
@@ -263,15 +747,13 @@ public class Future
                     continue;
             }
 
-            Event event = new Event(EventType.GROUP, sourceEntity, targetEntity);
-            parentNode.addNodeToChildren(event, isMaxPlayer, parentNode.getDepth() + 1, 0);
+            children.add(new Event(EventType.GROUP, sourceEntity, targetEntity));
         }
     }
 
-    private void getChildrenForRetreatShip(final Node<Event> parentNode, final Entity sourceEntity, final Boolean isMaxPlayer)
+    private void getChildrenForRetreatShip(final ArrayList<Event> children, final Entity sourceEntity)
     {
-        Event event = new Event(EventType.RETREAT, sourceEntity, sourceEntity);
-        parentNode.addNodeToChildren(event, isMaxPlayer, parentNode.getDepth() + 1, 0);
+        children.add(new Event(EventType.RETREAT, sourceEntity, sourceEntity));
     }
 
 //    private void getChildrenForTargetShips(final Node<Event> parentNode, final ArrayList<Ship> targetShips, final ArrayList<Ship> sourceShips, final Boolean isMaxPlayer)
@@ -328,68 +810,6 @@ public class Future
             return EventType.STILL;
     }
 
-    private double computeScore(final GameState gameState, final Node<Event> parentNode)
-    {
-        ArrayList<Ship> myShipsNextTurn = copyMyShips();
-        ArrayList<Ship> enemyShipsNextTurn = copyEnemyShips();
-
-        LinkedList<Node<Event>> parents = parentNode.getParents();
-        Iterator<Node<Event>> nodeIterator = parents.descendingIterator();
-
-        while(nodeIterator.hasNext())
-        {
-            Node<Event> node = nodeIterator.next();
-            Event event = node.getData();
-            Entity sourceEntity = event.getSourceEntity();
-            Entity targetEntity = event.getTargetEntity();
-
-            ArrayList<Move> newMoves = generateMoves(gameState, event.getEventType(), sourceEntity, targetEntity);
-
-            if (node.getParent().isMaxPlayer())
-            {
-                if (sourceEntity instanceof Ship)
-                {
-                    int indexOfCurrentShip = myShipsNextTurn.indexOf((Ship) sourceEntity);
-                    myShipsNextTurn.set(indexOfCurrentShip, applyMoveToShip((Ship) sourceEntity, newMoves.get(0)));
-                }
-                else if (sourceEntity instanceof Fleet)
-                {
-                    Fleet fleet = (Fleet)sourceEntity;
-                    for (int i = 0; i < fleet.getShips().size(); i++)
-                    {
-                        Ship ship = fleet.getShips().get(i);
-                        int indexOfCurrentShip = myShipsNextTurn.indexOf(ship);
-                        myShipsNextTurn.set(indexOfCurrentShip, applyMoveToShip(ship, newMoves.get(i)));
-                    }
-                }
-                else
-                    throw new IllegalStateException("Future Compute Score.");
-            }
-            else
-            {
-                if (sourceEntity instanceof Ship)
-                {
-                    int indexOfCurrentShip = enemyShipsNextTurn.indexOf((Ship) sourceEntity);
-                    enemyShipsNextTurn.set(indexOfCurrentShip, applyMoveToShip((Ship) sourceEntity, newMoves.get(0)));
-                }
-                else if (sourceEntity instanceof Fleet)
-                {
-                    Fleet fleet = (Fleet)sourceEntity;
-                    for (int i = 0; i < fleet.getShips().size(); i++)
-                    {
-                        Ship ship = fleet.getShips().get(i);
-                        int indexOfCurrentShip = enemyShipsNextTurn.indexOf(ship);
-                        enemyShipsNextTurn.set(indexOfCurrentShip, applyMoveToShip(ship, newMoves.get(i)));
-                    }
-                }
-                else
-                    throw new IllegalStateException("Future computeScore.");
-            }
-        }
-
-        return CombatManager.combatBalance(myShipsNextTurn, enemyShipsNextTurn);
-    }
-
     private ArrayList<Move> generateMoves(final GameState gameState, final EventType eventType, final Entity sourceEntity, final Entity targetEntity)
     {
         if (sourceEntity instanceof Ship)
@@ -434,21 +854,17 @@ public class Future
         }
     }
 
-    private CombatOperationMoves generateMovesForFleet(final GameState gameState, final LinkedList<Node<Event>> events)
+    private CombatOperationMoves generateMovesForFleet(final GameState gameState, final int[] line, final int lineLength)
     {
-        Iterator<Node<Event>> nodeIterator = events.descendingIterator();
-
         HashMap<Fleet, ArrayList<Move>> fleetMoves = new HashMap<>();
         HashMap<Ship, Move> shipMoves = new HashMap<>();
 
-        while(nodeIterator.hasNext())
+        for (int depth = 0; depth < lineLength; ++depth)
         {
-            Node<Event> node = nodeIterator.next();
-            Event event = node.getData();
+            Event event = this.events.get(depth).get(line[depth]);
             Entity sourceEntity = event.getSourceEntity();
-            Entity targetEntity = event.getTargetEntity();
 
-            ArrayList<Move> newMoves = generateMoves(gameState, event.getEventType(), sourceEntity, targetEntity);
+            ArrayList<Move> newMoves = this.effects.get(depth).get(line[depth]).moves;
 
             if (sourceEntity.getOwner() == gameState.getMyId())
             {
@@ -464,35 +880,26 @@ public class Future
         return new CombatOperationMoves(fleetMoves, shipMoves);
     }
 
-    private ArrayList<Ship> copyMyShips()
+    private ArrayList<Ship> myShipsInOrder()
     {
         ArrayList<Ship> myShipsNextTurn = new ArrayList<>();
 
         for (final Fleet fleet: this.myFleets)
-            for (final Ship ship: fleet.getShips())
-                myShipsNextTurn.add(new Ship(ship));
+            myShipsNextTurn.addAll(fleet.getShips());
 
-        for (final Ship ship: this.myShips)
-            myShipsNextTurn.add(new Ship(ship));
-
-        for (final Ship ship: this.alliedShipsActive)
-            myShipsNextTurn.add(new Ship(ship));
-
-        for (final Ship ship: this.alliedShipsDocked)
-            myShipsNextTurn.add(new Ship(ship));
+        myShipsNextTurn.addAll(this.myShips);
+        myShipsNextTurn.addAll(this.alliedShipsActive);
+        myShipsNextTurn.addAll(this.alliedShipsDocked);
 
         return myShipsNextTurn;
     }
 
-    private ArrayList<Ship> copyEnemyShips()
+    private ArrayList<Ship> enemyShipsInOrder()
     {
         ArrayList<Ship> enemyShipsNextTurn = new ArrayList<>();
 
-        for (final Ship ship: this.enemyShipsActive)
-            enemyShipsNextTurn.add(new Ship(ship));
-
-        for (final Ship ship: this.enemyShipsDocked)
-            enemyShipsNextTurn.add(new Ship(ship));
+        enemyShipsNextTurn.addAll(this.enemyShipsActive);
+        enemyShipsNextTurn.addAll(this.enemyShipsDocked);
 
         return enemyShipsNextTurn;
     }
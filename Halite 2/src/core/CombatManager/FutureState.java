@@ -0,0 +1,318 @@
+package core.CombatManager;
+
+import hlt.Ship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Ships of a combat as primitive arrays, moved by the events of the line being searched and moved back after.
+// What the combat balance needs is kept up to date as ships move: which ships of different owners are within
+// weapon range of each other, and how many such ships each has. The balance at a leaf then only adds up the
+// damages, and gives exactly CombatManager.combatBalance over the same ships in the same order, ships sharing
+// an id sharing their damage as they do there.
+// The state also keeps a Zobrist hash of where the ships are, updated as they move, so that lines of events
+// leading to the same positions are recognised.
+public class FutureState
+{
+    private static final double RANGE = 6.00001;
+
+    private final int numberOfShips;
+    private final int numberOfMyShips;
+    private final Ship[] ships;
+    private final double[] xs;
+    private final double[] ys;
+    private final int[] healths;
+    private final boolean[] undocked;
+    private final int[] idSlots;
+    private final int[] ownerSlots;
+    private final int myOwnerSlot;
+    private final int numberOfIds;
+    private final int numberOfOwners;
+
+    // Pairs of ships of different owners in range, row by row, and the number of them per ship
+    private final boolean[] inRange;
+    private final int[] inRangeCounts;
+
+    // Xor of the keys of each ship at its position
+    private long hash;
+
+    // Positions of the ships moved, to move them back
+    private int undoSize;
+    private int[] undoShips;
+    private double[] undoXs;
+    private double[] undoYs;
+
+    // Scratch space of the balance, by id and by owner
+    private final double[] damageTaken;
+    private final int[] survivalTimes;
+    private final int[] damagePerPlayer;
+    private final int[] survivalTimePerPlayer;
+    private final boolean[] hasSurvivalTime;
+    private final int[] shipsLostPerPlayer;
+
+    public int getNumberOfShips() { return numberOfShips; }
+    public int getNumberOfMyShips() { return numberOfMyShips; }
+    public Ship getShip(final int index) { return ships[index]; }
+    public double getXPos(final int index) { return xs[index]; }
+    public double getYPos(final int index) { return ys[index]; }
+    public long getHash() { return hash; }
+
+    // My ships first, then the enemy ones, as the lists given to combatBalance
+    public FutureState(final ArrayList<Ship> myShips, final ArrayList<Ship> enemyShips)
+    {
+        this.numberOfMyShips = myShips.size();
+        this.numberOfShips = myShips.size() + enemyShips.size();
+        this.ships = new Ship[numberOfShips];
+        this.xs = new double[numberOfShips];
+        this.ys = new double[numberOfShips];
+        this.healths = new int[numberOfShips];
+        this.undocked = new boolean[numberOfShips];
+        this.idSlots = new int[numberOfShips];
+        this.ownerSlots = new int[numberOfShips];
+
+        final ArrayList<Integer> ids = new ArrayList<>();
+        final ArrayList<Integer> owners = new ArrayList<>();
+        for (int i = 0; i < numberOfShips; ++i)
+        {
+            final Ship ship = (i < numberOfMyShips)? myShips.get(i) : enemyShips.get(i - numberOfMyShips);
+            ships[i] = ship;
+            xs[i] = ship.getXPos();
+            ys[i] = ship.getYPos();
+            healths[i] = ship.getHealth();
+            undocked[i] = ship.isUndocked();
+
+            if (!ids.contains(ship.getId()))
+                ids.add(ship.getId());
+            if (!owners.contains(ship.getOwner()))
+                owners.add(ship.getOwner());
+            idSlots[i] = ids.indexOf(ship.getId());
+            ownerSlots[i] = owners.indexOf(ship.getOwner());
+            hash ^= positionKey(i, xs[i], ys[i]);
+        }
+        this.numberOfIds = ids.size();
+        this.numberOfOwners = owners.size();
+        this.myOwnerSlot = (numberOfMyShips > 0)? ownerSlots[0] : -1;
+
+        this.inRange = new boolean[numberOfShips * numberOfShips];
+        this.inRangeCounts = new int[numberOfShips];
+        for (int i = 0; i < numberOfShips; ++i)
+            for (int j = i + 1; j < numberOfShips; ++j)
+                setInRange(i, j, isInRange(i, j));
+
+        this.undoShips = new int[Math.max(16, numberOfShips * 2)];
+        this.undoXs = new double[undoShips.length];
+        this.undoYs = new double[undoShips.length];
+
+        this.damageTaken = new double[numberOfIds];
+        this.survivalTimes = new int[numberOfIds];
+        this.damagePerPlayer = new int[numberOfOwners];
+        this.survivalTimePerPlayer = new int[numberOfOwners];
+        this.hasSurvivalTime = new boolean[numberOfOwners];
+        this.shipsLostPerPlayer = new int[numberOfOwners];
+    }
+
+    public int mark() { return undoSize; }
+
+    public void moveShip(final int index, final double x, final double y)
+    {
+        if (undoSize == undoShips.length)
+        {
+            undoShips = Arrays.copyOf(undoShips, undoSize * 2);
+            undoXs = Arrays.copyOf(undoXs, undoSize * 2);
+            undoYs = Arrays.copyOf(undoYs, undoSize * 2);
+        }
+
+        undoShips[undoSize] = index;
+        undoXs[undoSize] = xs[index];
+        undoYs[undoSize] = ys[index];
+        undoSize++;
+
+        setPosition(index, x, y);
+    }
+
+    // Moves back every ship moved since the mark, latest first
+    public void undo(final int mark)
+    {
+        while (undoSize > mark)
+        {
+            undoSize--;
+            setPosition(undoShips[undoSize], undoXs[undoSize], undoYs[undoSize]);
+        }
+    }
+
+    private void setPosition(final int index, final double x, final double y)
+    {
+        hash ^= positionKey(index, xs[index], ys[index]) ^ positionKey(index, x, y);
+        xs[index] = x;
+        ys[index] = y;
+
+        for (int j = 0; j < numberOfShips; ++j)
+            if (j != index)
+                setInRange(index, j, isInRange(index, j));
+    }
+
+    // Positions are not on a grid, so the key of a ship at a position is mixed from its exact coordinates
+    // rather than read from a table of random numbers
+    private static long positionKey(final int index, final double x, final double y)
+    {
+        long key = mix(0x9E3779B97F4A7C15L * (index + 1));
+        key = mix(key ^ Double.doubleToLongBits(x));
+        return mix(key ^ Double.doubleToLongBits(y));
+    }
+
+    // Finalizer of splitmix64
+    private static long mix(long value)
+    {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    // Same test as combatBalance, on the same distance
+    private boolean isInRange(final int i, final int j)
+    {
+        if (ownerSlots[i] == ownerSlots[j])
+            return false;
+
+        final double dx = xs[i] - xs[j];
+        final double dy = ys[i] - ys[j];
+        return Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2)) <= RANGE;
+    }
+
+    private void setInRange(final int i, final int j, final boolean isInRange)
+    {
+        if (inRange[i * numberOfShips + j] == isInRange)
+            return;
+
+        inRange[i * numberOfShips + j] = isInRange;
+        inRange[j * numberOfShips + i] = isInRange;
+        final int change = isInRange? 1 : -1;
+        inRangeCounts[i] += change;
+        inRangeCounts[j] += change;
+    }
+
+    public double combatBalance()
+    {
+        if ((numberOfMyShips == 0) || (numberOfShips == numberOfMyShips))
+            return 1.0;
+        else if ((numberOfMyShips == 1) && (numberOfShips == 2))
+            return combatBalanceTwoShips();
+        else
+            return combatBalanceManyShips();
+    }
+
+    private double combatBalanceManyShips()
+    {
+        Arrays.fill(damageTaken, 0.0);
+        Arrays.fill(survivalTimes, Integer.MAX_VALUE);
+        Arrays.fill(damagePerPlayer, 0);
+        Arrays.fill(hasSurvivalTime, false);
+        Arrays.fill(shipsLostPerPlayer, 0);
+
+        // Who damages who, in the order of the ships
+        for (int i = 0; i < numberOfShips; ++i)
+        {
+            if (!undocked[i] || (inRangeCounts[i] == 0))
+                continue;
+
+            final double damage = 64.0 / inRangeCounts[i];
+            final int row = i * numberOfShips;
+            for (int j = 0; j < numberOfShips; ++j)
+                if (inRange[row + j])
+                    damageTaken[idSlots[j]] += damage;
+
+            damagePerPlayer[ownerSlots[i]] += 64;
+        }
+
+        if (damagePerPlayer[myOwnerSlot] == 0)
+            return 1.0;
+
+        for (int i = 0; i < numberOfShips; ++i)
+            if (damageTaken[idSlots[i]] != 0)
+                survivalTimes[idSlots[i]] = (int)((double)healths[i] / damageTaken[idSlots[i]]) + 1;
+
+        for (int i = 0; i < numberOfShips; ++i)
+        {
+            final int survivalTime = survivalTimes[idSlots[i]];
+            final int owner = ownerSlots[i];
+            if ((survivalTime != Integer.MAX_VALUE) && (!hasSurvivalTime[owner] || (survivalTimePerPlayer[owner] < survivalTime)))
+            {
+                survivalTimePerPlayer[owner] = survivalTime;
+                hasSurvivalTime[owner] = true;
+            }
+        }
+
+        // Combat ends when one player doesn't have ships anymore
+        final int endOfCombat = secondLargestSurvivalTime();
+        final int mySurvivalTime = hasSurvivalTime[myOwnerSlot]? survivalTimePerPlayer[myOwnerSlot] : Integer.MAX_VALUE;
+
+        for (int i = 0; i < numberOfShips; ++i)
+            if (survivalTimes[idSlots[i]] <= endOfCombat)
+                shipsLostPerPlayer[ownerSlots[i]]++;
+
+        int mostShipsLost = Integer.MIN_VALUE;
+        for (int owner = 0; owner < numberOfOwners; ++owner)
+            mostShipsLost = Math.max(mostShipsLost, shipsLostPerPlayer[owner]);
+        final int myShipsLost = shipsLostPerPlayer[myOwnerSlot];
+
+        boolean iWin = mySurvivalTime > endOfCombat;
+        boolean iLoose = mySurvivalTime <= endOfCombat;
+        boolean enemiesLostMoreShips = myShipsLost < mostShipsLost;
+        boolean enemiesLostLessShips = myShipsLost >= mostShipsLost;
+
+        return ((myShipsLost == 0)? 1.0 : 0.0) + (enemiesLostMoreShips? 1.0 : 0.0) + (enemiesLostLessShips? -1.0 : 0.0) + (iWin? 1.0 : 0.0) + (iLoose? -2.0 : 0.0);
+    }
+
+    // The largest survival time below the largest one, or the largest one when all are equal
+    private int secondLargestSurvivalTime()
+    {
+        int numberOfPlayers = 0;
+        int onlySurvivalTime = 0;
+        int first = Integer.MIN_VALUE;
+        int second = Integer.MIN_VALUE;
+
+        for (int owner = 0; owner < numberOfOwners; ++owner)
+        {
+            if (!hasSurvivalTime[owner])
+                continue;
+
+            final int entry = survivalTimePerPlayer[owner];
+            numberOfPlayers++;
+            onlySurvivalTime = entry;
+
+            if (entry > first)
+            {
+                second = first;
+                first = entry;
+            }
+            else if ((entry > second) && (entry != first))
+                second = entry;
+        }
+
+        if (numberOfPlayers < 2)
+            return onlySurvivalTime;
+
+        return (second == Integer.MIN_VALUE)? first : second;
+    }
+
+    private double combatBalanceTwoShips()
+    {
+        final double dx = xs[0] - xs[1];
+        final double dy = ys[0] - ys[1];
+        if (Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2)) > 6.0)
+            return 1.0;
+
+        int myPower = undocked[0]? 64 : 0;
+        int enemyPower = undocked[1]? 64 : 0;
+
+        int myRemainingTurns = (enemyPower != 0)? healths[0] / enemyPower : Integer.MAX_VALUE;
+        int enemyRemainingTurns = (myPower != 0)? healths[1] / myPower : Integer.MAX_VALUE;
+
+        if (myRemainingTurns > enemyRemainingTurns)
+            return 1.0;
+        else if(myRemainingTurns == enemyRemainingTurns)
+            return -1.0;
+        else
+            return -2.0;
+    }
+}
@@ -0,0 +1,241 @@
+package core.CombatManager;
+
+import core.Timer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+// Anytime search of a Future with too many lines for alpha-beta to finish. Each playout goes down the tree by UCT,
+// my entities taking the event with the best upper bound and the enemy the one with the lowest lower bound, adds
+// the node it stops at, and plays the events left at random. The combat balance where the ships then stand,
+// which plays the fight out to the end, is scaled to [0, 1] and backed up the line.
+// Progressive widening: a node visited n times chooses among its first ceil(sqrt(n)) events only. The events of a
+// depth are the same below any line, so they are ordered once, by the balance right after each from where the
+// ships stand, best for the side playing first, except that the best event of each type (attack, attack docked,
+// group, retreat) comes before the others, so that all kinds get tried early.
+// Ordering and playouts stop at the combat deadline, the events not ordered yet staying in generation order, and
+// playouts stop after MAX_PLAYOUTS. My entities play the most visited line.
+public class MonteCarloSearch
+{
+    public static final int MAX_PLAYOUTS = 1024;
+    public static final int PLAYOUTS_PER_DEADLINE_CHECK = 32;
+    private static final double EXPLORATION = 0.5;
+    private static final double MIN_BALANCE = -3.0;
+    private static final double MAX_BALANCE = 3.0;
+    private static final long ROLLOUT_SEED = 965;
+
+    // The combat searched: its events at each depth, and how they move the ships of a state
+    public interface Tree
+    {
+        int getMaxDepth();
+        int getNumberOfMyEntities();
+        int getNumberOfEvents(int depth);
+        EventType getEventType(int depth, int child);
+        boolean isMaxPlayer(int depth);
+        FutureState newState();
+        void applyEvent(FutureState state, int depth, int child);
+    }
+
+    private final Tree tree;
+    private final FutureState state;
+    private final Random random;
+    private final Node root;
+    private final Node[] path;
+    private int[][] orders;
+    private boolean isOrderingStopped;
+    private long nodes;
+    private int playouts;
+
+    public static class Node
+    {
+        private final int depth;
+        private final int event;
+        private final Node[] children;
+        private int visits;
+        private double totalReward;
+
+        private Node(final int depth, final int event, final int numberOfEvents)
+        {
+            this.depth = depth;
+            this.event = event;
+            this.children = new Node[numberOfEvents];
+        }
+
+        private double meanReward() { return totalReward / visits; }
+
+        public int getEvent() { return event; }
+        public int getVisits() { return visits; }
+        public int getNumberOfChildren() { return children.length; }
+        public Node getChild(final int position) { return children[position]; }
+    }
+
+    public MonteCarloSearch(final Tree tree)
+    {
+        this.tree = tree;
+        this.state = tree.newState();
+        this.random = new Random(ROLLOUT_SEED);
+        this.root = new Node(0, -1, tree.getNumberOfEvents(0));
+        this.path = new Node[tree.getMaxDepth() + 1];
+        this.nodes = 0;
+        this.playouts = 0;
+    }
+
+    public long getNumberOfNodes() { return nodes; }
+    public int getNumberOfPlayouts() { return playouts; }
+    public Node getRoot() { return root; }
+
+    // Fills the line of my entities with the most visited events, returns its length
+    public int search(final Timer timer, final int[] line)
+    {
+        this.orders = new int[this.tree.getMaxDepth()][];
+        this.isOrderingStopped = false;
+        for (int depth = 0; depth < this.tree.getMaxDepth(); ++depth)
+            this.orders[depth] = orderEvents(timer, depth);
+
+        for (this.playouts = 0; this.playouts < MAX_PLAYOUTS; ++this.playouts)
+        {
+            if ((this.playouts > 0) && (this.playouts % PLAYOUTS_PER_DEADLINE_CHECK == 0) && timer.shouldStopSearch())
+                break;
+
+            playout();
+        }
+
+        int lineLength = 0;
+        Node node = this.root;
+        while ((node != null) && (node.depth < this.tree.getNumberOfMyEntities()))
+        {
+            int bestPosition = -1;
+            for (int position = 0; position < node.children.length; ++position)
+                if ((node.children[position] != null) && ((bestPosition == -1) || isVisitedMore(node.children[position], node.children[bestPosition])))
+                    bestPosition = position;
+
+            if (bestPosition == -1)
+                break;
+
+            node = node.children[bestPosition];
+            line[lineLength++] = node.event;
+        }
+
+        return lineLength;
+    }
+
+    private static boolean isVisitedMore(final Node node, final Node otherNode)
+    {
+        return (node.visits > otherNode.visits) || ((node.visits == otherNode.visits) && (node.meanReward() > otherNode.meanReward()));
+    }
+
+    private void playout()
+    {
+        final int maxDepth = this.tree.getMaxDepth();
+        final int mark = this.state.mark();
+
+        Node node = this.root;
+        int pathLength = 0;
+        this.path[pathLength++] = node;
+        while (node.depth < maxDepth)
+        {
+            final int position = selectChild(node);
+            final int event = this.orders[node.depth][position];
+            this.tree.applyEvent(this.state, node.depth, event);
+
+            final boolean isNew = (node.children[position] == null);
+            if (isNew)
+                node.children[position] = new Node(node.depth + 1, event, (node.depth + 1 < maxDepth)? this.tree.getNumberOfEvents(node.depth + 1) : 0);
+
+            node = node.children[position];
+            this.path[pathLength++] = node;
+            if (isNew)
+                break;
+        }
+
+        for (int depth = node.depth; depth < maxDepth; ++depth)
+            this.tree.applyEvent(this.state, depth, this.random.nextInt(this.tree.getNumberOfEvents(depth)));
+
+        final double reward = (this.state.combatBalance() - MIN_BALANCE) / (MAX_BALANCE - MIN_BALANCE);
+        this.nodes++;
+        this.state.undo(mark);
+
+        for (int i = 0; i < pathLength; ++i)
+        {
+            this.path[i].visits++;
+            this.path[i].totalReward += reward;
+        }
+    }
+
+    // Events widened in yet not tried first, in order, then the best by UCT, the first one on ties
+    private int selectChild(final Node node)
+    {
+        final int widened = Math.min(node.children.length, (int) Math.ceil(Math.sqrt(node.visits + 1)));
+        for (int position = 0; position < widened; ++position)
+            if (node.children[position] == null)
+                return position;
+
+        final boolean isMaxPlayer = this.tree.isMaxPlayer(node.depth);
+        final double logVisits = Math.log(node.visits);
+        int bestPosition = 0;
+        double bestValue = -Double.MAX_VALUE;
+        for (int position = 0; position < widened; ++position)
+        {
+            final Node child = node.children[position];
+            final double exploitation = isMaxPlayer? child.meanReward() : 1.0 - child.meanReward();
+            final double value = exploitation + EXPLORATION * Math.sqrt(logVisits / child.visits);
+            if (value > bestValue)
+            {
+                bestValue = value;
+                bestPosition = position;
+            }
+        }
+
+        return bestPosition;
+    }
+
+    // Events not scored before the deadline come after the others, in generation order
+    private int[] orderEvents(final Timer timer, final int depth)
+    {
+        final int numberOfEvents = this.tree.getNumberOfEvents(depth);
+        final boolean isMaxPlayer = this.tree.isMaxPlayer(depth);
+
+        final double[] balances = new double[numberOfEvents];
+        final Integer[] byBalance = new Integer[numberOfEvents];
+        for (int child = 0; child < numberOfEvents; ++child)
+        {
+            byBalance[child] = child;
+            this.isOrderingStopped = this.isOrderingStopped || timer.shouldStopSearch();
+            if (this.isOrderingStopped)
+            {
+                balances[child] = -Double.MAX_VALUE;
+                continue;
+            }
+
+            final int mark = this.state.mark();
+            this.tree.applyEvent(this.state, depth, child);
+            balances[child] = isMaxPlayer? this.state.combatBalance() : -this.state.combatBalance();
+            this.state.undo(mark);
+            this.nodes++;
+        }
+        Arrays.sort(byBalance, (first, second) -> Double.compare(balances[second], balances[first]));
+
+        final ArrayList<EventType> typesSeen = new ArrayList<>();
+        final ArrayList<Integer> firstOfType = new ArrayList<>();
+        final ArrayList<Integer> others = new ArrayList<>();
+        for (final int child: byBalance)
+        {
+            final EventType eventType = this.tree.getEventType(depth, child);
+            if (typesSeen.contains(eventType))
+                others.add(child);
+            else
+            {
+                typesSeen.add(eventType);
+                firstOfType.add(child);
+            }
+        }
+        firstOfType.addAll(others);
+
+        final int[] order = new int[numberOfEvents];
+        for (int position = 0; position < numberOfEvents; ++position)
+            order[position] = firstOfType.get(position);
+
+        return order;
+    }
+}
@@ -0,0 +1,111 @@
+package core.CombatManager;
+
+// Nodes of a Future search already searched, by the hash of the ship positions and the depth they were reached
+// at. A slot holds one node. A node searched deeper replaces the one in its slot, and so does any node of a
+// later iteration: the nodes kept are the ones that save the most work in the iteration running.
+// The threads of a parallel search share the table without locks. A slot keeps its key xored with its score
+// and data, so a slot read while another thread writes it does not match its key and reads as a miss.
+public class TranspositionTable
+{
+    public enum Bound
+    {
+        EXACT,
+        LOWER,
+        UPPER
+    }
+
+    // What a probe found, filled in by the table so a search allocates nothing per node
+    public static class Entry
+    {
+        private double score;
+        private int remainingDepth;
+        private Bound bound;
+        private int bestChild;
+
+        public double getScore() { return score; }
+        public int getRemainingDepth() { return remainingDepth; }
+        public Bound getBound() { return bound; }
+        public int getBestChild() { return bestChild; }
+    }
+
+    private static final int MINIMUM_CAPACITY = 256;
+    private static final int MAXIMUM_CAPACITY = 1 << 16;
+    private static final Bound[] BOUNDS = Bound.values();
+
+    // Data of a slot: best child + 1, remaining depth, bound + 1 and generation, 0 when the slot is empty
+    private static final long CHILD_MASK = 0xFFFFL;
+    private static final int DEPTH_SHIFT = 16;
+    private static final long DEPTH_MASK = 0xFFFFL;
+    private static final int BOUND_SHIFT = 32;
+    private static final long BOUND_MASK = 0xFFL;
+    private static final int GENERATION_SHIFT = 40;
+    private static final long GENERATION_MASK = 0xFFFFFFL;
+
+    private final int mask;
+    private final long[] checks;
+    private final long[] scores;
+    private final long[] data;
+    private volatile int generation;
+
+    public TranspositionTable(final long expectedNodes)
+    {
+        int capacity = MINIMUM_CAPACITY;
+        while ((capacity < MAXIMUM_CAPACITY) && (capacity < expectedNodes))
+            capacity <<= 1;
+
+        this.mask = capacity - 1;
+        this.checks = new long[capacity];
+        this.scores = new long[capacity];
+        this.data = new long[capacity];
+        this.generation = 0;
+    }
+
+    public int getCapacity() { return mask + 1; }
+
+    public void nextGeneration() { generation++; }
+
+    public boolean probe(final long key, final Entry entry)
+    {
+        final int slot = slotOf(key);
+        final long slotScore = scores[slot];
+        final long slotData = data[slot];
+        if ((slotData == 0) || ((checks[slot] ^ slotScore ^ slotData) != key))
+            return false;
+
+        entry.score = Double.longBitsToDouble(slotScore);
+        entry.remainingDepth = (int) ((slotData >>> DEPTH_SHIFT) & DEPTH_MASK);
+        entry.bound = BOUNDS[(int) ((slotData >>> BOUND_SHIFT) & BOUND_MASK) - 1];
+        entry.bestChild = (int) (slotData & CHILD_MASK) - 1;
+        return true;
+    }
+
+    public void store(final long key, final int remainingDepth, final double score, final Bound bound, final int bestChild)
+    {
+        final int slot = slotOf(key);
+        final long slotScore = scores[slot];
+        final long slotData = data[slot];
+        final long currentGeneration = generation & GENERATION_MASK;
+
+        final boolean isReplaced = (slotData == 0)
+                || ((checks[slot] ^ slotScore ^ slotData) == key)
+                || (((slotData >>> GENERATION_SHIFT) & GENERATION_MASK) != currentGeneration)
+                || (remainingDepth >= ((slotData >>> DEPTH_SHIFT) & DEPTH_MASK));
+        if (!isReplaced)
+            return;
+
+        final long newScore = Double.doubleToLongBits(score);
+        final long newData = ((long) (bestChild + 1) & CHILD_MASK)
+                | (((long) remainingDepth & DEPTH_MASK) << DEPTH_SHIFT)
+                | (((long) bound.ordinal() + 1) << BOUND_SHIFT)
+                | (currentGeneration << GENERATION_SHIFT);
+
+        scores[slot] = newScore;
+        data[slot] = newData;
+        checks[slot] = key ^ newScore ^ newData;
+    }
+
+    private int slotOf(final long key)
+    {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+}
@@ -23,104 +23,139 @@ public class DistanceManager
         public Entity getEntity() { return entity; }
     }
 
-    private HashMap<Integer, TreeSet<EntityAndDistance>> distanceMatrixShipPlanet;
-    private HashMap<Integer, TreeSet<EntityAndDistance>> distanceMatrixShipShip;
+    // Nearest-neighbour indexes over planets and enemy ships, rebuilt on their first query of a turn, so a turn
+    // without nearest queries does not pay for them
+    private final KdTree planetTree = new KdTree();
+    private final KdTree enemyShipTree = new KdTree();
+    private boolean isPlanetTreeBuilt;
+    private boolean isEnemyShipTreeBuilt;
 
     private List<Planet> planets;
     private List<Ship> myShips;
     private List<Ship> enemyShips;
 
-    public void computeDistanceMatrices(final GameState gameState)
+    // Ships on the map are scanned through the columns of the store, predicted ones are few and kept aside.
+    // Range and closest queries only visit the cells of the spatial hash around the position: its entries
+    // are the store indices, then the predicted ships, so candidates come in the order of the old scans.
+    private EntityStore entityStore;
+    private List<Ship> futureEnemyShips;
+    private SpatialHash shipHash;
+    private int numberOfStoreShips;
+    private int myId;
+
+    public void computeDistanceIndexes(final GameState gameState)
     {
         this.planets = new ArrayList<>(gameState.getGameMap().getAllPlanets().values());
         this.myShips = new ArrayList<>(gameState.getMyShips());
         this.enemyShips = new ArrayList<>(gameState.getEnemyShips());
-
-        computeDistanceMatrixShipPlanet();
-        computeDistanceMatrixShipShip();
+        this.entityStore = gameState.getGameMap().getEntityStore();
+        this.futureEnemyShips = new ArrayList<>(gameState.getFutureEnemyShips());
+        this.shipHash = gameState.getShipHash();
+        this.numberOfStoreShips = this.entityStore.getNumberOfShips();
+        this.myId = gameState.getMyId();
+
+        this.isPlanetTreeBuilt = false;
+        this.isEnemyShipTreeBuilt = false;
     }
 
-    private void computeDistanceMatrixShipPlanet()
+    private KdTree getPlanetTree()
     {
-        this.distanceMatrixShipPlanet = new HashMap<>();
-
-        for(final Ship ship_i : this.myShips)
+        if (!this.isPlanetTreeBuilt)
         {
-            this.distanceMatrixShipPlanet.put(ship_i.getId(), new TreeSet<>(Comparator.comparingDouble(EntityAndDistance::getDistance)));
-
-            for (final Planet planet_j : this.planets)
-                this.distanceMatrixShipPlanet.get(ship_i.getId()).add(new EntityAndDistance(planet_j, ship_i.getDistanceTo(planet_j)));
+            this.planetTree.clear();
+            for (final Planet planet: this.planets)
+                this.planetTree.add(planet);
+            this.planetTree.build();
+            this.isPlanetTreeBuilt = true;
         }
+
+        return this.planetTree;
     }
 
-    private void computeDistanceMatrixShipShip()
+    private KdTree getEnemyShipTree()
     {
-        this.distanceMatrixShipShip = new HashMap<>();
-
-        for(final Ship ship_i : this.myShips)
+        if (!this.isEnemyShipTreeBuilt)
         {
-            this.distanceMatrixShipShip.put(ship_i.getId(), new TreeSet<>(Comparator.comparingDouble(EntityAndDistance::getDistance)));
-
-            for(final Ship ship_j : this.enemyShips)
-                this.distanceMatrixShipShip.get(ship_i.getId()).add(new EntityAndDistance(ship_j, ship_i.getDistanceTo(ship_j)));
+            this.enemyShipTree.clear();
+            for (final Ship ship: this.enemyShips)
+                this.enemyShipTree.add(ship);
+            this.enemyShipTree.build();
+            this.isEnemyShipTreeBuilt = true;
         }
+
+        return this.enemyShipTree;
     }
 
-    public double getClosestUndockedEnemyShipDistance(final Entity entity)
+    // Closest first by distance between centers, in map order on equal distances
+    public ArrayList<EntityAndDistance> getClosestPlanets(final Position position, final int numberOfClosest)
     {
-        double minDistance = Double.MAX_VALUE;
+        return nearest(getPlanetTree(), position, numberOfClosest);
+    }
 
-        for(final Ship enemyShip: this.enemyShips)
-        {
-            if (enemyShip.isUndocked())
-            {
-                double distance = entity.getDistanceTo(enemyShip);
+    public ArrayList<EntityAndDistance> getClosestEnemyShips(final Position position, final int numberOfClosest)
+    {
+        return nearest(getEnemyShipTree(), position, numberOfClosest);
+    }
 
-                if (distance < minDistance)
-                    minDistance = distance;
-            }
-        }
+    public ArrayList<Planet> getPlanetsWithin(final Position position, final double maxDistance)
+    {
+        final ArrayList<Planet> closePlanets = new ArrayList<>();
+        final KdTree planetTree = getPlanetTree();
 
-        return minDistance;
+        final int numberFound = planetTree.within(position.getXPos(), position.getYPos(), maxDistance);
+        for (int i = 0; i < numberFound; ++i)
+            closePlanets.add((Planet) planetTree.getEntity(planetTree.getFound(i)));
+
+        return closePlanets;
     }
 
-    public double getClosestDockedEnemyShipDistance(final Ship ship)
+    private static ArrayList<EntityAndDistance> nearest(final KdTree tree, final Position position, final int numberOfClosest)
     {
-        double minDistance = Double.MAX_VALUE;
+        final ArrayList<EntityAndDistance> closest = new ArrayList<>();
 
-        for(final Ship enemyShip: this.enemyShips)
-        {
-            if (!enemyShip.isUndocked())
-            {
-                double distance = ship.getDistanceTo(enemyShip);
+        final int numberFound = tree.nearest(position.getXPos(), position.getYPos(), numberOfClosest);
+        for (int i = 0; i < numberFound; ++i)
+            closest.add(new EntityAndDistance(tree.getEntity(tree.getFound(i)), tree.getFoundDistance(i)));
 
-                if (distance < minDistance)
-                    minDistance = distance;
-            }
-        }
+        return closest;
+    }
 
-        return minDistance;
+    public double getClosestUndockedEnemyShipDistance(final Entity entity)
+    {
+        final int entry = this.shipHash.nearest(entity.getXPos(), entity.getYPos(), e -> undockedEnemyDistance(e, entity));
+        return (entry == -1)? Double.MAX_VALUE : undockedEnemyDistance(entry, entity);
+    }
+
+    public double getClosestDockedEnemyShipDistance(final Ship ship)
+    {
+        // Predicted enemy ships are always undocked
+        final int entry = this.shipHash.nearest(ship.getXPos(), ship.getYPos(), e -> dockedEnemyDistance(e, ship));
+        return (entry == -1)? Double.MAX_VALUE : dockedEnemyDistance(entry, ship);
     }
 
     public Ship getClosestEnemyShip(final Entity entity)
     {
-        double minDistance = Double.MAX_VALUE;
-        Ship closestShip = this.enemyShips.get(0);
+        final int entry = this.shipHash.nearest(entity.getXPos(), entity.getYPos(), e -> undockedEnemyDistance(e, entity));
+        return (entry == -1)? this.enemyShips.get(0) : this.shipHash.getShip(entry);
+    }
 
-        for(final Ship enemyShip: this.enemyShips)
-        {
-            if (enemyShip.isUndocked())
-            {
-                double distance = entity.getDistanceTo(enemyShip);
-                if (distance < minDistance)
-                {
-                    minDistance = distance;
-                    closestShip = enemyShip;
-                }
-            }
-        }
+    private double undockedEnemyDistance(final int entry, final Entity entity)
+    {
+        if (entry >= this.numberOfStoreShips)
+            return entity.getDistanceTo(this.shipHash.getShip(entry));
 
-        return closestShip;
+        if ((this.entityStore.getShipOwner(entry) != this.myId) && this.entityStore.isShipUndocked(entry))
+            return this.entityStore.getDistanceToShip(entry, entity);
+
+        return Double.MAX_VALUE;
+    }
+
+    private double dockedEnemyDistance(final int entry, final Ship ship)
+    {
+        if ((entry < this.numberOfStoreShips) && (this.entityStore.getShipOwner(entry) != this.myId) && !this.entityStore.isShipUndocked(entry))
+            return this.entityStore.getDistanceToShip(entry, ship);
+
+        return Double.MAX_VALUE;
     }
 
     public double getAverageDistanceFromMyShipsToEnemies()
@@ -133,47 +168,95 @@ public class DistanceManager
         return averageDistance / this.myShips.size() / this.enemyShips.size();
     }
 
-    public ArrayList<Ship> getEnemiesCloserThan(final Entity entity, final double minDistance)
+    public ArrayList<Ship> getEnemiesCloserThan(final Position position, final double minDistance)
     {
         ArrayList<Ship> closeEnemyShips = new ArrayList<>();
-        for(final Ship enemyShip: this.enemyShips)
-            if (enemyShip.getDistanceTo(entity) < minDistance)
-                closeEnemyShips.add(enemyShip);
+        double x = position.getXPos();
+        double y = position.getYPos();
+
+        final int numberFound = this.shipHash.query(x, y, minDistance);
+        for (int k = 0; k < numberFound; ++k)
+        {
+            final int i = this.shipHash.getFound(k);
+            if (i < this.numberOfStoreShips)
+            {
+                if ((this.entityStore.getShipOwner(i) != this.myId) && this.entityStore.isShipCloserThan(i, x, y, minDistance))
+                    closeEnemyShips.add(this.entityStore.getShip(i));
+            }
+            else if (this.shipHash.getShip(i).getDistanceTo(position) < minDistance)
+                closeEnemyShips.add(this.shipHash.getShip(i));
+        }
 
         return closeEnemyShips;
     }
 
-    public ArrayList<Ship> getOpponentsCloserThan(final Entity entity, final double minDistance)
+    public ArrayList<Ship> getEnemiesWithin(final Position position, final double maxDistance)
     {
         ArrayList<Ship> closeEnemyShips = new ArrayList<>();
+        double x = position.getXPos();
+        double y = position.getYPos();
 
-        for(final Ship myShip: this.myShips)
-            if ((myShip.getOwner() != entity.getOwner()) && (myShip.getDistanceTo(entity) < minDistance))
-                closeEnemyShips.add(myShip);
-
-        for(final Ship enemyShip: this.enemyShips)
-            if ((enemyShip.getOwner() != entity.getOwner()) && (enemyShip.getDistanceTo(entity) < minDistance))
-                closeEnemyShips.add(enemyShip);
+        final int numberFound = this.shipHash.query(x, y, maxDistance);
+        for (int k = 0; k < numberFound; ++k)
+        {
+            final int i = this.shipHash.getFound(k);
+            if (i < this.numberOfStoreShips)
+            {
+                if ((this.entityStore.getShipOwner(i) != this.myId) && (this.entityStore.getDistanceToShip(i, x, y) <= maxDistance))
+                    closeEnemyShips.add(this.entityStore.getShip(i));
+            }
+            else if (this.shipHash.getShip(i).getDistanceTo(position) <= maxDistance)
+                closeEnemyShips.add(this.shipHash.getShip(i));
+        }
 
         return closeEnemyShips;
     }
 
-    public Ship getClosestAllyShip(final Ship ship)
+    public ArrayList<Ship> getOpponentsCloserThan(final Entity entity, final double minDistance)
     {
-        double minDistance = Double.MAX_VALUE;
-        Ship closestShip = ship;
+        ArrayList<Ship> closeEnemyShips = new ArrayList<>();
+        double x = entity.getXPos();
+        double y = entity.getYPos();
+        final int numberFound = this.shipHash.query(x, y, minDistance);
 
-        for(final Ship alliedShip: this.myShips)
+        // My ships first, then the enemy ones
+        if (this.myId != entity.getOwner())
         {
-            double distance = alliedShip.getDistanceTo(ship);
-            if ((alliedShip != ship) && (distance < minDistance))
+            for (int k = 0; k < numberFound; ++k)
             {
-                minDistance = distance;
-                closestShip = alliedShip;
+                final int i = this.shipHash.getFound(k);
+                if ((i < this.numberOfStoreShips) && (this.entityStore.getShipOwner(i) == this.myId) && this.entityStore.isShipCloserThan(i, x, y, minDistance))
+                    closeEnemyShips.add(this.entityStore.getShip(i));
             }
         }
 
-        return closestShip;
+        for (int k = 0; k < numberFound; ++k)
+        {
+            final int i = this.shipHash.getFound(k);
+            if (i < this.numberOfStoreShips)
+            {
+                int owner = this.entityStore.getShipOwner(i);
+                if ((owner != this.myId) && (owner != entity.getOwner()) && this.entityStore.isShipCloserThan(i, x, y, minDistance))
+                    closeEnemyShips.add(this.entityStore.getShip(i));
+            }
+            else
+            {
+                final Ship enemyShip = this.shipHash.getShip(i);
+                if ((enemyShip.getOwner() != entity.getOwner()) && (enemyShip.getDistanceTo(entity) < minDistance))
+                    closeEnemyShips.add(enemyShip);
+            }
+        }
+
+        return closeEnemyShips;
+    }
+
+    public Ship getClosestAllyShip(final Ship ship)
+    {
+        final int entry = this.shipHash.nearest(ship.getXPos(), ship.getYPos(), i ->
+            ((i < this.numberOfStoreShips) && (this.entityStore.getShipOwner(i) == this.myId) && (i != ship.getStoreIndex()))?
+                this.entityStore.getDistanceToShip(i, ship) : Double.MAX_VALUE);
+
+        return (entry == -1)? ship : this.shipHash.getShip(entry);
     }
 
     public Ship getClosestAllyShipFromFleet(final Fleet fleet)
@@ -7,6 +7,7 @@ import java.util.HashMap;
 
 import static core.Objective.OrderType.ASSASSINATION;
 import static core.Objective.OrderType.FLEE;
+import static hlt.DebugLog.Level.Debug;
 
 public class FleetManager
 {
@@ -507,7 +508,7 @@ public class FleetManager
             !shipToFleets.containsKey(ship1.getId())
             && !shipToFleets.containsKey(ship2.getId())
             && (ship1.getDistanceTo(ship2) < distanceToGroup)
-            && gameState.objectsBetween(ship1, ship2, ship1.getRadius() + 0.1).isEmpty()
+            && !gameState.hasObjectsBetween(ship1, ship2, ship1.getRadius() + 0.1)
             && ship1.getObjective().equals(ship2.getObjective())
         )
             return true;
@@ -659,15 +660,21 @@ public class FleetManager
 
     private void logShips()
     {
+        if (!DebugLog.isEnabled(Debug))
+            return;
+
         for(final Ship ship: this.shipsToMove)
-            DebugLog.addLog(ship.toString());
-        DebugLog.addLog("");
+            DebugLog.addLog(Debug, ship.toString());
+        DebugLog.addLog(Debug, "");
     }
 
     private void logFleets()
     {
+        if (!DebugLog.isEnabled(Debug))
+            return;
+
         for(final Fleet fleet: this.fleetsToMove)
-            DebugLog.addLog(fleet.toString());
-        DebugLog.addLog("");
+            DebugLog.addLog(Debug, fleet.toString());
+        DebugLog.addLog(Debug, "");
     }
 }
@@ -8,6 +8,7 @@ import hlt.*;
 import java.util.*;
 
 import static core.Config.cornerIds;
+import static hlt.Constants.SHIP_RADIUS;
 import static hlt.Ship.DockingStatus.Undocked;
 
 public class GameState
@@ -34,14 +35,24 @@ public class GameState
     private final ArrayList<Ship> myShipsPreviousTurn;
     private final ArrayList<Fleet> myFleetsNextTurn;
     private final ArrayList<Ship> enemyShips;
+    private final ArrayList<Ship> futureEnemyShips;
     private final ArrayList<Planet> planets;
 
+    // Ships on the map in store order followed by the predicted enemy ships, and my ships next turn in the order
+    // they were committed, the ones not moved yet first
+    private final SpatialHash shipHash;
+    private final SpatialHash myShipsNextTurnHash;
+    private final HashMap<Integer, Integer> myShipsNextTurnIndices;
+    private final TrajectoryReservations trajectories;
+    private final HeadingSweep headingSweep;
+
     HashMap<Integer, Integer> numberOfPlanetsByPlayer;
     private HashMap<Integer, Integer> numberOfShipsByPlayer;
     private HashMap<Integer, Position> startingPointByPlayers;
     private Position centerOfMap;
     private ArrayList<Entity> corners;
     private GameGrid gameGrid;
+    private PlanetGeometry planetGeometry;
 
     private boolean isEnemyRushing;
     private ArrayList<Double> enemyDistances;
@@ -52,10 +63,14 @@ public class GameState
     public int getNumberOfPlayers() { return numberOfPlayers; }
     public GameMap getGameMap() { return gameMap; }
     public ArrayList<Ship> getEnemyShips() { return enemyShips; }
+    public ArrayList<Ship> getFutureEnemyShips() { return futureEnemyShips; }
     public ArrayList<Ship> getMyShips() { return myShips; }
     public ArrayList<Ship> getMyShipsNextTurn() { return myShipsNextTurn; }
     public ArrayList<Ship> getMyShipsPreviousTurn() { return myShipsPreviousTurn; }
     public ArrayList<Fleet> getMyFleetsNextTurn() { return myFleetsNextTurn; }
+    public SpatialHash getShipHash() { return shipHash; }
+    public HeadingSweep getHeadingSweep() { return headingSweep; }
+    public TrajectoryReservations getTrajectories() { return trajectories; }
 
     public CombatManager getCombatManager() { return combatManager; }
     public BehaviourManager getBehaviourManager() { return behaviourManager; }
@@ -70,6 +85,7 @@ public class GameState
     public int getMapSizeY() { return mapSizeY; }
     public ArrayList<Entity> getCorners() { return corners; }
     public GameGrid getGameGrid() { return gameGrid; }
+    public PlanetGeometry getPlanetGeometry() { return planetGeometry; }
 
     public GameState(final CombatManager combatManager,
                      final BehaviourManager behaviourManager,
@@ -85,6 +101,7 @@ public class GameState
         this.navigationManager = navigationManager;
         this.distanceManager = distanceManager;
         this.gameGrid = null;
+        this.planetGeometry = null;
 
         this.timer = new Timer();
         this.turn = -1;
@@ -100,7 +117,13 @@ public class GameState
         this.myShipsPreviousTurn = new ArrayList<>();
         this.myFleetsNextTurn = new ArrayList<>();
         this.enemyShips = new ArrayList<>();
+        this.futureEnemyShips = new ArrayList<>();
         this.planets = new ArrayList<>();
+        this.shipHash = new SpatialHash();
+        this.myShipsNextTurnHash = new SpatialHash();
+        this.myShipsNextTurnIndices = new HashMap<>();
+        this.trajectories = new TrajectoryReservations();
+        this.headingSweep = new HeadingSweep();
 
         this.numberOfPlanetsByPlayer = new HashMap<>();
         this.numberOfShipsByPlayer = new HashMap<>();
@@ -124,8 +147,10 @@ public class GameState
         // Store my ships and enemy ones to iterate easily
         this.myShips.clear();
         this.myShipsNextTurn.clear();
+        this.myShipsNextTurnIndices.clear();
         this.myFleetsNextTurn.clear();
         this.enemyShips.clear();
+        this.futureEnemyShips.clear();
 
         for(final Ship ship: gameMap.getAllShips())
         {
@@ -134,10 +159,12 @@ public class GameState
             else
             {
                 this.myShips.add(ship);
+                this.myShipsNextTurnIndices.put(ship.getId(), this.myShipsNextTurn.size());
                 this.myShipsNextTurn.add(new Ship(ship));
             }
         }
         addFutureEnemyShips();
+        fillSpatialHashes(gameMap);
 
         this.planets.clear();
         this.planets.addAll(gameMap.getAllPlanets().values());
@@ -167,6 +194,11 @@ public class GameState
             this.corners.add(new Entity(-1, cornerIds - 4, mapSizeX, mapSizeY, 0, 0));
         }
 
+        if ((this.planetGeometry == null) || !this.planetGeometry.isLayoutOf(this.planets))
+            this.planetGeometry = new PlanetGeometry(this.mapSizeX, this.mapSizeY, this.planets);
+        else
+            this.planetGeometry.update(this.planets);
+
         this.gameGrid = new GameGrid(this);
 
         logState();
@@ -174,8 +206,14 @@ public class GameState
 
     public void saveGameState(final GameMap gameMap)
     {
+        // Copies, since the map may update its ships in place next turn.
         this.myShipsPreviousTurn.clear();
-        this.myShipsPreviousTurn.addAll(this.myShips);
+        for (final Ship ship: this.myShips)
+        {
+            Ship previousShip = new Ship(ship);
+            previousShip.setObjective(ship.getObjective());
+            this.myShipsPreviousTurn.add(previousShip);
+        }
     }
 
     private void addFutureEnemyShips()
@@ -186,9 +224,47 @@ public class GameState
             if ((planet.getOwner() != myId) && (planet.getTurnsToNextShip() == 0))
             {
                 Position spawnPosition = centerOfMap.getClosestPoint(planet, 2.0);
-                this.enemyShips.add(new Ship(planet.getOwner(), getTurn() * 200 + id, spawnPosition.getXPos(), spawnPosition.getYPos(), 255, Undocked, -1, 0, 0));
+                this.futureEnemyShips.add(new Ship(planet.getOwner(), getTurn() * 200 + id, spawnPosition.getXPos(), spawnPosition.getYPos(), 255, Undocked, -1, 0, 0));
             }
         }
+
+        this.enemyShips.addAll(this.futureEnemyShips);
+    }
+
+    private void fillSpatialHashes(final GameMap gameMap)
+    {
+        final EntityStore entityStore = gameMap.getEntityStore();
+
+        this.shipHash.clear(this.mapSizeX, this.mapSizeY);
+        for (int i = 0; i < entityStore.getNumberOfShips(); ++i)
+            this.shipHash.add(entityStore.getShip(i), entityStore.getShipX(i), entityStore.getShipY(i), entityStore.getShipOwner(i), entityStore.isShipUndocked(i));
+        for (final Ship ship: this.futureEnemyShips)
+            this.shipHash.add(ship);
+
+        // Ships not moved yet hold their position for the whole turn
+        this.myShipsNextTurnHash.clear(this.mapSizeX, this.mapSizeY);
+        this.trajectories.clear(this.mapSizeX, this.mapSizeY);
+        for (final Ship ship: this.myShipsNextTurn)
+        {
+            this.myShipsNextTurnHash.add(ship);
+            this.trajectories.reserve(ship.getId(), ship.getXPos(), ship.getYPos(), 0.0, 0.0, ship.getRadius());
+        }
+    }
+
+    // Same ships as filtering getMyShipsNextTurn() on ship.getDistanceTo(position) <= maxDistance, in the order of the hash
+    public ArrayList<Ship> getMyShipsNextTurnWithin(final Position position, final double maxDistance)
+    {
+        final ArrayList<Ship> closeShips = new ArrayList<>();
+
+        final int numberFound = this.myShipsNextTurnHash.query(position.getXPos(), position.getYPos(), maxDistance);
+        for (int i = 0; i < numberFound; ++i)
+        {
+            final Ship ship = this.myShipsNextTurnHash.getShip(this.myShipsNextTurnHash.getFound(i));
+            if (ship.getDistanceTo(position) <= maxDistance)
+                closeShips.add(ship);
+        }
+
+        return closeShips;
     }
 
     public static Ship applyMoveToShip(final Ship ship, final Move move)
@@ -230,8 +306,57 @@ public class GameState
     {
         Ship newShip = applyMoveToShip(ship, move);
 
-        this.myShipsNextTurn.remove(ship);
-        this.myShipsNextTurn.add(newShip);
+        // The ship next turn is replaced in place when it is still where this ship is, and the new one comes
+        // last in the hash. A ship moved from elsewhere is added besides, as a scan for an equal ship would.
+        final Integer index = this.myShipsNextTurnIndices.get(ship.getId());
+        if ((index != null) && this.myShipsNextTurn.get(index).equals(ship))
+        {
+            this.myShipsNextTurnHash.remove(this.myShipsNextTurn.get(index));
+            this.myShipsNextTurn.set(index, newShip);
+        }
+        else
+        {
+            this.myShipsNextTurnIndices.put(ship.getId(), this.myShipsNextTurn.size());
+            this.myShipsNextTurn.add(newShip);
+        }
+        this.myShipsNextTurnHash.add(newShip);
+
+        this.trajectories.reserve(ship.getId(), ship.getXPos(), ship.getYPos(), displacementX(move), displacementY(move), ship.getRadius());
+    }
+
+    // Whether the ship can make the move without meeting the trajectory committed by another of my ships on the way
+    public boolean isMoveFree(final Ship ship, final Move move)
+    {
+        return this.trajectories.isFree(ship.getXPos(), ship.getYPos(), displacementX(move), displacementY(move), ship.getRadius(), ship.getId());
+    }
+
+    // Same for ships moving together: they are reserved on trial first, so they are checked against each other
+    // rather than against where they stand now, and taken back after.
+    public boolean areMovesFree(final List<Ship> ships, final List<Move> moves)
+    {
+        final int mark = this.trajectories.mark();
+        for (int i = 0; i < ships.size(); ++i)
+        {
+            final Ship ship = ships.get(i);
+            this.trajectories.reserve(ship.getId(), ship.getXPos(), ship.getYPos(), displacementX(moves.get(i)), displacementY(moves.get(i)), ship.getRadius());
+        }
+
+        boolean areFree = true;
+        for (int i = 0; (i < ships.size()) && areFree; ++i)
+            areFree = isMoveFree(ships.get(i), moves.get(i));
+
+        this.trajectories.undo(mark);
+        return areFree;
+    }
+
+    private static double displacementX(final Move move)
+    {
+        return (move instanceof ThrustMove)? ((ThrustMove) move).dX() : 0.0;
+    }
+
+    private static double displacementY(final Move move)
+    {
+        return (move instanceof ThrustMove)? ((ThrustMove) move).dY() : 0.0;
     }
 
     public void moveShips(final ArrayList<Ship> ships, final ArrayList<Move> moves)
@@ -259,25 +384,151 @@ public class GameState
         this.myFleetsNextTurn.add(new Fleet(newShips, fleet.getObjectives(), fleet.getId()));
     }
 
+    // Planets, my ships next turn and enemy ships on the segment, in that order
     public ArrayList<Entity> objectsBetween(final Position start, final Position target, final double entityRadius)
     {
         final ArrayList<Entity> entitiesFound = new ArrayList<>();
+        scanObjectsBetween(start, target, entityRadius, true, new ScanFilter(entitiesFound, null, Collections.emptyList()));
+        return entitiesFound;
+    }
 
-        addEntitiesBetween(entitiesFound, start, target, this.planets, entityRadius);
-        addEntitiesBetween(entitiesFound, start, target, this.myShipsNextTurn, entityRadius);
-        addEntitiesBetween(entitiesFound, start, target, this.enemyShips, entityRadius);
+    public boolean hasObjectsBetween(final Position start, final Position target, final double entityRadius)
+    {
+        return hasObjectsBetween(start, target, entityRadius, null, Collections.emptyList(), true);
+    }
 
-        return entitiesFound;
+    // Same as !objectsBetween(...).isEmpty() once every entity equal to one of ignoredEntities is removed, then the
+    // first one equal to ignoredEntity, then the enemy ships unless included. Stops at the first obstacle.
+    public boolean hasObjectsBetween(final Position start, final Position target, final double entityRadius,
+                                     final Entity ignoredEntity, final Collection<? extends Entity> ignoredEntities, final boolean includeEnemyShips)
+    {
+        return scanObjectsBetween(start, target, entityRadius, includeEnemyShips, new ScanFilter(null, ignoredEntity, ignoredEntities));
+    }
+
+    // Broad phase: the planet grid and the ship hashes only hand over what is in the box around the segment.
+    // Narrow phase: Collision.segmentCircleIntersect on those, in the order of the lists they come from.
+    private boolean scanObjectsBetween(final Position start, final Position target, final double entityRadius, final boolean includeEnemyShips,
+                                       final ScanFilter filter)
+    {
+        final double minX = Math.min(start.getXPos(), target.getXPos()) - entityRadius;
+        final double minY = Math.min(start.getYPos(), target.getYPos()) - entityRadius;
+        final double maxX = Math.max(start.getXPos(), target.getXPos()) + entityRadius;
+        final double maxY = Math.max(start.getYPos(), target.getYPos()) + entityRadius;
+
+        final int numberOfPlanets = this.planetGeometry.queryBox(minX, minY, maxX, maxY);
+        for (int i = 0; i < numberOfPlanets; ++i)
+            if (isObstacle(this.planetGeometry.getCandidate(i), start, target, entityRadius, filter))
+                return true;
+
+        // Ships are points in the hashes, their radius widens the box
+        final int numberOfMyShips = this.myShipsNextTurnHash.queryBox(minX - SHIP_RADIUS, minY - SHIP_RADIUS, maxX + SHIP_RADIUS, maxY + SHIP_RADIUS);
+        for (int i = 0; i < numberOfMyShips; ++i)
+            if (isObstacle(this.myShipsNextTurnHash.getShip(this.myShipsNextTurnHash.getFound(i)), start, target, entityRadius, filter))
+                return true;
+
+        if (!includeEnemyShips)
+            return false;
+
+        final int numberOfShips = this.shipHash.queryBox(minX - SHIP_RADIUS, minY - SHIP_RADIUS, maxX + SHIP_RADIUS, maxY + SHIP_RADIUS);
+        for (int i = 0; i < numberOfShips; ++i)
+        {
+            final int entry = this.shipHash.getFound(i);
+            if ((this.shipHash.getOwner(entry) != this.myId) && isObstacle(this.shipHash.getShip(entry), start, target, entityRadius, filter))
+                return true;
+        }
+
+        return false;
+    }
+
+    // Every obstacle hasObjectsBetween would test for the segments of the sweep, as circles in it. The entity
+    // equal to ignoredEntity skipped is the first one met, which only matters if several are equal.
+    public void addObstaclesToSweep(final HeadingSweep sweep, final Position start, final double entityRadius,
+                                    final Entity ignoredEntity, final Collection<? extends Entity> ignoredEntities, final boolean includeEnemyShips)
+    {
+        final double reach = sweep.getLength() + entityRadius;
+        final double minX = start.getXPos() - reach;
+        final double minY = start.getYPos() - reach;
+        final double maxX = start.getXPos() + reach;
+        final double maxY = start.getYPos() + reach;
+
+        final ScanFilter filter = new ScanFilter(null, ignoredEntity, ignoredEntities);
+
+        final int numberOfPlanets = this.planetGeometry.queryBox(minX, minY, maxX, maxY);
+        for (int i = 0; i < numberOfPlanets; ++i)
+            addObstacleToSweep(sweep, this.planetGeometry.getCandidate(i), start, entityRadius, filter);
+
+        final int numberOfMyShips = this.myShipsNextTurnHash.queryBox(minX - SHIP_RADIUS, minY - SHIP_RADIUS, maxX + SHIP_RADIUS, maxY + SHIP_RADIUS);
+        for (int i = 0; i < numberOfMyShips; ++i)
+            addObstacleToSweep(sweep, this.myShipsNextTurnHash.getShip(this.myShipsNextTurnHash.getFound(i)), start, entityRadius, filter);
+
+        if (!includeEnemyShips)
+            return;
+
+        final int numberOfShips = this.shipHash.queryBox(minX - SHIP_RADIUS, minY - SHIP_RADIUS, maxX + SHIP_RADIUS, maxY + SHIP_RADIUS);
+        for (int i = 0; i < numberOfShips; ++i)
+        {
+            final int entry = this.shipHash.getFound(i);
+            if (this.shipHash.getOwner(entry) != this.myId)
+                addObstacleToSweep(sweep, this.shipHash.getShip(entry), start, entityRadius, filter);
+        }
+    }
+
+    private void addObstacleToSweep(final HeadingSweep sweep, final Entity entity, final Position start, final double entityRadius,
+                                    final ScanFilter filter)
+    {
+        if (entity.equals(start) || filter.isIgnored(entity))
+            return;
+
+        sweep.addCircle(entity.getXPos(), entity.getYPos(), entity.getRadius() + entityRadius);
+    }
+
+    private boolean isObstacle(final Entity entity, final Position start, final Position target, final double entityRadius,
+                               final ScanFilter filter)
+    {
+        if (entity.equals(start) || entity.equals(target))
+            return false;
+        if (!Collision.segmentCircleIntersect(start, target, entity, entityRadius))
+            return false;
+
+        if (filter.found != null)
+        {
+            filter.found.add(entity);
+            return false;
+        }
+
+        return !filter.isIgnored(entity);
     }
 
-    private static void addEntitiesBetween(final List<Entity> entitiesFound, final Position start, final Position target, final Collection<? extends Entity> entitiesToCheck, final double entityRadius)
+    // What one scan does with the entities on the segment: collect them, or look for one not ignored. Each scan has
+    // its own, so scans stay independent of each other.
+    private static class ScanFilter
     {
-        for (final Entity entity : entitiesToCheck)
+        private final List<Entity> found;
+        private final Entity ignoredEntity;
+        private final Collection<? extends Entity> ignoredEntities;
+        private boolean isIgnoredEntitySkipped;
+
+        private ScanFilter(final List<Entity> found, final Entity ignoredEntity, final Collection<? extends Entity> ignoredEntities)
+        {
+            this.found = found;
+            this.ignoredEntity = ignoredEntity;
+            this.ignoredEntities = ignoredEntities;
+            this.isIgnoredEntitySkipped = false;
+        }
+
+        // Every entity equal to one of ignoredEntities, and only the first one equal to ignoredEntity
+        private boolean isIgnored(final Entity entity)
         {
-            if (entity.equals(start) || entity.equals(target))
-                continue;
-            if (Collision.segmentCircleIntersect(start, target, entity, entityRadius))
-                entitiesFound.add(entity);
+            if (this.ignoredEntities.contains(entity))
+                return true;
+
+            if (!this.isIgnoredEntitySkipped && entity.equals(this.ignoredEntity))
+            {
+                this.isIgnoredEntitySkipped = true;
+                return true;
+            }
+
+            return false;
         }
     }
 
@@ -0,0 +1,184 @@
+package core;
+
+import java.util.Arrays;
+
+// Headings blocked for a segment of fixed length from a fixed start, as the union of one angular interval
+// per obstacle circle. Angles are offsets from an aim angle, in [-PI, PI]. Each interval is the exact set of
+// headings for which Collision.segmentCircleIntersect is true, shrunk by a margin: a heading inside is
+// certainly blocked, a heading outside is free except on the very border, where the exact test decides.
+public class HeadingSweep
+{
+    private static final int INITIAL_CAPACITY = 64;
+    private static final double MARGIN = 1e-9;
+
+    private double startX;
+    private double startY;
+    private double length;
+    private double aimRad;
+
+    // Starts and ends are sorted separately, which is all the union needs
+    private int numberOfIntervals;
+    private double[] starts;
+    private double[] ends;
+
+    private int numberOfMerged;
+    private double[] mergedStarts;
+    private double[] mergedEnds;
+    private boolean isMerged;
+
+    public HeadingSweep()
+    {
+        this.starts = new double[INITIAL_CAPACITY];
+        this.ends = new double[INITIAL_CAPACITY];
+        this.mergedStarts = new double[INITIAL_CAPACITY];
+        this.mergedEnds = new double[INITIAL_CAPACITY];
+    }
+
+    public double getStartX() { return startX; }
+    public double getStartY() { return startY; }
+    public double getLength() { return length; }
+    public double getAimRad() { return aimRad; }
+    public int getNumberOfIntervals() { return numberOfIntervals; }
+
+    public void clear(final double startX, final double startY, final double length, final double aimRad)
+    {
+        this.startX = startX;
+        this.startY = startY;
+        this.length = length;
+        this.aimRad = aimRad;
+        this.numberOfIntervals = 0;
+        this.numberOfMerged = 0;
+        this.isMerged = true;
+    }
+
+    // Circle of the given radius, the fudge of the segment test already added
+    public void addCircle(final double centerX, final double centerY, final double radius)
+    {
+        final double dx = centerX - startX;
+        final double dy = centerY - startY;
+        final double distance = Math.sqrt(dx * dx + dy * dy);
+
+        // Half width of the blocked interval. A start inside the circle is only blocked when heading towards
+        // the center, the segment test does not look behind the start.
+        final double halfWidth;
+        if (length == 0.0)
+        {
+            if (distance <= radius)
+                addInterval(-Math.PI, Math.PI);
+            return;
+        }
+        else if (distance <= radius)
+            halfWidth = Math.PI / 2;
+        else if (distance * distance - radius * radius <= length * length)
+            // The tangent point is within reach
+            halfWidth = Math.asin(radius / distance);
+        else
+        {
+            // Only the end of the segment can get in
+            final double cosine = (distance * distance + length * length - radius * radius) / (2 * distance * length);
+            if (cosine > 1.0)
+                return;
+            halfWidth = Math.acos(cosine);
+        }
+
+        if (halfWidth <= MARGIN)
+            return;
+
+        final double center = normalize(Math.atan2(dy, dx) - aimRad);
+        final double low = center - halfWidth + MARGIN;
+        final double high = center + halfWidth - MARGIN;
+
+        if (low < -Math.PI)
+        {
+            addInterval(low + 2 * Math.PI, Math.PI);
+            addInterval(-Math.PI, high);
+        }
+        else if (high > Math.PI)
+        {
+            addInterval(low, Math.PI);
+            addInterval(-Math.PI, high - 2 * Math.PI);
+        }
+        else
+            addInterval(low, high);
+    }
+
+    // True if the heading aim + offset certainly hits one of the circles
+    public boolean isBlocked(final double offsetRad)
+    {
+        merge();
+
+        final double offset = normalize(offsetRad);
+
+        // Last merged interval starting at or before the offset
+        int low = 0;
+        int high = numberOfMerged - 1;
+        int found = -1;
+        while (low <= high)
+        {
+            final int middle = (low + high) >>> 1;
+            if (mergedStarts[middle] <= offset)
+            {
+                found = middle;
+                low = middle + 1;
+            }
+            else
+                high = middle - 1;
+        }
+
+        return (found != -1) && (offset <= mergedEnds[found]);
+    }
+
+    // The i-th smallest end closes a gap exactly when the next start is after it, since as many intervals
+    // have started as have ended by then
+    private void merge()
+    {
+        if (isMerged)
+            return;
+
+        Arrays.sort(starts, 0, numberOfIntervals);
+        Arrays.sort(ends, 0, numberOfIntervals);
+
+        numberOfMerged = 0;
+        double mergedStart = starts[0];
+        for (int i = 0; i < numberOfIntervals; ++i)
+        {
+            if ((i == numberOfIntervals - 1) || (starts[i + 1] > ends[i]))
+            {
+                mergedStarts[numberOfMerged] = mergedStart;
+                mergedEnds[numberOfMerged] = ends[i];
+                numberOfMerged++;
+                if (i < numberOfIntervals - 1)
+                    mergedStart = starts[i + 1];
+            }
+        }
+
+        isMerged = true;
+    }
+
+    private void addInterval(final double low, final double high)
+    {
+        if (numberOfIntervals == starts.length)
+        {
+            final int capacity = starts.length * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            mergedStarts = Arrays.copyOf(mergedStarts, capacity);
+            mergedEnds = Arrays.copyOf(mergedEnds, capacity);
+        }
+
+        starts[numberOfIntervals] = low;
+        ends[numberOfIntervals] = high;
+        numberOfIntervals++;
+        isMerged = false;
+    }
+
+    private static double normalize(final double angleRad)
+    {
+        double angle = angleRad % (2 * Math.PI);
+        if (angle < -Math.PI)
+            angle += 2 * Math.PI;
+        else if (angle > Math.PI)
+            angle -= 2 * Math.PI;
+        return angle;
+    }
+}
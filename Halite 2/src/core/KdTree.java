@@ -0,0 +1,312 @@
+package core;
+
+import hlt.Entity;
+
+import java.util.Arrays;
+
+// 2-d tree over entity centers, rebuilt every turn. Entities are numbered in the order they are added,
+// the tree itself is a permutation of those numbers laid out as an implicit balanced tree: the node of
+// a range [lo, hi) is at its middle, its children are the two halves, and the split axis alternates.
+public class KdTree
+{
+    private static final int INITIAL_CAPACITY = 256;
+
+    private int size;
+    private Entity[] entities;
+    private double[] xs;
+    private double[] ys;
+
+    // Tree order, with the coordinates copied alongside so that searches read contiguous arrays
+    private int[] nodes;
+    private double[] nodesX;
+    private double[] nodesY;
+
+    // Results of the last query: entity numbers and squared distances
+    private int numberFound;
+    private int[] found;
+    private double[] foundSquaredDistances;
+    private int maxFound;
+    private double queryX;
+    private double queryY;
+    private double querySquaredRadius;
+
+    public KdTree()
+    {
+        this.entities = new Entity[INITIAL_CAPACITY];
+        this.xs = new double[INITIAL_CAPACITY];
+        this.ys = new double[INITIAL_CAPACITY];
+        this.nodes = new int[INITIAL_CAPACITY];
+        this.nodesX = new double[INITIAL_CAPACITY];
+        this.nodesY = new double[INITIAL_CAPACITY];
+        this.found = new int[INITIAL_CAPACITY];
+        this.foundSquaredDistances = new double[INITIAL_CAPACITY];
+    }
+
+    public int size() { return size; }
+    public Entity getEntity(final int index) { return entities[index]; }
+
+    // Only valid until the next query
+    public int getNumberFound() { return numberFound; }
+    public int getFound(final int rank) { return found[rank]; }
+    public double getFoundDistance(final int rank) { return Math.sqrt(foundSquaredDistances[rank]); }
+
+    public void clear()
+    {
+        Arrays.fill(entities, 0, size, null);
+        this.size = 0;
+        this.numberFound = 0;
+    }
+
+    public int add(final Entity entity)
+    {
+        ensureCapacity(size + 1);
+
+        entities[size] = entity;
+        xs[size] = entity.getXPos();
+        ys[size] = entity.getYPos();
+        return size++;
+    }
+
+    // O(n log n): one linear-time selection of the median per level
+    public void build()
+    {
+        for (int i = 0; i < size; ++i)
+            nodes[i] = i;
+
+        build(0, size, 0);
+
+        for (int i = 0; i < size; ++i)
+        {
+            nodesX[i] = xs[nodes[i]];
+            nodesY[i] = ys[nodes[i]];
+        }
+    }
+
+    // The k entities closest to the position, closest first, the first added on equal distances
+    public int nearest(final double x, final double y, final int k)
+    {
+        this.numberFound = 0;
+        this.maxFound = Math.min(k, size);
+        this.queryX = x;
+        this.queryY = y;
+
+        if (maxFound > 0)
+            searchNearest(0, size, 0);
+
+        // The results are a max-heap, popping them fills the array from the back
+        for (int end = numberFound - 1; end > 0; --end)
+        {
+            swap(0, end);
+            siftDown(0, end);
+        }
+
+        return numberFound;
+    }
+
+    // Every entity within the radius, bounds included, in the order they were added
+    public int within(final double x, final double y, final double radius)
+    {
+        this.numberFound = 0;
+        this.queryX = x;
+        this.queryY = y;
+        this.querySquaredRadius = radius * radius;
+
+        if (radius >= 0)
+            searchWithin(0, size, 0);
+
+        sortFoundByIndex();
+        return numberFound;
+    }
+
+    private void build(final int lo, final int hi, final int axis)
+    {
+        if (hi - lo <= 1)
+            return;
+
+        final int mid = (lo + hi) >>> 1;
+        select(lo, hi, mid, axis);
+        build(lo, mid, 1 - axis);
+        build(mid + 1, hi, 1 - axis);
+    }
+
+    // Puts the element of rank k of [lo, hi) on the axis at k, smaller ones before and larger ones after.
+    // Three-way partitions, so that ships stacked on the same coordinate do not make it quadratic.
+    private void select(int lo, int hi, final int k, final int axis)
+    {
+        final double[] coordinates = (axis == 0)? xs : ys;
+
+        while (hi - lo > 1)
+        {
+            final double pivot = medianOfThree(coordinates[nodes[lo]], coordinates[nodes[(lo + hi) >>> 1]], coordinates[nodes[hi - 1]]);
+
+            int less = lo;
+            int greater = hi;
+            int i = lo;
+            while (i < greater)
+            {
+                final double value = coordinates[nodes[i]];
+                if (value < pivot)
+                    swapNodes(less++, i++);
+                else if (value > pivot)
+                    swapNodes(i, --greater);
+                else
+                    ++i;
+            }
+
+            if (k < less)
+                hi = less;
+            else if (k >= greater)
+                lo = greater;
+            else
+                return;
+        }
+    }
+
+    private void searchNearest(final int lo, final int hi, final int axis)
+    {
+        if (lo >= hi)
+            return;
+
+        final int mid = (lo + hi) >>> 1;
+        final double dx = nodesX[mid] - queryX;
+        final double dy = nodesY[mid] - queryY;
+        offer(nodes[mid], dx * dx + dy * dy);
+
+        final double delta = (axis == 0)? queryX - nodesX[mid] : queryY - nodesY[mid];
+        if (delta < 0)
+        {
+            searchNearest(lo, mid, 1 - axis);
+            if ((numberFound < maxFound) || (delta * delta <= foundSquaredDistances[0]))
+                searchNearest(mid + 1, hi, 1 - axis);
+        }
+        else
+        {
+            searchNearest(mid + 1, hi, 1 - axis);
+            if ((numberFound < maxFound) || (delta * delta <= foundSquaredDistances[0]))
+                searchNearest(lo, mid, 1 - axis);
+        }
+    }
+
+    private void searchWithin(final int lo, final int hi, final int axis)
+    {
+        if (lo >= hi)
+            return;
+
+        final int mid = (lo + hi) >>> 1;
+        final double dx = nodesX[mid] - queryX;
+        final double dy = nodesY[mid] - queryY;
+        final double squaredDistance = dx * dx + dy * dy;
+        if (squaredDistance <= querySquaredRadius)
+        {
+            found[numberFound] = nodes[mid];
+            foundSquaredDistances[numberFound++] = squaredDistance;
+        }
+
+        final double delta = (axis == 0)? queryX - nodesX[mid] : queryY - nodesY[mid];
+        if ((delta <= 0) || (delta * delta <= querySquaredRadius))
+            searchWithin(lo, mid, 1 - axis);
+        if ((delta >= 0) || (delta * delta <= querySquaredRadius))
+            searchWithin(mid + 1, hi, 1 - axis);
+    }
+
+    // Bounded max-heap on (distance, entity number): the root is the worst result kept so far
+    private void offer(final int index, final double squaredDistance)
+    {
+        if (numberFound < maxFound)
+        {
+            int child = numberFound++;
+            found[child] = index;
+            foundSquaredDistances[child] = squaredDistance;
+
+            while (child > 0)
+            {
+                final int parent = (child - 1) >>> 1;
+                if (!isWorse(child, parent))
+                    break;
+                swap(child, parent);
+                child = parent;
+            }
+        }
+        else if ((squaredDistance < foundSquaredDistances[0]) || ((squaredDistance == foundSquaredDistances[0]) && (index < found[0])))
+        {
+            found[0] = index;
+            foundSquaredDistances[0] = squaredDistance;
+            siftDown(0, numberFound);
+        }
+    }
+
+    private void siftDown(int parent, final int heapSize)
+    {
+        while (true)
+        {
+            final int left = 2 * parent + 1;
+            if (left >= heapSize)
+                return;
+
+            int worst = left;
+            if ((left + 1 < heapSize) && isWorse(left + 1, left))
+                worst = left + 1;
+            if (!isWorse(worst, parent))
+                return;
+
+            swap(worst, parent);
+            parent = worst;
+        }
+    }
+
+    private boolean isWorse(final int first, final int second)
+    {
+        return (foundSquaredDistances[first] > foundSquaredDistances[second])
+                || ((foundSquaredDistances[first] == foundSquaredDistances[second]) && (found[first] > found[second]));
+    }
+
+    private void swap(final int first, final int second)
+    {
+        final int index = found[first];
+        found[first] = found[second];
+        found[second] = index;
+
+        final double squaredDistance = foundSquaredDistances[first];
+        foundSquaredDistances[first] = foundSquaredDistances[second];
+        foundSquaredDistances[second] = squaredDistance;
+    }
+
+    private void swapNodes(final int first, final int second)
+    {
+        final int node = nodes[first];
+        nodes[first] = nodes[second];
+        nodes[second] = node;
+    }
+
+    private void sortFoundByIndex()
+    {
+        Arrays.sort(found, 0, numberFound);
+        for (int i = 0; i < numberFound; ++i)
+        {
+            final double dx = xs[found[i]] - queryX;
+            final double dy = ys[found[i]] - queryY;
+            foundSquaredDistances[i] = dx * dx + dy * dy;
+        }
+    }
+
+    private static double medianOfThree(final double a, final double b, final double c)
+    {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private void ensureCapacity(final int capacity)
+    {
+        if (capacity <= entities.length)
+            return;
+
+        final int newLength = Math.max(entities.length * 2, capacity);
+        entities = Arrays.copyOf(entities, newLength);
+        xs = Arrays.copyOf(xs, newLength);
+        ys = Arrays.copyOf(ys, newLength);
+        nodes = Arrays.copyOf(nodes, newLength);
+        nodesX = Arrays.copyOf(nodesX, newLength);
+        nodesY = Arrays.copyOf(nodesY, newLength);
+        found = Arrays.copyOf(found, newLength);
+        foundSquaredDistances = Arrays.copyOf(foundSquaredDistances, newLength);
+    }
+}
@@ -3,7 +3,6 @@ package core.NavigationManager;
 import Jama.Matrix;
 import core.GameState;
 import hlt.Entity;
-import hlt.Position;
 import hlt.Ship;
 
 import java.util.*;
@@ -12,11 +11,33 @@ import static hlt.Constants.MAX_SPEED;
 
 public class GameGrid
 {
+    private static final double GRID_UNIT = 14.0;
+
     private Matrix hitMap;
     private int numberOfRows;
     private int numberOfCols;
 
-    private final double gridUnit = 14.0;
+    private final double gridUnit;
+
+    // A* over cell ids, row * numberOfCols + col. Entering a cell costs its hit map value, so the cheapest cell
+    // times the steps left is a heuristic that never overestimates. The arrays serve every query on the grid,
+    // cells only count as reached when stamped with the current query.
+    private final double[] costs;
+    private final double minimumCost;
+    private final double[] distances;
+    private final int[] parents;
+    private final int[] reached;
+    private int query;
+
+    // Indexed binary heap of the open cells on distance + heuristic, -1 position when not in it
+    private final int[] heap;
+    private final int[] heapPositions;
+    private final double[] priorities;
+    private int heapSize;
+
+    // Cells of the last path found, source first
+    private final int[] path;
+    private int pathLength;
 
     public int getNumberOfRows() { return numberOfRows; }
     public int getNumberOfCols() { return numberOfCols; }
@@ -24,14 +45,39 @@ public class GameGrid
 
     public GameGrid(final GameState gameState)
     {
-        this.hitMap = new Matrix((int)Math.ceil(gameState.getMapSizeX() / gridUnit), (int)Math.ceil(gameState.getMapSizeY() / gridUnit), gridUnit / MAX_SPEED);
+        this(gameState.getMapSizeX(), gameState.getMapSizeY(), GRID_UNIT, gameState.getEnemyShips());
+    }
+
+    public GameGrid(final int mapSizeX, final int mapSizeY, final double gridUnit, final ArrayList<Ship> enemyShips)
+    {
+        this.gridUnit = gridUnit;
+        this.hitMap = new Matrix((int)Math.ceil(mapSizeX / gridUnit), (int)Math.ceil(mapSizeY / gridUnit), gridUnit / MAX_SPEED);
         this.numberOfRows = this.hitMap.getRowDimension();
         this.numberOfCols = this.hitMap.getColumnDimension();
 
-        fillHitMap(gameState, gameState.getEnemyShips());
+        fillHitMap(enemyShips);
+
+        final int numberOfCells = numberOfRows * numberOfCols;
+        this.costs = new double[numberOfCells];
+        double minimumCost = Double.MAX_VALUE;
+        for (int cell = 0; cell < numberOfCells; ++cell)
+        {
+            costs[cell] = hitMap.get(cell / numberOfCols, cell % numberOfCols);
+            minimumCost = Math.min(minimumCost, costs[cell]);
+        }
+        this.minimumCost = minimumCost;
+
+        this.distances = new double[numberOfCells];
+        this.parents = new int[numberOfCells];
+        this.reached = new int[numberOfCells];
+        this.heap = new int[numberOfCells];
+        this.heapPositions = new int[numberOfCells];
+        this.priorities = new double[numberOfCells];
+        this.path = new int[numberOfCells];
+        Arrays.fill(heapPositions, -1);
     }
 
-    private void fillHitMap(final GameState gameState, final ArrayList<Ship> ships)
+    private void fillHitMap(final ArrayList<Ship> ships)
     {
         for(final Ship ship: ships)
         {
@@ -75,96 +121,187 @@ public class GameGrid
 
     public Entity computeShortestPath(final Entity sourceEntity, final Entity targetEntity)
     {
-        GridCell sourceGridCell = new GridCell((int)(sourceEntity.getXPos() / gridUnit), (int)(sourceEntity.getYPos() / gridUnit));
-        Node source = new Node(this, sourceGridCell);
+        final int destination = cellOf(targetEntity);
+        final int steps = findPath(cellOf(sourceEntity), destination) ? pathLength - 1 : 0;
+
+        if (steps > 2)
+            return cellCenter(path[2]);
+        else if (steps == 1)
+            return cellCenter(destination);
+        else if (steps == 0)
+            return targetEntity;
 
-        GridCell endGridCell = new GridCell((int)(targetEntity.getXPos() / gridUnit), (int)(targetEntity.getYPos() / gridUnit));
-        Node destination = new Node(this, endGridCell);
+        return cellCenter(path[1]);
+    }
 
-        List<Node> shortestPath = dijkstra(source, destination);
+    // Cost of the cheapest path from the cell of the source to the cell of the target, not counting the source cell
+    public double computeShortestPathCost(final Entity sourceEntity, final Entity targetEntity)
+    {
+        final int destination = cellOf(targetEntity);
+        return findPath(cellOf(sourceEntity), destination) ? distances[destination] : Double.MAX_VALUE;
+    }
 
-        if (shortestPath.size() > 2)
+    private boolean findPath(final int source, final int destination)
+    {
+        startQuery();
+        reach(source, 0.0, -1, destination);
+
+        while (heapSize > 0)
         {
-            GridCell firstStep = shortestPath.get(2).getGridCell();
-            return new Entity(-1, -1, firstStep.getRow() * gridUnit + gridUnit / 2, firstStep.getCol() * gridUnit + gridUnit / 2, 0, 0);
+            final int cell = pop();
+            if (cell == destination)
+            {
+                buildPath(destination);
+                return true;
+            }
+
+            final int row = cell / numberOfCols;
+            final int col = cell % numberOfCols;
+
+            if (row > 0)
+                relax(cell, cell - numberOfCols, destination);
+            if (row < numberOfRows - 1)
+                relax(cell, cell + numberOfCols, destination);
+            if (col > 0)
+                relax(cell, cell - 1, destination);
+            if (col < numberOfCols - 1)
+                relax(cell, cell + 1, destination);
         }
-        else if (shortestPath.size() == 1)
-            return new Entity(-1, -1, endGridCell.getRow() * gridUnit + gridUnit / 2, endGridCell.getCol() * gridUnit + gridUnit / 2, 0, 0);
-        else if (shortestPath.size() == 0)
-            return targetEntity;
 
-        GridCell firstStep = shortestPath.get(1).getGridCell();
+        pathLength = 0;
+        return false;
+    }
 
-        return new Entity(-1, -1, firstStep.getRow() * gridUnit + gridUnit / 2, firstStep.getCol() * gridUnit + gridUnit / 2, 0, 0);
+    private void relax(final int from, final int to, final int destination)
+    {
+        final double distance = distances[from] + costs[to];
+        if ((reached[to] != query) || (distance < distances[to]))
+            reach(to, distance, from, destination);
     }
 
-    private static List<Node> dijkstra(Node source, Node destination)
+    private void reach(final int cell, final double distance, final int parent, final int destination)
     {
-        source.setDistance(0.0);
+        reached[cell] = query;
+        distances[cell] = distance;
+        parents[cell] = parent;
+        priorities[cell] = distance + heuristic(cell, destination);
 
-        Set<Node> settledNodes = new HashSet<>();
-        Set<Node> unsettledNodes = new HashSet<>();
+        if (heapPositions[cell] == -1)
+        {
+            heap[heapSize] = cell;
+            heapPositions[cell] = heapSize;
+            heapSize++;
+        }
+        siftUp(heapPositions[cell]);
+    }
 
-        unsettledNodes.add(source);
+    private double heuristic(final int cell, final int destination)
+    {
+        final int rows = Math.abs(cell / numberOfCols - destination / numberOfCols);
+        final int cols = Math.abs(cell % numberOfCols - destination % numberOfCols);
+        return (rows + cols) * minimumCost;
+    }
 
-        while (!unsettledNodes.isEmpty())
+    // Walks the parents back from the destination, then turns the path around
+    private void buildPath(final int destination)
+    {
+        pathLength = 0;
+        for (int cell = destination; cell != -1; cell = parents[cell])
+            path[pathLength++] = cell;
+
+        for (int i = 0, j = pathLength - 1; i < j; ++i, --j)
         {
-            Node currentNode = getLowestDistanceNode(unsettledNodes);
-            unsettledNodes.remove(currentNode);
+            final int cell = path[i];
+            path[i] = path[j];
+            path[j] = cell;
+        }
+    }
 
-            for (Map.Entry<Node,Double> adjacencyPair: currentNode.getAdjacentNodes(destination).entrySet())
-            {
-                Node adjacentNode = adjacencyPair.getKey();
-                Double edgeWeight = adjacencyPair.getValue();
-
-                if (!settledNodes.contains(adjacentNode))
-                {
-                    calculateMinimumDistance(adjacentNode, edgeWeight, currentNode);
-                    unsettledNodes.add(adjacentNode);
-                }
-            }
-            settledNodes.add(currentNode);
+    private void startQuery()
+    {
+        while (heapSize > 0)
+            heapPositions[heap[--heapSize]] = -1;
 
-            if (currentNode.equals(destination))
-                return currentNode.getShortestPath();
+        if (++query == Integer.MAX_VALUE)
+        {
+            Arrays.fill(reached, 0);
+            query = 1;
         }
-
-        return new ArrayList<>();
     }
 
-    private static Node getLowestDistanceNode(final Set<Node> unsettledNodes)
+    private int pop()
     {
-        // The getLowestDistanceNode() method, returns the node with the
-        // lowest distance from the unsettled nodes set.
-
-        Node lowestDistanceNode = null;
-        double lowestDistance = Integer.MAX_VALUE;
+        final int top = heap[0];
+        heapPositions[top] = -1;
+        heapSize--;
 
-        for (Node node: unsettledNodes)
+        if (heapSize > 0)
         {
-            double nodeDistance = node.getDistance();
-            if (nodeDistance < lowestDistance)
-            {
-                lowestDistance = nodeDistance;
-                lowestDistanceNode = node;
-            }
+            heap[0] = heap[heapSize];
+            heapPositions[heap[0]] = 0;
+            siftDown(0);
         }
-        return lowestDistanceNode;
+
+        return top;
     }
 
-    private static void calculateMinimumDistance(final Node evaluationNode, final Double edgeWeigh, final Node sourceNode)
+    private void siftUp(int position)
     {
-        // calculateMinimumDistance() method compares the actual distance with the newly
-        // calculated one while following the newly explored path.
+        final int cell = heap[position];
+        while (position > 0)
+        {
+            final int parent = (position - 1) / 2;
+            if (!isBefore(cell, heap[parent]))
+                break;
 
-        double sourceDistance = sourceNode.getDistance();
+            heap[position] = heap[parent];
+            heapPositions[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = cell;
+        heapPositions[cell] = position;
+    }
 
-        if (sourceDistance + edgeWeigh < evaluationNode.getDistance())
+    private void siftDown(int position)
+    {
+        final int cell = heap[position];
+        while (true)
         {
-            evaluationNode.setDistance(sourceDistance + edgeWeigh);
-            LinkedList<Node> shortestPath = new LinkedList<>(sourceNode.getShortestPath());
-            shortestPath.add(sourceNode);
-            evaluationNode.setShortestPath(shortestPath);
+            int child = 2 * position + 1;
+            if (child >= heapSize)
+                break;
+            if ((child + 1 < heapSize) && isBefore(heap[child + 1], heap[child]))
+                child++;
+            if (!isBefore(heap[child], cell))
+                break;
+
+            heap[position] = heap[child];
+            heapPositions[heap[position]] = position;
+            position = child;
         }
+        heap[position] = cell;
+        heapPositions[cell] = position;
+    }
+
+    // Lowest estimate first, then the cell furthest along, then the lowest id so ties always break the same way
+    private boolean isBefore(final int first, final int second)
+    {
+        if (priorities[first] != priorities[second])
+            return priorities[first] < priorities[second];
+        if (distances[first] != distances[second])
+            return distances[first] > distances[second];
+        return first < second;
+    }
+
+    private int cellOf(final Entity entity)
+    {
+        final int row = Math.max(0, Math.min(numberOfRows - 1, (int)(entity.getXPos() / gridUnit)));
+        final int col = Math.max(0, Math.min(numberOfCols - 1, (int)(entity.getYPos() / gridUnit)));
+        return row * numberOfCols + col;
+    }
+
+    private Entity cellCenter(final int cell)
+    {
+        return new Entity(-1, -1, (cell / numberOfCols) * gridUnit + gridUnit / 2, (cell % numberOfCols) * gridUnit + gridUnit / 2, 0, 0);
     }
 }
@@ -0,0 +1,404 @@
+package core.NavigationManager;
+
+import hlt.Collision;
+import hlt.Move;
+import hlt.ThrustMove;
+import hlt.Trig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static hlt.Constants.SHIP_RADIUS;
+
+// Lowers the thrusts of my moves until no two of them collide. A colliding pair is repaired as
+// Collision.resolveMoves does it: the move with the lower priority slows down to just before the first thrust
+// that collides, and if even stopping collides the other move slows down instead.
+// - Broad phase: the moves are sorted on the left side of the box their ship sweeps, and only pairs with
+//   overlapping boxes are candidates. Thrusts only go down, so boxes only shrink and the candidates stay valid.
+// - Repairs: colliding candidates go through a heap, highest priority first, and a repaired move puts all its
+//   candidates back in. Each repair lowers a thrust, so this ends.
+// - The first colliding thrust comes from the geometry of the relative path, the exact test of
+//   Collision.willCollideClosedForm only confirms the integers around it.
+public class MoveResolver
+{
+    private static final int INITIAL_CAPACITY = 256;
+    private static final double COLLISION_RADIUS = SHIP_RADIUS * 2;
+    private static final double BOX_MARGIN = 1e-6;
+
+    // Thrust moves, in the order of the move list
+    private int numberOfMoves;
+    private ThrustMove[] moves;
+    private double[] xs;
+    private double[] ys;
+    private int[] angles;
+    private int[] thrusts;
+    private double[] priorities;
+    private double[] minXs;
+    private double[] maxXs;
+    private double[] minYs;
+    private double[] maxYs;
+    private int[] order;
+    private int[] sortBuffer;
+
+    // Candidate pairs, the earlier move in the list first, and the candidates of each move
+    private int numberOfPairs;
+    private int[] pairEarlier;
+    private int[] pairLater;
+    private int[] pairStarts;
+    private int[] pairsByMove;
+
+    // Binary heap of candidate pairs to check, with the position of each pair in it, -1 when out
+    private int heapSize;
+    private int[] heap;
+    private int[] heapPositions;
+
+    public MoveResolver()
+    {
+        allocateMoves(INITIAL_CAPACITY);
+        allocatePairs(INITIAL_CAPACITY);
+    }
+
+    public void resolve(final ArrayList<Move> moveList)
+    {
+        loadMoves(moveList);
+        findCandidatePairs();
+
+        heapSize = 0;
+        for (int pair = 0; pair < numberOfPairs; ++pair)
+            push(pair);
+
+        while (heapSize > 0)
+        {
+            final int pair = pop();
+            final int earlier = pairEarlier[pair];
+            final int later = pairLater[pair];
+
+            if (!collides(later, thrusts[later], earlier, thrusts[earlier]))
+                continue;
+
+            // On equal priorities the earlier move keeps going, as in the pairwise loop this replaces
+            final boolean hasChanged = (priorities[later] > priorities[earlier])? repair(later, earlier) : repair(earlier, later);
+            if (!hasChanged)
+                continue;
+
+            pushPairsOf(earlier);
+            pushPairsOf(later);
+        }
+
+        for (int i = 0; i < numberOfMoves; ++i)
+            if (moves[i].getThrust() != thrusts[i])
+                moves[i].setThrust(thrusts[i]);
+    }
+
+    // Same as Collision.resolveMoves(first, second), on the arrays
+    private boolean repair(final int first, final int second)
+    {
+        final int oldFirstThrust = thrusts[first];
+        final int oldSecondThrust = thrusts[second];
+
+        final int crashSecond = smallestCollidingThrust(second, first);
+        thrusts[second] = Math.max(crashSecond - 1, 0);
+
+        if (crashSecond == 0)
+        {
+            final int crashFirst = smallestCollidingThrust(first, second);
+            thrusts[first] = Math.max(crashFirst - 1, 0);
+        }
+
+        return (thrusts[first] != oldFirstThrust) || (thrusts[second] != oldSecondThrust);
+    }
+
+    // Smallest thrust of the moving move colliding with the other one, its current thrust if none does,
+    // which is what the scan from 0 in Collision.resolveMoves finds
+    private int smallestCollidingThrust(final int moving, final int other)
+    {
+        final int thrust = thrusts[moving];
+        if (collides(moving, 0, other, thrusts[other]))
+            return 0;
+
+        final double firstContact = firstContactThrust(moving, other);
+        int candidate = (firstContact >= thrust)? thrust : Math.max((int) Math.ceil(firstContact), 0);
+
+        while ((candidate > 0) && collides(moving, candidate - 1, other, thrusts[other]))
+            candidate--;
+        while ((candidate < thrust) && !collides(moving, candidate, other, thrusts[other]))
+            candidate++;
+
+        return candidate;
+    }
+
+    // Smallest real thrust at which the moving ship touches the other one on its move, infinity if none does.
+    // Relative to the other ship the moving one goes from D to C + s.u, C = D - w, for thrust s along the unit
+    // vector u and the other move w. The first contact is either the end of that path reaching the circle of
+    // collision, or the path becoming tangent to it with the tangent point before the end.
+    private double firstContactThrust(final int moving, final int other)
+    {
+        final double r = COLLISION_RADIUS;
+        final double dx = xs[moving] - xs[other];
+        final double dy = ys[moving] - ys[other];
+        final double squaredDistance = dx * dx + dy * dy;
+        if (squaredDistance <= r * r)
+            return 0.0;
+
+        final double ux = Trig.dX(angles[moving], 1);
+        final double uy = Trig.dY(angles[moving], 1);
+        final double wx = Trig.dX(angles[other], thrusts[other]);
+        final double wy = Trig.dY(angles[other], thrusts[other]);
+        final double cx = dx - wx;
+        final double cy = dy - wy;
+
+        double best = Double.POSITIVE_INFINITY;
+
+        // End of the path on the circle
+        final double cu = cx * ux + cy * uy;
+        final double discriminant = cu * cu - (cx * cx + cy * cy - r * r);
+        if (discriminant >= 0)
+        {
+            final double root = Math.sqrt(discriminant);
+            if (-cu + root >= 0)
+                best = Math.max(-cu - root, 0.0);
+        }
+
+        // Path along one of the two tangents from D, n towards the center and p across
+        final double distance = Math.sqrt(squaredDistance);
+        final double tangentLength = Math.sqrt(squaredDistance - r * r);
+        final double nx = -dx / distance;
+        final double ny = -dy / distance;
+        final double cosine = tangentLength / distance;
+        final double sine = r / distance;
+
+        for (int side = -1; side <= 1; side += 2)
+        {
+            final double tx = nx * cosine - side * ny * sine;
+            final double ty = ny * cosine + side * nx * sine;
+
+            // D + lambda.t = C + s.u
+            final double determinant = ux * ty - tx * uy;
+            if (Math.abs(determinant) < 1e-12)
+                continue;
+
+            final double lambda = (wx * uy - ux * wy) / determinant;
+            final double s = (wx * ty - tx * wy) / determinant;
+            if ((s >= 0) && (lambda >= tangentLength))
+                best = Math.min(best, s);
+        }
+
+        return best;
+    }
+
+    private boolean collides(final int move1, final int thrust1, final int move2, final int thrust2)
+    {
+        return Collision.willCollideClosedForm(xs[move1], ys[move1], angles[move1], thrust1, xs[move2], ys[move2], angles[move2], thrust2);
+    }
+
+    private void loadMoves(final ArrayList<Move> moveList)
+    {
+        numberOfMoves = 0;
+        for (final Move move: moveList)
+        {
+            if ((move.getType() != Move.MoveType.Thrust) || !(move instanceof ThrustMove))
+                continue;
+
+            if (numberOfMoves == moves.length)
+                allocateMoves(moves.length * 2);
+
+            final ThrustMove thrustMove = (ThrustMove) move;
+            final int i = numberOfMoves++;
+            moves[i] = thrustMove;
+            xs[i] = thrustMove.getShip().getXPos();
+            ys[i] = thrustMove.getShip().getYPos();
+            angles[i] = thrustMove.getAngle();
+            thrusts[i] = thrustMove.getThrust();
+            priorities[i] = thrustMove.getPriorityMove();
+
+            final double endX = xs[i] + thrustMove.dX();
+            final double endY = ys[i] + thrustMove.dY();
+            minXs[i] = Math.min(xs[i], endX) - SHIP_RADIUS - BOX_MARGIN;
+            maxXs[i] = Math.max(xs[i], endX) + SHIP_RADIUS + BOX_MARGIN;
+            minYs[i] = Math.min(ys[i], endY) - SHIP_RADIUS - BOX_MARGIN;
+            maxYs[i] = Math.max(ys[i], endY) + SHIP_RADIUS + BOX_MARGIN;
+        }
+
+        Arrays.fill(moves, numberOfMoves, moves.length, null);
+    }
+
+    // Sweep and prune on x, then the boxes must overlap on y too
+    private void findCandidatePairs()
+    {
+        for (int i = 0; i < numberOfMoves; ++i)
+            order[i] = i;
+        sortOnMinX(0, numberOfMoves);
+
+        numberOfPairs = 0;
+        for (int k = 0; k < numberOfMoves; ++k)
+        {
+            final int i = order[k];
+            for (int l = k + 1; (l < numberOfMoves) && (minXs[order[l]] <= maxXs[i]); ++l)
+            {
+                final int j = order[l];
+                if ((minYs[j] > maxYs[i]) || (minYs[i] > maxYs[j]))
+                    continue;
+
+                if (numberOfPairs == pairEarlier.length)
+                    allocatePairs(pairEarlier.length * 2);
+
+                pairEarlier[numberOfPairs] = Math.min(i, j);
+                pairLater[numberOfPairs] = Math.max(i, j);
+                numberOfPairs++;
+            }
+        }
+
+        // Candidates by move, counted then placed
+        Arrays.fill(pairStarts, 0, numberOfMoves + 1, 0);
+        for (int pair = 0; pair < numberOfPairs; ++pair)
+        {
+            pairStarts[pairEarlier[pair] + 1]++;
+            pairStarts[pairLater[pair] + 1]++;
+        }
+        for (int i = 0; i < numberOfMoves; ++i)
+            pairStarts[i + 1] += pairStarts[i];
+
+        final int[] filled = sortBuffer;
+        System.arraycopy(pairStarts, 0, filled, 0, numberOfMoves);
+        for (int pair = 0; pair < numberOfPairs; ++pair)
+        {
+            pairsByMove[filled[pairEarlier[pair]]++] = pair;
+            pairsByMove[filled[pairLater[pair]]++] = pair;
+        }
+    }
+
+    // Merge sort of order[from, to) on minXs, ties in list order
+    private void sortOnMinX(final int from, final int to)
+    {
+        if (to - from < 2)
+            return;
+
+        final int middle = (from + to) >>> 1;
+        sortOnMinX(from, middle);
+        sortOnMinX(middle, to);
+
+        if (minXs[order[middle - 1]] <= minXs[order[middle]])
+            return;
+
+        System.arraycopy(order, from, sortBuffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int k = from; k < to; ++k)
+        {
+            if ((right >= to) || ((left < middle) && (minXs[sortBuffer[left]] <= minXs[sortBuffer[right]])))
+                order[k] = sortBuffer[left++];
+            else
+                order[k] = sortBuffer[right++];
+        }
+    }
+
+    private void pushPairsOf(final int move)
+    {
+        for (int k = pairStarts[move]; k < pairStarts[move + 1]; ++k)
+            push(pairsByMove[k]);
+    }
+
+    // Higher priority of the two moves first, then the order of the pairwise loop: later move, then earlier one
+    private boolean isBefore(final int pair1, final int pair2)
+    {
+        final double priority1 = Math.max(priorities[pairEarlier[pair1]], priorities[pairLater[pair1]]);
+        final double priority2 = Math.max(priorities[pairEarlier[pair2]], priorities[pairLater[pair2]]);
+        if (priority1 != priority2)
+            return priority1 > priority2;
+        if (pairLater[pair1] != pairLater[pair2])
+            return pairLater[pair1] < pairLater[pair2];
+        return pairEarlier[pair1] < pairEarlier[pair2];
+    }
+
+    private void push(final int pair)
+    {
+        if (heapPositions[pair] != -1)
+            return;
+
+        heap[heapSize] = pair;
+        heapPositions[pair] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop()
+    {
+        final int top = heap[0];
+        heapPositions[top] = -1;
+
+        if (--heapSize > 0)
+        {
+            heap[0] = heap[heapSize];
+            heapPositions[heap[0]] = 0;
+            siftDown(0);
+        }
+
+        return top;
+    }
+
+    private void siftUp(int position)
+    {
+        while (position > 0)
+        {
+            final int parent = (position - 1) >>> 1;
+            if (!isBefore(heap[position], heap[parent]))
+                break;
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position)
+    {
+        while (true)
+        {
+            final int left = 2 * position + 1;
+            if (left >= heapSize)
+                break;
+
+            final int right = left + 1;
+            final int child = ((right < heapSize) && isBefore(heap[right], heap[left]))? right : left;
+            if (!isBefore(heap[child], heap[position]))
+                break;
+            swap(position, child);
+            position = child;
+        }
+    }
+
+    private void swap(final int position1, final int position2)
+    {
+        final int pair = heap[position1];
+        heap[position1] = heap[position2];
+        heap[position2] = pair;
+        heapPositions[heap[position1]] = position1;
+        heapPositions[heap[position2]] = position2;
+    }
+
+    private void allocateMoves(final int capacity)
+    {
+        moves = (moves == null)? new ThrustMove[capacity] : Arrays.copyOf(moves, capacity);
+        xs = (xs == null)? new double[capacity] : Arrays.copyOf(xs, capacity);
+        ys = (ys == null)? new double[capacity] : Arrays.copyOf(ys, capacity);
+        angles = (angles == null)? new int[capacity] : Arrays.copyOf(angles, capacity);
+        thrusts = (thrusts == null)? new int[capacity] : Arrays.copyOf(thrusts, capacity);
+        priorities = (priorities == null)? new double[capacity] : Arrays.copyOf(priorities, capacity);
+        minXs = (minXs == null)? new double[capacity] : Arrays.copyOf(minXs, capacity);
+        maxXs = (maxXs == null)? new double[capacity] : Arrays.copyOf(maxXs, capacity);
+        minYs = (minYs == null)? new double[capacity] : Arrays.copyOf(minYs, capacity);
+        maxYs = (maxYs == null)? new double[capacity] : Arrays.copyOf(maxYs, capacity);
+        order = new int[capacity];
+        sortBuffer = new int[capacity];
+        pairStarts = new int[capacity + 1];
+    }
+
+    private void allocatePairs(final int capacity)
+    {
+        final int oldCapacity = (pairEarlier == null)? 0 : pairEarlier.length;
+
+        pairEarlier = (pairEarlier == null)? new int[capacity] : Arrays.copyOf(pairEarlier, capacity);
+        pairLater = (pairLater == null)? new int[capacity] : Arrays.copyOf(pairLater, capacity);
+        pairsByMove = new int[capacity * 2];
+        heap = new int[capacity];
+        heapPositions = (heapPositions == null)? new int[capacity] : Arrays.copyOf(heapPositions, capacity);
+        Arrays.fill(heapPositions, oldCapacity, capacity, -1);
+    }
+}
@@ -3,21 +3,30 @@ package core.NavigationManager;
 import core.*;
 import core.CombatManager.CombatManager;
 import core.CombatManager.CombatOperation;
+import core.CombatManager.EngagementPartitioner;
 import hlt.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 
+import static hlt.DebugLog.Level.Debug;
+
 public class NavigationManager
 {
     private ArrayList<Move> moves;
+    private final MoveResolver moveResolver;
+    private final ReciprocalNavigator reciprocalNavigator;
+    private final EngagementPartitioner engagementPartitioner;
 
     public ArrayList<Move> getMoves() { return moves; }
 
     public NavigationManager()
     {
         this.moves = new ArrayList<>();
+        this.moveResolver = new MoveResolver();
+        this.reciprocalNavigator = new ReciprocalNavigator();
+        this.engagementPartitioner = new EngagementPartitioner();
     }
 
     public ArrayList<Move> generateMoves(final GameState gameState)
@@ -40,68 +49,172 @@ public class NavigationManager
 
         ArrayList<CombatOperation> combatOperations = gameState.getCombatManager().getSortedCombatOperations();
 
-        for (final CombatOperation combatOperation: combatOperations)
+        if (gameState.getBehaviourManager().isEngagementZones())
+            moveCombatOperationsByZone(gameState, combatOperations);
+        else
+            for (final CombatOperation combatOperation: combatOperations)
+                addCombatOperationMoves(gameState, combatOperation, moveCombatOperation(gameState, combatOperation));
+
+        resolveOutOfBoundaryMoves(gameState);
+        resolveMoves(gameState);
+        logMoves();
+
+        return this.moves;
+    }
+
+    private CombatOperationMoves moveCombatOperation(final GameState gameState, final CombatOperation combatOperation)
+    {
+        Objective objective = combatOperation.getObjective();
+        Objective.OrderType orderType = objective.getOrderType();
+        Entity target = objective.getTargetEntity();
+
+        switch (orderType)
         {
-            Objective objective = combatOperation.getObjective();
-            Objective.OrderType orderType = objective.getOrderType();
-            Entity target = objective.getTargetEntity();
+            case DEFEND:
+                return moveCombatOperationToObjectiveDefend(gameState, combatOperation, target);
+            case COLONIZE: case REINFORCECOLONY:
+                return moveCombatOperationToObjectiveColonize(gameState, combatOperation, target);
+            case RUSH: case ANTIRUSH: case ATTACK: case ATTACKDOCKED:
+                return moveCombatOperationToObjectiveAttack(gameState, combatOperation, target);
+            case GROUP:
+                return moveCombatOperationToObjectiveGroup(gameState, combatOperation, target);
+            case ASSASSINATION:
+                return moveCombatOperationToObjectiveAssassination(gameState, combatOperation, target);
+            case FLEE:
+                return moveCombatOperationToObjectiveFlee(gameState, combatOperation, target);
+            case UNDOCK:
+                return undockCombatOperation(gameState, combatOperation);
+            default:
+                throw new IllegalStateException("Unknown orderType for CombatOperation issued.");
+        }
+    }
 
-            CombatOperationMoves newMoves;
+    // The fleets and ships all the operations of a zone will ask resolveCombat to search are searched as one
+    // combat, the zones in parallel, before any operation moves. The operations then move in order as without
+    // zones, each taking its moves out of the search of its zone.
+    private void moveCombatOperationsByZone(final GameState gameState, final ArrayList<CombatOperation> combatOperations)
+    {
+        CombatManager combatManager = gameState.getCombatManager();
+        combatManager.clearResolvedCombats();
 
-            switch (orderType)
-            {
-                case DEFEND:
-                    newMoves = moveCombatOperationToObjectiveDefend(gameState, combatOperation, target);
-                    break;
-                case COLONIZE: case REINFORCECOLONY:
-                    newMoves = moveCombatOperationToObjectiveColonize(gameState, combatOperation, target);
-                    break;
-                case RUSH: case ANTIRUSH: case ATTACK: case ATTACKDOCKED:
-                    newMoves = moveCombatOperationToObjectiveAttack(gameState, combatOperation, target);
-                    break;
-                case GROUP:
-                    newMoves = moveCombatOperationToObjectiveGroup(gameState, combatOperation, target);
-                    break;
-                case ASSASSINATION:
-                    newMoves = moveCombatOperationToObjectiveAssassination(gameState, combatOperation, target);
-                    break;
-                case FLEE:
-                    newMoves = moveCombatOperationToObjectiveFlee(gameState, combatOperation, target);
-                    break;
-                case UNDOCK:
-                    newMoves = undockCombatOperation(gameState, combatOperation);
-                    break;
-                default:
-                    throw new IllegalStateException("Unknown orderType for CombatOperation issued.");
-            }
+        ArrayList<ArrayList<Fleet>> fleetGroups = new ArrayList<>();
+        ArrayList<ArrayList<Ship>> shipGroups = new ArrayList<>();
+        ArrayList<Entity> targets = new ArrayList<>();
+        ArrayList<Integer> groupZones = new ArrayList<>();
+
+        ArrayList<ArrayList<CombatOperation>> zones = this.engagementPartitioner.partition(gameState, combatOperations);
+        for (int zone = 0; zone < zones.size(); ++zone)
+        {
+            for (final CombatOperation combatOperation: zones.get(zone))
+                addCombatSearches(gameState, combatOperation, fleetGroups, shipGroups, targets);
 
-            addCombatOperationMoves(gameState, combatOperation, newMoves);
+            while (groupZones.size() < fleetGroups.size())
+                groupZones.add(zone);
         }
 
-        resolveOutOfBoundaryMoves(gameState);
-        resolveMoves(gameState);
-        logMoves();
+        if (!fleetGroups.isEmpty())
+            combatManager.resolveCombatsAhead(gameState, fleetGroups, shipGroups, targets, groupZones);
 
-        return this.moves;
+        for (final CombatOperation combatOperation: combatOperations)
+            addCombatOperationMoves(gameState, combatOperation, moveCombatOperation(gameState, combatOperation));
+
+        combatManager.clearResolvedCombats();
     }
 
-    private CombatOperationMoves moveCombatOperationToObjectiveAttack(final GameState gameState, final CombatOperation combatOperation, final Entity target)
+    // Fleets and ships the operation will ask resolveCombat to search, in the order moveCombatOperationToObjectiveAttack
+    // moves them
+    private void addCombatSearches(
+            final GameState gameState,
+            final CombatOperation combatOperation,
+            final ArrayList<ArrayList<Fleet>> fleetGroups,
+            final ArrayList<ArrayList<Ship>> shipGroups,
+            final ArrayList<Entity> targets
+    )
     {
-        ArrayList<Fleet> myFleetsFar = new ArrayList<>();
+        switch (combatOperation.getObjective().getOrderType())
+        {
+            case RUSH: case ANTIRUSH: case ATTACK: case ATTACKDOCKED:
+                break;
+            default:
+                return;
+        }
+
+        Entity target = combatOperation.getObjective().getTargetEntity();
+
         ArrayList<Fleet> myFleetsNearby = new ArrayList<>();
+        ArrayList<Fleet> myFleetsFar = new ArrayList<>();
+        ArrayList<Ship> myShipsNearby = new ArrayList<>();
+        ArrayList<Ship> myShipsFar = new ArrayList<>();
+        splitAttack(combatOperation, target, myFleetsNearby, myFleetsFar, myShipsNearby, myShipsFar);
+
+        if (isGroupSearched(myFleetsNearby, myShipsNearby))
+            addCombatSearch(fleetGroups, shipGroups, targets, myFleetsNearby, myShipsNearby, target);
+
+        if (isFarAttackSearched(gameState))
+        {
+            for (final Fleet fleet: myFleetsFar)
+                addCombatSearch(fleetGroups, shipGroups, targets, new ArrayList<>(Arrays.asList(fleet)), new ArrayList<>(), target);
+            for (final Ship ship: myShipsFar)
+                addCombatSearch(fleetGroups, shipGroups, targets, new ArrayList<>(), new ArrayList<>(Arrays.asList(ship)), target);
+        }
+    }
+
+    private static void addCombatSearch(
+            final ArrayList<ArrayList<Fleet>> fleetGroups,
+            final ArrayList<ArrayList<Ship>> shipGroups,
+            final ArrayList<Entity> targets,
+            final ArrayList<Fleet> fleets,
+            final ArrayList<Ship> ships,
+            final Entity target
+    )
+    {
+        fleetGroups.add(fleets);
+        shipGroups.add(ships);
+        targets.add(target);
+    }
+
+    // Fleets and ships close to the target attack as one group, the others each on their own
+    private static void splitAttack(
+            final CombatOperation combatOperation,
+            final Entity target,
+            final ArrayList<Fleet> myFleetsNearby,
+            final ArrayList<Fleet> myFleetsFar,
+            final ArrayList<Ship> myShipsNearby,
+            final ArrayList<Ship> myShipsFar
+    )
+    {
         for (final Fleet fleet: combatOperation.getMyActiveFleets())
             if (fleet.getCentroid().getDistanceTo(target) < 14.0)
                 myFleetsNearby.add(fleet);
             else
                 myFleetsFar.add(fleet);
 
-        ArrayList<Ship> myShipsFar = new ArrayList<>();
-        ArrayList<Ship> myShipsNearby = new ArrayList<>();
         for (final Ship ship: combatOperation.getMyActiveShips())
             if (ship.getDistanceTo(target) < 14.0)
                 myShipsNearby.add(ship);
             else
                 myShipsFar.add(ship);
+    }
+
+    // A small group close to the target is moved by a combat search, a larger one takes the best scored move
+    private static boolean isGroupSearched(final ArrayList<Fleet> myFleetsNearby, final ArrayList<Ship> myShipsNearby)
+    {
+        int groupSize = myFleetsNearby.size() + myShipsNearby.size();
+        return (groupSize > 0) && (groupSize < 4);
+    }
+
+    private static boolean isFarAttackSearched(final GameState gameState)
+    {
+        return gameState.getBehaviourManager().getTestArgument() == 2;
+    }
+
+    private CombatOperationMoves moveCombatOperationToObjectiveAttack(final GameState gameState, final CombatOperation combatOperation, final Entity target)
+    {
+        ArrayList<Fleet> myFleetsNearby = new ArrayList<>();
+        ArrayList<Fleet> myFleetsFar = new ArrayList<>();
+        ArrayList<Ship> myShipsNearby = new ArrayList<>();
+        ArrayList<Ship> myShipsFar = new ArrayList<>();
+        splitAttack(combatOperation, target, myFleetsNearby, myFleetsFar, myShipsNearby, myShipsFar);
 
         CombatOperationMoves combatOperationMoves = moveCombatOperationToObjectiveAttackForGroup(gameState, combatOperation, target, myFleetsNearby, myShipsNearby);
         addCombatOperationMovesForFarFleets(gameState, combatOperationMoves, target, myFleetsFar);
@@ -121,7 +234,7 @@ public class NavigationManager
         if (myFleetsNearby.isEmpty() && myShipsNearby.isEmpty())
             return new CombatOperationMoves();
 
-        if (myFleetsNearby.size() + myShipsNearby.size() < 4)
+        if (isGroupSearched(myFleetsNearby, myShipsNearby))
             return gameState.getCombatManager().resolveCombat(gameState, myFleetsNearby, myShipsNearby, target);
 
         CombatOperationMoves attackMoves = attackCombatOperationMoves(gameState, myFleetsNearby, myShipsNearby, target);
@@ -335,7 +448,7 @@ public class NavigationManager
 
     private ArrayList<Move> moveFleetToObjectiveAttack(final GameState gameState, final Fleet fleet, final Entity target)
     {
-        if (gameState.getBehaviourManager().getTestArgument() == 2)
+        if (isFarAttackSearched(gameState))
         {
             CombatOperationMoves combatOperationMoves = gameState.getCombatManager().resolveCombat(gameState, new ArrayList<>(Arrays.asList(fleet)), new ArrayList<>(), target);
             return combatOperationMoves.getFleetMoves().get(fleet);
@@ -487,7 +600,7 @@ public class NavigationManager
 
     private Move moveShipToObjectiveAttack(final GameState gameState, final Ship ship, final Entity target)
     {
-        if (gameState.getBehaviourManager().getTestArgument() == 2)
+        if (isFarAttackSearched(gameState))
         {
             CombatOperationMoves combatOperationMoves = gameState.getCombatManager().resolveCombat(gameState, new ArrayList<>(), new ArrayList<>(Arrays.asList(ship)), target);
             return combatOperationMoves.getShipMoves().get(ship);
@@ -570,18 +683,16 @@ public class NavigationManager
         if (!(entity instanceof Fleet))
             throw new IllegalStateException("Can't group to non fleets.");
 
-        // Get fleet after move was updated.
+        // Get fleet after move was updated, or as it stands when it has not moved.
         Fleet oldFleet = (Fleet) entity;
         int indexOfFleet = gameState.getMyFleetsNextTurn().indexOf(oldFleet);
-        Fleet fleet = gameState.getMyFleetsNextTurn().get(indexOfFleet);
+        Fleet fleet = (indexOfFleet != -1)? gameState.getMyFleetsNextTurn().get(indexOfFleet) : oldFleet;
 
         boolean isClose = (ship.getDistanceTo(fleet.getCentroid()) < 7.1);
 
         if (isClose)
         {
-            final ArrayList<Entity> entities = gameState.objectsBetween(ship, fleet, ship.getRadius() + 0.1);
-            entities.removeAll(fleet.getShips());
-            if (entities.isEmpty())
+            if (!gameState.hasObjectsBetween(ship, fleet, ship.getRadius() + 0.1, null, fleet.getShips(), true))
                 oldFleet.addShip(ship);
         }
 
@@ -599,30 +710,26 @@ public class NavigationManager
         if (closeShips.isEmpty())
             return sourceEntity;
 
+        // Sum of the unit vectors towards the enemies, the retreat goes the opposite way
         double sumCos = 0;
         double sumSin = 0;
         for(final Ship ship: closeShips)
         {
             if (ship.isUndocked())
             {
-                double targetAngle = sourceEntity.orientTowardsInRad(ship);
-                sumCos += Math.cos(targetAngle);
-                sumSin += Math.sin(targetAngle);
+                final double dx = ship.getXPos() - sourceEntity.getXPos();
+                final double dy = ship.getYPos() - sourceEntity.getYPos();
+                final double distance = Math.sqrt(dx * dx + dy * dy);
+
+                // On top of each other the angle was 0
+                sumCos += (distance == 0.0)? 1.0 : dx / distance;
+                sumSin += (distance == 0.0)? 0.0 : dy / distance;
             }
         }
 
-        double averageAngle = Math.atan2(sumSin, sumCos);
-
-        if (averageAngle < 0)
-            averageAngle += 2 * Math.PI;
-
-        if(averageAngle < Math.PI)
-            averageAngle += Math.PI;
-        else
-            averageAngle -= Math.PI;
-
-        final double newTargetDx = Math.cos(averageAngle) * 21.0;
-        final double newTargetDy = Math.sin(averageAngle) * 21.0;
+        final double norm = Math.sqrt(sumCos * sumCos + sumSin * sumSin);
+        final double newTargetDx = (norm == 0.0)? -21.0 : -sumCos / norm * 21.0;
+        final double newTargetDy = (norm == 0.0)? 0.0 : -sumSin / norm * 21.0;
         return new Entity(-1, 0, sourceEntity.getXPos() + newTargetDx, sourceEntity.getYPos() + newTargetDy, 0, 0);
     }
 
@@ -713,41 +820,11 @@ public class NavigationManager
 
     private void resolveMoves(final GameState gameState)
     {
-        // Call function below twice, sometimes when moves
-        // are changed, it impacts moves that are checked afterwards.
+        // Joint navigation leaves few conflicts, the resolver still catches ships left with no clear velocity
+        if (gameState.getBehaviourManager().isJointNavigation())
+            this.reciprocalNavigator.navigate(gameState, this.moves);
 
-        resolveMovesInternal(gameState);
-        resolveMovesInternal(gameState);
-    }
-
-    private void resolveMovesInternal(final GameState gameState)
-    {
-        for(int i = 0; i < this.moves.size(); i++)
-        {
-            Move move1 = this.moves.get(i);
-            for(int j = 0; j < i; j++)
-            {
-                Move move2 = this.moves.get(j);
-
-                Boolean eitherDocking   = move1.getType() == Move.MoveType.Dock || move2.getType() == Move.MoveType.Dock;
-                Boolean eitherUnDocking = move1.getType() == Move.MoveType.Undock || move2.getType() == Move.MoveType.Undock;
-                Boolean eitherStopped   = move1.getType() == Move.MoveType.Noop || move2.getType() == Move.MoveType.Noop;
-
-                if(!(eitherDocking || eitherUnDocking || eitherStopped))
-                {
-                    ThrustMove thrustMove1 = (ThrustMove) move1;
-                    ThrustMove thrustMove2 = (ThrustMove) move2;
-
-                    if(Collision.willCollideClosedForm(thrustMove1, thrustMove2))
-                    {
-                        if (thrustMove1.getPriorityMove() > thrustMove2.getPriorityMove())
-                            Collision.resolveMoves(thrustMove1, thrustMove2);
-                        else
-                            Collision.resolveMoves(thrustMove2, thrustMove1);
-                    }
-                }
-            }
-        }
+        this.moveResolver.resolve(this.moves);
     }
 
     private boolean allMovesZeroThrust(final ArrayList<Move> moves)
@@ -762,7 +839,10 @@ public class NavigationManager
     private void clearMoves() { this.moves.clear(); }
     private void logMoves()
     {
+        if (!DebugLog.isEnabled(Debug))
+            return;
+
         for(final Move move: this.moves)
-            DebugLog.addLog(move.toString());
+            DebugLog.addLog(Debug, move.toString());
     }
 }
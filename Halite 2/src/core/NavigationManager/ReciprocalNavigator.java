@@ -0,0 +1,550 @@
+package core.NavigationManager;
+
+import core.GameState;
+import core.PlanetGeometry;
+import core.SpatialHash;
+import hlt.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static hlt.Constants.MAX_SPEED;
+import static hlt.Constants.SHIP_RADIUS;
+
+// Joint navigation with optimal reciprocal collision avoidance (ORCA). In this mode the navigators do not look for
+// a free heading, their thrust moves go straight for the target and are the velocities the ships want. Every ship,
+// stalled ones included, then picks its velocity at once against the velocities wanted by its nearest neighbours,
+// instead of each ship avoiding the moves of those navigated before it:
+// - each close pair gives each of its two ships a half plane of velocities, and they share the avoidance,
+// - my ships not thrusting, or at thrust 0, enemy ships and planets do not move, the ship takes all of the
+//   avoidance on itself,
+// - the velocity kept is the point of the angle/thrust lattice, up to full speed, closest to the wanted move in
+//   all the half planes, or the one violating them least when none is. Closest as the navigators see it: a turn
+//   costs less than a slowdown, so a ship goes around a planet rather than crawling up to it.
+// The horizon is one turn, the length of a move, so two ships both keeping to their half planes cannot collide.
+// In a dense fleet the half planes often leave no velocity, so the velocities are then settled exactly, highest
+// priority first: a ship keeps its velocity if it collides neither with the velocities of my other ships nor with
+// still ships and planets, else takes the clear lattice point closest to its wanted move, and only stalls when
+// none is left.
+public class ReciprocalNavigator
+{
+    private static final int NEIGHBOURS = 10;
+    private static final double SHIP_CLEARANCE = SHIP_RADIUS * 2 + 0.05;
+    private static final double PLANET_CLEARANCE = SHIP_RADIUS + 0.1;
+    private static final double NEIGHBOUR_REACH = MAX_SPEED * 2 + SHIP_CLEARANCE;
+    private static final double VIOLATION_TOLERANCE = 1e-9;
+    private static final int LATTICE_SIZE = 360 * MAX_SPEED + 1;
+    private static final int DEGREES_PER_THRUST = 30;
+
+    // Thrust moves in list order, with the velocity their ship wants
+    private int numberOfMoves;
+    private int[] listIndices;
+    private double[] wantedXs;
+    private double[] wantedYs;
+    private int[] wantedAngles;
+    private int[] wantedThrusts;
+    private double[] priorities;
+    private final HashMap<Integer, Integer> moveIndexByShipId;
+
+    // Where the ships stand, and the velocities kept so far as angle and thrust
+    private double[] shipXs;
+    private double[] shipYs;
+    private int[] angles;
+    private int[] thrusts;
+
+    // Half planes of the ship being solved: velocities v with det(direction, point - v) <= 0
+    private int numberOfLines;
+    private double[] pointXs;
+    private double[] pointYs;
+    private double[] directionXs;
+    private double[] directionYs;
+
+    // Nearest neighbours of the ship being solved
+    private int numberOfNeighbours;
+    private final Ship[] neighbours;
+    private final double[] neighbourDistances;
+
+    // Obstacles of the ship being settled: the moves of my ships nearby, and the still circles
+    private int numberOfMovingObstacles;
+    private int[] movingObstacles;
+    private int numberOfStillObstacles;
+    private double[] stillXs;
+    private double[] stillYs;
+    private double[] stillRadii;
+
+    // Lattice points, closest to the velocity to keep first: squared distance as float bits, then the point
+    private final long[] latticeOrder;
+
+    public ReciprocalNavigator()
+    {
+        this.listIndices = new int[256];
+        this.wantedXs = new double[256];
+        this.wantedYs = new double[256];
+        this.wantedAngles = new int[256];
+        this.wantedThrusts = new int[256];
+        this.priorities = new double[256];
+        this.moveIndexByShipId = new HashMap<>();
+
+        this.shipXs = new double[256];
+        this.shipYs = new double[256];
+        this.angles = new int[256];
+        this.thrusts = new int[256];
+
+        this.pointXs = new double[64];
+        this.pointYs = new double[64];
+        this.directionXs = new double[64];
+        this.directionYs = new double[64];
+
+        this.neighbours = new Ship[NEIGHBOURS];
+        this.neighbourDistances = new double[NEIGHBOURS];
+
+        this.movingObstacles = new int[64];
+        this.stillXs = new double[64];
+        this.stillYs = new double[64];
+        this.stillRadii = new double[64];
+
+        this.latticeOrder = new long[LATTICE_SIZE];
+    }
+
+    public void navigate(final GameState gameState, final ArrayList<Move> moves)
+    {
+        loadMoves(moves);
+
+        // All ships solve against the wanted velocities, so the order does not matter: results go aside first
+        for (int i = 0; i < numberOfMoves; ++i)
+        {
+            final ThrustMove move = (ThrustMove) moves.get(listIndices[i]);
+            addShipLines(gameState, i, move.getShip());
+            addEnemyShipLines(gameState, i, move.getShip());
+            addPlanetLines(gameState, i, move.getShip());
+            bestVelocityOnLattice(gameState, i, move);
+        }
+
+        for (final int i: settlingOrder())
+            settle(gameState, i, ((ThrustMove) moves.get(listIndices[i])).getShip());
+
+        for (int i = 0; i < numberOfMoves; ++i)
+        {
+            final ThrustMove move = (ThrustMove) moves.get(listIndices[i]);
+            if ((angles[i] != move.getAngle()) || (thrusts[i] != move.getThrust()))
+                moves.set(listIndices[i], new ThrustMove(move.getShip(), angles[i], thrusts[i], priorities[i]));
+        }
+    }
+
+    private void loadMoves(final ArrayList<Move> moves)
+    {
+        numberOfMoves = 0;
+        moveIndexByShipId.clear();
+
+        for (int k = 0; k < moves.size(); ++k)
+        {
+            final Move move = moves.get(k);
+            if ((move.getType() != Move.MoveType.Thrust) || !(move instanceof ThrustMove))
+                continue;
+
+            if (numberOfMoves == listIndices.length)
+            {
+                listIndices = Arrays.copyOf(listIndices, numberOfMoves * 2);
+                wantedXs = Arrays.copyOf(wantedXs, numberOfMoves * 2);
+                wantedYs = Arrays.copyOf(wantedYs, numberOfMoves * 2);
+                wantedAngles = Arrays.copyOf(wantedAngles, numberOfMoves * 2);
+                wantedThrusts = Arrays.copyOf(wantedThrusts, numberOfMoves * 2);
+                priorities = Arrays.copyOf(priorities, numberOfMoves * 2);
+                angles = Arrays.copyOf(angles, numberOfMoves * 2);
+                thrusts = Arrays.copyOf(thrusts, numberOfMoves * 2);
+                shipXs = Arrays.copyOf(shipXs, numberOfMoves * 2);
+                shipYs = Arrays.copyOf(shipYs, numberOfMoves * 2);
+            }
+
+            final ThrustMove thrustMove = (ThrustMove) move;
+            listIndices[numberOfMoves] = k;
+            wantedXs[numberOfMoves] = thrustMove.dX();
+            wantedYs[numberOfMoves] = thrustMove.dY();
+            wantedAngles[numberOfMoves] = thrustMove.getAngle();
+            wantedThrusts[numberOfMoves] = thrustMove.getThrust();
+            priorities[numberOfMoves] = thrustMove.getPriorityMove();
+            angles[numberOfMoves] = thrustMove.getAngle();
+            thrusts[numberOfMoves] = thrustMove.getThrust();
+            shipXs[numberOfMoves] = thrustMove.getShip().getXPos();
+            shipYs[numberOfMoves] = thrustMove.getShip().getYPos();
+            moveIndexByShipId.put(thrustMove.getShip().getId(), numberOfMoves);
+            numberOfMoves++;
+        }
+    }
+
+    // Half planes against the nearest of my ships, moving ones share the avoidance
+    private void addShipLines(final GameState gameState, final int move, final Ship ship)
+    {
+        numberOfLines = 0;
+        findNearestNeighbours(gameState, ship);
+
+        for (int k = 0; k < numberOfNeighbours; ++k)
+        {
+            final Ship neighbour = neighbours[k];
+            final Integer neighbourMove = moveIndexByShipId.get(neighbour.getId());
+
+            final double neighbourVelocityX = (neighbourMove == null)? 0.0 : wantedXs[neighbourMove];
+            final double neighbourVelocityY = (neighbourMove == null)? 0.0 : wantedYs[neighbourMove];
+            final boolean isStill = (neighbourVelocityX == 0.0) && (neighbourVelocityY == 0.0);
+            final double responsibility = isStill? 1.0 : 0.5;
+
+            addLine(move,
+                    neighbour.getXPos() - ship.getXPos(), neighbour.getYPos() - ship.getYPos(),
+                    wantedXs[move] - neighbourVelocityX, wantedYs[move] - neighbourVelocityY,
+                    SHIP_CLEARANCE, responsibility);
+        }
+    }
+
+    // Enemy ships are taken where they stand, as the navigators take them
+    private void addEnemyShipLines(final GameState gameState, final int move, final Ship ship)
+    {
+        final SpatialHash shipHash = gameState.getShipHash();
+        final double reach = MAX_SPEED + SHIP_CLEARANCE;
+        final int numberFound = shipHash.query(ship.getXPos(), ship.getYPos(), reach);
+        for (int i = 0; i < numberFound; ++i)
+        {
+            final int entry = shipHash.getFound(i);
+            if (shipHash.getOwner(entry) == gameState.getMyId())
+                continue;
+
+            final Ship enemyShip = shipHash.getShip(entry);
+            addLine(move,
+                    enemyShip.getXPos() - ship.getXPos(), enemyShip.getYPos() - ship.getYPos(),
+                    wantedXs[move], wantedYs[move],
+                    SHIP_CLEARANCE, 1.0);
+        }
+    }
+
+    private void addPlanetLines(final GameState gameState, final int move, final Ship ship)
+    {
+        final PlanetGeometry planetGeometry = gameState.getPlanetGeometry();
+        final double reach = MAX_SPEED + PLANET_CLEARANCE;
+        final int numberOfPlanets = planetGeometry.queryBox(ship.getXPos() - reach, ship.getYPos() - reach, ship.getXPos() + reach, ship.getYPos() + reach);
+
+        for (int k = 0; k < numberOfPlanets; ++k)
+        {
+            final Planet planet = planetGeometry.getCandidate(k);
+            addLine(move,
+                    planet.getXPos() - ship.getXPos(), planet.getYPos() - ship.getYPos(),
+                    wantedXs[move], wantedYs[move],
+                    planet.getRadius() + PLANET_CLEARANCE, 1.0);
+        }
+    }
+
+    // My ships within reach, closest first, at most NEIGHBOURS of them
+    private void findNearestNeighbours(final GameState gameState, final Ship ship)
+    {
+        numberOfNeighbours = 0;
+
+        final SpatialHash shipHash = gameState.getShipHash();
+        final int numberFound = shipHash.query(ship.getXPos(), ship.getYPos(), NEIGHBOUR_REACH);
+        for (int i = 0; i < numberFound; ++i)
+        {
+            final int entry = shipHash.getFound(i);
+            final Ship neighbour = shipHash.getShip(entry);
+            if ((shipHash.getOwner(entry) != gameState.getMyId()) || (neighbour.getId() == ship.getId()))
+                continue;
+
+            final double distance = ship.getDistanceTo(neighbour);
+            if (distance > NEIGHBOUR_REACH)
+                continue;
+            if ((numberOfNeighbours == NEIGHBOURS) && (distance >= neighbourDistances[NEIGHBOURS - 1]))
+                continue;
+
+            // Insertion into the sorted list, the farthest falls off when full
+            int k = Math.min(numberOfNeighbours, NEIGHBOURS - 1);
+            while ((k > 0) && (neighbourDistances[k - 1] > distance))
+            {
+                neighbours[k] = neighbours[k - 1];
+                neighbourDistances[k] = neighbourDistances[k - 1];
+                k--;
+            }
+            neighbours[k] = neighbour;
+            neighbourDistances[k] = distance;
+            numberOfNeighbours = Math.min(numberOfNeighbours + 1, NEIGHBOURS);
+        }
+    }
+
+    // The ORCA half plane for an obstacle at the relative position, with the relative velocity wanted, over a
+    // horizon of one turn: u is the smallest change of relative velocity out of the velocity obstacle, the ship
+    // takes its share of it and the half plane is bounded there, perpendicular to u.
+    private void addLine(final int move, final double positionX, final double positionY, final double velocityX, final double velocityY,
+                         final double radius, final double responsibility)
+    {
+        final double squaredDistance = positionX * positionX + positionY * positionY;
+        final double squaredRadius = radius * radius;
+
+        double directionX;
+        double directionY;
+        double uX;
+        double uY;
+
+        // w is the relative velocity seen from the center of the cut off circle
+        final double wX = velocityX - positionX;
+        final double wY = velocityY - positionY;
+        final double squaredLengthW = wX * wX + wY * wY;
+
+        if (squaredDistance > squaredRadius)
+        {
+            final double dotProduct = wX * positionX + wY * positionY;
+
+            if ((dotProduct < 0.0) && (dotProduct * dotProduct > squaredRadius * squaredLengthW))
+            {
+                // Out through the cut off circle
+                final double lengthW = Math.sqrt(squaredLengthW);
+                final double unitX = wX / lengthW;
+                final double unitY = wY / lengthW;
+                directionX = unitY;
+                directionY = -unitX;
+                uX = (radius - lengthW) * unitX;
+                uY = (radius - lengthW) * unitY;
+            }
+            else
+            {
+                // Out through the closest leg of the cone
+                final double leg = Math.sqrt(squaredDistance - squaredRadius);
+                if (positionX * wY - positionY * wX > 0.0)
+                {
+                    directionX = (positionX * leg - positionY * radius) / squaredDistance;
+                    directionY = (positionX * radius + positionY * leg) / squaredDistance;
+                }
+                else
+                {
+                    directionX = -(positionX * leg + positionY * radius) / squaredDistance;
+                    directionY = -(-positionX * radius + positionY * leg) / squaredDistance;
+                }
+
+                final double dotProductLeg = velocityX * directionX + velocityY * directionY;
+                uX = dotProductLeg * directionX - velocityX;
+                uY = dotProductLeg * directionY - velocityY;
+            }
+        }
+        else
+        {
+            // Already overlapping: get out within the turn, straight away from the center
+            double lengthW = Math.sqrt(squaredLengthW);
+            double unitX;
+            double unitY;
+            if (lengthW > 0.0)
+            {
+                unitX = wX / lengthW;
+                unitY = wY / lengthW;
+            }
+            else
+            {
+                final double distance = Math.sqrt(squaredDistance);
+                unitX = (distance > 0.0)? -positionX / distance : 1.0;
+                unitY = (distance > 0.0)? -positionY / distance : 0.0;
+            }
+
+            directionX = unitY;
+            directionY = -unitX;
+            uX = (radius - lengthW) * unitX;
+            uY = (radius - lengthW) * unitY;
+        }
+
+        if (numberOfLines == pointXs.length)
+        {
+            pointXs = Arrays.copyOf(pointXs, numberOfLines * 2);
+            pointYs = Arrays.copyOf(pointYs, numberOfLines * 2);
+            directionXs = Arrays.copyOf(directionXs, numberOfLines * 2);
+            directionYs = Arrays.copyOf(directionYs, numberOfLines * 2);
+        }
+
+        pointXs[numberOfLines] = wantedXs[move] + responsibility * uX;
+        pointYs[numberOfLines] = wantedYs[move] + responsibility * uY;
+        directionXs[numberOfLines] = directionX;
+        directionYs[numberOfLines] = directionY;
+        numberOfLines++;
+    }
+
+    // Smallest violation of the half planes first, then closest to the wanted move. Never off the map.
+    private void bestVelocityOnLattice(final GameState gameState, final int move, final ThrustMove wantedMove)
+    {
+        final Ship ship = wantedMove.getShip();
+        final double limitX = gameState.getMapSizeX();
+        final double limitY = gameState.getMapSizeY();
+
+        int bestAngle = wantedMove.getAngle();
+        int bestThrust = 0;
+        double bestViolation = violation(0.0, 0.0, Double.MAX_VALUE);
+        int bestCost = cost(move, bestAngle, bestThrust);
+
+        for (int thrust = 1; thrust <= MAX_SPEED; ++thrust)
+        {
+            for (int angle = 0; angle < 360; ++angle)
+            {
+                final double velocityX = Trig.dX(angle, thrust);
+                final double velocityY = Trig.dY(angle, thrust);
+
+                final double endX = ship.getXPos() + velocityX;
+                final double endY = ship.getYPos() + velocityY;
+                if ((endX <= 0) || (endX >= limitX) || (endY <= 0) || (endY >= limitY))
+                    continue;
+
+                final int cost = cost(move, angle, thrust);
+                if ((bestViolation <= VIOLATION_TOLERANCE) && (cost >= bestCost))
+                    continue;
+
+                final double violation = violation(velocityX, velocityY, bestViolation + VIOLATION_TOLERANCE);
+                if ((violation < bestViolation - VIOLATION_TOLERANCE) || ((violation <= bestViolation + VIOLATION_TOLERANCE) && (cost < bestCost)))
+                {
+                    bestAngle = angle;
+                    bestThrust = thrust;
+                    bestViolation = Math.max(violation, 0.0);
+                    bestCost = cost;
+                }
+            }
+        }
+
+        angles[move] = bestAngle;
+        thrusts[move] = bestThrust;
+    }
+
+    // Highest priority first, on equal priorities in list order as the resolver takes them
+    private Integer[] settlingOrder()
+    {
+        final Integer[] order = new Integer[numberOfMoves];
+        for (int i = 0; i < numberOfMoves; ++i)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(priorities[b], priorities[a]));
+        return order;
+    }
+
+    // Keeps the velocity of the ship when it is clear, else the clear lattice point closest to the wanted move, else
+    // stalls. A ship the half planes stalled looks again too, it only stalls when blocked.
+    private void settle(final GameState gameState, final int move, final Ship ship)
+    {
+        findObstacles(gameState, ship);
+
+        final boolean isStalled = (thrusts[move] == 0) && (wantedThrusts[move] > 0);
+        if (!isStalled && isClear(gameState, ship, angles[move], thrusts[move]))
+            return;
+
+        for (int point = 0; point < LATTICE_SIZE; ++point)
+            latticeOrder[point] = ((long) cost(move, latticeAngle(point), latticeThrust(point)) << 32) | point;
+        Arrays.sort(latticeOrder);
+
+        for (final long entry: latticeOrder)
+        {
+            final int point = (int) entry;
+            final int thrust = latticeThrust(point);
+            final int angle = latticeAngle(point);
+            if (isClear(gameState, ship, angle, thrust))
+            {
+                angles[move] = angle;
+                thrusts[move] = thrust;
+                return;
+            }
+        }
+
+        thrusts[move] = 0;
+    }
+
+    // How far a lattice point is from the wanted move, the way the navigators look for a free heading: turning by a
+    // degree costs 1, each unit of thrust lost or gained as much as turning by DEGREES_PER_THRUST
+    private int cost(final int move, final int angle, final int thrust)
+    {
+        final int turn = Math.abs(Math.floorMod(angle - wantedAngles[move] + 180, 360) - 180);
+        return (((thrust == 0) || (wantedThrusts[move] == 0))? 0 : turn) + DEGREES_PER_THRUST * Math.abs(thrust - wantedThrusts[move]);
+    }
+
+    // Point 0 is the stall, then thrust by thrust all the angles
+    private static int latticeThrust(final int point) { return (point == 0)? 0 : (point - 1) / 360 + 1; }
+    private static int latticeAngle(final int point) { return (point == 0)? 0 : (point - 1) % 360; }
+
+    // My ships moving nearby, at their velocity so far, and as still circles my other ships, enemy ships and planets
+    private void findObstacles(final GameState gameState, final Ship ship)
+    {
+        numberOfMovingObstacles = 0;
+        numberOfStillObstacles = 0;
+
+        final SpatialHash shipHash = gameState.getShipHash();
+        final int numberFound = shipHash.query(ship.getXPos(), ship.getYPos(), NEIGHBOUR_REACH);
+        for (int i = 0; i < numberFound; ++i)
+        {
+            final int entry = shipHash.getFound(i);
+            final Ship other = shipHash.getShip(entry);
+            if (other.getId() == ship.getId())
+                continue;
+
+            final Integer otherMove = (shipHash.getOwner(entry) == gameState.getMyId())? moveIndexByShipId.get(other.getId()) : null;
+            if (otherMove != null)
+                addMovingObstacle(otherMove);
+            else if (ship.getDistanceTo(other) <= MAX_SPEED + SHIP_CLEARANCE)
+                addStillObstacle(other.getXPos(), other.getYPos(), SHIP_CLEARANCE);
+        }
+
+        final PlanetGeometry planetGeometry = gameState.getPlanetGeometry();
+        final double reach = MAX_SPEED + PLANET_CLEARANCE;
+        final int numberOfPlanets = planetGeometry.queryBox(ship.getXPos() - reach, ship.getYPos() - reach, ship.getXPos() + reach, ship.getYPos() + reach);
+        for (int k = 0; k < numberOfPlanets; ++k)
+        {
+            final Planet planet = planetGeometry.getCandidate(k);
+            addStillObstacle(planet.getXPos(), planet.getYPos(), planet.getRadius() + PLANET_CLEARANCE);
+        }
+    }
+
+    private void addMovingObstacle(final int move)
+    {
+        if (numberOfMovingObstacles == movingObstacles.length)
+            movingObstacles = Arrays.copyOf(movingObstacles, numberOfMovingObstacles * 2);
+        movingObstacles[numberOfMovingObstacles++] = move;
+    }
+
+    private void addStillObstacle(final double x, final double y, final double radius)
+    {
+        if (numberOfStillObstacles == stillXs.length)
+        {
+            stillXs = Arrays.copyOf(stillXs, numberOfStillObstacles * 2);
+            stillYs = Arrays.copyOf(stillYs, numberOfStillObstacles * 2);
+            stillRadii = Arrays.copyOf(stillRadii, numberOfStillObstacles * 2);
+        }
+        stillXs[numberOfStillObstacles] = x;
+        stillYs[numberOfStillObstacles] = y;
+        stillRadii[numberOfStillObstacles] = radius;
+        numberOfStillObstacles++;
+    }
+
+    // On the map, and no collision within the turn with the obstacles found
+    private boolean isClear(final GameState gameState, final Ship ship, final int angle, final int thrust)
+    {
+        final double startX = ship.getXPos();
+        final double startY = ship.getYPos();
+        final double endX = startX + Trig.dX(angle, thrust);
+        final double endY = startY + Trig.dY(angle, thrust);
+        if ((endX <= 0) || (endX >= gameState.getMapSizeX()) || (endY <= 0) || (endY >= gameState.getMapSizeY()))
+            return false;
+
+        for (int k = 0; k < numberOfMovingObstacles; ++k)
+        {
+            final int other = movingObstacles[k];
+            if (Collision.willCollideClosedForm(startX, startY, angle, thrust, shipXs[other], shipYs[other], angles[other], thrusts[other]))
+                return false;
+        }
+
+        for (int k = 0; k < numberOfStillObstacles; ++k)
+            if (Collision.segmentCircleIntersect(startX, startY, endX, endY, stillXs[k], stillYs[k], stillRadii[k], 0.0))
+                return false;
+
+        return true;
+    }
+
+    // Largest violation of the half planes, 0 inside all of them. Stops once above the bound given.
+    private double violation(final double velocityX, final double velocityY, final double bound)
+    {
+        double violation = 0.0;
+        for (int i = 0; i < numberOfLines; ++i)
+        {
+            final double excess = directionXs[i] * (pointYs[i] - velocityY) - directionYs[i] * (pointXs[i] - velocityX);
+            if (excess > violation)
+            {
+                violation = excess;
+                if (violation > bound)
+                    break;
+            }
+        }
+        return violation;
+    }
+}
@@ -4,6 +4,8 @@ import hlt.*;
 
 import java.util.*;
 
+import static hlt.DebugLog.Level.Debug;
+
 public class ObjectiveManager
 {
     private ArrayList<Objective> objectives;
@@ -357,13 +359,16 @@ public class ObjectiveManager
     private void sortObjectives(final ArrayList<Objective> objectives)  { objectives.sort(Comparator.comparingDouble(Objective::getPriority).reversed()); }
     private void logObjectives()
     {
+        if (!DebugLog.isEnabled(Debug))
+            return;
+
         for(final Objective objective: this.superObjectives)
-            DebugLog.addLog(objective.toString());
+            DebugLog.addLog(Debug, objective.toString());
         for(final Objective objective: this.objectives)
-            DebugLog.addLog(objective.toString());
+            DebugLog.addLog(Debug, objective.toString());
         for(final Objective objective: this.undockObjectives)
-            DebugLog.addLog(objective.toString());
-        DebugLog.addLog("");
+            DebugLog.addLog(Debug, objective.toString());
+        DebugLog.addLog(Debug, "");
     }
     private void removeZeroPriorityObjectives()
     {
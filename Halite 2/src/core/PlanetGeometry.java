@@ -0,0 +1,377 @@
+package core;
+
+import hlt.Planet;
+import hlt.Position;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static hlt.Constants.SHIP_RADIUS;
+
+// Planets never move, so everything geometric about them is computed on the first turn and only again
+// when one of them explodes:
+// - distances between planet centers,
+// - a grid listing the planets touching each cell, so a segment is only tested against the planets along it,
+// - waypoints all around each planet and the visibility graph between them, to route around planets.
+public class PlanetGeometry
+{
+    private static final double CELL_SIZE = 8.0;
+    private static final int WAYPOINTS_PER_PLANET = 12;
+    private static final double ROUTE_CLEARANCE = SHIP_RADIUS + 0.1;
+    private static final double MARGIN = 1e-6;
+
+    private final int width;
+    private final int height;
+
+    // Planets in map order, the index of a planet in these arrays is its rank in that order
+    private final int numberOfPlanets;
+    private final Planet[] planets;
+    private final int[] indexById;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] radii;
+    private final boolean[] alive;
+    private final double[][] distances;
+
+    private final int columns;
+    private final int rows;
+    private int[][] cellPlanets;
+
+    // Candidates of the last box query, in map order
+    private final int[] stamps;
+    private int stamp;
+    private final int[] candidates;
+    private int numberOfCandidates;
+
+    private int numberOfWaypoints;
+    private double[] waypointsX;
+    private double[] waypointsY;
+    private boolean[][] visible;
+
+    public PlanetGeometry(final int width, final int height, final Collection<Planet> planets)
+    {
+        this.width = width;
+        this.height = height;
+
+        this.numberOfPlanets = planets.size();
+        this.planets = planets.toArray(new Planet[0]);
+        this.xs = new double[numberOfPlanets];
+        this.ys = new double[numberOfPlanets];
+        this.radii = new double[numberOfPlanets];
+        this.alive = new boolean[numberOfPlanets];
+
+        int maxId = -1;
+        for (final Planet planet: this.planets)
+            maxId = Math.max(maxId, planet.getId());
+        this.indexById = new int[maxId + 1];
+        Arrays.fill(indexById, -1);
+
+        for (int i = 0; i < numberOfPlanets; ++i)
+        {
+            xs[i] = this.planets[i].getXPos();
+            ys[i] = this.planets[i].getYPos();
+            radii[i] = this.planets[i].getRadius();
+            alive[i] = true;
+            indexById[this.planets[i].getId()] = i;
+        }
+
+        this.distances = new double[numberOfPlanets][numberOfPlanets];
+        for (int i = 0; i < numberOfPlanets; ++i)
+            for (int j = 0; j < numberOfPlanets; ++j)
+                distances[i][j] = Math.sqrt(squaredDistance(xs[i], ys[i], xs[j], ys[j]));
+
+        this.columns = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+        this.rows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+        this.stamps = new int[numberOfPlanets];
+        this.stamp = 0;
+        this.candidates = new int[numberOfPlanets];
+
+        rebuild();
+    }
+
+    // False if a planet on the map is unknown or has moved, which no real game does but synthetic maps can
+    public boolean isLayoutOf(final Collection<Planet> planetsOnMap)
+    {
+        for (final Planet planet: planetsOnMap)
+        {
+            final int index = (planet.getId() < indexById.length)? indexById[planet.getId()] : -1;
+            if ((index == -1) || (xs[index] != planet.getXPos()) || (ys[index] != planet.getYPos()) || (radii[index] != planet.getRadius()))
+                return false;
+        }
+
+        return true;
+    }
+
+    // Called every turn with the planets on the map: keeps the current planet objects and drops the dead ones.
+    public void update(final Collection<Planet> planetsOnMap)
+    {
+        boolean[] seen = new boolean[numberOfPlanets];
+        for (final Planet planet: planetsOnMap)
+        {
+            final int index = (planet.getId() < indexById.length)? indexById[planet.getId()] : -1;
+            if (index == -1)
+                continue;
+
+            planets[index] = planet;
+            seen[index] = true;
+        }
+
+        boolean hasChanged = false;
+        for (int i = 0; i < numberOfPlanets; ++i)
+        {
+            if (alive[i] && !seen[i])
+            {
+                alive[i] = false;
+                hasChanged = true;
+            }
+        }
+
+        if (hasChanged)
+            rebuild();
+    }
+
+    public boolean isAlive(final int planetId) { return alive[indexById[planetId]]; }
+    public double getDistanceBetweenPlanets(final int planetId1, final int planetId2) { return distances[indexById[planetId1]][indexById[planetId2]]; }
+    public int getNumberOfWaypoints() { return numberOfWaypoints; }
+
+    // Planets alive that may touch the box, in map order. Only valid until the next query.
+    public int queryBox(final double minX, final double minY, final double maxX, final double maxY)
+    {
+        numberOfCandidates = 0;
+        if (++stamp == Integer.MAX_VALUE)
+        {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+
+        for (int row = row(minY - MARGIN); row <= row(maxY + MARGIN); ++row)
+        {
+            for (int column = column(minX - MARGIN); column <= column(maxX + MARGIN); ++column)
+            {
+                for (final int index: cellPlanets[row * columns + column])
+                {
+                    if (stamps[index] != stamp)
+                    {
+                        stamps[index] = stamp;
+                        candidates[numberOfCandidates++] = index;
+                    }
+                }
+            }
+        }
+
+        Arrays.sort(candidates, 0, numberOfCandidates);
+        return numberOfCandidates;
+    }
+
+    public Planet getCandidate(final int rank) { return planets[candidates[rank]]; }
+
+    // First point to head for on the way to the target: the target itself if no planet is in the way,
+    // otherwise the first waypoint of the shortest path through the visibility graph. The target if no path exists.
+    // A planet the target is on, as when docking, is the destination and not an obstacle, like in navigation,
+    // and a ship leaving the planet it is docked on is not blocked by it either.
+    public Position route(final Position start, final Position target)
+    {
+        final double startX = start.getXPos();
+        final double startY = start.getYPos();
+        final double targetX = target.getXPos();
+        final double targetY = target.getYPos();
+
+        final int startPlanet = planetAt(startX, startY);
+        final int targetPlanet = planetAt(targetX, targetY);
+        if (isClear(startX, startY, targetX, targetY, startPlanet, targetPlanet))
+            return target;
+
+        // Dijkstra on a dense graph of a few hundred nodes, arrays are simpler than a heap
+        final double[] costs = new double[numberOfWaypoints];
+        final int[] firstHops = new int[numberOfWaypoints];
+        final boolean[] done = new boolean[numberOfWaypoints];
+        for (int i = 0; i < numberOfWaypoints; ++i)
+        {
+            costs[i] = isClear(startX, startY, waypointsX[i], waypointsY[i], startPlanet, -1)? Math.sqrt(squaredDistance(startX, startY, waypointsX[i], waypointsY[i])) : Double.MAX_VALUE;
+            firstHops[i] = i;
+        }
+
+        double bestCost = Double.MAX_VALUE;
+        int bestFirstHop = -1;
+
+        while (true)
+        {
+            int current = -1;
+            for (int i = 0; i < numberOfWaypoints; ++i)
+                if (!done[i] && (costs[i] < Double.MAX_VALUE) && ((current == -1) || (costs[i] < costs[current])))
+                    current = i;
+
+            if ((current == -1) || (costs[current] >= bestCost))
+                break;
+            done[current] = true;
+
+            if (isClear(waypointsX[current], waypointsY[current], targetX, targetY, targetPlanet, -1))
+            {
+                final double cost = costs[current] + Math.sqrt(squaredDistance(waypointsX[current], waypointsY[current], targetX, targetY));
+                if (cost < bestCost)
+                {
+                    bestCost = cost;
+                    bestFirstHop = firstHops[current];
+                }
+            }
+
+            for (int next = 0; next < numberOfWaypoints; ++next)
+            {
+                if (done[next] || !visible[current][next])
+                    continue;
+
+                final double cost = costs[current] + Math.sqrt(squaredDistance(waypointsX[current], waypointsY[current], waypointsX[next], waypointsY[next]));
+                if (cost < costs[next])
+                {
+                    costs[next] = cost;
+                    firstHops[next] = firstHops[current];
+                }
+            }
+        }
+
+        return (bestFirstHop == -1)? target : new Position(waypointsX[bestFirstHop], waypointsY[bestFirstHop]);
+    }
+
+    private void rebuild()
+    {
+        buildGrid();
+        buildWaypoints();
+        buildVisibilityGraph();
+    }
+
+    private void buildGrid()
+    {
+        final int[] counts = new int[columns * rows];
+        for (int pass = 0; pass < 2; ++pass)
+        {
+            if (pass == 1)
+            {
+                cellPlanets = new int[columns * rows][];
+                for (int cell = 0; cell < counts.length; ++cell)
+                    cellPlanets[cell] = new int[counts[cell]];
+                Arrays.fill(counts, 0);
+            }
+
+            for (int i = 0; i < numberOfPlanets; ++i)
+            {
+                if (!alive[i])
+                    continue;
+
+                for (int row = row(ys[i] - radii[i]); row <= row(ys[i] + radii[i]); ++row)
+                {
+                    for (int column = column(xs[i] - radii[i]); column <= column(xs[i] + radii[i]); ++column)
+                    {
+                        final int cell = row * columns + column;
+                        if (pass == 1)
+                            cellPlanets[cell][counts[cell]] = i;
+                        counts[cell]++;
+                    }
+                }
+            }
+        }
+    }
+
+    // Regular polygons around the planets, far enough that the sides between consecutive waypoints clear them
+    private void buildWaypoints()
+    {
+        waypointsX = new double[numberOfPlanets * WAYPOINTS_PER_PLANET];
+        waypointsY = new double[numberOfPlanets * WAYPOINTS_PER_PLANET];
+        numberOfWaypoints = 0;
+
+        for (int i = 0; i < numberOfPlanets; ++i)
+        {
+            if (!alive[i])
+                continue;
+
+            final double distance = (radii[i] + ROUTE_CLEARANCE) / Math.cos(Math.PI / WAYPOINTS_PER_PLANET) + 0.1;
+            for (int k = 0; k < WAYPOINTS_PER_PLANET; ++k)
+            {
+                final double angle = 2 * Math.PI * k / WAYPOINTS_PER_PLANET;
+                final double x = xs[i] + distance * Math.cos(angle);
+                final double y = ys[i] + distance * Math.sin(angle);
+
+                if ((x < ROUTE_CLEARANCE) || (x > width - ROUTE_CLEARANCE) || (y < ROUTE_CLEARANCE) || (y > height - ROUTE_CLEARANCE))
+                    continue;
+                if (isInsidePlanet(x, y))
+                    continue;
+
+                waypointsX[numberOfWaypoints] = x;
+                waypointsY[numberOfWaypoints] = y;
+                numberOfWaypoints++;
+            }
+        }
+    }
+
+    private void buildVisibilityGraph()
+    {
+        visible = new boolean[numberOfWaypoints][numberOfWaypoints];
+        for (int i = 0; i < numberOfWaypoints; ++i)
+        {
+            for (int j = i + 1; j < numberOfWaypoints; ++j)
+            {
+                final boolean isVisible = isClear(waypointsX[i], waypointsY[i], waypointsX[j], waypointsY[j], -1, -1);
+                visible[i][j] = isVisible;
+                visible[j][i] = isVisible;
+            }
+        }
+    }
+
+    private boolean isInsidePlanet(final double x, final double y)
+    {
+        return planetAt(x, y) != -1;
+    }
+
+    private int planetAt(final double x, final double y)
+    {
+        for (int i = 0; i < numberOfPlanets; ++i)
+        {
+            final double clearance = radii[i] + ROUTE_CLEARANCE;
+            if (alive[i] && (squaredDistance(x, y, xs[i], ys[i]) < clearance * clearance))
+                return i;
+        }
+
+        return -1;
+    }
+
+    private boolean isClear(final double startX, final double startY, final double endX, final double endY, final int ignoredPlanet1, final int ignoredPlanet2)
+    {
+        final int numberFound = queryBox(Math.min(startX, endX) - ROUTE_CLEARANCE, Math.min(startY, endY) - ROUTE_CLEARANCE,
+                Math.max(startX, endX) + ROUTE_CLEARANCE, Math.max(startY, endY) + ROUTE_CLEARANCE);
+
+        final double dx = endX - startX;
+        final double dy = endY - startY;
+        final double squaredLength = dx * dx + dy * dy;
+
+        for (int k = 0; k < numberFound; ++k)
+        {
+            final int i = candidates[k];
+            if ((i == ignoredPlanet1) || (i == ignoredPlanet2))
+                continue;
+
+            final double t = (squaredLength == 0)? 0 : Math.max(0, Math.min(1, ((xs[i] - startX) * dx + (ys[i] - startY) * dy) / squaredLength));
+            final double clearance = radii[i] + ROUTE_CLEARANCE;
+            if (squaredDistance(startX + t * dx, startY + t * dy, xs[i], ys[i]) < clearance * clearance)
+                return false;
+        }
+
+        return true;
+    }
+
+    // Positions off the map go to the border cells
+    private int column(final double x)
+    {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor(x / CELL_SIZE)));
+    }
+
+    private int row(final double y)
+    {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / CELL_SIZE)));
+    }
+
+    private static double squaredDistance(final double x1, final double y1, final double x2, final double y2)
+    {
+        final double dx = x1 - x2;
+        final double dy = y1 - y2;
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,300 @@
+package core;
+
+import hlt.Ship;
+
+import java.util.Arrays;
+
+import static hlt.Constants.WEAPON_RADIUS;
+
+// Uniform grid over the map, one cell per weapon radius, rebuilt every turn. Entries are numbered in the
+// order they are added and queries return them in that order, so a caller walking the candidates sees
+// the ships in the same order as a scan of the list they came from. Removed entries keep their number.
+public class SpatialHash
+{
+    public interface Metric
+    {
+        // Double.MAX_VALUE for entries that do not qualify
+        double distanceTo(int entry);
+    }
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final double CELL_SIZE = WEAPON_RADIUS;
+    private static final double QUERY_MARGIN = 1e-6;
+
+    private int columns;
+    private int rows;
+    private int[] cellHeads;
+
+    private int size;
+    private Ship[] ships;
+    private double[] xs;
+    private double[] ys;
+    private int[] owners;
+    private boolean[] undocked;
+    private boolean[] removed;
+    private int[] next;
+
+    private int[] found;
+    private int numberFound;
+
+    public SpatialHash()
+    {
+        this.columns = 0;
+        this.rows = 0;
+        this.cellHeads = new int[0];
+
+        this.ships = new Ship[INITIAL_CAPACITY];
+        this.xs = new double[INITIAL_CAPACITY];
+        this.ys = new double[INITIAL_CAPACITY];
+        this.owners = new int[INITIAL_CAPACITY];
+        this.undocked = new boolean[INITIAL_CAPACITY];
+        this.removed = new boolean[INITIAL_CAPACITY];
+        this.next = new int[INITIAL_CAPACITY];
+        this.found = new int[INITIAL_CAPACITY];
+    }
+
+    public int size() { return size; }
+    public Ship getShip(final int entry) { return ships[entry]; }
+    public int getOwner(final int entry) { return owners[entry]; }
+    public boolean isUndocked(final int entry) { return undocked[entry]; }
+    public boolean isRemoved(final int entry) { return removed[entry]; }
+
+    // Entries found by the last query, in the order they were added. Only valid until the next query.
+    public int getNumberFound() { return numberFound; }
+    public int getFound(final int index) { return found[index]; }
+
+    public void clear(final int width, final int height)
+    {
+        this.columns = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+        this.rows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+        if (cellHeads.length < columns * rows)
+            this.cellHeads = new int[columns * rows];
+        Arrays.fill(cellHeads, 0, columns * rows, -1);
+
+        Arrays.fill(ships, 0, size, null);
+        this.size = 0;
+        this.numberFound = 0;
+    }
+
+    public int add(final Ship ship)
+    {
+        return add(ship, ship.getXPos(), ship.getYPos(), ship.getOwner(), ship.isUndocked());
+    }
+
+    public int add(final Ship ship, final double x, final double y, final int owner, final boolean isUndocked)
+    {
+        ensureCapacity(size + 1);
+
+        final int entry = size++;
+        final int cell = cellIndex(column(x), row(y));
+
+        ships[entry] = ship;
+        xs[entry] = x;
+        ys[entry] = y;
+        owners[entry] = owner;
+        undocked[entry] = isUndocked;
+        removed[entry] = false;
+        next[entry] = cellHeads[cell];
+        cellHeads[cell] = entry;
+
+        return entry;
+    }
+
+    // Removes the entry holding this very ship, found in the cell of the position it was added at.
+    public void remove(final Ship ship)
+    {
+        for (int entry = cellHeads[cellIndex(column(ship.getXPos()), row(ship.getYPos()))]; entry != -1; entry = next[entry])
+        {
+            if ((ships[entry] == ship) && !removed[entry])
+            {
+                removed[entry] = true;
+                return;
+            }
+        }
+
+        throw new IllegalStateException("Ship " + ship.getId() + " is not in the spatial hash.");
+    }
+
+    // Every entry closer than the radius, and possibly a few more: callers apply their exact test on the candidates.
+    public int query(final double x, final double y, final double radius)
+    {
+        numberFound = 0;
+
+        final double reach = Math.max(0, radius) + QUERY_MARGIN;
+        final int minColumn = column(x - reach);
+        final int maxColumn = column(x + reach);
+        final int minRow = row(y - reach);
+        final int maxRow = row(y + reach);
+
+        // With few ships for the area, walking the entries beats walking the cells
+        if ((maxColumn - minColumn + 1) * (maxRow - minRow + 1) > size)
+        {
+            for (int entry = 0; entry < size; ++entry)
+                if (!removed[entry] && isWithin(entry, x, y, reach))
+                    found[numberFound++] = entry;
+            return numberFound;
+        }
+
+        for (int row = minRow; row <= maxRow; ++row)
+        {
+            for (int column = minColumn; column <= maxColumn; ++column)
+            {
+                for (int entry = cellHeads[cellIndex(column, row)]; entry != -1; entry = next[entry])
+                {
+                    if (!removed[entry] && isWithin(entry, x, y, reach))
+                        found[numberFound++] = entry;
+                }
+            }
+        }
+
+        Arrays.sort(found, 0, numberFound);
+        return numberFound;
+    }
+
+    // Every entry inside the box, bounds included, in the order they were added
+    public int queryBox(final double minX, final double minY, final double maxX, final double maxY)
+    {
+        numberFound = 0;
+
+        final int minColumn = column(minX - QUERY_MARGIN);
+        final int maxColumn = column(maxX + QUERY_MARGIN);
+        final int minRow = row(minY - QUERY_MARGIN);
+        final int maxRow = row(maxY + QUERY_MARGIN);
+
+        if ((maxColumn - minColumn + 1) * (maxRow - minRow + 1) > size)
+        {
+            for (int entry = 0; entry < size; ++entry)
+                if (!removed[entry] && isInBox(entry, minX, minY, maxX, maxY))
+                    found[numberFound++] = entry;
+            return numberFound;
+        }
+
+        for (int row = minRow; row <= maxRow; ++row)
+            for (int column = minColumn; column <= maxColumn; ++column)
+                for (int entry = cellHeads[cellIndex(column, row)]; entry != -1; entry = next[entry])
+                    if (!removed[entry] && isInBox(entry, minX, minY, maxX, maxY))
+                        found[numberFound++] = entry;
+
+        Arrays.sort(found, 0, numberFound);
+        return numberFound;
+    }
+
+    // Entry with the smallest distance, the first one added on ties, -1 if none qualifies. Cells are searched
+    // in growing rings around the position until no unvisited cell can hold anything closer, or until more
+    // cells were visited than there are entries, in which case a plain scan of the entries is cheaper.
+    public int nearest(final double x, final double y, final Metric metric)
+    {
+        final int centerColumn = column(x);
+        final int centerRow = row(y);
+        final int maxRing = Math.max(Math.max(centerColumn, columns - 1 - centerColumn), Math.max(centerRow, rows - 1 - centerRow));
+
+        int bestEntry = -1;
+        double bestDistance = Double.MAX_VALUE;
+        int visitedCells = 0;
+
+        for (int ring = 0; ring <= maxRing; ++ring)
+        {
+            // Anything outside the rings seen so far is more than (ring - 1) * CELL_SIZE away
+            if (bestDistance < (ring - 1) * CELL_SIZE - QUERY_MARGIN)
+                break;
+
+            for (int row = centerRow - ring; row <= centerRow + ring; ++row)
+            {
+                if ((row < 0) || (row >= rows))
+                    continue;
+
+                final boolean isEdgeRow = (row == centerRow - ring) || (row == centerRow + ring);
+                final int step = isEdgeRow? 1 : 2 * ring;
+
+                for (int column = centerColumn - ring; column <= centerColumn + ring; column += Math.max(1, step))
+                {
+                    if ((column < 0) || (column >= columns))
+                        continue;
+
+                    if (++visitedCells > size)
+                        return nearestByScan(metric);
+
+                    for (int entry = cellHeads[cellIndex(column, row)]; entry != -1; entry = next[entry])
+                    {
+                        if (removed[entry])
+                            continue;
+
+                        final double distance = metric.distanceTo(entry);
+                        if ((distance < bestDistance) || ((distance == bestDistance) && (distance < Double.MAX_VALUE) && (entry < bestEntry)))
+                        {
+                            bestDistance = distance;
+                            bestEntry = entry;
+                        }
+                    }
+                }
+            }
+        }
+
+        return bestEntry;
+    }
+
+    private int nearestByScan(final Metric metric)
+    {
+        int bestEntry = -1;
+        double bestDistance = Double.MAX_VALUE;
+
+        for (int entry = 0; entry < size; ++entry)
+        {
+            if (removed[entry])
+                continue;
+
+            final double distance = metric.distanceTo(entry);
+            if (distance < bestDistance)
+            {
+                bestDistance = distance;
+                bestEntry = entry;
+            }
+        }
+
+        return bestEntry;
+    }
+
+    private boolean isInBox(final int entry, final double minX, final double minY, final double maxX, final double maxY)
+    {
+        return (xs[entry] >= minX - QUERY_MARGIN) && (xs[entry] <= maxX + QUERY_MARGIN) && (ys[entry] >= minY - QUERY_MARGIN) && (ys[entry] <= maxY + QUERY_MARGIN);
+    }
+
+    private boolean isWithin(final int entry, final double x, final double y, final double reach)
+    {
+        final double dx = xs[entry] - x;
+        final double dy = ys[entry] - y;
+        return dx * dx + dy * dy <= reach * reach;
+    }
+
+    // Positions off the map go to the border cells, which keeps the candidates of a query a superset of the answer
+    private int column(final double x)
+    {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor(x / CELL_SIZE)));
+    }
+
+    private int row(final double y)
+    {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / CELL_SIZE)));
+    }
+
+    private int cellIndex(final int column, final int row)
+    {
+        return row * columns + column;
+    }
+
+    private void ensureCapacity(final int capacity)
+    {
+        if (capacity <= ships.length)
+            return;
+
+        final int newLength = Math.max(ships.length * 2, capacity);
+        ships = Arrays.copyOf(ships, newLength);
+        xs = Arrays.copyOf(xs, newLength);
+        ys = Arrays.copyOf(ys, newLength);
+        owners = Arrays.copyOf(owners, newLength);
+        undocked = Arrays.copyOf(undocked, newLength);
+        removed = Arrays.copyOf(removed, newLength);
+        next = Arrays.copyOf(next, newLength);
+        found = Arrays.copyOf(found, newLength);
+    }
+}
@@ -1,39 +1,213 @@
 package core;
 
 import hlt.DebugLog;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+
+import java.util.Map;
+
+import static hlt.DebugLog.Level.Info;
+import static hlt.DebugLog.Level.Trace;
 
 public class Timer
 {
-    private final LocalDateTime startTime;
-    private final LocalDateTime currentTime;
-    private LocalDateTime currentTurnStartTime;
-    private final double warmupTime = 30000; // in milliseconds
-    private final double turnTime = 2000; // in milliseconds
+    // Steps of a turn, in the order they run
+    public enum Phase
+    {
+        Distance,
+        Objective,
+        Fleet,
+        Combat,
+        Navigation
+    }
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final double turnTime = 2000; // in milliseconds, allowed by the engine
+    private double turnBudget = 1800; // in milliseconds, the rest is kept for output and GC pauses
+    private final double[] phaseBudgets = {100, 200, 200, 100, 1200}; // in milliseconds, by phase
+    private double combatSearchBudget = 800; // in milliseconds, for all the combat searches, run within the navigation phase
+
+    private long currentTurnStartTime;
+    private long turnDeadline;
+    private Phase currentPhase;
+    private long phaseDeadline;
+    private boolean running;
+    private volatile boolean stopped;
+    private int stoppedPhases;
+
+    // Combat searches run from navigation on a deadline of their own, so that a search running out of time does
+    // not stop the navigation of the ships moved after it. The budget is for all the searches of the turn.
+    private boolean searching;
+    private long combatSearchStart;
+    private long combatSearchDeadline;
+    private long combatSearchSpent;
+    private volatile boolean searchStopped;
+    private boolean searchStoppedInTurn;
 
     public Timer()
     {
-        this.startTime = LocalDateTime.now();
-        this.currentTime = startTime;
+        this.currentTurnStartTime = System.nanoTime();
+        this.running = false;
+        this.stopped = false;
+    }
+
+    // Budgets can be overridden in the game definitions: "turnBudget", "distanceBudget", "combatBudget", ...,
+    // and "combatSearchBudget"
+    public void setBudgets(final Map<String,Object> gameDefinitions)
+    {
+        this.turnBudget = (double) gameDefinitions.getOrDefault("turnBudget", turnBudget);
+        this.combatSearchBudget = (double) gameDefinitions.getOrDefault("combatSearchBudget", combatSearchBudget);
+        for (final Phase phase: Phase.values())
+            phaseBudgets[phase.ordinal()] = (double) gameDefinitions.getOrDefault(budgetName(phase), phaseBudgets[phase.ordinal()]);
+    }
+
+    // Called as soon as the engine line is received, everything after counts against the turn.
+    public void startTurn()
+    {
+        this.currentTurnStartTime = System.nanoTime();
+        this.turnDeadline = currentTurnStartTime + (long) (turnBudget * NANOS_PER_MILLI);
+        this.currentPhase = null;
+        this.phaseDeadline = turnDeadline;
+        this.running = true;
+        this.stopped = false;
+        this.stoppedPhases = 0;
+        this.searching = false;
+        this.combatSearchSpent = 0;
+        this.searchStopped = false;
+        this.searchStoppedInTurn = false;
+    }
+
+    // A phase gets its own budget but never goes past the turn deadline.
+    public void startPhase(final Phase phase)
+    {
+        endPhase();
+
+        if (!running)
+            return;
+
+        final long now = System.nanoTime();
+        this.currentPhase = phase;
+        this.phaseDeadline = now + (long) (phaseBudgets[phase.ordinal()] * NANOS_PER_MILLI);
+        if (phaseDeadline - turnDeadline > 0)
+            this.phaseDeadline = turnDeadline;
+        this.stopped = false;
+    }
+
+    public void endTurn()
+    {
+        endPhase();
+
+        if (running && ((stoppedPhases != 0) || searchStoppedInTurn))
+        {
+            final StringBuilder phases = new StringBuilder();
+            for (final Phase phase: Phase.values())
+                if ((stoppedPhases & (1 << phase.ordinal())) != 0)
+                    phases.append(' ').append(phase);
+            if (searchStoppedInTurn)
+                phases.append(" CombatSearch");
+            DebugLog.addLog(Info, "Turn cut short after " + String.format("%.1f", getCurrentTurnElapsedTime()) + "ms, phases stopped:" + phases);
+        }
+
+        this.running = false;
+    }
+
+    // Starts the time counted against the combat search budget, which never goes past the phase deadline
+    public void startCombatSearch()
+    {
+        if (!running)
+            return;
+
+        final long now = System.nanoTime();
+        this.searching = true;
+        this.combatSearchStart = now;
+        this.combatSearchDeadline = now + (long) (combatSearchBudget * NANOS_PER_MILLI) - combatSearchSpent;
+        if (combatSearchDeadline - phaseDeadline > 0)
+            this.combatSearchDeadline = phaseDeadline;
+        this.searchStopped = false;
+    }
+
+    public void endCombatSearch()
+    {
+        if (!running || !searching)
+            return;
+
+        this.combatSearchSpent += System.nanoTime() - combatSearchStart;
+        if (searchStopped)
+            this.searchStoppedInTurn = true;
+        this.searching = false;
+        this.searchStopped = false;
+    }
+
+    // Polled by the combat searches, and by the threads of a parallel one: once true it stays true until the
+    // search ends, so a search unwinding after the deadline does not start exploring again.
+    public boolean shouldStopSearch()
+    {
+        if (searchStopped)
+            return true;
+        if (!running || !searching)
+            return false;
+
+        if (System.nanoTime() - combatSearchDeadline >= 0)
+        {
+            searchStopped = true;
+            if (DebugLog.isEnabled(Trace))
+                DebugLog.addLog(Trace, "Deadline reached in combat search");
+        }
+
+        return searchStopped;
     }
 
-    public void setCurrentTurnStartTime()
+    // Polled by the phases: once true it stays true until the next phase, so a loop
+    // running out of time does not start again.
+    public boolean shouldStop()
     {
-        currentTurnStartTime = LocalDateTime.now();
+        if (stopped)
+            return true;
+        if (!running)
+            return false;
+
+        if (System.nanoTime() - phaseDeadline >= 0)
+        {
+            stopped = true;
+            if (DebugLog.isEnabled(Trace))
+                DebugLog.addLog(Trace, "Deadline reached in phase " + currentPhase);
+        }
+
+        return stopped;
     }
 
     public double getCurrentTurnElapsedTime()
     {
-        double currentTurnElapsedTime = currentTurnStartTime.until(LocalDateTime.now(), ChronoUnit.MILLIS);
-        DebugLog.addLog(Double.toString(currentTurnElapsedTime));
+        double currentTurnElapsedTime = (System.nanoTime() - currentTurnStartTime) / (double) NANOS_PER_MILLI;
+        if (DebugLog.isEnabled(Trace))
+            DebugLog.addLog(Trace, Double.toString(currentTurnElapsedTime));
         return currentTurnElapsedTime;
     }
 
+    public double getCurrentTurnRemainingTime()
+    {
+        return (turnDeadline - System.nanoTime()) / (double) NANOS_PER_MILLI;
+    }
+
     public boolean timeToEndTurn()
     {
         return getCurrentTurnElapsedTime() > getTurnTime() - Config.timeEpsilon;
     }
 
+    public Phase getCurrentPhase() { return currentPhase; }
     public double getTurnTime() { return turnTime; }
-}
\ No newline at end of file
+    public double getTurnBudget() { return turnBudget; }
+    public double getPhaseBudget(final Phase phase) { return phaseBudgets[phase.ordinal()]; }
+    public double getCombatSearchBudget() { return combatSearchBudget; }
+
+    private void endPhase()
+    {
+        if (stopped && (currentPhase != null))
+            stoppedPhases |= 1 << currentPhase.ordinal();
+        this.stopped = false;
+    }
+
+    private static String budgetName(final Phase phase)
+    {
+        return Character.toLowerCase(phase.name().charAt(0)) + phase.name().substring(1) + "Budget";
+    }
+}
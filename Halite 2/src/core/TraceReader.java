@@ -0,0 +1,374 @@
+package core;
+
+import hlt.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static core.TraceWriter.*;
+
+public class TraceReader
+{
+    public static class ObjectiveRecord
+    {
+        private final int id;
+        private final Objective.OrderType orderType;
+        private final int targetType;
+        private final int targetId;
+        private final double priority;
+        private final int requiredShips;
+        private final boolean superObjective;
+
+        ObjectiveRecord(final int id, final Objective.OrderType orderType, final int targetType, final int targetId, final double priority, final int requiredShips, final boolean superObjective)
+        {
+            this.id = id;
+            this.orderType = orderType;
+            this.targetType = targetType;
+            this.targetId = targetId;
+            this.priority = priority;
+            this.requiredShips = requiredShips;
+            this.superObjective = superObjective;
+        }
+
+        public int getId() { return id; }
+        public Objective.OrderType getOrderType() { return orderType; }
+        public boolean isTargetPlanet() { return targetType == TARGET_PLANET; }
+        public int getTargetId() { return targetId; }
+        public double getPriority() { return priority; }
+        public int getRequiredShips() { return requiredShips; }
+        public boolean isSuperObjective() { return superObjective; }
+
+        @Override
+        public String toString()
+        {
+            return "Objective" + id + "[order=" + orderType + ", target=" + (isTargetPlanet()? "Planet" : "") + targetId + ", pri=" + String.format("%.2f", priority) + "]";
+        }
+    }
+
+    // A fleet or a combat operation: the ships and fleets sent after one objective
+    public static class AssignmentRecord
+    {
+        private final int id;
+        private final int objectiveId;
+        private final int[] shipIds;
+        private final int[] fleetIds;
+
+        AssignmentRecord(final int id, final int objectiveId, final int[] shipIds, final int[] fleetIds)
+        {
+            this.id = id;
+            this.objectiveId = objectiveId;
+            this.shipIds = shipIds;
+            this.fleetIds = fleetIds;
+        }
+
+        public int getId() { return id; }
+        public int getObjectiveId() { return objectiveId; }
+        public int[] getShipIds() { return shipIds; }
+        public int[] getFleetIds() { return fleetIds; }
+
+        @Override
+        public String toString() { return id + "[objective=" + objectiveId + ", ships=" + Arrays.toString(shipIds) + ", fleets=" + Arrays.toString(fleetIds) + "]"; }
+    }
+
+    public static class Turn
+    {
+        private final int turn;
+        private final ArrayList<ObjectiveRecord> objectives = new ArrayList<>();
+        private final ArrayList<AssignmentRecord> ships = new ArrayList<>();
+        private final ArrayList<AssignmentRecord> fleets = new ArrayList<>();
+        private final ArrayList<AssignmentRecord> combatOperations = new ArrayList<>();
+        private final ArrayList<String> moves = new ArrayList<>();
+
+        Turn(final int turn) { this.turn = turn; }
+
+        public int getTurn() { return turn; }
+        public ArrayList<ObjectiveRecord> getObjectives() { return objectives; }
+        public ArrayList<AssignmentRecord> getShips() { return ships; }
+        public ArrayList<AssignmentRecord> getFleets() { return fleets; }
+        public ArrayList<AssignmentRecord> getCombatOperations() { return combatOperations; }
+        // In the format sent to the engine
+        public ArrayList<String> getMoves() { return moves; }
+    }
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final MappedByteBuffer file;
+    private final int width;
+    private final int height;
+    private final int myId;
+    private final ArrayList<Integer> recordOffsets;
+
+    // Maps are rebuilt as engine lines, so they go through the exact same parsing as in game.
+    private final OutputWriter line;
+    private InputTokenizer tokenizer;
+    private final long[] previousUnits = new long[3];
+
+    public TraceReader(final String fileName) throws IOException
+    {
+        try (final FileChannel channel = FileChannel.open(Paths.get(fileName)))
+        {
+            this.file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if ((file.getInt() != MAGIC) || (file.getInt() != VERSION))
+            throw new IllegalStateException("Not a trace file: " + fileName);
+
+        this.width = file.getInt();
+        this.height = file.getInt();
+        this.myId = file.getInt();
+
+        this.recordOffsets = new ArrayList<>();
+        while (file.remaining() >= 4)
+        {
+            final int length = file.getInt();
+            if (length == 0)
+                break;
+
+            recordOffsets.add(file.position());
+            file.position(file.position() + length);
+        }
+
+        this.line = new OutputWriter(null);
+    }
+
+    public int getNumberOfTurns() { return recordOffsets.size(); }
+    public int getMyId() { return myId; }
+
+    public GameMap readGameMap(final int index)
+    {
+        final GameMap gameMap = new GameMap(width, height, myId);
+        readGameMap(index, gameMap);
+        return gameMap;
+    }
+
+    public void readGameMap(final int index, final GameMap gameMap)
+    {
+        final ByteBuffer record = record(index);
+        readVarint(record);
+
+        line.clear();
+        Arrays.fill(previousUnits, 0);
+
+        final int numberOfPlayers = readVarint(record);
+        line.writeInt(numberOfPlayers).writeChar(' ');
+        for (int i = 0; i < numberOfPlayers; ++i)
+        {
+            final int playerId = readVarint(record);
+            final int numberOfShips = readVarint(record);
+            line.writeInt(playerId).writeChar(' ').writeInt(numberOfShips).writeChar(' ');
+
+            int shipId = 0;
+            for (int j = 0; j < numberOfShips; ++j)
+            {
+                shipId += readSigned(record);
+                line.writeInt(shipId).writeChar(' ');
+                readPosition(record, X);
+                readPosition(record, Y);
+                line.writeInt(readVarint(record)).writeString(" 0.0000 0.0000 ");
+                line.writeInt(readVarint(record)).writeChar(' ');
+                line.writeInt(readSigned(record)).writeChar(' ');
+                line.writeInt(readVarint(record)).writeChar(' ');
+                line.writeInt(readVarint(record)).writeChar(' ');
+            }
+        }
+
+        Arrays.fill(previousUnits, 0);
+        final int numberOfPlanets = readVarint(record);
+        line.writeInt(numberOfPlanets).writeChar(' ');
+        for (int i = 0; i < numberOfPlanets; ++i)
+        {
+            line.writeInt(readVarint(record)).writeChar(' ');
+            readPosition(record, X);
+            readPosition(record, Y);
+            line.writeInt(readVarint(record)).writeChar(' ');
+            readPosition(record, RADIUS);
+            line.writeInt(readVarint(record)).writeChar(' ');
+            line.writeInt(readVarint(record)).writeChar(' ');
+            line.writeInt(readVarint(record)).writeChar(' ');
+
+            final int owner = readSigned(record);
+            if (owner == -1)
+                line.writeString("0 0 ");
+            else
+                line.writeString("1 ").writeInt(owner).writeChar(' ');
+
+            final int numberOfDockedShips = readVarint(record);
+            line.writeInt(numberOfDockedShips).writeChar(' ');
+            for (int j = 0; j < numberOfDockedShips; ++j)
+                line.writeInt(readVarint(record)).writeChar(' ');
+        }
+        line.writeChar('\n');
+
+        if (tokenizer == null)
+            tokenizer = new InputTokenizer(line.getBuffer());
+        tokenizer.reset(line.getBuffer(), line.size());
+        gameMap.updateMap(tokenizer);
+    }
+
+    public Turn readTurn(final int index)
+    {
+        final ByteBuffer record = record(index);
+        final Turn turn = new Turn(readVarint(record));
+
+        skipGameMap(record);
+
+        for (int list = 0; list < 3; ++list)
+        {
+            final int numberOfObjectives = readVarint(record);
+            for (int i = 0; i < numberOfObjectives; ++i)
+            {
+                final int id = readSigned(record);
+                final Objective.OrderType orderType = Objective.OrderType.values()[readVarint(record)];
+                final int targetType = readVarint(record);
+                final int targetId = readSigned(record);
+                final double priority = record.getDouble();
+                final int requiredShips = readSigned(record);
+                final int flags = readVarint(record);
+                turn.objectives.add(new ObjectiveRecord(id, orderType, targetType, targetId, priority, requiredShips, (flags & 1) != 0));
+            }
+        }
+
+        final int numberOfShips = readVarint(record);
+        for (int i = 0; i < numberOfShips; ++i)
+        {
+            final int shipId = readVarint(record);
+            turn.ships.add(new AssignmentRecord(shipId, readSigned(record), new int[]{shipId}, NO_IDS));
+        }
+
+        final int numberOfFleets = readVarint(record);
+        for (int i = 0; i < numberOfFleets; ++i)
+            turn.fleets.add(new AssignmentRecord(readVarint(record), readSigned(record), readIds(record), NO_IDS));
+
+        final int numberOfCombatOperations = readVarint(record);
+        for (int i = 0; i < numberOfCombatOperations; ++i)
+            turn.combatOperations.add(new AssignmentRecord(readVarint(record), readSigned(record), readIds(record), readIds(record)));
+
+        final int numberOfMoves = readVarint(record);
+        for (int i = 0; i < numberOfMoves; ++i)
+        {
+            final Move.MoveType type = Move.MoveType.values()[record.get()];
+            final int shipId = readVarint(record);
+
+            switch (type)
+            {
+                case Noop:
+                    turn.moves.add("n " + shipId);
+                    break;
+                case Undock:
+                    turn.moves.add("u " + shipId);
+                    break;
+                case Dock:
+                    turn.moves.add("d " + shipId + " " + readVarint(record));
+                    break;
+                case Thrust:
+                    turn.moves.add("t " + shipId + " " + readVarint(record) + " " + readSigned(record));
+                    break;
+            }
+        }
+
+        return turn;
+    }
+
+    private ByteBuffer record(final int index)
+    {
+        final ByteBuffer record = file.duplicate();
+        record.position(recordOffsets.get(index));
+        return record;
+    }
+
+    private void skipGameMap(final ByteBuffer record)
+    {
+        final int numberOfPlayers = readVarint(record);
+        for (int i = 0; i < numberOfPlayers; ++i)
+        {
+            readVarint(record);
+            final int numberOfShips = readVarint(record);
+            for (int j = 0; j < numberOfShips; ++j)
+            {
+                readSigned(record);
+                skipPosition(record);
+                skipPosition(record);
+                for (int k = 0; k < 5; ++k)
+                    readVarLong(record);
+            }
+        }
+
+        final int numberOfPlanets = readVarint(record);
+        for (int i = 0; i < numberOfPlanets; ++i)
+        {
+            readVarint(record);
+            skipPosition(record);
+            skipPosition(record);
+            readVarint(record);
+            skipPosition(record);
+            for (int k = 0; k < 4; ++k)
+                readVarLong(record);
+            readIds(record);
+        }
+    }
+
+    private void readPosition(final ByteBuffer record, final int coordinate)
+    {
+        final long value = readVarLong(record);
+
+        if ((value & 1) != 0)
+        {
+            // Not on the engine grid, written in a format that parses back to the same bits
+            line.writeString(Double.toString(record.getDouble())).writeChar(' ');
+            return;
+        }
+
+        final long units = previousUnits[coordinate] + unzigzag(value >>> 1);
+        previousUnits[coordinate] = units;
+
+        // Written as integer digits and 4 decimals, the tokenizer then computes exactly units / 1e4.
+        final long absoluteUnits = Math.abs(units);
+        final long decimals = absoluteUnits % (long) POSITION_UNIT;
+        if (units < 0)
+            line.writeChar('-');
+        line.writeLong(absoluteUnits / (long) POSITION_UNIT).writeChar('.');
+        for (long threshold = (long) POSITION_UNIT / 10; threshold > 1 && decimals < threshold; threshold /= 10)
+            line.writeChar('0');
+        line.writeLong(decimals).writeChar(' ');
+    }
+
+    private static void skipPosition(final ByteBuffer record)
+    {
+        if ((readVarLong(record) & 1) != 0)
+            record.getDouble();
+    }
+
+    private static int[] readIds(final ByteBuffer record)
+    {
+        final int[] ids = new int[readVarint(record)];
+        for (int i = 0; i < ids.length; ++i)
+            ids[i] = readVarint(record);
+        return ids;
+    }
+
+    private static int readVarint(final ByteBuffer record) { return (int) readVarLong(record); }
+    private static int readSigned(final ByteBuffer record) { return (int) unzigzag(readVarLong(record)); }
+
+    private static long readVarLong(final ByteBuffer record)
+    {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do
+        {
+            b = record.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    private static long unzigzag(final long value) { return (value >>> 1) ^ -(value & 1); }
+}
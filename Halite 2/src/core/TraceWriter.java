@@ -0,0 +1,316 @@
+package core;
+
+import core.CombatManager.CombatOperation;
+import hlt.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.*;
+
+public class TraceWriter
+{
+    /*
+     * File layout: header, then one record per turn appended one after the other.
+     *   header: MAGIC, VERSION, width, height, my id
+     *   record: payload length (4 bytes, 0 marks the end), then the payload
+     * In the payload ids are varints, signed values are zigzag encoded, and positions are
+     * stored in 1e-4 units as the difference with the same coordinate of the previous entity.
+     */
+    static final int MAGIC = 0x48325452;
+    static final int VERSION = 1;
+
+    static final double POSITION_UNIT = 10000.0;
+    static final int TARGET_SHIP = 0;
+    static final int TARGET_PLANET = 1;
+    static final int TARGET_FLEET = 2;
+    static final int TARGET_OTHER = 3;
+
+    static final int X = 0;
+    static final int Y = 1;
+    static final int RADIUS = 2;
+
+    private static final int REGION_SIZE = 1 << 24;
+
+    private final FileChannel channel;
+    private MappedByteBuffer region;
+    private long regionStart;
+
+    private ByteBuffer record;
+    private final long[] previousUnits = new long[3];
+
+    // Returns null if the trace cannot be created, the game goes on without it.
+    public static TraceWriter create(final String fileName, final GameMap gameMap)
+    {
+        try
+        {
+            final TraceWriter traceWriter = new TraceWriter(fileName, gameMap);
+            Runtime.getRuntime().addShutdownHook(new Thread(traceWriter::close));
+            return traceWriter;
+        }
+        catch (IOException e)
+        {
+            DebugLog.addLog(DebugLog.Level.Error, "Cannot create trace " + fileName + ": " + e);
+            return null;
+        }
+    }
+
+    public TraceWriter(final String fileName, final GameMap gameMap) throws IOException
+    {
+        this.channel = FileChannel.open(Paths.get(fileName), CREATE, TRUNCATE_EXISTING, READ, WRITE);
+        this.regionStart = 0;
+        this.region = channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_SIZE);
+        this.record = ByteBuffer.allocate(1 << 16);
+
+        this.region.putInt(MAGIC);
+        this.region.putInt(VERSION);
+        this.region.putInt(gameMap.getWidth());
+        this.region.putInt(gameMap.getHeight());
+        this.region.putInt(gameMap.getMyPlayerId());
+    }
+
+    public synchronized void writeTurn(final GameState gameState, final List<Move> moves)
+    {
+        record.clear();
+
+        writeVarint(gameState.getTurn());
+        writeGameMap(gameState.getGameMap());
+
+        final ObjectiveManager objectiveManager = gameState.getObjectiveManager();
+        writeObjectives(objectiveManager.getSuperObjectives());
+        writeObjectives(objectiveManager.getObjectives());
+        writeObjectives(objectiveManager.getUndockObjectives());
+
+        final FleetManager fleetManager = gameState.getFleetManager();
+        writeVarint(fleetManager.getShipsToMove().size());
+        for (final Ship ship: fleetManager.getShipsToMove())
+        {
+            writeVarint(ship.getId());
+            writeSigned(objectiveId(ship.getObjective()));
+        }
+
+        writeVarint(fleetManager.getFleetsToMove().size());
+        for (final Fleet fleet: fleetManager.getFleetsToMove())
+        {
+            writeVarint(fleet.getId());
+            writeSigned(fleet.getObjectives().isEmpty()? -1 : objectiveId(fleet.getFirstObjectives()));
+            writeShipIds(fleet.getShips());
+        }
+
+        final ArrayList<CombatOperation> combatOperations = gameState.getCombatManager().getCombatOperations();
+        writeVarint(combatOperations.size());
+        for (final CombatOperation combatOperation: combatOperations)
+        {
+            writeVarint(combatOperation.getId());
+            writeSigned(objectiveId(combatOperation.getObjective()));
+            writeShipIds(combatOperation.getMyActiveShips());
+            writeVarint(combatOperation.getMyActiveFleets().size());
+            for (final Fleet fleet: combatOperation.getMyActiveFleets())
+                writeVarint(fleet.getId());
+        }
+
+        writeVarint(moves.size());
+        for (final Move move: moves)
+        {
+            ensureRecordCapacity(1);
+            record.put((byte) move.getType().ordinal());
+            writeVarint(move.getShip().getId());
+
+            if (move instanceof ThrustMove)
+            {
+                writeVarint(((ThrustMove) move).getThrust());
+                writeSigned(((ThrustMove) move).getAngle());
+            }
+            else if (move instanceof DockMove)
+                writeVarint((int) ((DockMove) move).getDestinationId());
+        }
+
+        appendRecord();
+    }
+
+    public synchronized void close()
+    {
+        if (region == null)
+            return;
+
+        try
+        {
+            final long length = regionStart + region.position();
+            region.force();
+            region = null;
+            channel.truncate(length);
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeGameMap(final GameMap gameMap)
+    {
+        // Ships are listed by player in the order the engine sent them.
+        final List<Ship> ships = gameMap.getAllShips();
+        int shipIndex = 0;
+        Arrays.fill(previousUnits, 0);
+
+        writeVarint(gameMap.getAllPlayers().size());
+        for (final Player player: gameMap.getAllPlayers())
+        {
+            final int numberOfShips = player.getShips().size();
+            writeVarint(player.getId());
+            writeVarint(numberOfShips);
+
+            int previousId = 0;
+            for (int i = 0; i < numberOfShips; ++i)
+            {
+                final Ship ship = ships.get(shipIndex++);
+                writeSigned(ship.getId() - previousId);
+                previousId = ship.getId();
+
+                writePosition(ship.getXPos(), X);
+                writePosition(ship.getYPos(), Y);
+                writeVarint(ship.getHealth());
+                writeVarint(ship.getDockingStatus().ordinal());
+                writeSigned(ship.getDockedPlanet());
+                writeVarint(ship.getDockingProgress());
+                writeVarint(ship.getWeaponCooldown());
+            }
+        }
+
+        Arrays.fill(previousUnits, 0);
+        writeVarint(gameMap.getAllPlanets().size());
+        for (final Planet planet: gameMap.getAllPlanets().values())
+        {
+            writeVarint(planet.getId());
+            writePosition(planet.getXPos(), X);
+            writePosition(planet.getYPos(), Y);
+            writeVarint(planet.getHealth());
+            writePosition(planet.getRadius(), RADIUS);
+            writeVarint(planet.getDockingSpots());
+            writeVarint(planet.getCurrentProduction());
+            writeVarint(planet.getRemainingProduction());
+            writeSigned(planet.getOwner());
+            writeVarint(planet.getDockedShips().size());
+            for (final int shipId: planet.getDockedShips())
+                writeVarint(shipId);
+        }
+    }
+
+    private void writeObjectives(final List<Objective> objectives)
+    {
+        writeVarint(objectives.size());
+        for (final Objective objective: objectives)
+        {
+            final Entity target = objective.getTargetEntity();
+
+            writeSigned(objective.getId());
+            writeVarint(objective.getOrderType().ordinal());
+            writeVarint(targetType(target));
+            writeSigned(target.getId());
+            ensureRecordCapacity(8);
+            record.putDouble(objective.getPriority());
+            writeSigned(objective.getRequiredShips());
+            writeVarint((objective.isSuperObjective()? 1 : 0) | (objective.isAvailableForFleets()? 2 : 0) | (objective.isAvailableForShips()? 4 : 0));
+        }
+    }
+
+    private void writeShipIds(final List<Ship> ships)
+    {
+        writeVarint(ships.size());
+        for (final Ship ship: ships)
+            writeVarint(ship.getId());
+    }
+
+    private void writePosition(final double value, final int coordinate)
+    {
+        // Engine positions have 4 decimals, anything else is kept as raw bits behind a flag.
+        final long units = Math.round(value * POSITION_UNIT);
+        if (units / POSITION_UNIT == value)
+        {
+            writeVarLong(zigzag(units - previousUnits[coordinate]) << 1);
+            previousUnits[coordinate] = units;
+        }
+        else
+        {
+            writeVarLong(1);
+            ensureRecordCapacity(8);
+            record.putDouble(value);
+        }
+    }
+
+    private void writeSigned(final int value) { writeVarLong(zigzag(value)); }
+
+    private void writeVarint(final int value)
+    {
+        if (value < 0)
+            throw new IllegalStateException("Negative value in trace varint: " + value);
+        writeVarLong(value);
+    }
+
+    private void writeVarLong(long value)
+    {
+        ensureRecordCapacity(10);
+        while ((value & ~0x7FL) != 0)
+        {
+            record.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        record.put((byte) value);
+    }
+
+    private static long zigzag(final long value) { return (value << 1) ^ (value >> 63); }
+
+    private static int objectiveId(final Objective objective) { return (objective == null)? -1 : objective.getId(); }
+
+    private static int targetType(final Entity target)
+    {
+        if (target instanceof Ship)
+            return TARGET_SHIP;
+        if (target instanceof Planet)
+            return TARGET_PLANET;
+        if (target instanceof Fleet)
+            return TARGET_FLEET;
+        return TARGET_OTHER;
+    }
+
+    private void ensureRecordCapacity(final int length)
+    {
+        if (record.remaining() >= length)
+            return;
+
+        final ByteBuffer newRecord = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + length));
+        record.flip();
+        newRecord.put(record);
+        record = newRecord;
+    }
+
+    private void appendRecord()
+    {
+        record.flip();
+
+        try
+        {
+            // Keeps room for the zero length marking the end of the trace.
+            if (region.remaining() < record.remaining() + 8)
+            {
+                regionStart += region.position();
+                region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, Math.max(REGION_SIZE, record.remaining() + 8));
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        region.putInt(record.remaining());
+        region.put(record);
+    }
+}
@@ -0,0 +1,262 @@
+package core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Space-time reservations of the trajectories my ships committed to for next turn. A trajectory is the capsule
+// swept by the ship over the turn, cut into SLICES equal slices of time, and each slice goes into the cells of a
+// grid of its own: a candidate trajectory only meets the reservations near it at about the same time, and the
+// exact test on those is the closest approach of the two moving circles over the turn.
+// Reservations are a stack. A ship reserving again replaces its previous reservation, and undo takes back
+// everything reserved since a mark, replaced reservations included, so trial moves cost nothing to drop.
+public class TrajectoryReservations
+{
+    private static final int SLICES = 4;
+    private static final double CELL_SIZE = 4.0;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private int columns;
+    private int rows;
+    private int[] cellHeads;
+
+    // Reservations, in the order they were made
+    private int size;
+    private int[] shipIds;
+    private double[] xs;
+    private double[] ys;
+    private double[] dxs;
+    private double[] dys;
+    private double[] radii;
+    private boolean[] active;
+    private int[] replaced;
+    private int[] firstNodes;
+    private final HashMap<Integer, Integer> reservationByShipId;
+
+    // One node per cell and slice a reservation goes through, in the order they were linked
+    private int numberOfNodes;
+    private int[] nodeReservations;
+    private int[] nodeCells;
+    private int[] nodeNext;
+
+    // A query tests each reservation once, however many cells they share
+    private int[] stamps;
+    private int stamp;
+
+    public TrajectoryReservations()
+    {
+        this.columns = 0;
+        this.rows = 0;
+        this.cellHeads = new int[0];
+
+        this.shipIds = new int[INITIAL_CAPACITY];
+        this.xs = new double[INITIAL_CAPACITY];
+        this.ys = new double[INITIAL_CAPACITY];
+        this.dxs = new double[INITIAL_CAPACITY];
+        this.dys = new double[INITIAL_CAPACITY];
+        this.radii = new double[INITIAL_CAPACITY];
+        this.active = new boolean[INITIAL_CAPACITY];
+        this.replaced = new int[INITIAL_CAPACITY];
+        this.firstNodes = new int[INITIAL_CAPACITY];
+        this.stamps = new int[INITIAL_CAPACITY];
+        this.reservationByShipId = new HashMap<>();
+
+        this.nodeReservations = new int[INITIAL_CAPACITY * SLICES];
+        this.nodeCells = new int[INITIAL_CAPACITY * SLICES];
+        this.nodeNext = new int[INITIAL_CAPACITY * SLICES];
+    }
+
+    public int size() { return size; }
+
+    public void clear(final int width, final int height)
+    {
+        this.columns = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+        this.rows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+        if (cellHeads.length < SLICES * columns * rows)
+            this.cellHeads = new int[SLICES * columns * rows];
+        Arrays.fill(cellHeads, 0, SLICES * columns * rows, -1);
+
+        this.size = 0;
+        this.numberOfNodes = 0;
+        this.reservationByShipId.clear();
+    }
+
+    public int reserve(final int shipId, final double x, final double y, final double dx, final double dy, final double radius)
+    {
+        ensureCapacity(size + 1);
+
+        final int reservation = size++;
+        shipIds[reservation] = shipId;
+        xs[reservation] = x;
+        ys[reservation] = y;
+        dxs[reservation] = dx;
+        dys[reservation] = dy;
+        radii[reservation] = radius;
+        active[reservation] = true;
+        stamps[reservation] = stamp;
+        firstNodes[reservation] = numberOfNodes;
+
+        final Integer previous = reservationByShipId.put(shipId, reservation);
+        replaced[reservation] = (previous == null)? -1 : previous;
+        if (previous != null)
+            active[previous] = false;
+
+        for (int slice = 0; slice < SLICES; ++slice)
+        {
+            final int sliceOffset = slice * columns * rows;
+            final int minColumn = column(sliceMin(x, dx, slice) - radius);
+            final int maxColumn = column(sliceMax(x, dx, slice) + radius);
+            final int minRow = row(sliceMin(y, dy, slice) - radius);
+            final int maxRow = row(sliceMax(y, dy, slice) + radius);
+
+            for (int row = minRow; row <= maxRow; ++row)
+                for (int column = minColumn; column <= maxColumn; ++column)
+                    link(reservation, sliceOffset + row * columns + column);
+        }
+
+        return reservation;
+    }
+
+    public int mark() { return size; }
+
+    // Takes back every reservation made since the mark, latest first, and brings back the ones they replaced
+    public void undo(final int mark)
+    {
+        while (size > mark)
+        {
+            final int reservation = --size;
+
+            // Nodes were pushed on the heads of their cells, so the latest ones are still the heads
+            while (numberOfNodes > firstNodes[reservation])
+            {
+                final int node = --numberOfNodes;
+                cellHeads[nodeCells[node]] = nodeNext[node];
+            }
+
+            if (replaced[reservation] != -1)
+            {
+                active[replaced[reservation]] = true;
+                reservationByShipId.put(shipIds[reservation], replaced[reservation]);
+            }
+            else
+                reservationByShipId.remove(shipIds[reservation]);
+        }
+    }
+
+    // Whether a circle moving by the displacement over the turn stays clear of all reservations but the ship's own
+    public boolean isFree(final double x, final double y, final double dx, final double dy, final double radius, final int ignoredShipId)
+    {
+        nextStamp();
+
+        for (int slice = 0; slice < SLICES; ++slice)
+        {
+            final int sliceOffset = slice * columns * rows;
+            final int minColumn = column(sliceMin(x, dx, slice) - radius);
+            final int maxColumn = column(sliceMax(x, dx, slice) + radius);
+            final int minRow = row(sliceMin(y, dy, slice) - radius);
+            final int maxRow = row(sliceMax(y, dy, slice) + radius);
+
+            for (int row = minRow; row <= maxRow; ++row)
+            {
+                for (int column = minColumn; column <= maxColumn; ++column)
+                {
+                    for (int node = cellHeads[sliceOffset + row * columns + column]; node != -1; node = nodeNext[node])
+                    {
+                        final int reservation = nodeReservations[node];
+                        if (!active[reservation] || (stamps[reservation] == stamp) || (shipIds[reservation] == ignoredShipId))
+                            continue;
+
+                        stamps[reservation] = stamp;
+                        if (willMeet(reservation, x, y, dx, dy, radius))
+                            return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    // Closest approach of the two circles while both move at constant speed over the turn, touching included
+    private boolean willMeet(final int reservation, final double x, final double y, final double dx, final double dy, final double radius)
+    {
+        final double positionX = x - xs[reservation];
+        final double positionY = y - ys[reservation];
+        final double velocityX = dx - dxs[reservation];
+        final double velocityY = dy - dys[reservation];
+        final double reach = radius + radii[reservation];
+
+        final double squaredSpeed = velocityX * velocityX + velocityY * velocityY;
+        final double time = (squaredSpeed > 0.0)?
+                Math.max(0.0, Math.min(1.0, -(positionX * velocityX + positionY * velocityY) / squaredSpeed))
+                : 0.0;
+
+        final double closestX = positionX + time * velocityX;
+        final double closestY = positionY + time * velocityY;
+        return closestX * closestX + closestY * closestY <= reach * reach;
+    }
+
+    private void link(final int reservation, final int cell)
+    {
+        if (numberOfNodes == nodeReservations.length)
+        {
+            nodeReservations = Arrays.copyOf(nodeReservations, numberOfNodes * 2);
+            nodeCells = Arrays.copyOf(nodeCells, numberOfNodes * 2);
+            nodeNext = Arrays.copyOf(nodeNext, numberOfNodes * 2);
+        }
+
+        final int node = numberOfNodes++;
+        nodeReservations[node] = reservation;
+        nodeCells[node] = cell;
+        nodeNext[node] = cellHeads[cell];
+        cellHeads[cell] = node;
+    }
+
+    private void nextStamp()
+    {
+        if (++stamp == Integer.MAX_VALUE)
+        {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+    }
+
+    // Bounds of the stretch covered during the slice, along one axis
+    private static double sliceMin(final double start, final double displacement, final int slice)
+    {
+        return Math.min(start + displacement * slice / SLICES, start + displacement * (slice + 1) / SLICES);
+    }
+
+    private static double sliceMax(final double start, final double displacement, final int slice)
+    {
+        return Math.max(start + displacement * slice / SLICES, start + displacement * (slice + 1) / SLICES);
+    }
+
+    // Positions off the map go to the border cells, which keeps the candidates of a query a superset of the answer
+    private int column(final double x)
+    {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor(x / CELL_SIZE)));
+    }
+
+    private int row(final double y)
+    {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / CELL_SIZE)));
+    }
+
+    private void ensureCapacity(final int capacity)
+    {
+        if (capacity <= shipIds.length)
+            return;
+
+        final int newLength = Math.max(shipIds.length * 2, capacity);
+        shipIds = Arrays.copyOf(shipIds, newLength);
+        xs = Arrays.copyOf(xs, newLength);
+        ys = Arrays.copyOf(ys, newLength);
+        dxs = Arrays.copyOf(dxs, newLength);
+        dys = Arrays.copyOf(dys, newLength);
+        radii = Arrays.copyOf(radii, newLength);
+        active = Arrays.copyOf(active, newLength);
+        replaced = Arrays.copyOf(replaced, newLength);
+        firstNodes = Arrays.copyOf(firstNodes, newLength);
+        stamps = Arrays.copyOf(stamps, newLength);
+    }
+}
@@ -0,0 +1,89 @@
+package core;
+
+import core.CombatManager.CombatManager;
+import core.NavigationManager.NavigationManager;
+import hlt.GameMap;
+import hlt.Metrics;
+import hlt.Move;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+// The managers and the game state of one bot, and the order they run in each turn.
+// Pipelines share nothing, so the game, a replay and the warm-up can each have their own.
+public class TurnPipeline
+{
+    private final CombatManager combatManager;
+    private final BehaviourManager behaviourManager;
+    private final ObjectiveManager objectiveManager;
+    private final FleetManager fleetManager;
+    private final NavigationManager navigationManager;
+    private final DistanceManager distanceManager;
+    private final GameState gameState;
+
+    public TurnPipeline(final Map<String,Object> gameDefinitions)
+    {
+        this.combatManager      = new CombatManager();
+        this.behaviourManager   = new BehaviourManager(gameDefinitions);
+        this.objectiveManager   = new ObjectiveManager();
+        this.fleetManager       = new FleetManager();
+        this.navigationManager  = new NavigationManager();
+        this.distanceManager    = new DistanceManager();
+
+        this.gameState = new GameState(
+            combatManager,
+            behaviourManager,
+            objectiveManager,
+            fleetManager,
+            navigationManager,
+            distanceManager
+        );
+
+        gameState.getTimer().setBudgets(gameDefinitions);
+    }
+
+    public GameState getGameState() { return gameState; }
+    public Timer getTimer() { return gameState.getTimer(); }
+
+    // Runs every manager on the map of the turn. The timer deadlines only apply if the caller
+    // started the turn on the timer, a replay leaves it stopped to get the same moves every time.
+    public ArrayList<Move> playTurn(final GameMap gameMap)
+    {
+        final Timer timer = gameState.getTimer();
+
+        Metrics.startPhase(Metrics.Phase.Update);
+        gameState.updateGameState(gameMap);
+
+        timer.startPhase(Timer.Phase.Distance);
+        Metrics.startPhase(Metrics.Phase.Distance);
+        distanceManager.computeDistanceIndexes(gameState);
+
+        timer.startPhase(Timer.Phase.Objective);
+        Metrics.startPhase(Metrics.Phase.Objective);
+        objectiveManager.getObjectives(gameState);
+
+        timer.startPhase(Timer.Phase.Fleet);
+        Metrics.startPhase(Metrics.Phase.Fleet);
+        fleetManager.assignShips(gameState);
+
+        timer.startPhase(Timer.Phase.Combat);
+        Metrics.startPhase(Metrics.Phase.Combat);
+        combatManager.createCombatOperations(gameState);
+
+        timer.startPhase(Timer.Phase.Navigation);
+        Metrics.startPhase(Metrics.Phase.Navigation);
+        if (behaviourManager.getTestArgument() == 2)
+            navigationManager.generateMoves2(gameState);
+        else
+            navigationManager.generateMoves(gameState);
+        timer.endTurn();
+
+        return navigationManager.getMoves();
+    }
+
+    // Once the moves are sent, keeps what the next turn needs from this one.
+    public void endTurn(final GameMap gameMap)
+    {
+        gameState.saveGameState(gameMap);
+    }
+}
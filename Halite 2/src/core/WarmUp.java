@@ -0,0 +1,261 @@
+package core;
+
+import hlt.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Random;
+
+import static hlt.DebugLog.Level.Error;
+import static hlt.DebugLog.Level.Info;
+
+// Plays synthetic games on the real map during the initialization window, so the JIT has compiled
+// the parser, the managers, the combat search and the navigation by the first contested turn.
+// Every game gets its own pipeline and map, nothing is shared with the real game state.
+public class WarmUp
+{
+    private static final int TURNS_PER_GAME = 60;
+    private static final int TURNS_TO_MEET = 40;
+    private static final int SHIP_ID_RANGE = 1000;
+    private static final int DOCKED_SHIP_IDS = 500;
+
+    private final int width;
+    private final int height;
+    private final int myId;
+    private final Collection<Planet> planets;
+    private final ArrayList<Integer> playerIds;
+    private final ArrayList<Position> startingPoints;
+    private final ArrayList<Planet> homePlanets;
+
+    private final OutputWriter line;
+    private final OutputWriter moves;
+    private InputTokenizer tokenizer;
+
+    private Random random;
+    private boolean mirrored;
+    private double meetingFactor;
+
+    public static void run(final GameMap initialMap, final Map<String,Object> gameDefinitions, final double durationMillis)
+    {
+        if (durationMillis <= 0)
+            return;
+
+        final long start = System.nanoTime();
+        final long deadline = start + (long) (durationMillis * 1e6);
+        final WarmUp warmUp = new WarmUp(initialMap);
+
+        // The synthetic games log nothing, errors included: they are expected on made up maps.
+        final DebugLog.Level level = DebugLog.getLevel();
+        DebugLog.setLevel(Error);
+
+        int games = 0;
+        int turns = 0;
+        int failedGames = 0;
+        try
+        {
+            while (System.nanoTime() - deadline < 0)
+            {
+                final int playedTurns = warmUp.playGame(games, gameDefinitions, deadline);
+                if (playedTurns < 0)
+                {
+                    failedGames++;
+                    turns -= playedTurns + 1;
+                }
+                else
+                    turns += playedTurns;
+                games++;
+            }
+        }
+        finally
+        {
+            DebugLog.setLevel(level);
+        }
+
+        DebugLog.addLog(Info, "Warm-up: " + turns + " turns in " + games + " games (" + failedGames + " stopped by an exception) in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    private WarmUp(final GameMap initialMap)
+    {
+        this.width = initialMap.getWidth();
+        this.height = initialMap.getHeight();
+        this.myId = initialMap.getMyPlayerId();
+        this.planets = initialMap.getAllPlanets().values();
+
+        this.playerIds = new ArrayList<>();
+        this.startingPoints = new ArrayList<>();
+        this.homePlanets = new ArrayList<>();
+        for (final Player player: initialMap.getAllPlayers())
+        {
+            final Position startingPoint = DistanceManager.computeStartingPoint(player.getShips().values());
+            playerIds.add(player.getId());
+            startingPoints.add(startingPoint);
+            homePlanets.add(closestPlanet(startingPoint));
+        }
+
+        this.line = new OutputWriter(null);
+        this.moves = new OutputWriter(null);
+    }
+
+    // Returns the number of turns played, or -(turns + 1) if the game stopped on an exception.
+    private int playGame(final int game, final Map<String,Object> gameDefinitions, final long deadline)
+    {
+        this.random = new Random(game);
+        this.mirrored = (game % 2) == 1;
+        this.meetingFactor = 0.75 + 0.25 * random.nextDouble();
+
+        final TurnPipeline pipeline = new TurnPipeline(gameDefinitions);
+        final GameMap gameMap = new GameMap(width, height, myId);
+        gameMap.setReuseEntities(true);
+
+        int turn = 0;
+        try
+        {
+            for (; (turn < TURNS_PER_GAME) && (System.nanoTime() - deadline < 0); ++turn)
+            {
+                writeTurn(turn);
+                if (tokenizer == null)
+                    tokenizer = new InputTokenizer(line.getBuffer());
+                tokenizer.reset(line.getBuffer(), line.size());
+
+                pipeline.getTimer().startTurn();
+                gameMap.updateMap(tokenizer);
+                Networking.writeMoves(pipeline.playTurn(gameMap), moves);
+                moves.clear();
+                pipeline.endTurn(gameMap);
+            }
+        }
+        catch (RuntimeException e)
+        {
+            return -(turn + 1);
+        }
+
+        return turn;
+    }
+
+    // Every player sends a growing group from its starting point towards the center of the map,
+    // where the groups meet, while a few ships stay docked on the free planet closest to home.
+    private void writeTurn(final int turn)
+    {
+        final double progress = meetingFactor * Math.min(1.0, turn / (double) TURNS_TO_MEET);
+        final int undockedShips = 3 + turn / 4;
+        final int dockedShips = (turn < 3)? 0 : 1 + turn / 15;
+
+        line.clear();
+        line.writeInt(playerIds.size()).writeChar(' ');
+        for (int player = 0; player < playerIds.size(); ++player)
+        {
+            final Position startingPoint = startingPoints.get(player);
+            final Planet homePlanet = homePlanets.get(player);
+            final int docked = (homePlanet == null)? 0 : Math.min(dockedShips, homePlanet.getDockingSpots());
+            final double groupX = startingPoint.getXPos() + (width / 2.0 - startingPoint.getXPos()) * progress;
+            final double groupY = startingPoint.getYPos() + (height / 2.0 - startingPoint.getYPos()) * progress;
+
+            line.writeInt(playerIds.get(player)).writeChar(' ').writeInt(undockedShips + docked).writeChar(' ');
+
+            for (int i = 0; i < undockedShips; ++i)
+            {
+                double x = groupX + (i % 4) * 1.5 + random.nextDouble() * 0.5;
+                double y = groupY + (i / 4) * 1.5 + random.nextDouble() * 0.5;
+                x = Math.max(1.0, Math.min(width - 1.0, x));
+                y = Math.max(1.0, Math.min(height - 1.0, y));
+
+                // Out of the planets, along the line from their center
+                for (final Planet planet: planets)
+                {
+                    final double dx = x - planet.getXPos();
+                    final double dy = y - planet.getYPos();
+                    final double distance = Math.sqrt(dx * dx + dy * dy);
+                    final double minimumDistance = planet.getRadius() + 1.0;
+                    if (distance < minimumDistance)
+                    {
+                        x = planet.getXPos() + ((distance == 0)? minimumDistance : dx * minimumDistance / distance);
+                        y = planet.getYPos() + ((distance == 0)? 0 : dy * minimumDistance / distance);
+                    }
+                }
+
+                final int health = 255 - random.nextInt(Math.min(3 * turn, 254) + 1);
+                writeShip(player * SHIP_ID_RANGE + i, x, y, health, Ship.DockingStatus.Undocked, 0, random.nextInt(2));
+            }
+
+            for (int i = 0; i < docked; ++i)
+            {
+                final double angle = startingPoint.orientTowardsInRad(homePlanet) + Math.PI + 0.4 * i;
+                final double distance = homePlanet.getRadius() + 0.6;
+                writeShip(player * SHIP_ID_RANGE + DOCKED_SHIP_IDS + i,
+                        homePlanet.getXPos() + Math.cos(angle) * distance,
+                        homePlanet.getYPos() + Math.sin(angle) * distance,
+                        255, Ship.DockingStatus.Docked, homePlanet.getId(), 0);
+            }
+        }
+
+        line.writeInt(planets.size()).writeChar(' ');
+        for (final Planet planet: planets)
+        {
+            int owner = -1;
+            int docked = 0;
+            for (int player = 0; player < playerIds.size(); ++player)
+            {
+                if ((homePlanets.get(player) == planet) && (dockedShips > 0))
+                {
+                    owner = player;
+                    docked = Math.min(dockedShips, planet.getDockingSpots());
+                    break;
+                }
+            }
+
+            line.writeInt(planet.getId()).writeChar(' ');
+            writeX(planet.getXPos());
+            line.writeFixed(planet.getYPos()).writeChar(' ');
+            line.writeInt(planet.getHealth()).writeChar(' ');
+            line.writeFixed(planet.getRadius()).writeChar(' ');
+            line.writeInt(planet.getDockingSpots()).writeChar(' ');
+            line.writeInt((owner == -1)? 0 : (6 * docked * turn) % 72).writeChar(' ');
+            line.writeInt(planet.getRemainingProduction()).writeChar(' ');
+
+            if (owner == -1)
+                line.writeString("0 0 ");
+            else
+                line.writeString("1 ").writeInt(playerIds.get(owner)).writeChar(' ');
+
+            line.writeInt(docked).writeChar(' ');
+            for (int i = 0; i < docked; ++i)
+                line.writeInt(owner * SHIP_ID_RANGE + DOCKED_SHIP_IDS + i).writeChar(' ');
+        }
+        line.writeChar('\n');
+    }
+
+    private void writeShip(final int id, final double x, final double y, final int health, final Ship.DockingStatus dockingStatus, final int dockedPlanet, final int weaponCooldown)
+    {
+        line.writeInt(id).writeChar(' ');
+        writeX(x);
+        line.writeFixed(y).writeChar(' ');
+        line.writeInt(health).writeString(" 0.0000 0.0000 ");
+        line.writeInt(dockingStatus.ordinal()).writeChar(' ');
+        line.writeInt(dockedPlanet).writeChar(' ');
+        line.writeString("0 ");
+        line.writeInt(weaponCooldown).writeChar(' ');
+    }
+
+    // Every other game is played on the map mirrored left to right
+    private void writeX(final double x)
+    {
+        line.writeFixed(mirrored? width - x : x).writeChar(' ');
+    }
+
+    private Planet closestPlanet(final Position position)
+    {
+        Planet closestPlanet = null;
+        double closestDistance = Double.MAX_VALUE;
+        for (final Planet planet: planets)
+        {
+            final double distance = position.getDistanceTo(planet);
+            if ((distance < closestDistance) && !homePlanets.contains(planet))
+            {
+                closestDistance = distance;
+                closestPlanet = planet;
+            }
+        }
+        return closestPlanet;
+    }
+}
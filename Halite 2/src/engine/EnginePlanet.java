@@ -0,0 +1,36 @@
+package engine;
+
+import java.util.ArrayList;
+
+class EnginePlanet
+{
+    final int id;
+    final double x;
+    final double y;
+    final double radius;
+    final int dockingSpots;
+    int health;
+    int owner;
+    int currentProduction;
+    int remainingProduction;
+    boolean exploded;
+    // Docking, docked and undocking ships, in docking order
+    final ArrayList<Integer> dockedShips;
+
+    EnginePlanet(final int id, final double x, final double y, final double radius, final int health, final int dockingSpots, final int remainingProduction)
+    {
+        this.id = id;
+        this.x = x;
+        this.y = y;
+        this.radius = radius;
+        this.dockingSpots = dockingSpots;
+        this.health = health;
+        this.owner = -1;
+        this.currentProduction = 0;
+        this.remainingProduction = remainingProduction;
+        this.exploded = false;
+        this.dockedShips = new ArrayList<>();
+    }
+
+    boolean isAlive() { return health > 0; }
+}
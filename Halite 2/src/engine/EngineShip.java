@@ -0,0 +1,55 @@
+package engine;
+
+import hlt.Ship;
+
+// Authoritative state of a ship in the engine, the bots only ever see copies in their GameMap.
+class EngineShip
+{
+    final int id;
+    final int owner;
+    double x;
+    double y;
+    int health;
+    Ship.DockingStatus dockingStatus;
+    int dockedPlanet;
+    int dockingProgress;
+    int weaponCooldown;
+
+    // Command of the turn and the resulting velocity
+    int thrust;
+    int angleDeg;
+    int dockTarget;
+    boolean undock;
+    double vx;
+    double vy;
+
+    EngineShip(final int id, final int owner, final double x, final double y)
+    {
+        this.id = id;
+        this.owner = owner;
+        this.x = x;
+        this.y = y;
+        this.health = hlt.Constants.BASE_SHIP_HEALTH;
+        this.dockingStatus = Ship.DockingStatus.Undocked;
+        this.dockedPlanet = 0;
+        this.dockingProgress = 0;
+        this.weaponCooldown = 0;
+        clearCommand();
+    }
+
+    boolean isAlive() { return health > 0; }
+    boolean isUndocked() { return dockingStatus == Ship.DockingStatus.Undocked; }
+
+    void clearCommand()
+    {
+        thrust = 0;
+        angleDeg = 0;
+        dockTarget = -1;
+        undock = false;
+        vx = 0;
+        vy = 0;
+    }
+
+    double xAt(final double time) { return x + vx * time; }
+    double yAt(final double time) { return y + vy * time; }
+}
@@ -0,0 +1,611 @@
+package engine;
+
+import hlt.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static hlt.Constants.*;
+
+// Rules of Halite II, applied in process to bots that read the same GameMap as in a real game.
+// Turn order: cooldowns, docking, movement with collisions and attacks in continuous time, production.
+public class GameEngine
+{
+    public static final int SHIP_COST = 72;
+
+    private static final int COLLISION = 0;
+    private static final int PLANET_COLLISION = 1;
+    private static final int ATTACK = 2;
+    private static final double TIME_EPSILON = 1e-9;
+    private static final double ATTACK_RANGE = WEAPON_RADIUS + 2 * SHIP_RADIUS;
+
+    private static class Event
+    {
+        final double time;
+        final int type;
+        final int first;
+        final int second;
+
+        Event(final double time, final int type, final int first, final int second)
+        {
+            this.time = time;
+            this.type = type;
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    private static final Comparator<Event> EVENT_ORDER = Comparator.<Event>comparingDouble(event -> event.time).thenComparingInt(event -> event.type);
+
+    private final int width;
+    private final int height;
+    private final int numberOfPlayers;
+    private final int maxTurns;
+    private int turn;
+
+    // Ships by increasing id, dead ones are removed at the end of each turn
+    private final ArrayList<EngineShip> ships;
+    private EngineShip[] shipsById;
+    private int nextShipId;
+    private final ArrayList<EnginePlanet> planets;
+    private final int[] lastTurnAlive;
+
+    private final ArrayList<Event> events;
+    private double[] damage;
+
+    public GameEngine(final int width, final int height, final int numberOfPlayers, final int maxTurns)
+    {
+        this.width = width;
+        this.height = height;
+        this.numberOfPlayers = numberOfPlayers;
+        this.maxTurns = maxTurns;
+        this.turn = 0;
+
+        this.ships = new ArrayList<>();
+        this.shipsById = new EngineShip[256];
+        this.nextShipId = 0;
+        this.planets = new ArrayList<>();
+        this.lastTurnAlive = new int[numberOfPlayers];
+
+        this.events = new ArrayList<>();
+        this.damage = new double[256];
+    }
+
+    // Turn limit of the real engine for a map of this size
+    public static int defaultMaxTurns(final int width, final int height)
+    {
+        return 100 + (int) Math.sqrt(width * height);
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getNumberOfPlayers() { return numberOfPlayers; }
+    public int getTurn() { return turn; }
+
+    public int addShip(final int owner, final double x, final double y)
+    {
+        final EngineShip ship = new EngineShip(nextShipId++, owner, x, y);
+        if (ship.id >= shipsById.length)
+            shipsById = Arrays.copyOf(shipsById, shipsById.length * 2);
+        shipsById[ship.id] = ship;
+        ships.add(ship);
+        return ship.id;
+    }
+
+    public int addPlanet(final double x, final double y, final double radius, final int health, final int dockingSpots, final int remainingProduction)
+    {
+        final EnginePlanet planet = new EnginePlanet(planets.size(), x, y, radius, health, dockingSpots, remainingProduction);
+        planets.add(planet);
+        return planet.id;
+    }
+
+    public int getNumberOfShips(final int player)
+    {
+        int numberOfShips = 0;
+        for (final EngineShip ship: ships)
+            if (ship.owner == player)
+                numberOfShips++;
+        return numberOfShips;
+    }
+
+    public int getTotalHealth(final int player)
+    {
+        int totalHealth = 0;
+        for (final EngineShip ship: ships)
+            if (ship.owner == player)
+                totalHealth += ship.health;
+        return totalHealth;
+    }
+
+    public boolean isOver()
+    {
+        if (turn >= maxTurns)
+            return true;
+
+        int playersAlive = 0;
+        for (int player = 0; player < numberOfPlayers; ++player)
+            if (getNumberOfShips(player) > 0)
+                playersAlive++;
+
+        return playersAlive <= ((numberOfPlayers == 1)? 0 : 1);
+    }
+
+    // Players from first to last: last eliminated wins, then most ships, then most health.
+    public int[] getRanking()
+    {
+        final Integer[] players = new Integer[numberOfPlayers];
+        for (int player = 0; player < numberOfPlayers; ++player)
+            players[player] = player;
+
+        Arrays.sort(players, Comparator.<Integer>comparingInt(player -> -lastTurnAlive[player])
+                .thenComparingInt(player -> -getNumberOfShips(player))
+                .thenComparingInt(player -> -getTotalHealth(player)));
+
+        final int[] ranking = new int[numberOfPlayers];
+        for (int i = 0; i < numberOfPlayers; ++i)
+            ranking[i] = players[i];
+        return ranking;
+    }
+
+    // Fills the map of one player as the real engine line would, positions rounded to its 4 decimals.
+    public void writeGameMap(final GameMap gameMap)
+    {
+        gameMap.beginUpdate();
+
+        for (int player = 0; player < numberOfPlayers; ++player)
+        {
+            gameMap.beginPlayer(player);
+            for (final EngineShip ship: ships)
+                if (ship.owner == player)
+                    gameMap.updateShip(ship.id, round(ship.x), round(ship.y), ship.health, ship.dockingStatus, ship.dockedPlanet, ship.dockingProgress, ship.weaponCooldown);
+        }
+
+        for (final EnginePlanet planet: planets)
+            if (planet.isAlive())
+                gameMap.updatePlanet(planet.id, planet.owner, round(planet.x), round(planet.y), planet.health, round(planet.radius),
+                        planet.dockingSpots, planet.currentProduction, planet.remainingProduction, planet.dockedShips);
+
+        gameMap.endUpdate();
+    }
+
+    // Moves on ships the player does not own, or that are dead, are ignored like in the real engine.
+    public void setMoves(final int player, final Iterable<Move> moves)
+    {
+        for (final Move move: moves)
+        {
+            final int id = move.getShip().getId();
+            if ((id < 0) || (id >= shipsById.length))
+                continue;
+
+            final EngineShip ship = shipsById[id];
+            if ((ship == null) || (ship.owner != player))
+                continue;
+
+            switch (move.getType())
+            {
+                case Thrust:
+                    ship.thrust = Math.max(0, Math.min(((ThrustMove) move).getThrust(), MAX_SPEED));
+                    ship.angleDeg = ((ThrustMove) move).getAngle();
+                    break;
+                case Dock:
+                    ship.dockTarget = (int) ((DockMove) move).getDestinationId();
+                    break;
+                case Undock:
+                    ship.undock = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    // A bot that crashed or timed out loses all its ships at once
+    public void eliminate(final int player)
+    {
+        for (final EngineShip ship: ships)
+            if (ship.owner == player)
+                ship.health = 0;
+        removeDestroyed();
+    }
+
+    public void processTurn()
+    {
+        for (final EngineShip ship: ships)
+            if (ship.weaponCooldown > 0)
+                ship.weaponCooldown--;
+
+        processDocking();
+        processMovement();
+        removeDestroyed();
+        processProduction();
+
+        for (final EngineShip ship: ships)
+            ship.clearCommand();
+
+        turn++;
+        for (int player = 0; player < numberOfPlayers; ++player)
+            if (getNumberOfShips(player) > 0)
+                lastTurnAlive[player] = turn;
+    }
+
+    /******************************************************************************************************************/
+
+    private void processDocking()
+    {
+        // Docking and undocking in progress
+        for (final EngineShip ship: ships)
+        {
+            if ((ship.dockingStatus == Ship.DockingStatus.Docking) && (--ship.dockingProgress == 0))
+                ship.dockingStatus = Ship.DockingStatus.Docked;
+            else if ((ship.dockingStatus == Ship.DockingStatus.Undocking) && (--ship.dockingProgress == 0))
+            {
+                ship.dockingStatus = Ship.DockingStatus.Undocked;
+                leavePlanet(ship);
+            }
+        }
+
+        for (final EngineShip ship: ships)
+        {
+            if (ship.undock && (ship.dockingStatus == Ship.DockingStatus.Docked))
+            {
+                ship.dockingStatus = Ship.DockingStatus.Undocking;
+                ship.dockingProgress = DOCK_TURNS;
+            }
+        }
+
+        // New docking: an unowned planet claimed by two players in the same turn stays unowned.
+        for (final EnginePlanet planet: planets)
+        {
+            if (!planet.isAlive())
+                continue;
+
+            int claimingOwner = -1;
+            boolean contested = false;
+            for (final EngineShip ship: ships)
+            {
+                if (canDock(ship, planet))
+                {
+                    if ((claimingOwner != -1) && (claimingOwner != ship.owner))
+                        contested = true;
+                    claimingOwner = ship.owner;
+                }
+            }
+
+            if (contested || (claimingOwner == -1))
+                continue;
+
+            for (final EngineShip ship: ships)
+            {
+                if (canDock(ship, planet) && (planet.dockedShips.size() < planet.dockingSpots))
+                {
+                    ship.dockingStatus = Ship.DockingStatus.Docking;
+                    ship.dockingProgress = DOCK_TURNS;
+                    ship.dockedPlanet = planet.id;
+                    planet.owner = ship.owner;
+                    planet.dockedShips.add(ship.id);
+                }
+            }
+        }
+    }
+
+    private boolean canDock(final EngineShip ship, final EnginePlanet planet)
+    {
+        return (ship.dockTarget == planet.id)
+                && ship.isUndocked()
+                && ((planet.owner == -1) || (planet.owner == ship.owner))
+                && (distance(ship.x, ship.y, planet.x, planet.y) <= planet.radius + DOCK_RADIUS);
+    }
+
+    private void processMovement()
+    {
+        for (final EngineShip ship: ships)
+        {
+            if (ship.isUndocked() && (ship.thrust > 0))
+            {
+                final double angleRad = Math.toRadians(ship.angleDeg);
+                ship.vx = ship.thrust * Math.cos(angleRad);
+                ship.vy = ship.thrust * Math.sin(angleRad);
+            }
+        }
+
+        findEvents();
+
+        int i = 0;
+        while (i < events.size())
+        {
+            // Events at the same time happen together
+            final double time = events.get(i).time;
+            int end = i;
+            while ((end < events.size()) && (events.get(end).time - time <= TIME_EPSILON))
+                end++;
+
+            for (int j = i; j < end; ++j)
+                if (events.get(j).type != ATTACK)
+                    processCollision(events.get(j));
+            processAttacks(i, end, time);
+
+            i = end;
+        }
+
+        for (final EngineShip ship: ships)
+        {
+            if (!ship.isAlive())
+                continue;
+
+            ship.x += ship.vx;
+            ship.y += ship.vy;
+
+            if ((ship.x < 0) || (ship.x > width) || (ship.y < 0) || (ship.y > height))
+                ship.health = 0;
+        }
+    }
+
+    private void findEvents()
+    {
+        events.clear();
+
+        for (int i = 0; i < ships.size(); ++i)
+        {
+            final EngineShip first = ships.get(i);
+            final double firstSpeed = Math.sqrt(first.vx * first.vx + first.vy * first.vy);
+
+            for (int j = i + 1; j < ships.size(); ++j)
+            {
+                final EngineShip second = ships.get(j);
+                final double reach = firstSpeed + Math.sqrt(second.vx * second.vx + second.vy * second.vy);
+                final double distance = distance(first.x, first.y, second.x, second.y);
+
+                if (distance - reach <= 2 * SHIP_RADIUS)
+                    addEvent(COLLISION, i, j, contactTime(first, second, 2 * SHIP_RADIUS));
+
+                if ((first.owner != second.owner) && (canAttack(first) || canAttack(second)) && (distance - reach <= ATTACK_RANGE))
+                    addEvent(ATTACK, i, j, contactTime(first, second, ATTACK_RANGE));
+            }
+
+            if ((first.vx == 0) && (first.vy == 0))
+                continue;
+
+            for (int j = 0; j < planets.size(); ++j)
+            {
+                final EnginePlanet planet = planets.get(j);
+                if (planet.isAlive() && (distance(first.x, first.y, planet.x, planet.y) - firstSpeed <= planet.radius + SHIP_RADIUS))
+                    addEvent(PLANET_COLLISION, i, j, contactTime(first.x - planet.x, first.y - planet.y, first.vx, first.vy, planet.radius + SHIP_RADIUS));
+            }
+        }
+
+        events.sort(EVENT_ORDER);
+    }
+
+    private void addEvent(final int type, final int first, final int second, final double time)
+    {
+        if ((time >= 0) && (time <= 1))
+            events.add(new Event(time, type, first, second));
+    }
+
+    private static double contactTime(final EngineShip first, final EngineShip second, final double range)
+    {
+        return contactTime(second.x - first.x, second.y - first.y, second.vx - first.vx, second.vy - first.vy, range);
+    }
+
+    // First time in [0, 1] at which |d + v t| reaches range, or -1 if it never does
+    private static double contactTime(final double dx, final double dy, final double vx, final double vy, final double range)
+    {
+        final double c = dx * dx + dy * dy - range * range;
+        if (c <= 0)
+            return 0;
+
+        final double a = vx * vx + vy * vy;
+        final double b = 2 * (dx * vx + dy * vy);
+        final double discriminant = b * b - 4 * a * c;
+        if ((a == 0) || (b >= 0) || (discriminant < 0))
+            return -1;
+
+        return (-b - Math.sqrt(discriminant)) / (2 * a);
+    }
+
+    private void processCollision(final Event event)
+    {
+        final EngineShip ship = ships.get(event.first);
+        if (!ship.isAlive())
+            return;
+
+        if (event.type == PLANET_COLLISION)
+        {
+            final EnginePlanet planet = planets.get(event.second);
+            if (planet.isAlive())
+            {
+                planet.health -= ship.health;
+                ship.health = 0;
+            }
+            return;
+        }
+
+        final EngineShip other = ships.get(event.second);
+        if (!other.isAlive())
+            return;
+
+        final int health = ship.health;
+        ship.health -= other.health;
+        other.health -= health;
+    }
+
+    // Every ship ready to fire shoots all the enemies in range at once, its damage split between them.
+    private void processAttacks(final int start, final int end, final double time)
+    {
+        if (damage.length < ships.size())
+            damage = new double[ships.size() * 2];
+        Arrays.fill(damage, 0, ships.size(), 0);
+
+        boolean anyAttack = false;
+        for (int i = start; i < end; ++i)
+        {
+            final Event event = events.get(i);
+            if (event.type != ATTACK)
+                continue;
+
+            anyAttack |= fire(event.first, time);
+            anyAttack |= fire(event.second, time);
+        }
+
+        if (!anyAttack)
+            return;
+
+        for (int i = 0; i < ships.size(); ++i)
+            if (damage[i] > 0)
+                ships.get(i).health -= (int) damage[i];
+    }
+
+    private boolean fire(final int attackerIndex, final double time)
+    {
+        final EngineShip attacker = ships.get(attackerIndex);
+        if (!attacker.isAlive() || !canAttack(attacker))
+            return false;
+
+        final double x = attacker.xAt(time);
+        final double y = attacker.yAt(time);
+
+        int targets = 0;
+        for (final EngineShip ship: ships)
+            if (ship.isAlive() && (ship.owner != attacker.owner) && (distance(x, y, ship.xAt(time), ship.yAt(time)) <= ATTACK_RANGE + TIME_EPSILON))
+                targets++;
+
+        if (targets == 0)
+            return false;
+
+        for (int i = 0; i < ships.size(); ++i)
+        {
+            final EngineShip ship = ships.get(i);
+            if (ship.isAlive() && (ship.owner != attacker.owner) && (distance(x, y, ship.xAt(time), ship.yAt(time)) <= ATTACK_RANGE + TIME_EPSILON))
+                damage[i] += WEAPON_DAMAGE / (double) targets;
+        }
+
+        attacker.weaponCooldown = WEAPON_COOLDOWN;
+        return true;
+    }
+
+    private static boolean canAttack(final EngineShip ship)
+    {
+        return ship.isUndocked() && (ship.weaponCooldown == 0);
+    }
+
+    private void removeDestroyed()
+    {
+        for (final EnginePlanet planet: planets)
+            if (!planet.isAlive() && !planet.exploded)
+                explode(planet);
+
+        for (final EngineShip ship: ships)
+            if (!ship.isAlive() && !ship.isUndocked())
+                leavePlanet(ship);
+
+        for (final EngineShip ship: ships)
+            if (!ship.isAlive())
+                shipsById[ship.id] = null;
+        ships.removeIf(ship -> !ship.isAlive());
+    }
+
+    // Ships docked on the planet go with it, the ones around take damage fading with the distance.
+    private void explode(final EnginePlanet planet)
+    {
+        planet.exploded = true;
+
+        for (final EngineShip ship: ships)
+        {
+            if (!ship.isAlive())
+                continue;
+
+            if (!ship.isUndocked() && (ship.dockedPlanet == planet.id))
+            {
+                ship.health = 0;
+                continue;
+            }
+
+            final double distanceToSurface = distance(ship.x, ship.y, planet.x, planet.y) - planet.radius;
+            if (distanceToSurface < EXPLOSION_RADIUS)
+                ship.health -= (int) (MAX_SHIP_HEALTH * (1 - Math.max(distanceToSurface, 0) / EXPLOSION_RADIUS));
+        }
+
+        planet.dockedShips.clear();
+    }
+
+    private void leavePlanet(final EngineShip ship)
+    {
+        final EnginePlanet planet = planets.get(ship.dockedPlanet);
+        planet.dockedShips.remove((Integer) ship.id);
+        if (planet.dockedShips.isEmpty() && planet.isAlive())
+            planet.owner = -1;
+        ship.dockedPlanet = 0;
+        ship.dockingProgress = 0;
+        if (ship.isAlive())
+            ship.dockingStatus = Ship.DockingStatus.Undocked;
+    }
+
+    private void processProduction()
+    {
+        for (final EnginePlanet planet: planets)
+        {
+            if (!planet.isAlive() || (planet.owner < 0))
+                continue;
+
+            int dockedShips = 0;
+            for (final int shipId: planet.dockedShips)
+                if (shipsById[shipId].dockingStatus == Ship.DockingStatus.Docked)
+                    dockedShips++;
+
+            final int production = Math.min(dockedShips * BASE_PRODUCTIVITY, planet.remainingProduction);
+            planet.currentProduction += production;
+            planet.remainingProduction -= production;
+
+            if ((planet.currentProduction >= SHIP_COST) && spawnShip(planet))
+                planet.currentProduction -= SHIP_COST;
+        }
+    }
+
+    // New ships appear on the side of the planet facing the center of the map, or the closest free spot.
+    private boolean spawnShip(final EnginePlanet planet)
+    {
+        final double towardsCenter = Math.atan2(height / 2.0 - planet.y, width / 2.0 - planet.x);
+        final double distance = planet.radius + SPAWN_RADIUS;
+
+        for (int step = 0; step < 36; ++step)
+        {
+            final double angle = towardsCenter + ((step % 2 == 0)? 1 : -1) * ((step + 1) / 2) * Math.PI / 18;
+            final double x = planet.x + Math.cos(angle) * distance;
+            final double y = planet.y + Math.sin(angle) * distance;
+
+            if ((x < SHIP_RADIUS) || (x > width - SHIP_RADIUS) || (y < SHIP_RADIUS) || (y > height - SHIP_RADIUS))
+                continue;
+
+            boolean free = true;
+            for (final EngineShip ship: ships)
+            {
+                if (distance(x, y, ship.x, ship.y) < 2 * SHIP_RADIUS)
+                {
+                    free = false;
+                    break;
+                }
+            }
+
+            if (free)
+            {
+                addShip(planet.owner, x, y);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static double distance(final double x1, final double y1, final double x2, final double y2)
+    {
+        final double dx = x2 - x1;
+        final double dy = y2 - y1;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private static double round(final double value)
+    {
+        return Math.round(value * 10000.0) / 10000.0;
+    }
+}
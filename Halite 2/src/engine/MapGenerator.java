@@ -0,0 +1,115 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+// Symmetric maps in the spirit of the real generator: 2 players mirrored through the center,
+// 4 players mirrored on both axes, 3 starting ships each and planets shared out evenly.
+public class MapGenerator
+{
+    private static final int[][] MAP_SIZES = {{240, 160}, {264, 176}, {288, 192}, {312, 208}, {336, 224}, {360, 240}, {384, 256}};
+    private static final int STARTING_SHIPS = 3;
+    private static final double PLANET_MARGIN = 8.0;
+
+    public static GameEngine generate(final int numberOfPlayers, final long seed)
+    {
+        final Random random = new Random(seed);
+        final int[] size = MAP_SIZES[random.nextInt(MAP_SIZES.length)];
+        return generate(numberOfPlayers, size[0], size[1], seed);
+    }
+
+    public static GameEngine generate(final int numberOfPlayers, final int width, final int height, final long seed)
+    {
+        if ((numberOfPlayers != 2) && (numberOfPlayers != 4))
+            throw new IllegalStateException("Maps are generated for 2 or 4 players, not " + numberOfPlayers);
+
+        final Random random = new Random(seed);
+        final GameEngine engine = new GameEngine(width, height, numberOfPlayers, GameEngine.defaultMaxTurns(width, height));
+
+        // Starting point of player 0, the others are its images, in their own quarter with 4 players
+        final double startX = width * (0.15 + 0.15 * random.nextDouble());
+        final double startY = height * ((numberOfPlayers == 2)? 0.2 + 0.25 * random.nextDouble() : 0.15 + 0.15 * random.nextDouble());
+        final ArrayList<double[]> starts = images(numberOfPlayers, width, height, startX, startY);
+
+        // Central planets first, then groups of images until the map is full enough
+        final ArrayList<double[]> planets = new ArrayList<>();
+        final double centralRadius = 3.0 + 3.0 * random.nextDouble();
+        final double centralOffset = centralRadius + 2.0 + 6.0 * random.nextDouble();
+        tryAddPlanets(planets, images(numberOfPlayers, width, height, width / 2.0 - centralOffset, height / 2.0 - centralOffset), centralRadius, starts, width, height);
+
+        final int wantedPlanets = numberOfPlayers * (3 + random.nextInt(4));
+        for (int attempt = 0; (attempt < 1000) && (planets.size() < wantedPlanets); ++attempt)
+        {
+            final double radius = 3.0 + 5.0 * random.nextDouble();
+            final double x = radius + random.nextDouble() * (width - 2 * radius);
+            final double y = radius + random.nextDouble() * (height - 2 * radius);
+            tryAddPlanets(planets, images(numberOfPlayers, width, height, x, y), radius, starts, width, height);
+        }
+
+        for (final double[] planet: planets)
+        {
+            final double radius = planet[2];
+            final int dockingSpots = Math.max(2, Math.min(6, (int) (radius / 1.5)));
+            engine.addPlanet(planet[0], planet[1], radius, (int) (radius * 255), dockingSpots, (int) (radius * 1000));
+        }
+
+        for (int player = 0; player < numberOfPlayers; ++player)
+        {
+            final double[] start = starts.get(player);
+            for (int i = 0; i < STARTING_SHIPS; ++i)
+                engine.addShip(player, start[0], start[1] + (i - 1) * 2.0);
+        }
+
+        return engine;
+    }
+
+    private static ArrayList<double[]> images(final int numberOfPlayers, final int width, final int height, final double x, final double y)
+    {
+        final ArrayList<double[]> images = new ArrayList<>();
+        images.add(new double[]{x, y});
+        if (numberOfPlayers == 2)
+            images.add(new double[]{width - x, height - y});
+        else
+        {
+            images.add(new double[]{width - x, y});
+            images.add(new double[]{x, height - y});
+            images.add(new double[]{width - x, height - y});
+        }
+        return images;
+    }
+
+    // All the images of a planet go in, or none of them
+    private static void tryAddPlanets(final ArrayList<double[]> planets, final ArrayList<double[]> images, final double radius, final ArrayList<double[]> starts, final int width, final int height)
+    {
+        for (int i = 0; i < images.size(); ++i)
+        {
+            final double[] image = images.get(i);
+
+            if ((image[0] < radius + PLANET_MARGIN) || (image[0] > width - radius - PLANET_MARGIN)
+                    || (image[1] < radius + PLANET_MARGIN) || (image[1] > height - radius - PLANET_MARGIN))
+                return;
+
+            for (final double[] start: starts)
+                if (distance(image, start) < radius + 2 * PLANET_MARGIN)
+                    return;
+
+            for (final double[] planet: planets)
+                if (distance(image, planet) < radius + planet[2] + PLANET_MARGIN)
+                    return;
+
+            for (int j = 0; j < i; ++j)
+                if (distance(image, images.get(j)) < 2 * radius + PLANET_MARGIN)
+                    return;
+        }
+
+        for (final double[] image: images)
+            planets.add(new double[]{image[0], image[1], radius});
+    }
+
+    private static double distance(final double[] first, final double[] second)
+    {
+        final double dx = first[0] - second[0];
+        final double dy = first[1] - second[1];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,103 @@
+package engine;
+
+import core.TurnPipeline;
+import hlt.GameMap;
+import hlt.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// One game between bot pipelines, each with its own GameMap filled directly by the engine.
+public class Match
+{
+    public static class Result
+    {
+        private final int[] ranking;
+        private final int turns;
+        private final String[] crashes;
+
+        Result(final int[] ranking, final int turns, final String[] crashes)
+        {
+            this.ranking = ranking;
+            this.turns = turns;
+            this.crashes = crashes;
+        }
+
+        // Players from first to last
+        public int[] getRanking() { return ranking; }
+        public int getWinner() { return ranking[0]; }
+        public int getTurns() { return turns; }
+        // Exception that eliminated each player, null if it finished the game
+        public String[] getCrashes() { return crashes; }
+    }
+
+    private final GameEngine engine;
+    private final List<Map<String,Object>> gameDefinitions;
+    private boolean useDeadlines;
+
+    public Match(final GameEngine engine, final List<Map<String,Object>> gameDefinitions)
+    {
+        if (gameDefinitions.size() != engine.getNumberOfPlayers())
+            throw new IllegalStateException("Expected " + engine.getNumberOfPlayers() + " bots, got " + gameDefinitions.size());
+
+        this.engine = engine;
+        this.gameDefinitions = gameDefinitions;
+        this.useDeadlines = false;
+    }
+
+    // Off by default: without deadlines a game only depends on the seed, not on the load of the machine.
+    public Match setUseDeadlines(final boolean useDeadlines)
+    {
+        this.useDeadlines = useDeadlines;
+        return this;
+    }
+
+    public Result play()
+    {
+        final int numberOfPlayers = engine.getNumberOfPlayers();
+        final ArrayList<TurnPipeline> pipelines = new ArrayList<>();
+        final ArrayList<GameMap> gameMaps = new ArrayList<>();
+        final String[] crashes = new String[numberOfPlayers];
+
+        for (int player = 0; player < numberOfPlayers; ++player)
+        {
+            pipelines.add(new TurnPipeline(gameDefinitions.get(player)));
+            final GameMap gameMap = new GameMap(engine.getWidth(), engine.getHeight(), player);
+            gameMap.setReuseEntities(true);
+            gameMaps.add(gameMap);
+        }
+
+        while (!engine.isOver())
+        {
+            for (int player = 0; player < numberOfPlayers; ++player)
+            {
+                if ((crashes[player] != null) || (engine.getNumberOfShips(player) == 0))
+                    continue;
+
+                final TurnPipeline pipeline = pipelines.get(player);
+                final GameMap gameMap = gameMaps.get(player);
+
+                // A bot that throws is out of the game, as when its process dies in a real one.
+                try
+                {
+                    if (useDeadlines)
+                        pipeline.getTimer().startTurn();
+                    engine.writeGameMap(gameMap);
+                    final ArrayList<Move> moves = pipeline.playTurn(gameMap);
+                    pipeline.endTurn(gameMap);
+                    engine.setMoves(player, moves);
+                }
+                catch (RuntimeException e)
+                {
+                    crashes[player] = "Turn " + engine.getTurn() + ": " + e;
+                    engine.eliminate(player);
+                }
+            }
+
+            engine.processTurn();
+        }
+
+        return new Result(engine.getRanking(), engine.getTurn(), crashes);
+    }
+}
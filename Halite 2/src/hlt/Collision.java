@@ -16,17 +16,18 @@ public class Collision
      * @return true if the segment intersects, false otherwise
      */
     public static boolean segmentCircleIntersect(final Position start, final Position end, final Entity circle, final double fudge)
+    {
+        return segmentCircleIntersect(start.getXPos(), start.getYPos(), end.getXPos(), end.getYPos(),
+                circle.getXPos(), circle.getYPos(), circle.getRadius(), fudge);
+    }
+
+    // Same test on raw coordinates, without allocating
+    public static boolean segmentCircleIntersect(final double startX, final double startY, final double endX, final double endY,
+                                                 final double centerX, final double centerY, final double circleRadius, final double fudge)
     {
         // Parameterize the segment as start + t * (end - start),
         // and substitute into the equation of a circle
         // Solve for t
-        final double circleRadius = circle.getRadius();
-        final double startX = start.getXPos();
-        final double startY = start.getYPos();
-        final double endX = end.getXPos();
-        final double endY = end.getYPos();
-        final double centerX = circle.getXPos();
-        final double centerY = circle.getYPos();
         final double dx = endX - startX;
         final double dy = endY - startY;
 
@@ -39,7 +40,7 @@ public class Collision
 
         if (a == 0.0)
             // Start and end are the same point
-            return start.getDistanceTo(circle) <= circleRadius + fudge;
+            return distance(startX, startY, centerX, centerY) <= circleRadius + fudge;
 
         // Time along segment when closest to the circle (vertex of the quadratic)
         final double t = Math.min(-b / (2 * a), 1.0);
@@ -48,35 +49,45 @@ public class Collision
 
         final double closestX = startX + dx * t;
         final double closestY = startY + dy * t;
-        final double closestDistance = new Position(closestX, closestY).getDistanceTo(circle);
+        final double closestDistance = distance(closestX, closestY, centerX, centerY);
 
         return closestDistance <= circleRadius + fudge;
     }
 
+    // Same arithmetic as Position.getDistanceTo, so that both forms of the test agree to the bit
+    private static double distance(final double x1, final double y1, final double x2, final double y2)
+    {
+        final double dx = x1 - x2;
+        final double dy = y1 - y2;
+        return Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2));
+    }
+
     public static double square(final double num) {
         return num * num;
     }
 
-    private static boolean mightCollide(ThrustMove move1, ThrustMove move2)
+    public static boolean willCollideClosedForm(ThrustMove move1, ThrustMove move2)
     {
-        return move1.getShip().getDistanceTo(move2.getShip()) <= move1.getThrust() + move2.getThrust() + SHIP_RADIUS * 2;
+        return willCollideClosedForm(
+                move1.getShip().getXPos(), move1.getShip().getYPos(), move1.getAngle(), move1.getThrust(),
+                move2.getShip().getXPos(), move2.getShip().getYPos(), move2.getAngle(), move2.getThrust());
     }
 
-    public static boolean willCollideClosedForm(ThrustMove move1, ThrustMove move2)
+    // Same test on the positions, angles and thrusts of the two moves, without allocating
+    public static boolean willCollideClosedForm(final double x1, final double y1, final int angle1, final int thrust1,
+                                                final double x2, final double y2, final int angle2, final int thrust2)
     {
-        if (!mightCollide(move1, move2))
+        Metrics.increment(Metrics.Counter.CollisionPairs);
+
+        if (!mightCollide(x1, y1, thrust1, x2, y2, thrust2))
             return false;
 
         double radius = SHIP_RADIUS * 2;
-        double x1 = move1.getShip().getXPos();
-        double x2 = move2.getShip().getXPos();
-        double y1 = move1.getShip().getYPos();
-        double y2 = move2.getShip().getYPos();
 
         double dx = x1 - x2;
         double dy = y1 - y2;
-        double dvx = move1.dX() - move2.dX();
-        double dvy = move1.dY() - move2.dY();
+        double dvx = Trig.dX(angle1, thrust1) - Trig.dX(angle2, thrust2);
+        double dvy = Trig.dY(angle1, thrust1) - Trig.dY(angle2, thrust2);
 
         double a = dvx * dvx + dvy * dvy;
         double b = 2 * (dx * dvx + dy * dvy);
@@ -124,19 +135,23 @@ public class Collision
         return ((time >= 0 ) && (time <= 1));
     }
 
+    private static boolean mightCollide(final double x1, final double y1, final int thrust1, final double x2, final double y2, final int thrust2)
+    {
+        final double dx = x1 - x2;
+        final double dy = y1 - y2;
+        return Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2)) <= thrust1 + thrust2 + SHIP_RADIUS * 2;
+    }
+
     public static void resolveMoves(ThrustMove firstMove, ThrustMove secondMove)
     {
         // Find the further possible move for second move.
 
-        ThrustMove newSecondMove = new ThrustMove(secondMove);
         int thrustSecondMove = secondMove.getThrust();
 
         int thrustCrashSecondMove = thrustSecondMove;
         for (int i = 0; i <= thrustSecondMove; i++)
         {
-            newSecondMove.setThrust(i);
-
-            if (willCollideClosedForm(firstMove, newSecondMove))
+            if (willCollideClosedForm(firstMove, secondMove, firstMove.getThrust(), i))
             {
                 thrustCrashSecondMove = i;
                 break;
@@ -149,15 +164,12 @@ public class Collision
 
         if (thrustCrashSecondMove == 0)
         {
-            ThrustMove newFirstMove = new ThrustMove(firstMove);
             int thrustFirstMove = firstMove.getThrust();
 
             int thrustCrashFirstMove = thrustFirstMove;
             for (int i = 0; i <= thrustFirstMove; i++)
             {
-                newFirstMove.setThrust(i);
-
-                if (willCollideClosedForm(newFirstMove, secondMove))
+                if (willCollideClosedForm(firstMove, secondMove, i, secondMove.getThrust()))
                 {
                     thrustCrashFirstMove = i;
                     break;
@@ -167,5 +179,11 @@ public class Collision
             firstMove.setThrust(Math.max(thrustCrashFirstMove - 1, 0));
         }
     }
-}
 
+    private static boolean willCollideClosedForm(final ThrustMove move1, final ThrustMove move2, final int thrust1, final int thrust2)
+    {
+        return willCollideClosedForm(
+                move1.getShip().getXPos(), move1.getShip().getYPos(), move1.getAngle(), thrust1,
+                move2.getShip().getXPos(), move2.getShip().getYPos(), move2.getAngle(), thrust2);
+    }
+}
@@ -1,34 +1,172 @@
 package hlt;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 public class DebugLog
 {
-    private final FileWriter file;
+    public enum Level
+    {
+        Error,
+        Info,
+        Debug,
+        Trace
+    }
+
+    private static final int QUEUE_CAPACITY = 1 << 14;
+    private static final int BATCH_SIZE = 512;
+    private static final long DEFAULT_MAX_CHARACTERS = 64L << 20;
+
+    // Messages are formatted on the turn thread, only the writing is left to the background thread.
+    // When the queue is full messages are dropped rather than blocking the turn.
+    private final Writer file;
+    private final ArrayBlockingQueue<String> queue;
+    private final ArrayList<String> batch;
+    private final long maxCharacters;
+    private long writtenCharacters;
+    private final AtomicInteger droppedMessages;
+    private boolean truncated;
+
     private static DebugLog instance;
+    // Set once at startup, a disabled level costs a single comparison
+    private static int enabledLevel = Level.Info.ordinal();
+
+    private DebugLog(final Writer f, final long maxCharacters)
+    {
+        this.file = f;
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.batch = new ArrayList<>(BATCH_SIZE);
+        this.maxCharacters = maxCharacters;
+        this.writtenCharacters = 0;
+        this.droppedMessages = new AtomicInteger();
+        this.truncated = false;
+    }
+
+    static void initialize(final Writer f)
+    {
+        initialize(f, DEFAULT_MAX_CHARACTERS);
+    }
+
+    static void initialize(final Writer f, final long maxCharacters)
+    {
+        final DebugLog log = new DebugLog(f, maxCharacters);
+
+        final Thread writerThread = new Thread(log::writeLoop, "DebugLog");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        // Whatever is still queued when the engine kills us goes out on the way down.
+        Runtime.getRuntime().addShutdownHook(new Thread(log::drain));
+
+        instance = log;
+    }
+
+    public static void setLevel(final Level level) { enabledLevel = level.ordinal(); }
+    public static Level getLevel() { return Level.values()[enabledLevel]; }
+    public static boolean isEnabled(final Level level) { return level.ordinal() <= enabledLevel; }
 
-    private DebugLog(final FileWriter f)
+    public static void addLog(final String message) { addLog(Level.Info, message); }
+
+    public static void addLog(final Level level, final String message)
+    {
+        if (level.ordinal() > enabledLevel)
+            return;
+
+        final DebugLog log = instance;
+        if (log != null)
+            log.enqueue(message);
+    }
+
+    public static void addLog(final Level level, final Supplier<String> message)
     {
-        file = f;
+        if (level.ordinal() > enabledLevel)
+            return;
+
+        final DebugLog log = instance;
+        if (log != null)
+            log.enqueue(message.get());
     }
 
-    static void initialize(final FileWriter f)
+    public static void flush()
     {
-        instance = new DebugLog(f);
+        final DebugLog log = instance;
+        if (log != null)
+            log.drain();
     }
 
-    public static void addLog(final String message)
+    private void enqueue(final String message)
+    {
+        if (!queue.offer(message))
+            droppedMessages.incrementAndGet();
+    }
+
+    private void writeLoop()
     {
         try
         {
-            instance.file.write(message);
-            instance.file.write('\n');
-            instance.file.flush();
+            while (true)
+            {
+                final String message = queue.take();
+                synchronized (this)
+                {
+                    batch.add(message);
+                    writeBatch();
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void drain()
+    {
+        do
+            writeBatch();
+        while (!queue.isEmpty());
+    }
+
+    private void writeBatch()
+    {
+        try
+        {
+            queue.drainTo(batch, BATCH_SIZE - batch.size());
+            for (final String message : batch)
+                write(message);
+            batch.clear();
+
+            final int dropped = droppedMessages.getAndSet(0);
+            if (dropped > 0)
+                write("[" + dropped + " messages dropped]");
+
+            file.flush();
         }
         catch (IOException e)
         {
+            batch.clear();
             e.printStackTrace();
         }
     }
+
+    private void write(final String message) throws IOException
+    {
+        if (truncated)
+            return;
+
+        if (writtenCharacters + message.length() + 1 > maxCharacters)
+        {
+            truncated = true;
+            file.write("[log truncated]\n");
+            return;
+        }
+
+        file.write(message);
+        file.write('\n');
+        writtenCharacters += message.length() + 1;
+    }
 }
@@ -2,10 +2,11 @@ package hlt;
 
 public class Entity extends Position
 {
-    private final int owner;
-    private final int id;
-    private final int health;
+    private int owner;
+    private int id;
+    private int health;
     private double radius;
+    private int storeIndex;
 
     public Entity(final int owner, final int id, final double xPos, final double yPos, final int health, final double radius)
     {
@@ -14,14 +15,27 @@ public class Entity extends Position
         this.id = id;
         this.health = health;
         this.radius = radius;
+        this.storeIndex = -1;
     }
 
     public int getOwner() { return owner; }
     public int getId() { return id; }
     public int getHealth() { return health; }
     public double getRadius() { return radius; }
+    // Index in the EntityStore of the map, -1 for entities not on the map (copies, predictions...)
+    public int getStoreIndex() { return storeIndex; }
 
     public void setRadius(final double newRadius) { this.radius = newRadius; }
+    void setStoreIndex(final int storeIndex) { this.storeIndex = storeIndex; }
+
+    // Only GameMap may move its entities around, everything else sees them as immutable.
+    void update(final int owner, final int id, final double xPos, final double yPos, final int health)
+    {
+        setPosition(xPos, yPos);
+        this.owner = owner;
+        this.id = id;
+        this.health = health;
+    }
 
     @Override
     public boolean equals(Object object)
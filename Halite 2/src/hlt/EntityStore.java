@@ -0,0 +1,195 @@
+package hlt;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// Columnar copy of the entities of a GameMap, filled after each update, so that range and
+// nearest-neighbour scans walk packed arrays instead of chasing one heap object per ship.
+public class EntityStore
+{
+    private static final int INITIAL_SHIP_CAPACITY = 256;
+    private static final int INITIAL_PLANET_CAPACITY = 64;
+    private static final double SQUARED_DISTANCE_MARGIN = 1e-9;
+
+    private int numberOfShips;
+    private Ship[] ships;
+    private double[] shipsX;
+    private double[] shipsY;
+    private int[] shipsId;
+    private int[] shipsOwner;
+    private int[] shipsHealth;
+    private int[] shipsDockingStatus;
+    private int[] shipsWeaponCooldown;
+
+    private int numberOfPlanets;
+    private Planet[] planets;
+    private double[] planetsX;
+    private double[] planetsY;
+    private double[] planetsRadius;
+    private int[] planetsId;
+    private int[] planetsOwner;
+    private int[] planetsDockingSpots;
+    private int[] planetsDockedShips;
+
+    public EntityStore()
+    {
+        this.ships = new Ship[INITIAL_SHIP_CAPACITY];
+        this.shipsX = new double[INITIAL_SHIP_CAPACITY];
+        this.shipsY = new double[INITIAL_SHIP_CAPACITY];
+        this.shipsId = new int[INITIAL_SHIP_CAPACITY];
+        this.shipsOwner = new int[INITIAL_SHIP_CAPACITY];
+        this.shipsHealth = new int[INITIAL_SHIP_CAPACITY];
+        this.shipsDockingStatus = new int[INITIAL_SHIP_CAPACITY];
+        this.shipsWeaponCooldown = new int[INITIAL_SHIP_CAPACITY];
+
+        this.planets = new Planet[INITIAL_PLANET_CAPACITY];
+        this.planetsX = new double[INITIAL_PLANET_CAPACITY];
+        this.planetsY = new double[INITIAL_PLANET_CAPACITY];
+        this.planetsRadius = new double[INITIAL_PLANET_CAPACITY];
+        this.planetsId = new int[INITIAL_PLANET_CAPACITY];
+        this.planetsOwner = new int[INITIAL_PLANET_CAPACITY];
+        this.planetsDockingSpots = new int[INITIAL_PLANET_CAPACITY];
+        this.planetsDockedShips = new int[INITIAL_PLANET_CAPACITY];
+    }
+
+    public int getNumberOfShips() { return numberOfShips; }
+    public Ship getShip(final int index) { return ships[index]; }
+    public double getShipX(final int index) { return shipsX[index]; }
+    public double getShipY(final int index) { return shipsY[index]; }
+    public int getShipId(final int index) { return shipsId[index]; }
+    public int getShipOwner(final int index) { return shipsOwner[index]; }
+    public int getShipHealth(final int index) { return shipsHealth[index]; }
+    public int getShipWeaponCooldown(final int index) { return shipsWeaponCooldown[index]; }
+    public boolean isShipUndocked(final int index) { return shipsDockingStatus[index] == Ship.DockingStatus.Undocked.ordinal(); }
+
+    public int getNumberOfPlanets() { return numberOfPlanets; }
+    public Planet getPlanet(final int index) { return planets[index]; }
+    public double getPlanetX(final int index) { return planetsX[index]; }
+    public double getPlanetY(final int index) { return planetsY[index]; }
+    public double getPlanetRadius(final int index) { return planetsRadius[index]; }
+    public int getPlanetId(final int index) { return planetsId[index]; }
+    public int getPlanetOwner(final int index) { return planetsOwner[index]; }
+    public int getPlanetFreeDockingSpots(final int index) { return planetsDockingSpots[index] - planetsDockedShips[index]; }
+
+    public double getDistanceToShip(final int index, final Position position)
+    {
+        return getDistanceToShip(index, position.getXPos(), position.getYPos());
+    }
+
+    public double getDistanceToShip(final int index, final double xPos, final double yPos)
+    {
+        final double dx = shipsX[index] - xPos;
+        final double dy = shipsY[index] - yPos;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    // Exact same answer as getDistanceToShip(...) < distance, but only takes a square root near the boundary
+    public boolean isShipCloserThan(final int index, final double xPos, final double yPos, final double distance)
+    {
+        if (distance <= 0)
+            return false;
+
+        final double dx = shipsX[index] - xPos;
+        final double dy = shipsY[index] - yPos;
+        final double squaredDistance = dx * dx + dy * dy;
+        final double margin = distance * SQUARED_DISTANCE_MARGIN;
+
+        if (squaredDistance > (distance + margin) * (distance + margin))
+            return false;
+        if (squaredDistance < (distance - margin) * (distance - margin))
+            return true;
+
+        return Math.sqrt(squaredDistance) < distance;
+    }
+
+    public double getDistanceToPlanet(final int index, final Position position)
+    {
+        final double dx = planetsX[index] - position.getXPos();
+        final double dy = planetsY[index] - position.getYPos();
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    void update(final List<Ship> allShips, final Collection<Planet> allPlanets)
+    {
+        // Entities dropped from the map must not point into the new columns.
+        for (int i = 0; i < numberOfShips; ++i)
+            ships[i].setStoreIndex(-1);
+        for (int i = 0; i < numberOfPlanets; ++i)
+            planets[i].setStoreIndex(-1);
+        Arrays.fill(ships, 0, numberOfShips, null);
+        Arrays.fill(planets, 0, numberOfPlanets, null);
+
+        numberOfShips = 0;
+        ensureShipCapacity(allShips.size());
+        for (final Ship ship : allShips)
+            addShip(ship);
+
+        numberOfPlanets = 0;
+        ensurePlanetCapacity(allPlanets.size());
+        for (final Planet planet : allPlanets)
+            addPlanet(planet);
+    }
+
+    private void addShip(final Ship ship)
+    {
+        final int index = numberOfShips++;
+
+        ships[index] = ship;
+        shipsX[index] = ship.getXPos();
+        shipsY[index] = ship.getYPos();
+        shipsId[index] = ship.getId();
+        shipsOwner[index] = ship.getOwner();
+        shipsHealth[index] = ship.getHealth();
+        shipsDockingStatus[index] = ship.getDockingStatus().ordinal();
+        shipsWeaponCooldown[index] = ship.getWeaponCooldown();
+        ship.setStoreIndex(index);
+    }
+
+    private void addPlanet(final Planet planet)
+    {
+        final int index = numberOfPlanets++;
+
+        planets[index] = planet;
+        planetsX[index] = planet.getXPos();
+        planetsY[index] = planet.getYPos();
+        planetsRadius[index] = planet.getRadius();
+        planetsId[index] = planet.getId();
+        planetsOwner[index] = planet.getOwner();
+        planetsDockingSpots[index] = planet.getDockingSpots();
+        planetsDockedShips[index] = planet.getDockedShips().size();
+        planet.setStoreIndex(index);
+    }
+
+    private void ensureShipCapacity(final int capacity)
+    {
+        if (capacity <= ships.length)
+            return;
+
+        final int newLength = Math.max(ships.length * 2, capacity);
+        ships = Arrays.copyOf(ships, newLength);
+        shipsX = Arrays.copyOf(shipsX, newLength);
+        shipsY = Arrays.copyOf(shipsY, newLength);
+        shipsId = Arrays.copyOf(shipsId, newLength);
+        shipsOwner = Arrays.copyOf(shipsOwner, newLength);
+        shipsHealth = Arrays.copyOf(shipsHealth, newLength);
+        shipsDockingStatus = Arrays.copyOf(shipsDockingStatus, newLength);
+        shipsWeaponCooldown = Arrays.copyOf(shipsWeaponCooldown, newLength);
+    }
+
+    private void ensurePlanetCapacity(final int capacity)
+    {
+        if (capacity <= planets.length)
+            return;
+
+        final int newLength = Math.max(planets.length * 2, capacity);
+        planets = Arrays.copyOf(planets, newLength);
+        planetsX = Arrays.copyOf(planetsX, newLength);
+        planetsY = Arrays.copyOf(planetsY, newLength);
+        planetsRadius = Arrays.copyOf(planetsRadius, newLength);
+        planetsId = Arrays.copyOf(planetsId, newLength);
+        planetsOwner = Arrays.copyOf(planetsOwner, newLength);
+        planetsDockingSpots = Arrays.copyOf(planetsDockingSpots, newLength);
+        planetsDockedShips = Arrays.copyOf(planetsDockedShips, newLength);
+    }
+}
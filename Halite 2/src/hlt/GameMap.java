@@ -1,6 +1,8 @@
 package hlt;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -16,10 +18,27 @@ public class GameMap
     private final Map<Integer, Planet> planets;
     private final List<Ship> allShips;
     private final List<Ship> allShipsUnmodifiable;
+    private final EntityStore entityStore = new EntityStore();
 
     // used only during parsing to reduce memory allocations
     private final List<Ship> currentShips = new ArrayList<>();
 
+    // In-place updates: entities are looked up by id and recycled instead of reallocated every turn
+    private boolean reuseEntities;
+    private boolean indexed;
+    private int updateStamp;
+    private final List<Map<Integer, Ship>> playerShips = new ArrayList<>(Constants.MAX_PLAYERS);
+    private int updatedPlayers;
+    private int updatedPlayerId;
+    private Map<Integer, Ship> updatedPlayerShips;
+    private int updatedPlanets;
+    private Ship[] shipsById = new Ship[256];
+    private int[] shipStamps = new int[256];
+    private int[] planetStamps = new int[64];
+    private final List<Ship> previousShips = new ArrayList<>();
+    private final ArrayDeque<Ship> shipPool = new ArrayDeque<>();
+    private final List<Ship> releasedShips = new ArrayList<>();
+
     public GameMap(final int width, final int height, final int playerId)
     {
         this.width = width;
@@ -40,16 +59,22 @@ public class GameMap
     public Planet getPlanet(final int entityId) { return planets.get(entityId); }
     public Map<Integer, Planet> getAllPlanets() { return planets; }
     public List<Ship> getAllShips() { return allShipsUnmodifiable; }
+    public EntityStore getEntityStore() { return entityStore; }
     public int getNumberOfPlayers() { return players.size(); }
     public Ship getShip(final int playerId, final int entityId) throws IndexOutOfBoundsException { return players.get(playerId).getShip(entityId); }
+    public boolean isReusingEntities() { return reuseEntities; }
+
+    public void setReuseEntities(final boolean reuseEntities) { this.reuseEntities = reuseEntities; }
 
     public GameMap updateMap(final Metadata mapMetadata)
     {
         final int numberOfPlayers = MetadataParser.parsePlayerNum(mapMetadata);
 
         players.clear();
+        playerShips.clear();
         planets.clear();
         allShips.clear();
+        indexed = false;
 
         // update players info
         for (int i = 0; i < numberOfPlayers; ++i)
@@ -66,6 +91,7 @@ public class GameMap
                 currentPlayerShips.put(ship.getId(), ship);
 
             players.add(currentPlayer);
+            playerShips.add(currentPlayerShips);
         }
 
         final int numberOfPlanets = Integer.parseInt(mapMetadata.pop());
@@ -80,6 +106,266 @@ public class GameMap
         if (!mapMetadata.isEmpty())
             throw new IllegalStateException("Failed to parse data from Halite game engine. Please contact maintainers.");
 
+        entityStore.update(allShips, planets.values());
+        return this;
+    }
+
+    public GameMap updateMap(final InputTokenizer input)
+    {
+        if (reuseEntities)
+            return updateMapInPlace(input);
+
+        final int numberOfPlayers = MetadataParser.parsePlayerNum(input);
+
+        players.clear();
+        playerShips.clear();
+        planets.clear();
+        allShips.clear();
+        indexed = false;
+
+        // update players info
+        for (int i = 0; i < numberOfPlayers; ++i)
+        {
+            currentShips.clear();
+            final Map<Integer, Ship> currentPlayerShips = new TreeMap<>();
+            final int playerId = MetadataParser.parsePlayerId(input);
+
+            final Player currentPlayer = new Player(playerId, currentPlayerShips);
+            MetadataParser.populateShipList(currentShips, playerId, input);
+            allShips.addAll(currentShips);
+
+            for (final Ship ship : currentShips)
+                currentPlayerShips.put(ship.getId(), ship);
+
+            players.add(currentPlayer);
+            playerShips.add(currentPlayerShips);
+        }
+
+        final int numberOfPlanets = input.nextInt();
+
+        for (int i = 0; i < numberOfPlanets; ++i)
+        {
+            final List<Integer> dockedShips = new ArrayList<>();
+            final Planet planet = MetadataParser.newPlanetFromTokens(dockedShips, input);
+            planets.put(planet.getId(), planet);
+        }
+
+        if (!input.isEndOfLine())
+            throw new IllegalStateException("Failed to parse data from Halite game engine. Please contact maintainers.");
+        input.endLine();
+
+        entityStore.update(allShips, planets.values());
+        return this;
+    }
+
+    private GameMap updateMapInPlace(final InputTokenizer input)
+    {
+        final int numberOfPlayers = MetadataParser.parsePlayerNum(input);
+
+        beginUpdate();
+
+        // update players info
+        for (int i = 0; i < numberOfPlayers; ++i)
+        {
+            beginPlayer(MetadataParser.parsePlayerId(input));
+
+            final int numberOfShips = input.nextInt();
+            for (int j = 0; j < numberOfShips; ++j)
+                MetadataParser.updateShipFromTokens(this, updatedPlayerId, input);
+        }
+
+        final int numberOfPlanets = input.nextInt();
+
+        for (int i = 0; i < numberOfPlanets; ++i)
+            MetadataParser.updatePlanetFromTokens(this, input);
+
+        if (!input.isEndOfLine())
+            throw new IllegalStateException("Failed to parse data from Halite game engine. Please contact maintainers.");
+        input.endLine();
+
+        return endUpdate();
+    }
+
+    /*
+     * In-place update driven directly by an engine in the same process, in the order of the engine line:
+     * beginUpdate(), then for each player beginPlayer() followed by its ships, then the planets, then endUpdate().
+     */
+    public void beginUpdate()
+    {
+        if (!indexed)
+            indexShips();
+        updateStamp++;
+        updatedPlayers = 0;
+        updatedPlanets = 0;
+
+        // Ships released last turn may still be referenced by fleets until those get refreshed,
+        // so they only become available one turn later.
+        shipPool.addAll(releasedShips);
+        releasedShips.clear();
+
+        previousShips.clear();
+        previousShips.addAll(allShips);
+        allShips.clear();
+    }
+
+    public void beginPlayer(final int playerId)
+    {
+        final int i = updatedPlayers++;
+        if ((i == players.size()) || (players.get(i).getId() != playerId))
+            resetPlayers(i, playerId);
+
+        updatedPlayerId = playerId;
+        updatedPlayerShips = playerShips.get(i);
+    }
+
+    public Ship updateShip(final int id, final double xPos, final double yPos, final int health, final Ship.DockingStatus dockingStatus,
+                           final int dockedPlanet, final int dockingProgress, final int weaponCooldown)
+    {
+        final Ship ship = acquireShip(updatedPlayerId, id);
+        ship.update(updatedPlayerId, id, xPos, yPos, health, dockingStatus, dockedPlanet, dockingProgress, weaponCooldown);
+        allShips.add(ship);
+        return ship;
+    }
+
+    public Planet updatePlanet(final int id, final int owner, final double xPos, final double yPos, final int health, final double radius,
+                               final int dockingSpots, final int currentProduction, final int remainingProduction, final List<Integer> dockedShips)
+    {
+        final Planet planet = acquirePlanet(id);
+        planet.update(owner, xPos, yPos, health, radius, dockingSpots, currentProduction, remainingProduction);
+
+        for (int i = 0; i < dockedShips.size(); ++i)
+            planet.setDockedShip(i, dockedShips.get(i));
+        planet.setNumberOfDockedShips(dockedShips.size());
+
+        return planet;
+    }
+
+    public GameMap endUpdate()
+    {
+        while (players.size() > updatedPlayers)
+        {
+            players.remove(players.size() - 1);
+            playerShips.remove(playerShips.size() - 1);
+        }
+
+        for (final Ship ship : previousShips)
+            if (shipStamps[ship.getId()] != updateStamp)
+                releaseShip(ship);
+        previousShips.clear();
+
+        // Destroyed planets are simply not sent anymore
+        if (planets.size() != updatedPlanets)
+            planets.values().removeIf(planet -> planetStamps[planet.getId()] != updateStamp);
+
+        entityStore.update(allShips, planets.values());
         return this;
     }
+
+    Ship acquireShip(final int owner, final int id)
+    {
+        ensureShipCapacity(id);
+
+        Ship ship = shipsById[id];
+        if (ship == null)
+        {
+            ship = shipPool.isEmpty()? new Ship(owner, id, 0, 0, 0, Ship.DockingStatus.Undocked, 0, 0, 0) : shipPool.pop();
+            ship.setObjective(null);
+            shipsById[id] = ship;
+            updatedPlayerShips.put(id, ship);
+        }
+        else if (ship.getOwner() != owner)
+        {
+            removeFromPlayer(ship);
+            updatedPlayerShips.put(id, ship);
+        }
+
+        shipStamps[id] = updateStamp;
+        return ship;
+    }
+
+    Planet acquirePlanet(final int id)
+    {
+        if (id >= planetStamps.length)
+            planetStamps = Arrays.copyOf(planetStamps, Math.max(planetStamps.length * 2, id + 1));
+
+        Planet planet = planets.get(id);
+        if (planet == null)
+        {
+            planet = new Planet(id);
+            planets.put(id, planet);
+        }
+
+        if (planetStamps[id] != updateStamp)
+            updatedPlanets++;
+        planetStamps[id] = updateStamp;
+        return planet;
+    }
+
+    private void releaseShip(final Ship ship)
+    {
+        shipsById[ship.getId()] = null;
+        removeFromPlayer(ship);
+        releasedShips.add(ship);
+    }
+
+    private void removeFromPlayer(final Ship ship)
+    {
+        for (int i = 0; i < players.size(); ++i)
+            if (players.get(i).getId() == ship.getOwner())
+                playerShips.get(i).remove(ship.getId());
+    }
+
+    private void resetPlayers(final int index, final int playerId)
+    {
+        while (players.size() > index)
+        {
+            players.remove(players.size() - 1);
+            playerShips.remove(playerShips.size() - 1);
+        }
+
+        final Map<Integer, Ship> newPlayerShips = new TreeMap<>();
+        players.add(new Player(playerId, newPlayerShips));
+        playerShips.add(newPlayerShips);
+
+        // Ships of the dropped players are re-acquired into the new maps.
+        for (final Ship ship : previousShips)
+            if (ship.getOwner() == playerId || !isKnownPlayer(ship.getOwner()))
+                shipsById[ship.getId()] = null;
+    }
+
+    private boolean isKnownPlayer(final int playerId)
+    {
+        for (final Player player : players)
+            if (player.getId() == playerId)
+                return true;
+
+        return false;
+    }
+
+    private void indexShips()
+    {
+        Arrays.fill(shipsById, null);
+
+        for (final Ship ship : allShips)
+        {
+            ensureShipCapacity(ship.getId());
+            shipsById[ship.getId()] = ship;
+            shipStamps[ship.getId()] = updateStamp;
+        }
+
+        for (final Planet planet : planets.values())
+            acquirePlanet(planet.getId());
+
+        indexed = true;
+    }
+
+    private void ensureShipCapacity(final int id)
+    {
+        if (id < shipsById.length)
+            return;
+
+        final int newLength = Math.max(shipsById.length * 2, id + 1);
+        shipsById = Arrays.copyOf(shipsById, newLength);
+        shipStamps = Arrays.copyOf(shipStamps, newLength);
+    }
 }
@@ -0,0 +1,245 @@
+package hlt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+public class InputTokenizer
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    // Largest mantissa for which mantissa / 10^n is still correctly rounded
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final InputStream input;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+
+    // Characters of the current token, only used to fall back on Double.parseDouble
+    private final char[] token;
+    private int tokenLength;
+
+    public InputTokenizer(final InputStream input)
+    {
+        this.input = input;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.position = 0;
+        this.limit = 0;
+        this.token = new char[MAX_TOKEN_LENGTH];
+    }
+
+    public InputTokenizer(final byte[] data)
+    {
+        this.input = null;
+        this.token = new char[MAX_TOKEN_LENGTH];
+        reset(data, data.length);
+    }
+
+    public void reset(final byte[] data, final int length)
+    {
+        if (this.input != null)
+            throw new IllegalStateException("Cannot reset a tokenizer reading from a stream.");
+
+        this.buffer = data;
+        this.position = 0;
+        this.limit = length;
+    }
+
+    public boolean hasNextLine() { return peek() >= 0; }
+
+    public boolean isEndOfLine()
+    {
+        skipSpaces();
+        final int c = peek();
+        return (c == '\n') || (c < 0);
+    }
+
+    public void endLine()
+    {
+        int c;
+        while ((c = read()) >= 0)
+            if (c == '\n')
+                return;
+    }
+
+    public String readLine()
+    {
+        final StringBuilder builder = new StringBuilder();
+
+        int c;
+        while ((c = read()) >= 0)
+        {
+            if (c == '\n')
+                break;
+            if (c == '\r')
+                // Ignore carriage return if on windows for manual testing.
+                continue;
+            builder.append((char) c);
+        }
+
+        return builder.toString();
+    }
+
+    public void skipToken()
+    {
+        skipSpaces();
+        int c;
+        while (((c = peek()) >= 0) && !isSeparator(c))
+            position++;
+    }
+
+    public int nextInt()
+    {
+        final long value = nextLong();
+
+        if ((value > Integer.MAX_VALUE) || (value < Integer.MIN_VALUE))
+            throw new IllegalStateException("Integer out of range in data from Halite game engine.");
+
+        return (int) value;
+    }
+
+    public long nextLong()
+    {
+        skipSpaces();
+
+        boolean negative = false;
+        if (peek() == '-')
+        {
+            negative = true;
+            position++;
+        }
+
+        long value = 0;
+        int digits = 0;
+        int c;
+        while (((c = peek()) >= '0') && (c <= '9'))
+        {
+            value = value * 10 + (c - '0');
+            digits++;
+            position++;
+        }
+
+        if ((digits == 0) || !isSeparator(peek()))
+            throw new IllegalStateException("Failed to parse integer from Halite game engine.");
+
+        return negative? -value : value;
+    }
+
+    public double nextDouble()
+    {
+        skipSpaces();
+        this.tokenLength = 0;
+
+        boolean negative = false;
+        int c = peek();
+        if ((c == '-') || (c == '+'))
+        {
+            negative = (c == '-');
+            record(c);
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean inFraction = false;
+        boolean exact = true;
+
+        while (((c = peek()) >= 0) && !isSeparator(c))
+        {
+            if ((c >= '0') && (c <= '9'))
+            {
+                if (mantissa < MAX_EXACT_MANTISSA / 10)
+                {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (inFraction)
+                        fractionDigits++;
+                }
+                else
+                    exact = false;
+                digits++;
+            }
+            else if ((c == '.') && !inFraction)
+                inFraction = true;
+            else
+                // Exponents, NaN, Infinity... let the JDK deal with them.
+                exact = false;
+
+            record(c);
+        }
+
+        if (exact && (digits > 0) && (fractionDigits < POWERS_OF_TEN.length))
+        {
+            final double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative? -value : value;
+        }
+
+        if (this.tokenLength == 0)
+            throw new IllegalStateException("Failed to parse double from Halite game engine.");
+
+        return Double.parseDouble(new String(this.token, 0, this.tokenLength));
+    }
+
+    private void record(final int c)
+    {
+        if (this.tokenLength == MAX_TOKEN_LENGTH)
+            throw new IllegalStateException("Token too long in data from Halite game engine.");
+
+        this.token[this.tokenLength++] = (char) c;
+        position++;
+    }
+
+    private void skipSpaces()
+    {
+        int c;
+        while (((c = peek()) == ' ') || (c == '\r') || (c == '\t'))
+            position++;
+    }
+
+    private static boolean isSeparator(final int c)
+    {
+        return (c < 0) || (c == ' ') || (c == '\n') || (c == '\r') || (c == '\t');
+    }
+
+    private int read()
+    {
+        final int c = peek();
+        if (c >= 0)
+            position++;
+        return c;
+    }
+
+    private int peek()
+    {
+        if ((position == limit) && !fill())
+            return -1;
+
+        return buffer[position] & 0xFF;
+    }
+
+    private boolean fill()
+    {
+        if (input == null)
+            return false;
+
+        try
+        {
+            final int read = input.read(buffer, 0, buffer.length);
+            if (read <= 0)
+                return false;
+
+            position = 0;
+            limit = read;
+            return true;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
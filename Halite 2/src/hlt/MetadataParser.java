@@ -72,4 +72,116 @@ public class MetadataParser
     public static int parsePlayerId(final Metadata metadata) {
         return Integer.parseInt(metadata.pop());
     }
+
+    // Same layout as above, read straight from the input bytes without intermediate Strings.
+
+    public static void populateShipList(final List<Ship> shipsOutput, final int owner, final InputTokenizer input)
+    {
+        final int numberOfShips = input.nextInt();
+
+        for(int i = 0; i < numberOfShips; ++i) {
+            shipsOutput.add(newShipFromTokens(owner, input));
+        }
+    }
+
+    private static Ship newShipFromTokens(final int owner, final InputTokenizer input)
+    {
+        final int id = input.nextInt();
+        final double xPos = input.nextDouble();
+        final double yPos = input.nextDouble();
+        final int health = input.nextInt();
+
+        // Ignoring velocity(x,y) which is always (0,0) in current version.
+        input.skipToken();
+        input.skipToken();
+
+        final Ship.DockingStatus dockingStatus = Ship.DockingStatus.values()[input.nextInt()];
+        final int dockedPlanet = input.nextInt();
+        final int dockingProgress = input.nextInt();
+        final int weaponCooldown = input.nextInt();
+
+        return new Ship(owner, id, xPos, yPos, health, dockingStatus, dockedPlanet, dockingProgress, weaponCooldown);
+    }
+
+    public static Planet newPlanetFromTokens(final List<Integer> dockedShips, final InputTokenizer input)
+    {
+        final int id = input.nextInt();
+        final double xPos = input.nextDouble();
+        final double yPos = input.nextDouble();
+        final int health = input.nextInt();
+
+        final double radius = input.nextDouble();
+        final int dockingSpots = input.nextInt();
+        final int currentProduction = input.nextInt();
+        final int remainingProduction = input.nextInt();
+
+        final int hasOwner = input.nextInt();
+        final int ownerCandidate = input.nextInt();
+        final int owner = (hasOwner == 1)? ownerCandidate : -1;
+
+        final int dockedShipCount = input.nextInt();
+        for (int i = 0; i < dockedShipCount; ++i) {
+            dockedShips.add(input.nextInt());
+        }
+
+        return new Planet(owner, id, xPos, yPos, health, radius, dockingSpots,
+                          currentProduction, remainingProduction, dockedShips);
+    }
+
+    // In-place variants: entities are handed out by the GameMap instead of allocated here.
+
+    public static Ship updateShipFromTokens(final GameMap gameMap, final int owner, final InputTokenizer input)
+    {
+        final int id = input.nextInt();
+        final double xPos = input.nextDouble();
+        final double yPos = input.nextDouble();
+        final int health = input.nextInt();
+
+        // Ignoring velocity(x,y) which is always (0,0) in current version.
+        input.skipToken();
+        input.skipToken();
+
+        final Ship.DockingStatus dockingStatus = Ship.DockingStatus.values()[input.nextInt()];
+        final int dockedPlanet = input.nextInt();
+        final int dockingProgress = input.nextInt();
+        final int weaponCooldown = input.nextInt();
+
+        return gameMap.updateShip(id, xPos, yPos, health, dockingStatus, dockedPlanet, dockingProgress, weaponCooldown);
+    }
+
+    public static Planet updatePlanetFromTokens(final GameMap gameMap, final InputTokenizer input)
+    {
+        final int id = input.nextInt();
+        final double xPos = input.nextDouble();
+        final double yPos = input.nextDouble();
+        final int health = input.nextInt();
+
+        final double radius = input.nextDouble();
+        final int dockingSpots = input.nextInt();
+        final int currentProduction = input.nextInt();
+        final int remainingProduction = input.nextInt();
+
+        final int hasOwner = input.nextInt();
+        final int ownerCandidate = input.nextInt();
+        final int owner = (hasOwner == 1)? ownerCandidate : -1;
+
+        final Planet planet = gameMap.acquirePlanet(id);
+        planet.update(owner, xPos, yPos, health, radius, dockingSpots, currentProduction, remainingProduction);
+
+        final int dockedShipCount = input.nextInt();
+        for (int i = 0; i < dockedShipCount; ++i) {
+            planet.setDockedShip(i, input.nextInt());
+        }
+        planet.setNumberOfDockedShips(dockedShipCount);
+
+        return planet;
+    }
+
+    public static int parsePlayerNum(final InputTokenizer input) {
+        return input.nextInt();
+    }
+
+    public static int parsePlayerId(final InputTokenizer input) {
+        return input.nextInt();
+    }
 }
@@ -0,0 +1,281 @@
+package hlt;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+public class Metrics
+{
+    // Steps of a turn, in the order they run
+    public enum Phase
+    {
+        Parse,
+        Update,
+        Distance,
+        Objective,
+        Fleet,
+        Combat,
+        Navigation,
+        Send
+    }
+
+    public enum Counter
+    {
+        FutureNodes,
+        NavigationCorrections,
+        CollisionPairs
+    }
+
+    @Name("halite.Phase")
+    @Label("Turn Phase")
+    @Category("Halite")
+    static class PhaseEvent extends Event
+    {
+        @Label("Turn") int turn;
+        @Label("Phase") String phase;
+        @Label("Allocated Bytes") long allocatedBytes;
+    }
+
+    @Name("halite.Turn")
+    @Label("Turn")
+    @Category("Halite")
+    static class TurnEvent extends Event
+    {
+        @Label("Turn") int turn;
+        @Label("Ships") int ships;
+        @Label("Future Nodes") long futureNodes;
+        @Label("Navigation Corrections") long navigationCorrections;
+        @Label("Collision Pairs") long collisionPairs;
+    }
+
+    private static final int PHASES = Phase.values().length;
+    private static final int COUNTERS = Counter.values().length;
+
+    // Counters are bumped from the hot loops on the turn thread, so they are plain longs.
+    private static final long[] counters = new long[COUNTERS];
+
+    private static boolean enabled = false;
+    private static com.sun.management.ThreadMXBean allocationBean;
+    private static final PhaseEvent phaseEventProbe = new PhaseEvent();
+
+    // One row per turn: wall nanos and allocated bytes by phase, then counters and ships
+    private static long[][] wallNanos = new long[PHASES][512];
+    private static long[][] allocatedBytes = new long[PHASES][512];
+    private static long[][] turnCounters = new long[COUNTERS][512];
+    private static long[] ships = new long[512];
+    private static int turns = 0;
+
+    private static boolean turnStarted = false;
+    private static Phase currentPhase;
+    private static long phaseStartNanos;
+    private static long phaseStartBytes;
+    private static PhaseEvent phaseEvent;
+
+    // Starts recording, the summary is written next to the log when the game ends.
+    public static void enable(final String filePrefix)
+    {
+        enable();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> dump(filePrefix)));
+    }
+
+    public static void enable()
+    {
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if ((threadBean instanceof com.sun.management.ThreadMXBean) && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported())
+        {
+            allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+            allocationBean.setThreadAllocatedMemoryEnabled(true);
+        }
+
+        enabled = true;
+    }
+
+    public static boolean isEnabled() { return enabled; }
+
+    public static void increment(final Counter counter) { counters[counter.ordinal()]++; }
+    public static void add(final Counter counter, final long value) { counters[counter.ordinal()] += value; }
+    public static long get(final Counter counter) { return counters[counter.ordinal()]; }
+
+    // Ends the running phase, the first phase of a turn opens a new row.
+    public static void startPhase(final Phase phase)
+    {
+        if (!enabled)
+            return;
+
+        final long now = System.nanoTime();
+        final long bytes = allocatedBytes();
+
+        if (turnStarted)
+            endPhase(now, bytes);
+        else
+            startTurn();
+
+        currentPhase = phase;
+        phaseStartNanos = now;
+        phaseStartBytes = bytes;
+
+        if (phaseEventProbe.isEnabled())
+        {
+            phaseEvent = new PhaseEvent();
+            phaseEvent.begin();
+        }
+    }
+
+    public static void endTurn(final int numberOfShips)
+    {
+        if (!enabled || !turnStarted)
+            return;
+
+        endPhase(System.nanoTime(), allocatedBytes());
+
+        ships[turns] = numberOfShips;
+        for (int i = 0; i < COUNTERS; ++i)
+            turnCounters[i][turns] = counters[i];
+
+        final TurnEvent turnEvent = new TurnEvent();
+        if (turnEvent.shouldCommit())
+        {
+            turnEvent.turn = turns;
+            turnEvent.ships = numberOfShips;
+            turnEvent.futureNodes = counters[Counter.FutureNodes.ordinal()];
+            turnEvent.navigationCorrections = counters[Counter.NavigationCorrections.ordinal()];
+            turnEvent.collisionPairs = counters[Counter.CollisionPairs.ordinal()];
+            turnEvent.commit();
+        }
+
+        turns++;
+        turnStarted = false;
+    }
+
+    public static int getNumberOfTurns() { return turns; }
+    public static double getWallMillis(final Phase phase, final int turn) { return wallNanos[phase.ordinal()][turn] / 1e6; }
+    public static long getAllocatedBytes(final Phase phase, final int turn) { return allocatedBytes[phase.ordinal()][turn]; }
+    public static long getCounter(final Counter counter, final int turn) { return turnCounters[counter.ordinal()][turn]; }
+
+    public static void writeCsv(final Writer writer) throws IOException
+    {
+        writer.write("turn,ships");
+        for (final Phase phase: Phase.values())
+            writer.write("," + phase + "Micros");
+        for (final Phase phase: Phase.values())
+            writer.write("," + phase + "Bytes");
+        for (final Counter counter: Counter.values())
+            writer.write("," + counter);
+        writer.write('\n');
+
+        for (int turn = 0; turn < turns; ++turn)
+        {
+            writer.write(turn + "," + ships[turn]);
+            for (int i = 0; i < PHASES; ++i)
+                writer.write("," + wallNanos[i][turn] / 1000);
+            for (int i = 0; i < PHASES; ++i)
+                writer.write("," + allocatedBytes[i][turn]);
+            for (int i = 0; i < COUNTERS; ++i)
+                writer.write("," + turnCounters[i][turn]);
+            writer.write('\n');
+        }
+    }
+
+    public static void writeSummary(final Writer writer) throws IOException
+    {
+        writer.write("{\"turns\": " + turns + ", \"allocationMeasured\": " + (allocationBean != null) + ",\n \"phases\": {");
+        for (final Phase phase: Phase.values())
+        {
+            final long[] wall = sorted(wallNanos[phase.ordinal()]);
+            final long[] bytes = sorted(allocatedBytes[phase.ordinal()]);
+            writer.write(((phase.ordinal() == 0)? "\n" : ",\n") + "  \"" + phase + "\": {"
+                    + "\"wallMillis\": {\"p50\": " + millis(percentile(wall, 50)) + ", \"p99\": " + millis(percentile(wall, 99)) + ", \"max\": " + millis(percentile(wall, 100)) + "}, "
+                    + "\"allocatedBytes\": {\"p50\": " + percentile(bytes, 50) + ", \"p99\": " + percentile(bytes, 99) + ", \"max\": " + percentile(bytes, 100) + "}}");
+        }
+
+        writer.write("},\n \"counters\": {");
+        for (final Counter counter: Counter.values())
+        {
+            final long[] values = sorted(turnCounters[counter.ordinal()]);
+            writer.write(((counter.ordinal() == 0)? "\n" : ",\n") + "  \"" + counter + "\": {"
+                    + "\"p50\": " + percentile(values, 50) + ", \"p99\": " + percentile(values, 99) + ", \"max\": " + percentile(values, 100) + ", \"total\": " + Arrays.stream(values).sum() + "}");
+        }
+        writer.write("}}\n");
+    }
+
+    private static void dump(final String filePrefix)
+    {
+        try (final Writer csv = new FileWriter(filePrefix + ".metrics.csv");
+             final Writer json = new FileWriter(filePrefix + ".metrics.json"))
+        {
+            writeCsv(csv);
+            writeSummary(json);
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    private static void startTurn()
+    {
+        if (turns == ships.length)
+        {
+            final int capacity = turns * 2;
+            for (int i = 0; i < PHASES; ++i)
+            {
+                wallNanos[i] = Arrays.copyOf(wallNanos[i], capacity);
+                allocatedBytes[i] = Arrays.copyOf(allocatedBytes[i], capacity);
+            }
+            for (int i = 0; i < COUNTERS; ++i)
+                turnCounters[i] = Arrays.copyOf(turnCounters[i], capacity);
+            ships = Arrays.copyOf(ships, capacity);
+        }
+
+        Arrays.fill(counters, 0);
+        turnStarted = true;
+    }
+
+    private static void endPhase(final long now, final long bytes)
+    {
+        final int phase = currentPhase.ordinal();
+        wallNanos[phase][turns] += now - phaseStartNanos;
+        allocatedBytes[phase][turns] += bytes - phaseStartBytes;
+
+        if (phaseEvent != null)
+        {
+            phaseEvent.end();
+            phaseEvent.turn = turns;
+            phaseEvent.phase = currentPhase.name();
+            phaseEvent.allocatedBytes = bytes - phaseStartBytes;
+            phaseEvent.commit();
+            phaseEvent = null;
+        }
+    }
+
+    private static long allocatedBytes()
+    {
+        return (allocationBean == null)? 0 : allocationBean.getCurrentThreadAllocatedBytes();
+    }
+
+    private static long[] sorted(final long[] values)
+    {
+        final long[] sortedValues = Arrays.copyOf(values, turns);
+        Arrays.sort(sortedValues);
+        return sortedValues;
+    }
+
+    // Nearest rank
+    private static long percentile(final long[] sortedValues, final int percentile)
+    {
+        if (sortedValues.length == 0)
+            return 0;
+        final int rank = (int) Math.ceil(percentile / 100.0 * sortedValues.length);
+        return sortedValues[Math.max(rank, 1) - 1];
+    }
+
+    private static String millis(final long nanos) { return String.format("%.3f", nanos / 1e6); }
+}
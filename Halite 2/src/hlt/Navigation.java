@@ -1,11 +1,15 @@
 package hlt;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 import core.Fleet;
 import core.GameState;
+import core.HeadingSweep;
 import core.VectorBasic;
 
 import static hlt.Constants.DOCK_RADIUS;
@@ -19,7 +23,22 @@ public class Navigation
         final boolean avoidObstacles = true;
         final double angularStepRad = Math.PI/45.0;
         final double minimumDistance = ship.getRadius() + 1.0;
-        final Position movePosition = ship.getClosestPoint(moveTarget, 0.0);
+        Position movePosition = ship.getClosestPoint(moveTarget, 0.0);
+
+        // Corrections only look 14 units ahead, far targets behind planets are better reached around them
+        if (gameState.getBehaviourManager().isPlanetRouting() && (ship.getDistanceTo(movePosition) > 14.0))
+        {
+            final Position waypoint = gameState.getPlanetGeometry().route(ship, movePosition);
+            final double distanceToWaypoint = ship.getDistanceTo(waypoint);
+
+            // Full speed through a waypoint close by, it is only a corner on the way
+            if (waypoint.equals(movePosition) || (distanceToWaypoint >= 14.0) || (distanceToWaypoint == 0.0))
+                movePosition = waypoint;
+            else
+                movePosition = new Position(
+                        ship.getXPos() + (waypoint.getXPos() - ship.getXPos()) * 14.0 / distanceToWaypoint,
+                        ship.getYPos() + (waypoint.getYPos() - ship.getYPos()) * 14.0 / distanceToWaypoint);
+        }
 
         return navigateShipTowardsTarget(gameState, ship, moveTarget, movePosition, maxThrust, avoidObstacles, maxCorrections, minimumDistance, angularStepRad, priority);
     }
@@ -57,9 +76,6 @@ public class Navigation
             final double priorityMove
     )
     {
-        if (maxCorrections <= 0)
-            return new ThrustMove(ship, 0, 0, priorityMove);
-
         // No need to look at objects too far away
         Position newTargetPosition = targetPosition;
 
@@ -69,24 +85,17 @@ public class Navigation
         final double distance = ship.getDistanceTo(newTargetPosition);
         final double angleRad = ship.orientTowardsInRad(newTargetPosition);
 
-        final ArrayList<Entity> entities = gameState.objectsBetween(ship, newTargetPosition, ship.getRadius() + 0.1);
-
-        if ((targetEntity instanceof Ship) || (targetEntity instanceof Planet))
-            entities.remove(targetEntity);
+        final Entity ignoredEntity = ((targetEntity instanceof Ship) || (targetEntity instanceof Planet))? targetEntity : null;
+        final int thrust = (distance - minimumDistance < maxThrust)? (int)(Math.max(distance - minimumDistance, 0.0)) : maxThrust;
 
-        if (avoidObstacles && !entities.isEmpty())
-        {
-            final double newTargetDx = Math.cos(angleRad + angularStepRad) * distance;
-            final double newTargetDy = Math.sin(angleRad + angularStepRad) * distance;
-            final Position newTarget = new Position(ship.getXPos() + newTargetDx, ship.getYPos() + newTargetDy);
+        final double offsetRad = avoidObstacles?
+                findFreeHeading(gameState, ship, newTargetPosition, distance, angleRad, ship.getRadius() + 0.1, ignoredEntity, Collections.emptyList(), true, maxCorrections, angularStepRad, Collections.singletonList(ship), thrust)
+                : ((maxCorrections > 0)? 0.0 : Double.NaN);
 
-            double newAngularStepRad = -angularStepRad + ((angularStepRad < 0)? +1 : -1) * Math.PI/45.0;
-            return navigateShipTowardsTarget(gameState, ship, targetEntity, newTarget, maxThrust, true, maxCorrections - 1, minimumDistance, newAngularStepRad, priorityMove);
-        }
-
-        final int thrust = (distance - minimumDistance < maxThrust)? (int)(Math.max(distance - minimumDistance, 0.0)) : maxThrust;
+        if (Double.isNaN(offsetRad))
+            return new ThrustMove(ship, 0, 0, priorityMove);
 
-        return new ThrustMove(ship, angleRadToDegClipped(angleRad), thrust, priorityMove);
+        return new ThrustMove(ship, angleRadToDegClipped(angleRad + offsetRad), thrust, priorityMove);
     }
 
     /******************************************************************************************************************/
@@ -134,9 +143,9 @@ public class Navigation
 
         final double distance = ship1.getDistanceTo(ship2);
         final double distance1 = ship1.getDistanceTo(targetPos);
-        final double angleRad1 = ship1.orientTowardsInRad(targetPos);
+        final int angleDeg1 = ship1.orientTowardsInDeg(targetPos);
         final double distance2 = ship2.getDistanceTo(targetPos);
-        final double angleRad2 = ship2.orientTowardsInRad(targetPos);
+        final int angleDeg2 = ship2.orientTowardsInDeg(targetPos);
 
         int thrust1 = (distance1 < maxThrust)? (int)distance1 : maxThrust;
         int thrust2 = (distance2 < maxThrust)? (int)distance2 : maxThrust;
@@ -154,12 +163,24 @@ public class Navigation
             }
         }
 
-        ThrustMove thrustMove1 = new ThrustMove(ship1, angleRadToDegClipped(angleRad1), thrust1, priorityMove);
-        ThrustMove thrustMove2 = new ThrustMove(ship2, angleRadToDegClipped(angleRad2), thrust2, priorityMove);
-
         ArrayList<Move> moves = new ArrayList<>();
-        moves.add(thrustMove1);
-        moves.add(thrustMove2);
+        moves.add(new ThrustMove(ship1, angleDeg1, thrust1, priorityMove));
+        moves.add(new ThrustMove(ship2, angleDeg2, thrust2, priorityMove));
+
+        // Ships crossing a committed trajectory slow down, the faster one first
+        if (gameState.getBehaviourManager().isTrajectoryReservation())
+        {
+            while ((thrust1 + thrust2 > 0) && !gameState.areMovesFree(fleet.getShips(), moves))
+            {
+                if (thrust1 >= thrust2)
+                    thrust1--;
+                else
+                    thrust2--;
+
+                moves.set(0, new ThrustMove(ship1, angleDeg1, thrust1, priorityMove));
+                moves.set(1, new ThrustMove(ship2, angleDeg2, thrust2, priorityMove));
+            }
+        }
 
         return moves;
     }
@@ -179,7 +200,22 @@ public class Navigation
 	{
 		Entity fleetCentroid = fleet.getCentroid();
 
-		if (maxCorrections <= 0)
+        Position newTargetPosition = targetPosition;
+
+		final double distance = fleetCentroid.getDistanceTo(newTargetPosition);
+		final double angleRad = fleetCentroid.orientTowardsInRad(newTargetPosition);
+
+        final Entity ignoredEntity = ((targetEntity instanceof Ship) || (targetEntity instanceof Planet))? targetEntity : null;
+
+        // Big fleets go through enemy ships
+        final boolean includeEnemyShips = (fleet.getShips().size() <= 3);
+        final int thrust = (distance - minimumDistance < maxThrust)? (int)(Math.max(distance - minimumDistance, 0.0)) : maxThrust;
+
+        final double offsetRad = avoidObstacles?
+                findFreeHeading(gameState, fleetCentroid, newTargetPosition, distance, angleRad, fleet.getRadius() + 0.01, ignoredEntity, fleet.getShips(), includeEnemyShips, maxCorrections, angularStepRad, fleet.getShips(), thrust)
+                : ((maxCorrections > 0)? 0.0 : Double.NaN);
+
+		if (Double.isNaN(offsetRad))
         {
             if (fleet.getShips().size() == 2)
                 return navigateFleetToGroup(gameState, fleet);
@@ -187,34 +223,72 @@ public class Navigation
                 return regroupFleet(gameState, fleet);
         }
 
-        Position newTargetPosition = targetPosition;
+		return createThrustMovesForFleet(gameState, fleet, angleRadToDegClipped(angleRad + offsetRad), thrust, priorityMove);
+	}
 
-		final double distance = fleetCentroid.getDistanceTo(newTargetPosition);
-		final double angleRad = fleetCentroid.orientTowardsInRad(newTargetPosition);
+    // Offset from the aim of the first heading clear of obstacles among aim, aim + step, aim - step, aim + 2 step...,
+    // NaN if none of the first maxCorrections is. The sweep rules out the blocked headings from one pass over the
+    // obstacles nearby, the exact segment test only confirms the heading picked. With trajectory reservation, the
+    // moves of the ships at that heading must also stay clear of the trajectories already committed.
+    // With joint navigation the aim is kept: the velocities of all ships are cleared of obstacles together afterwards.
+    private static double findFreeHeading(
+            final GameState gameState,
+            final Position start,
+            final Position targetPosition,
+            final double distance,
+            final double angleRad,
+            final double entityRadius,
+            final Entity ignoredEntity,
+            final Collection<? extends Entity> ignoredEntities,
+            final boolean includeEnemyShips,
+            final int maxCorrections,
+            final double angularStepRad,
+            final List<Ship> movers,
+            final int thrust
+    )
+    {
+        if (gameState.getBehaviourManager().isJointNavigation())
+            return 0.0;
 
-		ArrayList<Entity> objectsBetween = gameState.objectsBetween(fleetCentroid, newTargetPosition, fleet.getRadius() + 0.01);
-		objectsBetween.removeAll(fleet.getShips());
+        final boolean checkTrajectories = gameState.getBehaviourManager().isTrajectoryReservation();
 
-        if ((targetEntity instanceof Ship) || (targetEntity instanceof Planet))
-            objectsBetween.remove(targetEntity);
+        final HeadingSweep sweep = gameState.getHeadingSweep();
+        sweep.clear(start.getXPos(), start.getYPos(), distance, angleRad);
+        gameState.addObstaclesToSweep(sweep, start, entityRadius, ignoredEntity, ignoredEntities, includeEnemyShips);
 
-        if (fleet.getShips().size() > 3)
-            objectsBetween.removeAll(gameState.getEnemyShips());
+        for (int correction = 0; correction < maxCorrections; ++correction)
+        {
+            final double offsetRad = ((correction + 1) / 2) * angularStepRad * ((correction % 2 == 1)? 1 : -1);
 
-		if (avoidObstacles && !objectsBetween.isEmpty())
-		{
-			final double newTargetDx = Math.cos(angleRad + angularStepRad) * distance;
-			final double newTargetDy = Math.sin(angleRad + angularStepRad) * distance;
-			final Position newTarget = new Position(fleetCentroid.getXPos() + newTargetDx, fleetCentroid.getYPos() + newTargetDy);
-            double newAngularStepRad = -angularStepRad + ((angularStepRad < 0)? +1 : -1) * Math.PI/45.0;
+            if (!sweep.isBlocked(offsetRad))
+            {
+                final Position heading = (correction == 0)? targetPosition : new Position(
+                        start.getXPos() + Math.cos(angleRad + offsetRad) * distance,
+                        start.getYPos() + Math.sin(angleRad + offsetRad) * distance);
 
-			return navigateFleetTowardsTarget(gameState, fleet, targetEntity, newTarget, maxThrust, true, (maxCorrections - 1), minimumDistance, newAngularStepRad, priorityMove);
-		}
+                if (!gameState.hasObjectsBetween(start, heading, entityRadius, ignoredEntity, ignoredEntities, includeEnemyShips)
+                        && (!checkTrajectories || gameState.areMovesFree(movers, thrustMoves(movers, angleRadToDegClipped(angleRad + offsetRad), thrust))))
+                    return offsetRad;
+            }
 
-		final int thrust = (distance - minimumDistance < maxThrust)? (int)(Math.max(distance - minimumDistance, 0.0)) : maxThrust;
+            Metrics.increment(Metrics.Counter.NavigationCorrections);
 
-		return createThrustMovesForFleet(gameState, fleet, angleRadToDegClipped(angleRad), thrust, priorityMove);
-	}
+            // Out of time counts as out of corrections
+            if (gameState.getTimer().shouldStop())
+                break;
+        }
+
+        return Double.NaN;
+    }
+
+    private static ArrayList<Move> thrustMoves(final List<Ship> ships, final int angleDeg, final int thrust)
+    {
+        ArrayList<Move> moves = new ArrayList<>();
+        for (final Ship ship: ships)
+            moves.add(new ThrustMove(ship, angleDeg, thrust, 0.0));
+
+        return moves;
+    }
 
 	private static ArrayList<Move> createThrustMovesForFleet(final GameState gameState, final Fleet fleet, final int angleDeg, final int thrust, final double priorityMove)
 	{
@@ -273,9 +347,9 @@ public class Navigation
         for (final Ship ship: fleet.getShips())
         {
             int thrust = (int)Math.min(Math.max(ship.getDistanceTo(centroid), 0.0),7.0);
-            double angleRad = ship.orientTowardsInRad(centroid);
+            int angleDeg = ship.orientTowardsInDeg(centroid);
 
-            moves.add(new ThrustMove(ship, angleRadToDegClipped(angleRad), thrust, 5.0));
+            moves.add(new ThrustMove(ship, angleDeg, thrust, 5.0));
         }
 
         return moves;
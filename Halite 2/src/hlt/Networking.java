@@ -1,8 +1,11 @@
 package hlt;
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.function.Consumer;
 
 public class Networking
 {
@@ -10,10 +13,19 @@ public class Networking
     private static final char DOCK_KEY = 'd';
     private static final char THRUST_KEY = 't';
 
+    private static final InputTokenizer input = new InputTokenizer(System.in);
+
+    // Bypasses System.out, a turn goes out in a single write on the file descriptor.
+    private static final OutputWriter output = new OutputWriter(new FileOutputStream(FileDescriptor.out).getChannel());
+
     public static void sendMoves(final Iterable<Move> moves)
     {
-        final StringBuilder moveString = new StringBuilder();
+        writeMoves(moves, output);
+        output.flush();
+    }
 
+    public static void writeMoves(final Iterable<Move> moves, final OutputWriter output)
+    {
         for (final Move move : moves)
         {
             switch (move.getType())
@@ -21,51 +33,38 @@ public class Networking
                 case Noop:
                     continue;
                 case Undock:
-                    moveString.append(UNDOCK_KEY)
-                            .append(" ")
-                            .append(move.getShip().getId())
-                            .append(" ");
+                    output.writeChar(UNDOCK_KEY)
+                            .writeChar(' ')
+                            .writeInt(move.getShip().getId())
+                            .writeChar(' ');
                     break;
                 case Dock:
-                    moveString.append(DOCK_KEY)
-                            .append(" ")
-                            .append(move.getShip().getId())
-                            .append(" ")
-                            .append(((DockMove) move).getDestinationId())
-                            .append(" ");
+                    output.writeChar(DOCK_KEY)
+                            .writeChar(' ')
+                            .writeInt(move.getShip().getId())
+                            .writeChar(' ')
+                            .writeLong(((DockMove) move).getDestinationId())
+                            .writeChar(' ');
                     break;
                 case Thrust:
-                    moveString.append(THRUST_KEY)
-                            .append(" ")
-                            .append(move.getShip().getId())
-                            .append(" ")
-                            .append(((ThrustMove) move).getThrust())
-                            .append(" ")
-                            .append(((ThrustMove) move).getAngle())
-                            .append(" ");
+                    output.writeChar(THRUST_KEY)
+                            .writeChar(' ')
+                            .writeInt(move.getShip().getId())
+                            .writeChar(' ')
+                            .writeInt(((ThrustMove) move).getThrust())
+                            .writeChar(' ')
+                            .writeInt(((ThrustMove) move).getAngle())
+                            .writeChar(' ');
                     break;
             }
         }
-        System.out.println(moveString);
+        output.writeChar('\n');
     }
 
     private static String readLine()
     {
         try {
-            StringBuilder builder = new StringBuilder();
-            int buffer;
-
-            for (; (buffer = System.in.read()) >= 0;) {
-                if (buffer == '\n') {
-                    break;
-                }
-                if (buffer == '\r') {
-                    // Ignore carriage return if on windows for manual testing.
-                    continue;
-                }
-                builder = builder.append((char)buffer);
-            }
-            return builder.toString();
+            return input.readLine();
         }
         catch(Exception e) {
             System.exit(1);
@@ -74,8 +73,28 @@ public class Networking
     }
 
     public static Metadata readLineIntoMetadata() { return new Metadata(readLine().trim().split(" ")); }
-    
+
+    public static InputTokenizer readLineIntoTokenizer()
+    {
+        try {
+            // Engine closed the pipe, game is over.
+            if (!input.hasNextLine())
+                System.exit(0);
+        }
+        catch(Exception e) {
+            System.exit(1);
+        }
+        return input;
+    }
+
     public GameMap initialize(final String botName)
+    {
+        return initialize(botName, gameMap -> {});
+    }
+
+    // The engine starts the first turn once it has the bot name, so anything slow the bot wants
+    // to do before the game, like warming up the JIT, goes in beforeSendingName.
+    public GameMap initialize(final String botName, final Consumer<GameMap> beforeSendingName)
     {
         final int myId = Integer.parseInt(readLine());
         try
@@ -92,11 +111,11 @@ public class Networking
         final int height = Integer.parseInt(inputStringMapSize.pop());
         final GameMap gameMap = new GameMap(width, height, myId);
 
-        // Associate bot name
-        System.out.println(botName);
+        gameMap.updateMap(readLineIntoTokenizer());
+        beforeSendingName.accept(gameMap);
 
-        final Metadata inputStringMetadata = readLineIntoMetadata();
-        gameMap.updateMap(inputStringMetadata);
+        // Associate bot name
+        output.writeString(botName).writeChar('\n').flush();
 
         return gameMap;
     }
@@ -0,0 +1,119 @@
+package hlt;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+public class OutputWriter
+{
+    private static final int BUFFER_SIZE = 1 << 14;
+
+    // Enough for Long.MIN_VALUE
+    private static final int MAX_LONG_LENGTH = 20;
+
+    private final WritableByteChannel output;
+    private byte[] buffer;
+    private ByteBuffer byteBuffer;
+    private int position;
+
+    // Without a channel the writer only builds lines in memory, see getBuffer().
+    public OutputWriter(final WritableByteChannel output)
+    {
+        this.output = output;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.byteBuffer = ByteBuffer.wrap(this.buffer);
+        this.position = 0;
+    }
+
+    public byte[] getBuffer() { return buffer; }
+    public int size() { return position; }
+
+    public OutputWriter writeChar(final char c)
+    {
+        ensureCapacity(1);
+        buffer[position++] = (byte) c;
+        return this;
+    }
+
+    public OutputWriter writeInt(final int value) { return writeLong(value); }
+
+    public OutputWriter writeLong(final long value)
+    {
+        ensureCapacity(MAX_LONG_LENGTH);
+
+        // Digits are written backwards from the end, working on negative values so MIN_VALUE fits.
+        long remaining = (value < 0)? value : -value;
+        int digits = 0;
+        for (long i = remaining; i != 0; i /= 10)
+            digits++;
+        if (digits == 0)
+            digits = 1;
+
+        if (value < 0)
+            buffer[position++] = '-';
+
+        int index = position + digits;
+        position = index;
+        do
+        {
+            buffer[--index] = (byte) ('0' - remaining % 10);
+            remaining /= 10;
+        }
+        while (remaining != 0);
+
+        return this;
+    }
+
+    // Four decimals, the format of the positions sent by the engine
+    public OutputWriter writeFixed(final double value)
+    {
+        final long units = Math.round(Math.abs(value) * 10000.0);
+        final long decimals = units % 10000;
+
+        if ((value < 0) && (units != 0))
+            writeChar('-');
+        writeLong(units / 10000).writeChar('.');
+        for (long threshold = 1000; threshold > 1 && decimals < threshold; threshold /= 10)
+            writeChar('0');
+        return writeLong(decimals);
+    }
+
+    public OutputWriter writeString(final String string)
+    {
+        ensureCapacity(string.length());
+        for (int i = 0; i < string.length(); ++i)
+            buffer[position++] = (byte) string.charAt(i);
+        return this;
+    }
+
+    public void clear() { position = 0; }
+
+    public void flush()
+    {
+        byteBuffer.clear();
+        byteBuffer.limit(position);
+
+        try
+        {
+            while (byteBuffer.hasRemaining())
+                output.write(byteBuffer);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        position = 0;
+    }
+
+    private void ensureCapacity(final int length)
+    {
+        if (position + length <= buffer.length)
+            return;
+
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+        byteBuffer = ByteBuffer.wrap(buffer);
+    }
+}
@@ -1,15 +1,17 @@
 package hlt;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 public class Planet extends Entity
 {
 
-    private final int remainingProduction;
-    private final int currentProduction;
-    private final int dockingSpots;
+    private int remainingProduction;
+    private int currentProduction;
+    private int dockingSpots;
     private final List<Integer> dockedShips;
+    private final List<Integer> dockedShipsModifiable;
 
     public Planet(final int owner, final int id, final double xPos, final double yPos, final int health,
                   final double radius, final int dockingSpots, final int currentProduction,
@@ -21,10 +23,45 @@ public class Planet extends Entity
         this.dockingSpots = dockingSpots;
         this.currentProduction = currentProduction;
         this.remainingProduction = remainingProduction;
+        this.dockedShipsModifiable = dockedShips;
         this.dockedShips = Collections.unmodifiableList(dockedShips);
     }
 
+    Planet(final int id)
+    {
+        this(-1, id, 0, 0, 0, 0, 0, 0, 0, new ArrayList<>());
+    }
+
+    void update(final int owner, final double xPos, final double yPos, final int health,
+                final double radius, final int dockingSpots, final int currentProduction,
+                final int remainingProduction)
+    {
+        update(owner, getId(), xPos, yPos, health);
+        setRadius(radius);
+
+        this.dockingSpots = dockingSpots;
+        this.currentProduction = currentProduction;
+        this.remainingProduction = remainingProduction;
+    }
+
+    void setDockedShip(final int index, final int shipId)
+    {
+        // Only touch the list when it changed, to avoid boxing ids every turn.
+        if (index == dockedShipsModifiable.size())
+            dockedShipsModifiable.add(shipId);
+        else if (dockedShipsModifiable.get(index) != shipId)
+            dockedShipsModifiable.set(index, shipId);
+    }
+
+    void setNumberOfDockedShips(final int numberOfDockedShips)
+    {
+        while (dockedShipsModifiable.size() > numberOfDockedShips)
+            dockedShipsModifiable.remove(dockedShipsModifiable.size() - 1);
+    }
+
     public int getDockingSpots() { return dockingSpots; }
+    public int getCurrentProduction() { return currentProduction; }
+    public int getRemainingProduction() { return remainingProduction; }
     public int getFreeDockingSpots() { return dockingSpots - dockedShips.size(); }
     public List<Integer> getDockedShips() { return dockedShips; }
     public boolean isFull() { return dockedShips.size() == dockingSpots; }
@@ -2,8 +2,8 @@ package hlt;
 
 public class Position
 {
-    private final double xPos;
-    private final double yPos;
+    private double xPos;
+    private double yPos;
 
     public Position(final double xPos, final double yPos)
     {
@@ -14,6 +14,12 @@ public class Position
     public double getXPos() { return xPos; }
     public double getYPos() { return yPos; }
 
+    void setPosition(final double xPos, final double yPos)
+    {
+        this.xPos = xPos;
+        this.yPos = yPos;
+    }
+
     public double getDistanceTo(final Position target)
     {
         final double dx = xPos - target.getXPos();
@@ -31,18 +37,21 @@ public class Position
 
     public int orientTowardsInDeg(final Position target)
     {
-        return Navigation.angleRadToDegClipped(orientTowardsInRad(target));
+        return Trig.orientationInDeg(target.getXPos() - xPos, target.getYPos() - yPos);
     }
 
     public Position getClosestPoint(final Entity target, final double radiusBump)
     {
-        final double radius = target.getRadius();
-        final double angleRad = target.orientTowardsInRad(this);
+        final double reach = target.getRadius() + radiusBump;
+        final double dx = xPos - target.getXPos();
+        final double dy = yPos - target.getYPos();
+        final double distance = Math.sqrt(dx * dx + dy * dy);
 
-        final double x = target.getXPos() + (radius + radiusBump) * Math.cos(angleRad);
-        final double y = target.getYPos() + (radius + radiusBump) * Math.sin(angleRad);
+        // The direction from the target, without going through its angle. From the target itself, angle 0.
+        if (distance == 0.0)
+            return new Position(target.getXPos() + reach, target.getYPos());
 
-        return new Position(x, y);
+        return new Position(target.getXPos() + reach * dx / distance, target.getYPos() + reach * dy / distance);
     }
 
     @Override
@@ -14,10 +14,10 @@ public class Ship extends Entity
         Undocking
     }
 
-    private final DockingStatus dockingStatus;
-    private final int dockedPlanet;
-    private final int dockingProgress;
-    private final int weaponCooldown;
+    private DockingStatus dockingStatus;
+    private int dockedPlanet;
+    private int dockingProgress;
+    private int weaponCooldown;
     private Objective objective;
 
     public Ship(final int owner, final int id, final double xPos, final double yPos,
@@ -53,6 +53,18 @@ public class Ship extends Entity
 
     public void setObjective(final Objective objective) { this.objective = objective; }
 
+    void update(final int owner, final int id, final double xPos, final double yPos,
+                final int health, final DockingStatus dockingStatus, final int dockedPlanet,
+                final int dockingProgress, final int weaponCooldown)
+    {
+        update(owner, id, xPos, yPos, health);
+
+        this.dockingStatus = dockingStatus;
+        this.dockedPlanet = dockedPlanet;
+        this.dockingProgress = dockingProgress;
+        this.weaponCooldown = weaponCooldown;
+    }
+
     public boolean canDock(final Planet planet) { return getDistanceTo(planet) <= Constants.DOCK_RADIUS + planet.getRadius(); }
     public boolean isUndocked() { return getDockingStatus() == DockingStatus.Undocked; }
 
@@ -28,29 +28,11 @@ public class ThrustMove extends Move
 
     public void setThrust(int thrust) { this.thrust = thrust; }
 
-    public Double dX()
-    {
-    	Double angleRad = Math.toRadians((double) angleDeg);
-        return thrust * Math.cos(angleRad);
-    }
-    
-    public Double dY()
-    {
-    	Double angleRad = Math.toRadians((double) angleDeg);
-        return thrust * Math.sin(angleRad);
-    }
+    public double dX() { return Trig.dX(angleDeg, thrust); }
+    public double dY() { return Trig.dY(angleDeg, thrust); }
 
-    public Double dX(final int thrust)
-    {
-        Double angleRad = Math.toRadians((double) angleDeg);
-        return thrust * Math.cos(angleRad);
-    }
-
-    public Double dY(final int thrust)
-    {
-        Double angleRad = Math.toRadians((double) angleDeg);
-        return thrust * Math.sin(angleRad);
-    }
+    public double dX(final int thrust) { return Trig.dX(angleDeg, thrust); }
+    public double dY(final int thrust) { return Trig.dY(angleDeg, thrust); }
 
     public void invertAngle()
     {
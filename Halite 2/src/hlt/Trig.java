@@ -0,0 +1,85 @@
+package hlt;
+
+// Trigonometry for the values moves can take. Thrust moves are integer degrees in [0, 360) and integer thrusts
+// up to MAX_SPEED, so their displacements are tabulated, with the same arithmetic as before so they are
+// identical to the bit. Orientations in degrees come from a polynomial atan2, falling back on Math.atan2
+// only when the result is too close to half a degree to be sure of the rounding.
+public class Trig
+{
+    // Bound of the polynomial below, with room for rounding
+    private static final double ATAN2_MAX_ERROR_RAD = 1e-7;
+    private static final double ROUNDING_MARGIN_DEG = Math.toDegrees(ATAN2_MAX_ERROR_RAD) * 4;
+
+    private static final int DEGREES = 360;
+    private static final double[] DX = new double[(Constants.MAX_SPEED + 1) * DEGREES];
+    private static final double[] DY = new double[(Constants.MAX_SPEED + 1) * DEGREES];
+
+    static
+    {
+        for (int thrust = 0; thrust <= Constants.MAX_SPEED; ++thrust)
+        {
+            for (int angleDeg = 0; angleDeg < DEGREES; ++angleDeg)
+            {
+                final double angleRad = Math.toRadians((double) angleDeg);
+                DX[thrust * DEGREES + angleDeg] = thrust * Math.cos(angleRad);
+                DY[thrust * DEGREES + angleDeg] = thrust * Math.sin(angleRad);
+            }
+        }
+    }
+
+    public static double dX(final int angleDeg, final int thrust)
+    {
+        if (isTabulated(angleDeg, thrust))
+            return DX[thrust * DEGREES + angleDeg];
+        return thrust * Math.cos(Math.toRadians((double) angleDeg));
+    }
+
+    public static double dY(final int angleDeg, final int thrust)
+    {
+        if (isTabulated(angleDeg, thrust))
+            return DY[thrust * DEGREES + angleDeg];
+        return thrust * Math.sin(Math.toRadians((double) angleDeg));
+    }
+
+    // Same as Navigation.angleRadToDegClipped(Math.atan2(dy, dx) + 2 * Math.PI), which Position.orientTowardsInDeg was
+    public static int orientationInDeg(final double dx, final double dy)
+    {
+        final double degrees = Math.toDegrees(atan2(dy, dx));
+        final double fraction = degrees - Math.floor(degrees);
+
+        if (Math.abs(fraction - 0.5) < ROUNDING_MARGIN_DEG)
+            return Navigation.angleRadToDegClipped(Math.atan2(dy, dx) + 2 * Math.PI);
+
+        final long degUnclipped = Math.round(degrees);
+        return (int) (((degUnclipped % 360L) + 360L) % 360L);
+    }
+
+    // Within ATAN2_MAX_ERROR_RAD of Math.atan2, with the same quadrants
+    public static double atan2(final double y, final double x)
+    {
+        if ((x == 0.0) && (y == 0.0))
+            return Math.atan2(y, x);
+
+        final double absX = Math.abs(x);
+        final double absY = Math.abs(y);
+        final boolean isSteep = absY > absX;
+        final double ratio = isSteep? absX / absY : absY / absX;
+
+        // Abramowitz and Stegun 4.4.49, error below 2e-8 on [0, 1]
+        final double square = ratio * ratio;
+        double angle = ratio * (1.0 + square * (-0.3333314528 + square * (0.1999355085 + square * (-0.1420889944
+                + square * (0.1065626393 + square * (-0.0752896400 + square * (0.0429096138
+                + square * (-0.0161657367 + square * 0.0028662257))))))));
+
+        if (isSteep)
+            angle = Math.PI / 2 - angle;
+        if (x < 0)
+            angle = Math.PI - angle;
+        return (y < 0)? -angle : angle;
+    }
+
+    private static boolean isTabulated(final int angleDeg, final int thrust)
+    {
+        return (angleDeg >= 0) && (angleDeg < DEGREES) && (thrust >= 0) && (thrust <= Constants.MAX_SPEED);
+    }
+}
@@ -0,0 +1,80 @@
+package testing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import hlt.*;
+
+public class BenchmarkEntityStore {
+
+	public static void main(String args[]) {
+
+		int[] shipCounts = {250, 500, 1000};
+
+		for (int shipsPerPlayer : shipCounts) {
+			byte[] bytes = CreateGameMap.engineLine(4, shipsPerPlayer, 30, shipsPerPlayer).getBytes(StandardCharsets.US_ASCII);
+			GameMap gameMap = new GameMap(384, 256, 0);
+			gameMap.updateMap(new InputTokenizer(bytes));
+
+			ArrayList<Ship> enemyShips = new ArrayList<>();
+			for (Ship ship : gameMap.getAllShips())
+				if (ship.getOwner() != gameMap.getMyPlayerId())
+					enemyShips.add(ship);
+
+			EntityStore entityStore = gameMap.getEntityStore();
+			ArrayList<Planet> planets = new ArrayList<>(gameMap.getAllPlanets().values());
+
+			boolean identical = true;
+			for (Planet planet : planets)
+				identical &= enemiesCloserThan(enemyShips, planet, 40.0).equals(enemiesCloserThan(entityStore, 0, planet, 40.0));
+
+			int iterations = 2000000 / shipsPerPlayer;
+			long checksum = 0;
+
+			for (int i = 0; i < iterations; i++) {
+				checksum += enemiesCloserThan(enemyShips, planets.get(i % planets.size()), 40.0).size();
+				checksum -= enemiesCloserThan(entityStore, 0, planets.get(i % planets.size()), 40.0).size();
+			}
+
+			// Best of a few rounds, the scans are short enough to be disturbed by anything else running
+			double objectsMicros = Double.MAX_VALUE;
+			double arraysMicros = Double.MAX_VALUE;
+
+			for (int round = 0; round < 5; round++) {
+				long start = System.nanoTime();
+				for (int i = 0; i < iterations; i++)
+					checksum += enemiesCloserThan(enemyShips, planets.get(i % planets.size()), 40.0).size();
+				objectsMicros = Math.min(objectsMicros, (System.nanoTime() - start) / 1000.0 / iterations);
+
+				start = System.nanoTime();
+				for (int i = 0; i < iterations; i++)
+					checksum -= enemiesCloserThan(entityStore, 0, planets.get(i % planets.size()), 40.0).size();
+				arraysMicros = Math.min(arraysMicros, (System.nanoTime() - start) / 1000.0 / iterations);
+			}
+
+			System.out.println("Ships " + 4 * shipsPerPlayer + " identical :" + (identical && checksum == 0));
+			System.out.println("  objects (us per query) :" + String.format("%.2f", objectsMicros));
+			System.out.println("  arrays  (us per query) :" + String.format("%.2f", arraysMicros));
+		}
+	}
+
+	// Same scans as DistanceManager.getEnemiesCloserThan before and after the entity store
+	private static ArrayList<Ship> enemiesCloserThan(ArrayList<Ship> enemyShips, Position position, double minDistance) {
+		ArrayList<Ship> closeEnemyShips = new ArrayList<>();
+		for (Ship enemyShip : enemyShips)
+			if (enemyShip.getDistanceTo(position) < minDistance)
+				closeEnemyShips.add(enemyShip);
+
+		return closeEnemyShips;
+	}
+
+	private static ArrayList<Ship> enemiesCloserThan(EntityStore entityStore, int myId, Position position, double minDistance) {
+		ArrayList<Ship> closeEnemyShips = new ArrayList<>();
+		double x = position.getXPos();
+		double y = position.getYPos();
+		for (int i = 0; i < entityStore.getNumberOfShips(); i++)
+			if ((entityStore.getShipOwner(i) != myId) && entityStore.isShipCloserThan(i, x, y, minDistance))
+				closeEnemyShips.add(entityStore.getShip(i));
+
+		return closeEnemyShips;
+	}
+}
@@ -0,0 +1,110 @@
+package testing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import hlt.*;
+
+public class BenchmarkSendMoves {
+
+	public static void main(String args[]) {
+
+		Random random = new Random(0);
+		ArrayList<Move> moves = new ArrayList<>();
+
+		for (int i = 0; i < 500; i++) {
+			Ship ship = new Ship(0, random.nextInt(5000), 0, 0, 255, Ship.DockingStatus.Undocked, 0, 0, 0);
+			switch (i % 4) {
+				case 0: moves.add(new Move(Move.MoveType.Noop, ship)); break;
+				case 1: moves.add(new Move(Move.MoveType.Undock, ship)); break;
+				case 2: moves.add(new DockMove(ship, new Planet(-1, random.nextInt(30), 0, 0, 0, 1, 0, 0, 0, new ArrayList<>()))); break;
+				default: moves.add(new ThrustMove(ship, random.nextInt(360), random.nextInt(8), 0.0)); break;
+			}
+		}
+
+		// Edge cases of the integer formatting
+		int[] values = {0, 7, -7, 10, 1000000, Integer.MAX_VALUE, Integer.MIN_VALUE};
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		OutputWriter writer = new OutputWriter(Channels.newChannel(bytes));
+		StringBuilder expected = new StringBuilder();
+		for (int value : values) {
+			writer.writeInt(value).writeChar(' ');
+			expected.append(value).append(' ');
+		}
+		writer.writeLong(Long.MIN_VALUE);
+		expected.append(Long.MIN_VALUE);
+		writer.flush();
+		System.out.println("Integers identical :" + expected.toString().equals(bytes.toString()));
+
+		bytes.reset();
+		Networking.writeMoves(moves, writer);
+		writer.flush();
+		System.out.println("Moves identical :" + Arrays.equals(bytes.toByteArray(), stringBuilderMoves(moves).getBytes()));
+
+		OutputStream nullStream = new OutputStream() {
+			@Override
+			public void write(int b) {}
+
+			@Override
+			public void write(byte[] b, int off, int len) {}
+		};
+		PrintStream printStream = new PrintStream(nullStream);
+		OutputWriter channelWriter = new OutputWriter(Channels.newChannel(nullStream));
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		int iterations = 20000;
+		for (int i = 0; i < iterations; i++) {
+			printStream.print(stringBuilderMoves(moves));
+			Networking.writeMoves(moves, channelWriter);
+			channelWriter.flush();
+		}
+
+		long allocated = threadBean.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			printStream.print(stringBuilderMoves(moves));
+		double printMicros = (System.nanoTime() - start) / 1000.0 / iterations;
+		long printBytes = (threadBean.getThreadAllocatedBytes(threadId) - allocated) / iterations;
+
+		allocated = threadBean.getThreadAllocatedBytes(threadId);
+		start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			Networking.writeMoves(moves, channelWriter);
+			channelWriter.flush();
+		}
+		double writerMicros = (System.nanoTime() - start) / 1000.0 / iterations;
+		long writerBytes = (threadBean.getThreadAllocatedBytes(threadId) - allocated) / iterations;
+
+		System.out.println("Moves " + moves.size());
+		System.out.println("  println  (us per turn) :" + String.format("%.2f", printMicros) + " (bytes allocated) :" + printBytes);
+		System.out.println("  writer   (us per turn) :" + String.format("%.2f", writerMicros) + " (bytes allocated) :" + writerBytes);
+	}
+
+	// Former Networking.sendMoves
+	private static String stringBuilderMoves(ArrayList<Move> moves) {
+		StringBuilder moveString = new StringBuilder();
+
+		for (Move move : moves) {
+			switch (move.getType()) {
+				case Noop:
+					continue;
+				case Undock:
+					moveString.append('u').append(" ").append(move.getShip().getId()).append(" ");
+					break;
+				case Dock:
+					moveString.append('d').append(" ").append(move.getShip().getId()).append(" ").append(((DockMove) move).getDestinationId()).append(" ");
+					break;
+				case Thrust:
+					moveString.append('t').append(" ").append(move.getShip().getId()).append(" ").append(((ThrustMove) move).getThrust()).append(" ").append(((ThrustMove) move).getAngle()).append(" ");
+					break;
+			}
+		}
+
+		return moveString.append('\n').toString();
+	}
+}
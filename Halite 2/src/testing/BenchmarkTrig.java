@@ -0,0 +1,63 @@
+package testing;
+
+import java.util.Random;
+import hlt.*;
+
+public class BenchmarkTrig {
+
+	public static void main(String args[]) {
+
+		Random random = new Random(9);
+		int size = 4096;
+		double[] dxs = new double[size];
+		double[] dys = new double[size];
+		int[] angles = new int[size];
+		int[] thrusts = new int[size];
+		for (int i = 0; i < size; i++) {
+			dxs[i] = random.nextDouble() * 400 - 200;
+			dys[i] = random.nextDouble() * 400 - 200;
+			angles[i] = random.nextInt(360);
+			thrusts[i] = random.nextInt(Constants.MAX_SPEED + 1);
+		}
+
+		int iterations = 20000000;
+		long checksum = 0;
+		double sum = 0;
+
+		// Best of a few rounds, the first ones also warm the JIT up
+		double atan2Nanos = Double.MAX_VALUE;
+		double quantizerNanos = Double.MAX_VALUE;
+		double cosSinNanos = Double.MAX_VALUE;
+		double tableNanos = Double.MAX_VALUE;
+
+		for (int round = 0; round < 5; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < iterations; i++)
+				checksum += Navigation.angleRadToDegClipped(Math.atan2(dys[i & (size - 1)], dxs[i & (size - 1)]) + 2 * Math.PI);
+			atan2Nanos = Math.min(atan2Nanos, (System.nanoTime() - start) / (double) iterations);
+
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; i++)
+				checksum -= Trig.orientationInDeg(dxs[i & (size - 1)], dys[i & (size - 1)]);
+			quantizerNanos = Math.min(quantizerNanos, (System.nanoTime() - start) / (double) iterations);
+
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				double angleRad = Math.toRadians((double) angles[i & (size - 1)]);
+				sum += thrusts[i & (size - 1)] * Math.cos(angleRad) + thrusts[i & (size - 1)] * Math.sin(angleRad);
+			}
+			cosSinNanos = Math.min(cosSinNanos, (System.nanoTime() - start) / (double) iterations);
+
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; i++)
+				sum -= Trig.dX(angles[i & (size - 1)], thrusts[i & (size - 1)]) + Trig.dY(angles[i & (size - 1)], thrusts[i & (size - 1)]);
+			tableNanos = Math.min(tableNanos, (System.nanoTime() - start) / (double) iterations);
+		}
+
+		System.out.println("Identical :" + ((checksum == 0) && (Math.abs(sum) < 1e-6)));
+		System.out.println("  Math.atan2 degrees  (ns per call) :" + String.format("%.2f", atan2Nanos));
+		System.out.println("  Trig quantizer      (ns per call) :" + String.format("%.2f", quantizerNanos));
+		System.out.println("  Math.cos/sin move   (ns per call) :" + String.format("%.2f", cosSinNanos));
+		System.out.println("  Trig tables move    (ns per call) :" + String.format("%.2f", tableNanos));
+	}
+}
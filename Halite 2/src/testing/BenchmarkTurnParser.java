@@ -0,0 +1,51 @@
+package testing;
+
+import java.nio.charset.StandardCharsets;
+import hlt.*;
+
+public class BenchmarkTurnParser {
+
+	public static void main(String args[]) {
+
+		int[] shipCounts = {10, 100, 250};
+
+		for (int shipsPerPlayer : shipCounts) {
+			String line = CreateGameMap.engineLine(4, shipsPerPlayer, 30, shipsPerPlayer);
+			byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+			double kiloBytes = bytes.length / 1024.0;
+
+			GameMap mapFromStrings = new GameMap(384, 256, 0);
+			GameMap mapFromTokens = new GameMap(384, 256, 0);
+			InputTokenizer tokenizer = new InputTokenizer(bytes);
+
+			mapFromStrings.updateMap(new Metadata(line.trim().split(" ")));
+			tokenizer.reset(bytes, bytes.length);
+			mapFromTokens.updateMap(tokenizer);
+			System.out.println("Ships " + 4 * shipsPerPlayer + " identical :" + CreateGameMap.sameMap(mapFromStrings, mapFromTokens));
+
+			int iterations = 20000 / shipsPerPlayer;
+
+			for (int i = 0; i < iterations; i++) {
+				mapFromStrings.updateMap(new Metadata(line.trim().split(" ")));
+				tokenizer.reset(bytes, bytes.length);
+				mapFromTokens.updateMap(tokenizer);
+			}
+
+			long start = System.nanoTime();
+			for (int i = 0; i < iterations; i++)
+				mapFromStrings.updateMap(new Metadata(line.trim().split(" ")));
+			double stringsMicros = (System.nanoTime() - start) / 1000.0 / iterations;
+
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				tokenizer.reset(bytes, bytes.length);
+				mapFromTokens.updateMap(tokenizer);
+			}
+			double tokensMicros = (System.nanoTime() - start) / 1000.0 / iterations;
+
+			System.out.println("  line size (KB) :" + String.format("%.1f", kiloBytes));
+			System.out.println("  split/parse (us per KB) :" + String.format("%.2f", stringsMicros / kiloBytes));
+			System.out.println("  tokenizer   (us per KB) :" + String.format("%.2f", tokensMicros / kiloBytes));
+		}
+	}
+}
@@ -1,5 +1,98 @@
 package testing;
 
+import hlt.GameMap;
+import hlt.Planet;
+import hlt.Ship;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
 public class CreateGameMap {
 
+	// Builds a turn line in the format sent by the Halite game engine.
+	public static String engineLine(final int numberOfPlayers, final int shipsPerPlayer, final int numberOfPlanets, final long seed) {
+		return engineLine(numberOfPlayers, shipsPerPlayer, numberOfPlanets, seed, 0);
+	}
+
+	public static String engineLine(final int numberOfPlayers, final int shipsPerPlayer, final int numberOfPlanets, final long seed, final int firstShipId) {
+
+		Random random = new Random(seed);
+		StringBuilder line = new StringBuilder();
+
+		line.append(numberOfPlayers).append(' ');
+
+		int shipId = firstShipId;
+		for (int player = 0; player < numberOfPlayers; player++) {
+			line.append(player).append(' ').append(shipsPerPlayer).append(' ');
+
+			for (int i = 0; i < shipsPerPlayer; i++) {
+				int dockingStatus = random.nextInt(10) < 8 ? 0 : 2;
+				line.append(shipId++).append(' ')
+					.append(fixed(random.nextDouble() * 384.0)).append(' ')
+					.append(fixed(random.nextDouble() * 256.0)).append(' ')
+					.append(1 + random.nextInt(255)).append(' ')
+					.append("0.0000 0.0000 ")
+					.append(dockingStatus).append(' ')
+					.append(dockingStatus == 0 ? 0 : random.nextInt(numberOfPlanets)).append(' ')
+					.append(0).append(' ')
+					.append(random.nextInt(2)).append(' ');
+			}
+		}
+
+		line.append(numberOfPlanets).append(' ');
+		for (int planet = 0; planet < numberOfPlanets; planet++) {
+			int owned = random.nextInt(2);
+			int docked = owned == 1 ? 1 + random.nextInt(3) : 0;
+
+			line.append(planet).append(' ')
+				.append(fixed(random.nextDouble() * 384.0)).append(' ')
+				.append(fixed(random.nextDouble() * 256.0)).append(' ')
+				.append(1000 + random.nextInt(2000)).append(' ')
+				.append(fixed(3.0 + random.nextDouble() * 8.0)).append(' ')
+				.append(2 + random.nextInt(5)).append(' ')
+				.append(random.nextInt(72)).append(' ')
+				.append(random.nextInt(3000)).append(' ')
+				.append(owned).append(' ')
+				.append(owned == 1 ? random.nextInt(numberOfPlayers) : 0).append(' ')
+				.append(docked).append(' ');
+
+			for (int i = 0; i < docked; i++)
+				line.append(random.nextInt(Math.max(shipId, 1))).append(' ');
+		}
+
+		return line.append('\n').toString();
+	}
+
+	private static String fixed(double value) {
+		return String.format(Locale.ROOT, "%.4f", value);
+	}
+
+	public static boolean sameMap(GameMap map1, GameMap map2) {
+		List<Ship> ships1 = map1.getAllShips();
+		List<Ship> ships2 = map2.getAllShips();
+
+		if (ships1.size() != ships2.size() || map1.getAllPlanets().size() != map2.getAllPlanets().size())
+			return false;
+
+		for (int i = 0; i < ships1.size(); i++) {
+			Ship s1 = ships1.get(i);
+			Ship s2 = ships2.get(i);
+			if (s1.getId() != s2.getId() || s1.getOwner() != s2.getOwner()
+				|| s1.getXPos() != s2.getXPos() || s1.getYPos() != s2.getYPos()
+				|| s1.getHealth() != s2.getHealth() || s1.getDockingStatus() != s2.getDockingStatus()
+				|| s1.getWeaponCooldown() != s2.getWeaponCooldown())
+				return false;
+		}
+
+		for (Planet p1 : map1.getAllPlanets().values()) {
+			Planet p2 = map2.getPlanet(p1.getId());
+			if (p2 == null || p1.getXPos() != p2.getXPos() || p1.getYPos() != p2.getYPos()
+				|| p1.getRadius() != p2.getRadius() || p1.getOwner() != p2.getOwner()
+				|| !p1.getDockedShips().equals(p2.getDockedShips()))
+				return false;
+		}
+
+		return true;
+	}
 }
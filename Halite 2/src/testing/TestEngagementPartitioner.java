@@ -0,0 +1,118 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Random;
+import core.DistanceManager;
+import core.GameState;
+import core.CombatManager.CombatOperation;
+import core.CombatManager.EngagementPartitioner;
+import engine.GameEngine;
+import hlt.*;
+
+public class TestEngagementPartitioner {
+
+	public static void main(String args[]) throws Exception {
+
+		DebugLog.setLevel(DebugLog.Level.Error);
+
+		Random random = new Random(24);
+		EngagementPartitioner partitioner = new EngagementPartitioner();
+		int partitions = 0;
+		int zoneMismatches = 0;
+		int orderMismatches = 0;
+		int zones = 0;
+		long nanos = 0;
+
+		for (int scene = 0; scene < 300; scene++) {
+			// Operations of a few of my ships each, spread over the map, and enemies around them
+			GameEngine engine = new GameEngine(240, 160, 2, 300);
+			engine.addPlanet(5, 5, 3, 1000, 2, 10000);
+			int numberOfOperations = 1 + random.nextInt(12);
+			ArrayList<ArrayList<Integer>> operationIds = new ArrayList<>();
+			for (int operation = 0; operation < numberOfOperations; operation++) {
+				double x = 20 + random.nextDouble() * 200;
+				double y = 20 + random.nextDouble() * 120;
+				ArrayList<Integer> ids = new ArrayList<>();
+				for (int i = 1 + random.nextInt(3); i > 0; i--)
+					ids.add(engine.addShip(0, x + random.nextDouble() * 6, y + random.nextDouble() * 6));
+				operationIds.add(ids);
+			}
+			for (int i = random.nextInt(20); i > 0; i--)
+				engine.addShip(1, 20 + random.nextDouble() * 200, 20 + random.nextDouble() * 120);
+
+			GameMap gameMap = new GameMap(240, 160, 0);
+			engine.writeGameMap(gameMap);
+			GameState gameState = new GameState(null, null, null, null, null, new DistanceManager());
+			gameState.updateGameState(gameMap);
+			gameState.getDistanceManager().computeDistanceIndexes(gameState);
+
+			ArrayList<CombatOperation> combatOperations = new ArrayList<>();
+			for (int operation = 0; operation < numberOfOperations; operation++) {
+				ArrayList<Ship> ships = new ArrayList<>();
+				for (int id: operationIds.get(operation))
+					ships.add(gameMap.getShip(0, id));
+				combatOperations.add(new CombatOperation(null, ships, null, operation));
+			}
+
+			long start = System.nanoTime();
+			ArrayList<ArrayList<CombatOperation>> actual = partitioner.partition(gameState, combatOperations);
+			nanos += System.nanoTime() - start;
+
+			// Brute force: operations connected by any pair of ships that can meet, or by an enemy both can engage
+			int[] labels = new int[numberOfOperations];
+			for (int operation = 0; operation < numberOfOperations; operation++)
+				labels[operation] = operation;
+			for (boolean changed = true; changed; ) {
+				changed = false;
+				for (int first = 0; first < numberOfOperations; first++)
+					for (int second = first + 1; second < numberOfOperations; second++)
+						if ((labels[first] != labels[second]) && interact(gameMap, combatOperations.get(first), combatOperations.get(second))) {
+							int label = Math.min(labels[first], labels[second]);
+							labels[first] = label;
+							labels[second] = label;
+							changed = true;
+						}
+			}
+
+			int[] actualLabels = new int[numberOfOperations];
+			for (int zone = 0; zone < actual.size(); zone++) {
+				int previous = -1;
+				for (CombatOperation combatOperation: actual.get(zone)) {
+					int operation = combatOperations.indexOf(combatOperation);
+					actualLabels[operation] = zone;
+					if (operation < previous)
+						orderMismatches++;
+					previous = operation;
+				}
+				if ((zone > 0) && (combatOperations.indexOf(actual.get(zone).get(0)) < combatOperations.indexOf(actual.get(zone - 1).get(0))))
+					orderMismatches++;
+			}
+
+			for (int first = 0; first < numberOfOperations; first++)
+				for (int second = 0; second < numberOfOperations; second++)
+					if ((labels[first] == labels[second]) != (actualLabels[first] == actualLabels[second]))
+						zoneMismatches++;
+
+			partitions++;
+			zones += actual.size();
+		}
+
+		System.out.println("Operations grouped differently from brute force: " + zoneMismatches + " (expected 0)");
+		System.out.println("Zones or operations out of order: " + orderMismatches + " (expected 0)");
+		System.out.println("Zones per turn: " + String.format("%.2f", zones / (double) partitions) + ", partition: "
+				+ String.format("%.2f", nanos / 1e3 / partitions) + " us");
+	}
+
+	private static boolean interact(GameMap gameMap, CombatOperation first, CombatOperation second) {
+		double reach = 2 * Constants.MAX_SPEED + 2 * Constants.SHIP_RADIUS + Constants.WEAPON_RADIUS;
+		for (Ship ship: first.getMyActiveShips())
+			for (Ship otherShip: second.getMyActiveShips()) {
+				if (ship.getDistanceTo(otherShip) <= reach)
+					return true;
+				for (Ship enemyShip: gameMap.getAllShips())
+					if ((enemyShip.getOwner() != 0) && (ship.getDistanceTo(enemyShip) <= 14.0) && (otherShip.getDistanceTo(enemyShip) <= 14.0))
+						return true;
+			}
+		return false;
+	}
+}
@@ -0,0 +1,54 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import engine.GameEngine;
+import hlt.*;
+
+public class TestEngine {
+
+	public static void main(String args[]) throws Exception {
+
+		DebugLog.setLevel(DebugLog.Level.Error);
+
+		// Head on: both ships meet half way and are destroyed
+		GameEngine engine = new GameEngine(100, 100, 2, 300);
+		int first = engine.addShip(0, 40, 50);
+		int second = engine.addShip(1, 50, 50);
+		setThrust(engine, 0, first, 0, 7);
+		setThrust(engine, 1, second, 180, 7);
+		engine.processTurn();
+		System.out.println("Head on, ships left: " + engine.getNumberOfShips(0) + " " + engine.getNumberOfShips(1) + " (expected 0 0)");
+
+		// Within weapon range: each ship takes the full damage of the other
+		engine = new GameEngine(100, 100, 2, 300);
+		engine.addShip(0, 40, 50);
+		engine.addShip(1, 45, 50);
+		engine.processTurn();
+		System.out.println("Attack, health left: " + engine.getTotalHealth(0) + " " + engine.getTotalHealth(1) + " (expected 191 191)");
+
+		// Docking starts on the turn of the command and takes DOCK_TURNS more turns, then the planet produces a ship every 72 / 6 = 12 turns
+		engine = new GameEngine(100, 100, 2, 300);
+		int planet = engine.addPlanet(50, 50, 5, 1000, 2, 10000);
+		int docker = engine.addShip(0, 57, 50);
+		engine.addShip(1, 5, 5);
+		GameMap gameMap = new GameMap(100, 100, 0);
+		engine.writeGameMap(gameMap);
+		engine.setMoves(0, new ArrayList<Move>(Arrays.asList(new DockMove(gameMap.getShip(0, docker), gameMap.getPlanet(planet)))));
+		for (int turn = 0; turn <= Constants.DOCK_TURNS; turn++)
+			engine.processTurn();
+		engine.writeGameMap(gameMap);
+		System.out.println("Docking status: " + gameMap.getShip(0, docker).getDockingStatus() + " (expected Docked)");
+		System.out.println("Planet owner: " + gameMap.getPlanet(planet).getOwner() + " (expected 0)");
+		for (int turn = 0; turn < GameEngine.SHIP_COST / Constants.BASE_PRODUCTIVITY; turn++)
+			engine.processTurn();
+		System.out.println("Ships after production: " + engine.getNumberOfShips(0) + " (expected 2)");
+	}
+
+	private static void setThrust(GameEngine engine, int player, int shipId, int angleDeg, int thrust) {
+		GameMap gameMap = new GameMap(engine.getWidth(), engine.getHeight(), player);
+		engine.writeGameMap(gameMap);
+		Ship ship = gameMap.getShip(player, shipId);
+		engine.setMoves(player, new ArrayList<Move>(Arrays.asList(new ThrustMove(ship, angleDeg, thrust, 0))));
+	}
+}
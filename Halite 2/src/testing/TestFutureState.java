@@ -0,0 +1,105 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Random;
+import core.CombatManager.CombatManager;
+import core.CombatManager.FutureState;
+import hlt.*;
+
+public class TestFutureState {
+
+	public static void main(String args[]) throws Exception {
+
+		Random random = new Random(23);
+		int leaves = 0;
+		int mismatches = 0;
+		int undoMismatches = 0;
+		int hashMismatches = 0;
+		long stateNanos = 0;
+		long listNanos = 0;
+
+		for (int scene = 0; scene < 500; scene++) {
+			// A skirmish of a few ships a side, some docked, sometimes a third player or two ships sharing an id
+			ArrayList<Ship> myShips = randomShips(random, 0, 1 + random.nextInt(6), 0);
+			ArrayList<Ship> enemyShips = randomShips(random, 1, 1 + random.nextInt(6), 100);
+			if (random.nextInt(4) == 0)
+				enemyShips.addAll(randomShips(random, 2, 1 + random.nextInt(3), 200));
+			if (random.nextInt(4) == 0)
+				enemyShips.add(copy(enemyShips.get(0), enemyShips.get(0).getXPos() + 2, enemyShips.get(0).getYPos()));
+
+			FutureState state = new FutureState(myShips, enemyShips);
+			long hash = state.getHash();
+			int n = state.getNumberOfShips();
+			double[] xs = new double[n];
+			double[] ys = new double[n];
+			for (int i = 0; i < n; i++) {
+				xs[i] = state.getXPos(i);
+				ys[i] = state.getYPos(i);
+			}
+
+			// Lines of moves, each leaf checked against the balance on copies of the ships where they now are
+			for (int line = 0; line < 40; line++) {
+				int mark = state.mark();
+				int depth = 1 + random.nextInt(4);
+				for (int d = 0; d < depth; d++) {
+					int moved = random.nextInt(n);
+					state.moveShip(moved, state.getXPos(moved) + random.nextDouble() * 14 - 7, state.getYPos(moved) + random.nextDouble() * 14 - 7);
+				}
+
+				long start = System.nanoTime();
+				double actual = state.combatBalance();
+				stateNanos += System.nanoTime() - start;
+
+				ArrayList<Ship> myShipsNow = new ArrayList<>();
+				ArrayList<Ship> enemyShipsNow = new ArrayList<>();
+				for (int i = 0; i < n; i++)
+					((i < myShips.size()) ? myShipsNow : enemyShipsNow).add(copy(state.getShip(i), state.getXPos(i), state.getYPos(i)));
+
+				start = System.nanoTime();
+				double expected = CombatManager.combatBalance(myShipsNow, enemyShipsNow);
+				listNanos += System.nanoTime() - start;
+
+				leaves++;
+				if (actual != expected)
+					mismatches++;
+
+				// The same positions reached in the other order hash the same
+				FutureState reordered = new FutureState(myShips, enemyShips);
+				for (int i = n - 1; i >= 0; i--)
+					reordered.moveShip(i, state.getXPos(i), state.getYPos(i));
+				if (reordered.getHash() != state.getHash())
+					hashMismatches++;
+
+				state.undo(mark);
+				for (int i = 0; i < n; i++)
+					if (state.getXPos(i) != xs[i] || state.getYPos(i) != ys[i])
+						undoMismatches++;
+				if (state.getHash() != hash)
+					hashMismatches++;
+			}
+
+			if (state.combatBalance() != CombatManager.combatBalance(myShips, enemyShips))
+				undoMismatches++;
+		}
+
+		System.out.println("Balances different from CombatManager: " + mismatches + " of " + leaves + " (expected 0)");
+		System.out.println("Positions or balances wrong after undo: " + undoMismatches + " (expected 0)");
+		System.out.println("Hashes different for the same positions: " + hashMismatches + " (expected 0)");
+		System.out.println("Leaf evaluation: " + String.format("%.2f", stateNanos / 1e3 / leaves) + " us on the state, "
+				+ String.format("%.2f", listNanos / 1e3 / leaves) + " us on lists of ships");
+	}
+
+	private static ArrayList<Ship> randomShips(Random random, int owner, int count, int firstId) {
+		ArrayList<Ship> ships = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Ship.DockingStatus status = random.nextInt(5) == 0 ? Ship.DockingStatus.Docked : Ship.DockingStatus.Undocked;
+			int health = 1 + random.nextInt(255);
+			ships.add(new Ship(owner, firstId + i, 100 + random.nextDouble() * 16, 100 + random.nextDouble() * 16, health, status, -1, 0, 0));
+		}
+		return ships;
+	}
+
+	private static Ship copy(Ship ship, double x, double y) {
+		return new Ship(ship.getOwner(), ship.getId(), x, y, ship.getHealth(), ship.getDockingStatus(), ship.getDockedPlanet(), ship.getDockingProgress(), ship.getWeaponCooldown());
+	}
+}
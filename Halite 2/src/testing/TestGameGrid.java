@@ -0,0 +1,81 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import core.NavigationManager.GameGrid;
+import hlt.*;
+
+public class TestGameGrid {
+
+	public static void main(String args[]) throws Exception {
+
+		for (double gridUnit : new double[] {14.0, 7.0, 3.5}) {
+			Random random = new Random(19);
+			int queries = 0;
+			int costMismatches = 0;
+			int waypointsOffPath = 0;
+			long nanos = 0;
+
+			for (int scene = 0; scene < 20; scene++) {
+				// Enemies spread over a large map
+				ArrayList<Ship> enemies = new ArrayList<>();
+				for (int i = 0; i < 80; i++)
+					enemies.add(new Ship(1, i, random.nextDouble() * 383, random.nextDouble() * 255, 255, Ship.DockingStatus.Undocked, -1, 0, 0));
+				GameGrid gameGrid = new GameGrid(384, 256, gridUnit, enemies);
+
+				for (int query = 0; query < 20; query++) {
+					Entity source = new Entity(0, 0, random.nextDouble() * 383, random.nextDouble() * 255, 0, 0);
+					Entity target = new Entity(0, 0, random.nextDouble() * 383, random.nextDouble() * 255, 0, 0);
+
+					long start = System.nanoTime();
+					Entity waypoint = gameGrid.computeShortestPath(source, target);
+					nanos += System.nanoTime() - start;
+
+					// Same cost as a plain Dijkstra, and the waypoint on one of the cheapest paths
+					double cost = gameGrid.computeShortestPathCost(source, target);
+					if (Math.abs(cost - dijkstra(gameGrid, gridUnit, source, target)) > 1e-9)
+						costMismatches++;
+					if (waypoint != target && Math.abs(gameGrid.computeShortestPathCost(source, waypoint) + gameGrid.computeShortestPathCost(waypoint, target) - cost) > 1e-9)
+						waypointsOffPath++;
+					queries++;
+				}
+			}
+
+			System.out.println("Grid unit " + gridUnit + ": costs different from Dijkstra " + costMismatches + ", waypoints off the cheapest paths " + waypointsOffPath
+					+ " of " + queries + " (expected 0, 0), " + String.format("%.3f", nanos / 1e6 / queries) + " ms per path");
+		}
+	}
+
+	// Textbook Dijkstra on the hit map, lowest distance found by a scan
+	private static double dijkstra(GameGrid gameGrid, double gridUnit, Entity source, Entity target) {
+		int rows = gameGrid.getNumberOfRows();
+		int cols = gameGrid.getNumberOfCols();
+		double[] distances = new double[rows * cols];
+		boolean[] settled = new boolean[rows * cols];
+		Arrays.fill(distances, Double.MAX_VALUE);
+
+		int destination = (int) (target.getXPos() / gridUnit) * cols + (int) (target.getYPos() / gridUnit);
+		distances[(int) (source.getXPos() / gridUnit) * cols + (int) (source.getYPos() / gridUnit)] = 0.0;
+
+		while (true) {
+			int cell = -1;
+			for (int i = 0; i < rows * cols; i++)
+				if (!settled[i] && distances[i] < Double.MAX_VALUE && (cell == -1 || distances[i] < distances[cell]))
+					cell = i;
+			if (cell == -1 || cell == destination)
+				return (cell == -1) ? Double.MAX_VALUE : distances[cell];
+
+			settled[cell] = true;
+			int row = cell / cols;
+			int col = cell % cols;
+			int[][] neighbours = {{row - 1, col}, {row + 1, col}, {row, col - 1}, {row, col + 1}};
+			for (int[] neighbour : neighbours) {
+				if (neighbour[0] < 0 || neighbour[0] >= rows || neighbour[1] < 0 || neighbour[1] >= cols)
+					continue;
+				int next = neighbour[0] * cols + neighbour[1];
+				distances[next] = Math.min(distances[next], distances[cell] + gameGrid.getHitMapValue(neighbour[0], neighbour[1]));
+			}
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Random;
+import core.HeadingSweep;
+import hlt.*;
+
+public class TestHeadingSweep {
+
+	public static void main(String args[]) throws Exception {
+
+		Random random = new Random(11);
+		HeadingSweep sweep = new HeadingSweep();
+		double fudge = Constants.SHIP_RADIUS + 0.1;
+		double step = Math.PI / 45.0;
+
+		int wronglyBlocked = 0;
+		int missedBlocked = 0;
+		int headingMismatches = 0;
+		int scenes = 5000;
+
+		for (int scene = 0; scene < scenes; scene++) {
+			// A crowd of ships around the start, sometimes a planet, sometimes the start inside an obstacle
+			Position start = new Position(100 + random.nextDouble(), 100 + random.nextDouble());
+			ArrayList<Entity> obstacles = new ArrayList<>();
+			int numberOfShips = random.nextInt(30);
+			for (int i = 0; i < numberOfShips; i++)
+				obstacles.add(new Entity(0, i, 100 + random.nextDouble() * 30 - 15, 100 + random.nextDouble() * 30 - 15, 255, Constants.SHIP_RADIUS));
+			if (random.nextBoolean())
+				obstacles.add(new Entity(-1, 100, 100 + random.nextDouble() * 40 - 20, 100 + random.nextDouble() * 40 - 20, 2000, 3 + random.nextDouble() * 10));
+
+			double distance = random.nextInt(10) == 0 ? 0.0 : random.nextDouble() * 14;
+			double aimRad = random.nextDouble() * 2 * Math.PI + 2 * Math.PI;
+
+			sweep.clear(start.getXPos(), start.getYPos(), distance, aimRad);
+			for (Entity obstacle : obstacles)
+				sweep.addCircle(obstacle.getXPos(), obstacle.getYPos(), obstacle.getRadius() + fudge);
+
+			// Same lattice and same exact test as Navigation, once heading by heading and once through the sweep
+			int expected = -1;
+			int actual = -1;
+			for (int correction = 0; correction < 92; correction++) {
+				double offsetRad = ((correction + 1) / 2) * step * ((correction % 2 == 1) ? 1 : -1);
+				Position end = new Position(start.getXPos() + Math.cos(aimRad + offsetRad) * distance, start.getYPos() + Math.sin(aimRad + offsetRad) * distance);
+
+				boolean isBlocked = false;
+				for (Entity obstacle : obstacles)
+					isBlocked |= Collision.segmentCircleIntersect(start, end, obstacle, fudge);
+
+				boolean isSweepBlocked = sweep.isBlocked(offsetRad);
+				if (isSweepBlocked && !isBlocked)
+					wronglyBlocked++;
+				if (!isSweepBlocked && isBlocked)
+					missedBlocked++;
+
+				if ((expected == -1) && !isBlocked)
+					expected = correction;
+				if ((actual == -1) && !isSweepBlocked && !isBlocked)
+					actual = correction;
+			}
+
+			if (expected != actual)
+				headingMismatches++;
+		}
+
+		System.out.println("Headings blocked by the sweep but free: " + wronglyBlocked + " (expected 0)");
+		System.out.println("Headings free in the sweep but blocked: " + missedBlocked + " (expected 0, a few on borders are fine)");
+		System.out.println("Scenes with a different heading picked: " + headingMismatches + " of " + scenes + " (expected 0)");
+
+		// Start inside an obstacle: only the headings towards it are blocked
+		sweep.clear(0, 0, 7, 0);
+		sweep.addCircle(0.5, 0, 1);
+		System.out.println("Towards the obstacle blocked: " + sweep.isBlocked(0.3) + " (expected true)");
+		System.out.println("Away from the obstacle blocked: " + sweep.isBlocked(Math.PI) + " (expected false)");
+
+		// Intervals across the back of the aim wrap around
+		sweep.clear(0, 0, 7, 0);
+		sweep.addCircle(-5, 0.1, 1);
+		System.out.println("Behind blocked on both sides: " + (sweep.isBlocked(Math.PI - 0.05) && sweep.isBlocked(-Math.PI + 0.05)) + " (expected true)");
+		System.out.println("Intervals after the wrap: " + sweep.getNumberOfIntervals() + " (expected 2)");
+	}
+}
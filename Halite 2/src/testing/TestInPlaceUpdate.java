@@ -0,0 +1,59 @@
+package testing;
+
+import java.nio.charset.StandardCharsets;
+import hlt.*;
+
+public class TestInPlaceUpdate {
+
+	public static void main(String args[]) {
+
+		GameMap freshMap = new GameMap(384, 256, 0);
+		GameMap inPlaceMap = new GameMap(384, 256, 0);
+		inPlaceMap.setReuseEntities(true);
+
+		boolean identical = true;
+		boolean consistent = true;
+
+		// Ships die and spawn by shifting ids, planets get destroyed as their count drops
+		for (int turn = 0; turn < 60; turn++) {
+			int shipsPerPlayer = 20 + (turn * 7) % 30;
+			int planets = 30 - turn / 4;
+			String line = CreateGameMap.engineLine(4, shipsPerPlayer, planets, turn, (turn / 3) * 5);
+			byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+
+			freshMap.updateMap(new InputTokenizer(bytes));
+			inPlaceMap.updateMap(new InputTokenizer(bytes));
+
+			identical &= CreateGameMap.sameMap(freshMap, inPlaceMap);
+
+			for (Ship ship : inPlaceMap.getAllShips())
+				consistent &= inPlaceMap.getShip(ship.getOwner(), ship.getId()) == ship;
+			for (Player player : inPlaceMap.getAllPlayers())
+				consistent &= player.getShips().size() == shipsPerPlayer;
+		}
+
+		System.out.println("In place map identical to fresh map :" + identical);
+		System.out.println("Player ships consistent with all ships :" + consistent);
+
+		byte[] bytes = CreateGameMap.engineLine(4, 100, 30, 0).getBytes(StandardCharsets.US_ASCII);
+		InputTokenizer tokenizer = new InputTokenizer(bytes);
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		for (GameMap gameMap : new GameMap[] {freshMap, inPlaceMap}) {
+			for (int i = 0; i < 1000; i++) {
+				tokenizer.reset(bytes, bytes.length);
+				gameMap.updateMap(tokenizer);
+			}
+
+			long allocated = threadBean.getThreadAllocatedBytes(threadId);
+			for (int i = 0; i < 1000; i++) {
+				tokenizer.reset(bytes, bytes.length);
+				gameMap.updateMap(tokenizer);
+			}
+			allocated = threadBean.getThreadAllocatedBytes(threadId) - allocated;
+
+			System.out.println((gameMap.isReusingEntities() ? "  in place" : "  fresh   ") + " (bytes per turn) :" + allocated / 1000);
+		}
+	}
+}
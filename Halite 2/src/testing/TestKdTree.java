@@ -0,0 +1,80 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Random;
+import core.KdTree;
+import hlt.*;
+
+public class TestKdTree {
+
+	public static void main(String args[]) throws Exception {
+
+		Random random = new Random(3);
+
+		// 4 players x 250 ships on a half-unit lattice: many stacked coordinates and equal distances
+		ArrayList<Ship> ships = new ArrayList<>();
+		for (int i = 0; i < 1000; i++)
+			ships.add(new Ship(i % 4, i, random.nextInt(200) / 2.0, random.nextInt(140) / 2.0, 255, Ship.DockingStatus.Undocked, 0, 0, 0));
+
+		KdTree tree = new KdTree();
+		for (Ship ship : ships)
+			tree.add(ship);
+		tree.build();
+
+		int nearestMismatches = 0;
+		int withinMismatches = 0;
+		for (int k = 0; k < 1000; k++) {
+			double x = random.nextInt(220) / 2.0 - 5;
+			double y = random.nextInt(160) / 2.0 - 5;
+			int count = 1 + random.nextInt(20);
+			double radius = random.nextInt(30) / 2.0;
+
+			// Brute force: by squared distance, then by index
+			ArrayList<Integer> expected = new ArrayList<>();
+			for (int i = 0; i < ships.size(); i++)
+				expected.add(i);
+			expected.sort((i, j) -> {
+				int c = Double.compare(squaredDistance(ships.get(i), x, y), squaredDistance(ships.get(j), x, y));
+				return (c != 0) ? c : Integer.compare(i, j);
+			});
+
+			int numberFound = tree.nearest(x, y, count);
+			for (int i = 0; i < count; i++)
+				if ((numberFound != count) || (tree.getFound(i) != expected.get(i)))
+					nearestMismatches++;
+
+			ArrayList<Integer> expectedWithin = new ArrayList<>();
+			for (int i = 0; i < ships.size(); i++)
+				if (squaredDistance(ships.get(i), x, y) <= radius * radius)
+					expectedWithin.add(i);
+
+			ArrayList<Integer> actualWithin = new ArrayList<>();
+			numberFound = tree.within(x, y, radius);
+			for (int i = 0; i < numberFound; i++)
+				actualWithin.add(tree.getFound(i));
+
+			if (!expectedWithin.equals(actualWithin))
+				withinMismatches++;
+		}
+
+		System.out.println("Nearest mismatches: " + nearestMismatches + " (expected 0)");
+		System.out.println("Within mismatches: " + withinMismatches + " (expected 0)");
+
+		long start = System.nanoTime();
+		for (int turn = 0; turn < 1000; turn++) {
+			tree.clear();
+			for (Ship ship : ships)
+				tree.add(ship);
+			tree.build();
+			for (int i = 0; i < ships.size(); i += 4)
+				tree.nearest(ships.get(i).getXPos(), ships.get(i).getYPos(), 5);
+		}
+		System.out.println("Build of 1000 ships and 250 5-nearest queries: " + (System.nanoTime() - start) / 1000 / 1000 + "us per turn");
+	}
+
+	private static double squaredDistance(Ship ship, double x, double y) {
+		double dx = ship.getXPos() - x;
+		double dy = ship.getYPos() - y;
+		return dx * dx + dy * dy;
+	}
+}
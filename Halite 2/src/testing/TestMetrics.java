@@ -0,0 +1,35 @@
+package testing;
+
+import java.io.StringWriter;
+import hlt.Metrics;
+
+public class TestMetrics {
+
+	public static void main(String args[]) throws Exception {
+
+		Metrics.enable();
+
+		// Turn i allocates about i KB during Fleet and counts i collision pairs
+		long sink = 0;
+		for (int turn = 1; turn <= 100; turn++) {
+			Metrics.startPhase(Metrics.Phase.Parse);
+			Metrics.startPhase(Metrics.Phase.Fleet);
+			for (int k = 0; k < turn; k++)
+				sink += new byte[1024].length;
+			for (int k = 0; k < turn; k++)
+				Metrics.increment(Metrics.Counter.CollisionPairs);
+			Metrics.startPhase(Metrics.Phase.Send);
+			Metrics.endTurn(turn);
+		}
+
+		System.out.println("Turns recorded: " + Metrics.getNumberOfTurns() + " (expected 100)");
+		System.out.println("Collision pairs on turn 49: " + Metrics.getCounter(Metrics.Counter.CollisionPairs, 49) + " (expected 50)");
+		System.out.println("Fleet bytes on turn 99: " + Metrics.getAllocatedBytes(Metrics.Phase.Fleet, 99) + " (expected about " + (100 * 1040) + ")");
+		System.out.println("Parse bytes on turn 99: " + Metrics.getAllocatedBytes(Metrics.Phase.Parse, 99) + " (expected about 0)");
+
+		StringWriter summary = new StringWriter();
+		Metrics.writeSummary(summary);
+		System.out.println(summary);
+		System.out.println(sink > 0);
+	}
+}
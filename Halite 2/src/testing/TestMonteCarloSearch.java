@@ -0,0 +1,131 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import core.Timer;
+import core.CombatManager.EventType;
+import core.CombatManager.FutureState;
+import core.CombatManager.MonteCarloSearch;
+import hlt.*;
+
+public class TestMonteCarloSearch {
+
+	public static void main(String args[]) throws Exception {
+
+		// Not started, the timer never stops the search
+		Timer timer = new Timer();
+		SkirmishTree tree = new SkirmishTree(3, 4, 8);
+
+		MonteCarloSearch search = new MonteCarloSearch(tree);
+		int[] line = new int[tree.getMaxDepth()];
+		int lineLength = search.search(timer, line);
+		System.out.println("Playouts without a deadline: " + search.getNumberOfPlayouts() + " (expected " + MonteCarloSearch.MAX_PLAYOUTS + ")");
+		System.out.println("Line length: " + lineLength + " (expected " + tree.getNumberOfMyEntities() + ")");
+
+		// Each event of the line is the most visited child of the node above it
+		int notMostVisited = 0;
+		MonteCarloSearch.Node node = search.getRoot();
+		for (int depth = 0; depth < lineLength; depth++) {
+			MonteCarloSearch.Node next = null;
+			for (int position = 0; position < node.getNumberOfChildren(); position++)
+				if ((node.getChild(position) != null) && (node.getChild(position).getEvent() == line[depth]))
+					next = node.getChild(position);
+			if (next == null) {
+				notMostVisited++;
+				break;
+			}
+			for (int position = 0; position < node.getNumberOfChildren(); position++)
+				if ((node.getChild(position) != null) && (node.getChild(position).getVisits() > next.getVisits()))
+					notMostVisited++;
+			node = next;
+		}
+		System.out.println("Line events less visited than a brother: " + notMostVisited + " (expected 0)");
+
+		// Progressive widening: a node visited n times has at most ceil(sqrt(n)) children
+		int[] counts = new int[2];
+		countWidening(search.getRoot(), counts);
+		System.out.println("Nodes with more than ceil(sqrt(visits)) children: " + counts[0] + " (expected 0)");
+		System.out.println("Nodes held back by widening: " + (counts[1] > 0) + " (expected true)");
+
+		// Same tree, same seed: same playouts
+		MonteCarloSearch again = new MonteCarloSearch(tree);
+		int[] lineAgain = new int[tree.getMaxDepth()];
+		int lineLengthAgain = again.search(timer, lineAgain);
+		System.out.println("Same line and nodes on a second run: " + ((lineLengthAgain == lineLength) && Arrays.equals(lineAgain, line)
+				&& (again.getNumberOfNodes() == search.getNumberOfNodes())) + " (expected true)");
+
+		// The combat deadline already passed: nothing is ordered, and playouts stop at the first check
+		HashMap<String,Object> gameDefinitions = new HashMap<>();
+		gameDefinitions.put("navigationBudget", 1000.0);
+		gameDefinitions.put("combatSearchBudget", 1.0);
+		timer.setBudgets(gameDefinitions);
+		timer.startTurn();
+		timer.startPhase(Timer.Phase.Navigation);
+		timer.startCombatSearch();
+		Thread.sleep(10);
+
+		MonteCarloSearch stopped = new MonteCarloSearch(tree);
+		int stoppedLength = stopped.search(timer, new int[tree.getMaxDepth()]);
+		System.out.println("Playouts after the deadline: " + stopped.getNumberOfPlayouts() + " (expected " + MonteCarloSearch.PLAYOUTS_PER_DEADLINE_CHECK + ")");
+		System.out.println("Events scored for ordering after the deadline: " + (stopped.getNumberOfNodes() - stopped.getNumberOfPlayouts()) + " (expected 0)");
+		System.out.println("Line played after the deadline: " + (stoppedLength > 0) + " (expected true)");
+		timer.endCombatSearch();
+		timer.endTurn();
+	}
+
+	// Counts the nodes with too many children, and those with fewer children than events because of widening
+	private static void countWidening(MonteCarloSearch.Node node, int[] counts) {
+		int children = 0;
+		for (int position = 0; position < node.getNumberOfChildren(); position++)
+			if (node.getChild(position) != null) {
+				children++;
+				countWidening(node.getChild(position), counts);
+			}
+
+		int widened = (int) Math.ceil(Math.sqrt(node.getVisits()));
+		if (children > widened)
+			counts[0]++;
+		if ((children == widened) && (children < node.getNumberOfChildren()))
+			counts[1]++;
+	}
+
+	// Each of my ships in turn stays or moves 5 towards one of a few headings, then the enemy ships all move together
+	private static class SkirmishTree implements MonteCarloSearch.Tree {
+
+		private static final EventType[] EVENT_TYPES = {EventType.ATTACK, EventType.GROUP, EventType.RETREAT};
+
+		private final ArrayList<Ship> myShips = new ArrayList<>();
+		private final ArrayList<Ship> enemyShips = new ArrayList<>();
+		private final int numberOfEvents;
+
+		private SkirmishTree(int numberOfMyShips, int numberOfEnemyShips, int numberOfEvents) {
+			for (int i = 0; i < numberOfMyShips; i++)
+				myShips.add(new Ship(0, i, 100, 100 + 3 * i, 255, Ship.DockingStatus.Undocked, -1, 0, 0));
+			for (int i = 0; i < numberOfEnemyShips; i++)
+				enemyShips.add(new Ship(1, 100 + i, 111, 99 + 3 * i, 127 + 32 * i, Ship.DockingStatus.Undocked, -1, 0, 0));
+			this.numberOfEvents = numberOfEvents;
+		}
+
+		public int getMaxDepth() { return myShips.size() + 1; }
+		public int getNumberOfMyEntities() { return myShips.size(); }
+		public int getNumberOfEvents(int depth) { return numberOfEvents; }
+		public EventType getEventType(int depth, int child) { return EVENT_TYPES[child % EVENT_TYPES.length]; }
+		public boolean isMaxPlayer(int depth) { return depth < myShips.size(); }
+		public FutureState newState() { return new FutureState(myShips, enemyShips); }
+
+		public void applyEvent(FutureState state, int depth, int child) {
+			double angle = 2 * Math.PI * child / numberOfEvents;
+			double distance = (child == 0) ? 0.0 : 5.0;
+			if (depth < myShips.size()) {
+				Ship ship = myShips.get(depth);
+				state.moveShip(depth, ship.getXPos() + distance * Math.cos(angle), ship.getYPos() + distance * Math.sin(angle));
+			} else {
+				for (int i = 0; i < enemyShips.size(); i++) {
+					Ship ship = enemyShips.get(i);
+					state.moveShip(myShips.size() + i, ship.getXPos() + distance * Math.cos(angle), ship.getYPos() + distance * Math.sin(angle));
+				}
+			}
+		}
+	}
+}
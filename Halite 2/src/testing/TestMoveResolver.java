@@ -0,0 +1,113 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Random;
+import core.NavigationManager.MoveResolver;
+import hlt.*;
+
+public class TestMoveResolver {
+
+	public static void main(String args[]) throws Exception {
+
+		Random random = new Random(13);
+		MoveResolver resolver = new MoveResolver();
+
+		// One colliding pair: the resolver must repair it as Collision.resolveMoves does
+		int pairs = 0;
+		int pairMismatches = 0;
+		while (pairs < 20000) {
+			Ship ship1 = new Ship(0, 0, 50, 50, 255, Ship.DockingStatus.Undocked, -1, 0, 0);
+			Ship ship2 = new Ship(0, 1, 50 + random.nextDouble() * 16 - 8, 50 + random.nextDouble() * 16 - 8, 255, Ship.DockingStatus.Undocked, -1, 0, 0);
+			ThrustMove move1 = new ThrustMove(ship1, random.nextInt(360), random.nextInt(8), 1 + random.nextInt(3));
+			ThrustMove move2 = new ThrustMove(ship2, random.nextInt(360), random.nextInt(8), 1 + random.nextInt(3));
+			if (!Collision.willCollideClosedForm(move1, move2))
+				continue;
+			pairs++;
+
+			ThrustMove expected1 = new ThrustMove(move1);
+			ThrustMove expected2 = new ThrustMove(move2);
+			if (expected2.getPriorityMove() > expected1.getPriorityMove())
+				Collision.resolveMoves(expected2, expected1);
+			else
+				Collision.resolveMoves(expected1, expected2);
+
+			// Pairs the old repair leaves colliding get more from the resolver, by design
+			if (Collision.willCollideClosedForm(expected1, expected2))
+				continue;
+
+			ArrayList<Move> moves = new ArrayList<>();
+			moves.add(move1);
+			moves.add(move2);
+			resolver.resolve(moves);
+
+			if ((move1.getThrust() != expected1.getThrust()) || (move2.getThrust() != expected2.getThrust()))
+				pairMismatches++;
+		}
+		System.out.println("Pairs repaired differently from Collision.resolveMoves: " + pairMismatches + " of " + pairs + " (expected 0)");
+
+		// A crowd: the old double pass next to the resolver, best of a few rounds on fresh copies
+		int numberOfMoves = 600;
+		ArrayList<ThrustMove> crowd = new ArrayList<>();
+		for (int i = 0; i < numberOfMoves; i++) {
+			Ship ship = new Ship(0, i, random.nextDouble() * 120, random.nextDouble() * 80, 255, Ship.DockingStatus.Undocked, -1, 0, 0);
+			crowd.add(new ThrustMove(ship, random.nextInt(360), random.nextInt(8), random.nextInt(6)));
+		}
+
+		ArrayList<Move> oldMoves = null;
+		ArrayList<Move> newMoves = null;
+		double oldMillis = Double.MAX_VALUE;
+		double newMillis = Double.MAX_VALUE;
+		for (int round = 0; round < 10; round++) {
+			oldMoves = new ArrayList<>();
+			newMoves = new ArrayList<>();
+			for (ThrustMove move : crowd) {
+				oldMoves.add(new ThrustMove(move));
+				newMoves.add(new ThrustMove(move));
+			}
+
+			long start = System.nanoTime();
+			resolvePairwise(oldMoves);
+			resolvePairwise(oldMoves);
+			oldMillis = Math.min(oldMillis, (System.nanoTime() - start) / 1e6);
+
+			start = System.nanoTime();
+			resolver.resolve(newMoves);
+			newMillis = Math.min(newMillis, (System.nanoTime() - start) / 1e6);
+		}
+
+		System.out.println("Conflicts left by the double pass: " + countConflicts(oldMoves));
+		System.out.println("Conflicts left by the resolver: " + countConflicts(newMoves) + " (expected 0)");
+		System.out.println("  double pass (ms) :" + String.format("%.2f", oldMillis));
+		System.out.println("  resolver    (ms) :" + String.format("%.2f", newMillis));
+	}
+
+	// NavigationManager.resolveMovesInternal before the resolver
+	private static void resolvePairwise(ArrayList<Move> moves) {
+		for (int i = 0; i < moves.size(); i++) {
+			ThrustMove move1 = (ThrustMove) moves.get(i);
+			for (int j = 0; j < i; j++) {
+				ThrustMove move2 = (ThrustMove) moves.get(j);
+				if (Collision.willCollideClosedForm(move1, move2)) {
+					if (move1.getPriorityMove() > move2.getPriorityMove())
+						Collision.resolveMoves(move1, move2);
+					else
+						Collision.resolveMoves(move2, move1);
+				}
+			}
+		}
+	}
+
+	// Ships already overlapping while both stopped cannot be helped
+	private static int countConflicts(ArrayList<Move> moves) {
+		int conflicts = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			for (int j = 0; j < i; j++) {
+				ThrustMove move1 = (ThrustMove) moves.get(i);
+				ThrustMove move2 = (ThrustMove) moves.get(j);
+				if (((move1.getThrust() != 0) || (move2.getThrust() != 0)) && Collision.willCollideClosedForm(move1, move2))
+					conflicts++;
+			}
+		}
+		return conflicts;
+	}
+}
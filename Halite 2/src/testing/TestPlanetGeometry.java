@@ -0,0 +1,45 @@
+package testing;
+
+import java.util.ArrayList;
+import core.PlanetGeometry;
+import hlt.*;
+
+public class TestPlanetGeometry {
+
+	public static void main(String args[]) throws Exception {
+
+		// A big planet right between the start and the target, a small one out of the way
+		ArrayList<Planet> planets = new ArrayList<>();
+		planets.add(new Planet(-1, 0, 100, 50, 2000, 10, 4, 0, 1000, new ArrayList<>()));
+		planets.add(new Planet(-1, 1, 30, 90, 2000, 4, 2, 0, 1000, new ArrayList<>()));
+
+		PlanetGeometry geometry = new PlanetGeometry(200, 100, planets);
+		Position start = new Position(70, 50);
+		Position target = new Position(130, 50);
+
+		Position waypoint = geometry.route(start, target);
+		System.out.println("Waypoints: " + geometry.getNumberOfWaypoints() + " (expected 24)");
+		System.out.println("Distance between planets: " + String.format("%.2f", geometry.getDistanceBetweenPlanets(0, 1)) + " (expected 80.62)");
+		System.out.println("Route goes around: " + !waypoint.equals(target) + " (expected true)");
+		System.out.println("Waypoint clears the planet: " + (waypoint.getDistanceTo(planets.get(0)) > 10.6) + " (expected true)");
+		System.out.println("Nothing between start and waypoint: " + !Collision.segmentCircleIntersect(start, waypoint, planets.get(0), 0.6) + " (expected true)");
+
+		int numberFound = geometry.queryBox(60, 40, 92, 60);
+		System.out.println("Planets near the start: " + numberFound + " (expected 1)");
+		numberFound = geometry.queryBox(0, 0, 10, 10);
+		System.out.println("Planets in the corner: " + numberFound + " (expected 0)");
+
+		// Docking on the planet in the way: it is the destination, not an obstacle
+		Position dockingPoint = start.getClosestPoint(planets.get(0), 0.0);
+		System.out.println("Route to the docking point: " + geometry.route(start, dockingPoint).equals(dockingPoint) + " (expected true)");
+
+		// Once the planet explodes the way is clear
+		ArrayList<Planet> planetsLeft = new ArrayList<>();
+		planetsLeft.add(planets.get(1));
+		System.out.println("Same layout: " + geometry.isLayoutOf(planetsLeft) + " (expected true)");
+		geometry.update(planetsLeft);
+		System.out.println("Planet alive: " + geometry.isAlive(0) + " (expected false)");
+		System.out.println("Route after explosion is direct: " + geometry.route(start, target).equals(target) + " (expected true)");
+		System.out.println("Waypoints after explosion: " + geometry.getNumberOfWaypoints() + " (expected 12)");
+	}
+}
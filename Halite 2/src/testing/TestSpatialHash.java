@@ -0,0 +1,77 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Random;
+import core.SpatialHash;
+import hlt.*;
+
+public class TestSpatialHash {
+
+	public static void main(String args[]) throws Exception {
+
+		Random random = new Random(7);
+		int width = 240;
+		int height = 160;
+
+		// Ships on a coarse lattice so that many are exactly on cell borders or at equal distances
+		ArrayList<Ship> ships = new ArrayList<>();
+		SpatialHash hash = new SpatialHash();
+		hash.clear(width, height);
+		for (int i = 0; i < 400; i++) {
+			double x = random.nextInt(width * 2 + 20) / 2.0 - 5;
+			double y = random.nextInt(height * 2 + 20) / 2.0 - 5;
+			Ship.DockingStatus status = random.nextInt(4) == 0 ? Ship.DockingStatus.Docked : Ship.DockingStatus.Undocked;
+			Ship ship = new Ship(random.nextInt(4), i, x, y, 255, status, 0, 0, 0);
+			ships.add(ship);
+			hash.add(ship);
+		}
+
+		// Remove a few, as GameState.moveShip does
+		for (int i = 0; i < 400; i += 7)
+			hash.remove(ships.get(i));
+
+		int queryMismatches = 0;
+		int nearestMismatches = 0;
+		for (int k = 0; k < 2000; k++) {
+			Position position = new Position(random.nextInt(width * 2 + 40) / 2.0 - 10, random.nextInt(height * 2 + 40) / 2.0 - 10);
+			double radius = random.nextInt(4) == 0 ? random.nextInt(200) / 2.0 : random.nextInt(30) / 2.0;
+
+			ArrayList<Ship> expected = new ArrayList<>();
+			for (int i = 0; i < ships.size(); i++)
+				if ((i % 7 != 0) && (ships.get(i).getDistanceTo(position) <= radius))
+					expected.add(ships.get(i));
+
+			ArrayList<Ship> actual = new ArrayList<>();
+			int numberFound = hash.query(position.getXPos(), position.getYPos(), radius);
+			for (int i = 0; i < numberFound; i++) {
+				Ship ship = hash.getShip(hash.getFound(i));
+				if (ship.getDistanceTo(position) <= radius)
+					actual.add(ship);
+			}
+
+			if (!expected.equals(actual))
+				queryMismatches++;
+
+			// Closest undocked ship of owner 0, first one on ties
+			Ship expectedClosest = null;
+			double minDistance = Double.MAX_VALUE;
+			for (int i = 0; i < ships.size(); i++) {
+				Ship ship = ships.get(i);
+				if ((i % 7 != 0) && (ship.getOwner() == 0) && ship.isUndocked() && (ship.getDistanceTo(position) < minDistance)) {
+					minDistance = ship.getDistanceTo(position);
+					expectedClosest = ship;
+				}
+			}
+
+			int entry = hash.nearest(position.getXPos(), position.getYPos(), e ->
+				((hash.getOwner(e) == 0) && hash.isUndocked(e)) ? hash.getShip(e).getDistanceTo(position) : Double.MAX_VALUE);
+			Ship actualClosest = (entry == -1) ? null : hash.getShip(entry);
+
+			if (expectedClosest != actualClosest)
+				nearestMismatches++;
+		}
+
+		System.out.println("Range query mismatches: " + queryMismatches + " (expected 0)");
+		System.out.println("Nearest query mismatches: " + nearestMismatches + " (expected 0)");
+	}
+}
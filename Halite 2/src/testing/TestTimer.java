@@ -0,0 +1,46 @@
+package testing;
+
+import java.util.HashMap;
+import core.Timer;
+
+public class TestTimer {
+
+	public static void main(String args[]) throws Exception {
+
+		HashMap<String,Object> gameDefinitions = new HashMap<>();
+		gameDefinitions.put("navigationBudget", 1000.0);
+		gameDefinitions.put("combatSearchBudget", 20.0);
+		Timer timer = new Timer();
+		timer.setBudgets(gameDefinitions);
+
+		// Not started, as in a replay: nothing ever stops
+		timer.startPhase(Timer.Phase.Navigation);
+		timer.startCombatSearch();
+		Thread.sleep(30);
+		System.out.println("Stopped without a turn started: " + (timer.shouldStopSearch() || timer.shouldStop()) + " (expected false)");
+		timer.endCombatSearch();
+
+		timer.startTurn();
+		timer.startPhase(Timer.Phase.Navigation);
+		timer.startCombatSearch();
+		System.out.println("Search stopped at its start: " + timer.shouldStopSearch() + " (expected false)");
+		Thread.sleep(30);
+		System.out.println("Search stopped after its budget: " + timer.shouldStopSearch() + " (expected true)");
+		System.out.println("Navigation stopped by the search: " + timer.shouldStop() + " (expected false)");
+		timer.endCombatSearch();
+
+		// The budget is for all the searches of the turn
+		timer.startCombatSearch();
+		System.out.println("Next search stopped once the budget is spent: " + timer.shouldStopSearch() + " (expected true)");
+		timer.endCombatSearch();
+		System.out.println("Navigation stopped after the searches: " + timer.shouldStop() + " (expected false)");
+
+		timer.endTurn();
+		timer.startTurn();
+		timer.startPhase(Timer.Phase.Navigation);
+		timer.startCombatSearch();
+		System.out.println("Search stopped on the next turn: " + timer.shouldStopSearch() + " (expected false)");
+		timer.endCombatSearch();
+		timer.endTurn();
+	}
+}
@@ -0,0 +1,117 @@
+package testing;
+
+import java.util.Random;
+import core.TrajectoryReservations;
+import hlt.*;
+
+public class TestTrajectoryReservations {
+
+	public static void main(String args[]) throws Exception {
+
+		Random random = new Random(17);
+		TrajectoryReservations reservations = new TrajectoryReservations();
+
+		int queries = 0;
+		int mismatches = 0;
+		int blocked = 0;
+		int undoMismatches = 0;
+
+		for (int scene = 0; scene < 300; scene++) {
+			// A crowd of ships, some holding still, some committed to a move, some moved twice
+			int numberOfShips = 20 + random.nextInt(150);
+			double[][] trajectories = new double[numberOfShips][];
+			reservations.clear(240, 160);
+			for (int id = 0; id < numberOfShips; id++) {
+				trajectories[id] = randomTrajectory(random);
+				reserve(reservations, id, trajectories[id]);
+			}
+			for (int id = 0; id < numberOfShips; id++) {
+				if (random.nextInt(3) != 0) {
+					trajectories[id] = randomTrajectory(random, trajectories[id][0], trajectories[id][1]);
+					reserve(reservations, id, trajectories[id]);
+				}
+			}
+
+			// Trial moves on top, checked and taken back
+			int mark = reservations.mark();
+			double[][] trials = new double[numberOfShips][];
+			for (int id = 0; id < numberOfShips; id += 7) {
+				trials[id] = randomTrajectory(random, trajectories[id][0], trajectories[id][1]);
+				reserve(reservations, id, trials[id]);
+			}
+
+			for (int query = 0; query < 200; query++) {
+				double[] candidate = randomTrajectory(random);
+				int ignored = random.nextInt(numberOfShips);
+
+				boolean expected = true;
+				for (int id = 0; id < numberOfShips; id++)
+					if (id != ignored && willMeet(candidate, (trials[id] != null) ? trials[id] : trajectories[id]))
+						expected = false;
+
+				boolean actual = reservations.isFree(candidate[0], candidate[1], candidate[2], candidate[3], Constants.SHIP_RADIUS, ignored);
+				queries++;
+				if (expected != actual)
+					mismatches++;
+				if (!actual)
+					blocked++;
+			}
+
+			reservations.undo(mark);
+			for (int query = 0; query < 200; query++) {
+				double[] candidate = randomTrajectory(random);
+				int ignored = random.nextInt(numberOfShips);
+
+				boolean expected = true;
+				for (int id = 0; id < numberOfShips; id++)
+					if (id != ignored && willMeet(candidate, trajectories[id]))
+						expected = false;
+
+				if (expected != reservations.isFree(candidate[0], candidate[1], candidate[2], candidate[3], Constants.SHIP_RADIUS, ignored))
+					undoMismatches++;
+			}
+
+			if (reservations.size() != mark)
+				undoMismatches++;
+		}
+
+		System.out.println("Queries different from the brute force: " + mismatches + " of " + queries + " (expected 0, " + blocked + " blocked)");
+		System.out.println("Queries wrong after undo: " + undoMismatches + " (expected 0)");
+
+		// Paths crossing at the same time meet, a path crossing once the ship has gone by does not
+		reservations.clear(240, 160);
+		reservations.reserve(0, 100, 100, 7, 0, Constants.SHIP_RADIUS);
+		System.out.println("Crossing in the middle of the turn blocked: " + !reservations.isFree(103.5, 96.5, 0, 7, Constants.SHIP_RADIUS, -1) + " (expected true)");
+		System.out.println("Crossing behind it free: " + reservations.isFree(101, 96, 0, 4, Constants.SHIP_RADIUS, -1) + " (expected true)");
+		System.out.println("Its own reservation ignored: " + reservations.isFree(100, 100, 0, 7, Constants.SHIP_RADIUS, 0) + " (expected true)");
+	}
+
+	private static void reserve(TrajectoryReservations reservations, int id, double[] trajectory) {
+		reservations.reserve(id, trajectory[0], trajectory[1], trajectory[2], trajectory[3], Constants.SHIP_RADIUS);
+	}
+
+	private static double[] randomTrajectory(Random random) {
+		return randomTrajectory(random, 40 + random.nextDouble() * 160, 40 + random.nextDouble() * 80);
+	}
+
+	private static double[] randomTrajectory(Random random, double x, double y) {
+		int angle = random.nextInt(360);
+		int thrust = random.nextInt(4) == 0 ? 0 : random.nextInt(Constants.MAX_SPEED + 1);
+		return new double[] {x, y, Trig.dX(angle, thrust), Trig.dY(angle, thrust)};
+	}
+
+	// Closest approach of the two ships over the turn, the test the table applies to the candidates of its grid
+	private static boolean willMeet(double[] first, double[] second) {
+		double reach = 2 * Constants.SHIP_RADIUS;
+		double px = first[0] - second[0];
+		double py = first[1] - second[1];
+		double vx = first[2] - second[2];
+		double vy = first[3] - second[3];
+
+		double speed = vx * vx + vy * vy;
+		double time = speed > 0 ? Math.max(0, Math.min(1, -(px * vx + py * vy) / speed)) : 0;
+		double closestX = px + time * vx;
+		double closestY = py + time * vy;
+		return closestX * closestX + closestY * closestY <= reach * reach;
+	}
+}
@@ -0,0 +1,71 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import core.CombatManager.TranspositionTable;
+
+public class TestTranspositionTable {
+
+	public static void main(String args[]) throws Exception {
+
+		TranspositionTable table = new TranspositionTable(1000);
+		TranspositionTable.Entry entry = new TranspositionTable.Entry();
+		System.out.println("Capacity for 1000 nodes: " + table.getCapacity() + " (expected 1024)");
+		System.out.println("Capacity for a huge tree: " + new TranspositionTable(Integer.MAX_VALUE).getCapacity() + " (expected 65536)");
+
+		long key = 0x1234_5678_9ABCL;
+		table.store(key, 3, 1.0, TranspositionTable.Bound.EXACT, 4);
+		System.out.println("Stored node found: " + (table.probe(key, entry) && entry.getScore() == 1.0 && entry.getRemainingDepth() == 3
+				&& entry.getBound() == TranspositionTable.Bound.EXACT && entry.getBestChild() == 4) + " (expected true)");
+		System.out.println("Other node not found: " + !table.probe(key + 1, entry) + " (expected true)");
+
+		// Same slot, other key: a shallower node keeps out, a deeper one replaces
+		long sameSlot = key + ((long) table.getCapacity() << 32) + table.getCapacity();
+		table.store(sameSlot, 2, -1.0, TranspositionTable.Bound.LOWER, 0);
+		System.out.println("Shallower node kept out: " + (table.probe(key, entry) && !table.probe(sameSlot, entry)) + " (expected true)");
+		table.store(sameSlot, 3, -1.0, TranspositionTable.Bound.LOWER, -1);
+		System.out.println("As deep node replaces: " + (!table.probe(key, entry) && table.probe(sameSlot, entry) && entry.getBestChild() == -1) + " (expected true)");
+
+		// A later iteration replaces whatever the earlier ones left
+		table.nextGeneration();
+		table.store(key, 1, 2.0, TranspositionTable.Bound.UPPER, 1);
+		System.out.println("Node of the next iteration replaces: " + (table.probe(key, entry) && entry.getScore() == 2.0) + " (expected true)");
+
+		// The same node searched again is updated, however deep
+		table.store(key, 0, 3.0, TranspositionTable.Bound.EXACT, 2);
+		System.out.println("Same node updated: " + (table.probe(key, entry) && entry.getScore() == 3.0 && entry.getRemainingDepth() == 0) + " (expected true)");
+
+		// Threads storing and probing the same slots at once: a probe finds a node whole or not at all
+		TranspositionTable shared = new TranspositionTable(256);
+		AtomicLong hits = new AtomicLong();
+		AtomicLong torn = new AtomicLong();
+		ArrayList<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			final int seed = t;
+			Thread thread = new Thread(() -> {
+				Random random = new Random(seed);
+				TranspositionTable.Entry found = new TranspositionTable.Entry();
+				for (int i = 0; i < 2_000_000; i++) {
+					long node = random.nextInt(4096) * 0x9E3779B97F4A7C15L;
+					if (random.nextBoolean())
+						shared.store(node, depthOf(node), scoreOf(node), TranspositionTable.Bound.EXACT, childOf(node));
+					else if (shared.probe(node, found)) {
+						hits.incrementAndGet();
+						if (found.getScore() != scoreOf(node) || found.getRemainingDepth() != depthOf(node) || found.getBestChild() != childOf(node))
+							torn.incrementAndGet();
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		System.out.println("Nodes found mixed with another under 4 threads: " + torn.get() + " of " + hits.get() + " (expected 0)");
+	}
+
+	private static double scoreOf(long node) { return (node >>> 40) / 7.0; }
+	private static int depthOf(long node) { return (int) ((node >>> 20) & 0xFF); }
+	private static int childOf(long node) { return (int) ((node >>> 8) & 0xFFF); }
+}
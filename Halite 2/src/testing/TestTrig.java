@@ -0,0 +1,57 @@
+package testing;
+
+import java.util.Random;
+import hlt.*;
+
+public class TestTrig {
+
+	public static void main(String args[]) throws Exception {
+
+		Random random = new Random(5);
+
+		// Every tabulated displacement against the formula ThrustMove used
+		int displacementMismatches = 0;
+		Ship ship = new Ship(0, 0, 50, 50, 255, Ship.DockingStatus.Undocked, -1, 0, 0);
+		for (int thrust = 0; thrust <= Constants.MAX_SPEED; thrust++) {
+			for (int angleDeg = 0; angleDeg < 360; angleDeg++) {
+				ThrustMove move = new ThrustMove(ship, angleDeg, thrust, 1.0);
+				double angleRad = Math.toRadians((double) angleDeg);
+				if ((move.dX() != thrust * Math.cos(angleRad)) || (move.dY() != thrust * Math.sin(angleRad)))
+					displacementMismatches++;
+			}
+		}
+		System.out.println("Displacements different from Math.cos/sin: " + displacementMismatches + " (expected 0)");
+
+		// Orientations: random, on a lattice like ship positions often are, and exactly on half degrees
+		int angleMismatches = 0;
+		double maxError = 0;
+		int samples = 3000000;
+		for (int i = 0; i < samples; i++) {
+			double dx;
+			double dy;
+			if (i % 3 == 0) {
+				dx = random.nextDouble() * 400 - 200;
+				dy = random.nextDouble() * 400 - 200;
+			} else if (i % 3 == 1) {
+				dx = random.nextInt(801) / 2.0 - 200;
+				dy = random.nextInt(801) / 2.0 - 200;
+			} else {
+				double angleRad = Math.toRadians(random.nextInt(720) / 2.0);
+				double distance = random.nextDouble() * 50;
+				dx = Math.cos(angleRad) * distance;
+				dy = Math.sin(angleRad) * distance;
+			}
+
+			int expected = Navigation.angleRadToDegClipped(Math.atan2(dy, dx) + 2 * Math.PI);
+			if (Trig.orientationInDeg(dx, dy) != expected)
+				angleMismatches++;
+			if ((dx != 0) || (dy != 0))
+				maxError = Math.max(maxError, Math.abs(Trig.atan2(dy, dx) - Math.atan2(dy, dx)));
+		}
+		System.out.println("Orientations different from Math.atan2: " + angleMismatches + " of " + samples + " (expected 0)");
+		System.out.println("atan2 error below 1e-7: " + (maxError < 1e-7) + " (expected true)");
+
+		System.out.println("Orientation straight left: " + Trig.orientationInDeg(-1, 0) + " (expected 180)");
+		System.out.println("Orientation on itself: " + Trig.orientationInDeg(0, 0) + " (expected 0)");
+	}
+}